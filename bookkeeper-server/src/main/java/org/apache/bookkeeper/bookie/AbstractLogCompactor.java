@@ -26,12 +26,16 @@ import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Abstract entry log compactor used for compaction.
  */
 public abstract class AbstractLogCompactor {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractLogCompactor.class);
+
     protected final ServerConfiguration conf;
     protected final Throttler throttler;
 
@@ -45,8 +49,16 @@ public abstract class AbstractLogCompactor {
     protected final LogRemovalListener logRemovalListener;
 
     public AbstractLogCompactor(ServerConfiguration conf, LogRemovalListener logRemovalListener) {
+        this(conf, logRemovalListener, new Throttler(conf));
+    }
+
+    /**
+     * Create a compactor sharing the compaction rate limit of other compactors.
+     */
+    public AbstractLogCompactor(ServerConfiguration conf, LogRemovalListener logRemovalListener,
+                                Throttler throttler) {
         this.conf = conf;
-        this.throttler = new Throttler(conf);
+        this.throttler = throttler;
         this.logRemovalListener = logRemovalListener;
     }
 
@@ -64,23 +76,97 @@ public abstract class AbstractLogCompactor {
 
     /**
      * class Throttler.
+     *
+     * <p>If adaptive throttling is enabled, the rate is adjusted every second between the configured rate
+     * divided and multiplied by <i>compactionAdaptiveRateMultiplier</i>: it is halved when the foreground
+     * journal add or read latency is above its threshold, and increased by a tenth of the configured rate
+     * otherwise.
      */
     public static class Throttler {
+        private static final long ADJUST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
         private final RateLimiter rateLimiter;
         private final boolean isThrottleByBytes;
         private final AtomicBoolean cancelled = new AtomicBoolean(false);
 
+        private final boolean adaptive;
+        private final double baseRate;
+        private final double minRate;
+        private final double maxRate;
+        private final long journalAddLatencyThresholdNanos;
+        private final long readLatencyThresholdNanos;
+        private volatile ForegroundLatencyTracker.Sampler latencySampler;
+        private volatile long lastAdjustNanos;
+
         Throttler(ServerConfiguration conf) {
             this.isThrottleByBytes  = conf.getIsThrottleByBytes();
-            this.rateLimiter = RateLimiter.create(this.isThrottleByBytes
-                ? conf.getCompactionRateByBytes() : conf.getCompactionRateByEntries());
+            this.baseRate = this.isThrottleByBytes
+                ? conf.getCompactionRateByBytes() : conf.getCompactionRateByEntries();
+            this.rateLimiter = RateLimiter.create(baseRate);
+
+            this.adaptive = conf.isCompactionAdaptiveThrottleEnabled();
+            int multiplier = Math.max(1, conf.getCompactionAdaptiveRateMultiplier());
+            this.minRate = baseRate / multiplier;
+            this.maxRate = baseRate * multiplier;
+            this.journalAddLatencyThresholdNanos =
+                TimeUnit.MILLISECONDS.toNanos(conf.getCompactionAdaptiveJournalAddLatencyThresholdMs());
+            this.readLatencyThresholdNanos =
+                TimeUnit.MILLISECONDS.toNanos(conf.getCompactionAdaptiveReadLatencyThresholdMs());
+            this.lastAdjustNanos = System.nanoTime();
+        }
+
+        /**
+         * Set the tracker of the foreground latency driving the rate, if adaptive throttling is enabled.
+         */
+        void setForegroundLatencyTracker(ForegroundLatencyTracker tracker) {
+            if (adaptive && tracker != null) {
+                this.latencySampler = tracker.newSampler();
+            }
+        }
+
+        // the current allowed rate, in bytes or entries per second.
+        public double getRate() {
+            return rateLimiter.getRate();
         }
 
         // acquire. if bybytes: bytes of this entry; if byentries: 1.
         boolean tryAcquire(int permits, long timeout, TimeUnit unit) {
+            maybeAdjustRate();
             return rateLimiter.tryAcquire(this.isThrottleByBytes ? permits : 1, timeout, unit);
         }
 
+        private void maybeAdjustRate() {
+            ForegroundLatencyTracker.Sampler sampler = latencySampler;
+            if (sampler == null || System.nanoTime() - lastAdjustNanos < ADJUST_INTERVAL_NANOS) {
+                return;
+            }
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (now - lastAdjustNanos < ADJUST_INTERVAL_NANOS) {
+                    return;
+                }
+                lastAdjustNanos = now;
+                sampler.sample();
+
+                double rate = rateLimiter.getRate();
+                double newRate;
+                if (sampler.getAvgJournalAddLatencyNanos() > journalAddLatencyThresholdNanos
+                        || sampler.getAvgReadLatencyNanos() > readLatencyThresholdNanos) {
+                    newRate = Math.max(minRate, rate / 2);
+                } else {
+                    newRate = Math.min(maxRate, rate + baseRate / 10);
+                }
+                if (newRate != rate) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Adjusting compaction rate from {} to {}, journal add latency {} ns,"
+                                + " read latency {} ns", rate, newRate, sampler.getAvgJournalAddLatencyNanos(),
+                                sampler.getAvgReadLatencyNanos());
+                    }
+                    rateLimiter.setRate(newRate);
+                }
+            }
+        }
+
         // GC thread will check the status for the rate limiter
         // If the compactor is being stopped by other threads,
         // and the GC thread is still limited, the compact task will be stopped.
@@ -62,6 +62,8 @@ public interface BookKeeperServerStats {
     String READ_ENTRY_LONG_POLL_PRE_WAIT = "READ_ENTRY_LONG_POLL_PRE_WAIT";
     String READ_ENTRY_LONG_POLL_WAIT = "READ_ENTRY_LONG_POLL_WAIT";
     String READ_ENTRY_LONG_POLL_READ = "READ_ENTRY_LONG_POLL_READ";
+    String READ_ENTRY_REPLICATION_REQUEST = "READ_ENTRY_REPLICATION_REQUEST";
+    String READ_ENTRY_REPLICATION_READ = "READ_ENTRY_REPLICATION_READ";
     String WRITE_LAC_REQUEST = "WRITE_LAC_REQUEST";
     String WRITE_LAC = "WRITE_LAC";
     String READ_LAC_REQUEST = "READ_LAC_REQUEST";
@@ -70,6 +72,8 @@ public interface BookKeeperServerStats {
     String GET_BOOKIE_INFO = "GET_BOOKIE_INFO";
     String GET_LIST_OF_ENTRIES_OF_LEDGER = "GET_LIST_OF_ENTRIES_OF_LEDGER";
     String GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST = "GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST";
+    String GET_LIST_OF_ENTRIES_OF_LEDGERS = "GET_LIST_OF_ENTRIES_OF_LEDGERS";
+    String GET_LIST_OF_ENTRIES_OF_LEDGERS_REQUEST = "GET_LIST_OF_ENTRIES_OF_LEDGERS_REQUEST";
 
     // Ensemble Stats
     String WATCHER_SCOPE = "bookie_watcher";
@@ -148,6 +152,9 @@ public interface BookKeeperServerStats {
     String ACTIVE_ENTRY_LOG_SPACE_BYTES = "ACTIVE_ENTRY_LOG_SPACE_BYTES";
     String RECLAIMED_COMPACTION_SPACE_BYTES = "RECLAIMED_COMPACTION_SPACE_BYTES";
     String RECLAIMED_DELETION_SPACE_BYTES = "RECLAIMED_DELETION_SPACE_BYTES";
+    String COMPACTION_REWRITTEN_BYTES = "COMPACTION_REWRITTEN_BYTES";
+    String COMPACTION_ALLOWED_RATE = "COMPACTION_ALLOWED_RATE";
+    String EXTRACTED_ENTRY_LOG_METADATA_COUNT = "EXTRACTED_ENTRY_LOG_METADATA_TOTAL";
     String THREAD_RUNTIME = "THREAD_RUNTIME";
     String MAJOR_COMPACTION_COUNT = "MAJOR_COMPACTION_TOTAL";
     String MINOR_COMPACTION_COUNT = "MINOR_COMPACTION_TOTAL";
@@ -189,4 +196,5 @@ public interface BookKeeperServerStats {
     String NUM_OF_WRITE_LEDGERS_REMOVED_CACHE_MAXSIZE = "NUM_OF_WRITE_LEDGERS_REMOVED_CACHE_MAXSIZE";
     String NUM_LEDGERS_HAVING_MULTIPLE_ENTRYLOGS = "NUM_LEDGERS_HAVING_MULTIPLE_ENTRYLOGS";
     String ENTRYLOGS_PER_LEDGER = "ENTRYLOGS_PER_LEDGER";
+    String NUM_LEDGERS_PROMOTED_TO_COLDER_ENTRYLOGS = "NUM_LEDGERS_PROMOTED_TO_COLDER_ENTRYLOGS";
 }
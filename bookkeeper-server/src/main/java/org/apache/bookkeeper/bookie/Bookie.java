@@ -53,10 +53,15 @@ public interface Bookie {
     // these can probably be moved out and called directly on ledgerdirmanager
     long getTotalDiskSpace() throws IOException;
     long getTotalFreeSpace() throws IOException;
+    // number of entries waiting to be written to the journals
+    int getJournalQueueLength();
 
     // TODO: Shouldn't this be async?
     ByteBuf readEntry(long ledgerId, long entryId)
             throws IOException, NoLedgerException, BookieException;
+    // read an entry for the autorecovery, without caching it nor counting it as a foreground read
+    ByteBuf readEntryForReplication(long ledgerId, long entryId)
+            throws IOException, NoLedgerException, BookieException;
     long readLastAddConfirmed(long ledgerId) throws IOException, BookieException;
     PrimitiveIterator.OfLong getListOfEntriesOfLedger(long ledgerId) throws IOException, NoLedgerException;
 
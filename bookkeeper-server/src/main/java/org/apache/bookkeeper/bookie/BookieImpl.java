@@ -122,6 +122,8 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
     // Expose Stats
     final StatsLogger statsLogger;
     private final BookieStats bookieStats;
+    // latency of the journal adds and entry reads, used to throttle compaction
+    private final ForegroundLatencyTracker foregroundLatencyTracker = new ForegroundLatencyTracker();
 
     private final ByteBufAllocator allocator;
 
@@ -316,6 +318,15 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         return getLedgerDirsManager().getTotalFreeSpace(ledgerDirsManager.getAllLedgerDirs());
     }
 
+    @Override
+    public int getJournalQueueLength() {
+        int journalQueueLength = 0;
+        for (Journal journal : journals) {
+            journalQueueLength += journal.getJournalQueueLength();
+        }
+        return journalQueueLength;
+    }
+
     public static File getCurrentDirectory(File dir) {
         return new File(dir, BookKeeperConstants.CURRENT_DIR);
     }
@@ -436,6 +447,7 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
             journals.add(new Journal(i, journalDirectories.get(i),
                     conf, ledgerDirsManager, statsLogger.scope(JOURNAL_SCOPE), allocator, journalAliveListener));
         }
+        journals.forEach(journal -> journal.setForegroundLatencyTracker(foregroundLatencyTracker));
 
         this.entryLogPerLedgerEnabled = conf.isEntryLogPerLedgerEnabled();
         CheckpointSource checkpointSource = new CheckpointSourceList(journals);
@@ -489,6 +501,7 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         ledgerStorage.setStateManager(stateManager);
         ledgerStorage.setCheckpointSource(checkpointSource);
         ledgerStorage.setCheckpointer(syncThread);
+        ledgerStorage.setForegroundLatencyTracker(foregroundLatencyTracker);
         ledgerStorage.registerLedgerDeletionListener(ledgerDeletionListener);
         handles = new HandleFactoryImpl(ledgerStorage);
 
@@ -1106,6 +1119,17 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
 
     public ByteBuf readEntry(long ledgerId, long entryId)
             throws IOException, NoLedgerException, BookieException {
+        return readEntry(ledgerId, entryId, false);
+    }
+
+    @Override
+    public ByteBuf readEntryForReplication(long ledgerId, long entryId)
+            throws IOException, NoLedgerException, BookieException {
+        return readEntry(ledgerId, entryId, true);
+    }
+
+    private ByteBuf readEntry(long ledgerId, long entryId, boolean replication)
+            throws IOException, NoLedgerException, BookieException {
         long requestNanos = MathUtils.nowInNano();
         boolean success = false;
         int entrySize = 0;
@@ -1114,7 +1138,7 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
             if (LOG.isTraceEnabled()) {
                 LOG.trace("Reading {}@{}", entryId, ledgerId);
             }
-            ByteBuf entry = handle.readEntry(entryId);
+            ByteBuf entry = replication ? handle.readEntryWithoutCaching(entryId) : handle.readEntry(entryId);
             entrySize = entry.readableBytes();
             bookieStats.getReadBytes().addCount(entrySize);
             success = true;
@@ -1124,6 +1148,9 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
             if (success) {
                 bookieStats.getReadEntryStats().registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
                 bookieStats.getReadBytesStats().registerSuccessfulValue(entrySize);
+                if (!replication) {
+                    foregroundLatencyTracker.recordReadLatency(elapsedNanos);
+                }
             } else {
                 bookieStats.getReadEntryStats().registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
                 bookieStats.getReadBytesStats().registerFailedValue(entrySize);
@@ -81,6 +81,7 @@ import org.apache.bookkeeper.tools.cli.commands.bookies.ListBookiesCommand;
 import org.apache.bookkeeper.tools.cli.commands.bookies.MetaFormatCommand;
 import org.apache.bookkeeper.tools.cli.commands.bookies.NukeExistingClusterCommand;
 import org.apache.bookkeeper.tools.cli.commands.bookies.NukeExistingClusterCommand.NukeExistingClusterFlags;
+import org.apache.bookkeeper.tools.cli.commands.bookies.RebalanceCommand;
 import org.apache.bookkeeper.tools.cli.commands.bookies.RecoverCommand;
 import org.apache.bookkeeper.tools.cli.commands.client.DeleteLedgerCommand;
 import org.apache.bookkeeper.tools.cli.commands.client.LedgerMetaDataCommand;
@@ -150,6 +151,7 @@ public class BookieShell implements Tool {
     static final String CMD_BOOKIEINFO = "bookieinfo";
     static final String CMD_ACTIVE_LEDGERS_ON_ENTRY_LOG_FILE = "activeledgers";
     static final String CMD_DECOMMISSIONBOOKIE = "decommissionbookie";
+    static final String CMD_REBALANCEBOOKIES = "rebalancebookies";
     static final String CMD_ENDPOINTINFO = "endpointinfo";
     static final String CMD_LOSTBOOKIERECOVERYDELAY = "lostbookierecoverydelay";
     static final String CMD_TRIGGERAUDIT = "triggeraudit";
@@ -1953,6 +1955,61 @@ public class BookieShell implements Tool {
         }
     }
 
+    /**
+     * Command to move ledger replicas from the fullest or most loaded bookies to the bookies with room.
+     */
+    class RebalanceBookiesCmd extends MyCommand {
+
+        RebalanceBookiesCmd() {
+            super(CMD_REBALANCEBOOKIES);
+            opts.addOption("u", "usageThreshold", true,
+                    "Fraction of their disk capacity the bookies may use above the average usage (default 0.1)");
+            opts.addOption("l", "loadThreshold", true,
+                    "Multiple of the load of the median bookie above which a bookie is hot (default 2)");
+            opts.addOption("m", "maxBytes", true, "Maximum number of bytes to move, 0 for no limit (default 0)");
+            opts.addOption("r", "rate", true, "Maximum number of bytes copied per second");
+            opts.addOption("d", "dryrun", false, "Print the moves without doing them");
+        }
+
+        @Override
+        String getDescription() {
+            return "Move the replicas of closed ledgers from the bookies whose disk usage is above the average"
+                    + " or which are hot to the bookies with room.";
+        }
+
+        @Override
+        String getUsage() {
+            return CMD_REBALANCEBOOKIES + " [-usageThreshold <fraction>] [-loadThreshold <multiple>]"
+                    + " [-maxBytes <bytes>] [-rate <bytesPerSecond>] [-dryrun]";
+        }
+
+        @Override
+        Options getOptions() {
+            return opts;
+        }
+
+        @Override
+        public int runCmd(CommandLine cmdLine) throws Exception {
+            RebalanceCommand cmd = new RebalanceCommand();
+            RebalanceCommand.RebalanceFlags flags = new RebalanceCommand.RebalanceFlags();
+            if (cmdLine.hasOption("u")) {
+                flags.usageThreshold(Double.parseDouble(cmdLine.getOptionValue("u")));
+            }
+            if (cmdLine.hasOption("l")) {
+                flags.loadThreshold(Double.parseDouble(cmdLine.getOptionValue("l")));
+            }
+            if (cmdLine.hasOption("m")) {
+                flags.maxBytesToMove(Long.parseLong(cmdLine.getOptionValue("m")));
+            }
+            if (cmdLine.hasOption("r")) {
+                flags.rate(Integer.parseInt(cmdLine.getOptionValue("r")));
+            }
+            flags.dryRun(cmdLine.hasOption("d"));
+            boolean result = cmd.apply(bkConf, flags);
+            return (result) ? 0 : -1;
+        }
+    }
+
     /**
      * Command to retrieve remote bookie endpoint information.
      */
@@ -2273,6 +2330,7 @@ public class BookieShell implements Tool {
         commands.put(CMD_DELETELEDGER, new DeleteLedgerCmd());
         commands.put(CMD_BOOKIEINFO, new BookieInfoCmd());
         commands.put(CMD_DECOMMISSIONBOOKIE, new DecommissionBookieCmd());
+        commands.put(CMD_REBALANCEBOOKIES, new RebalanceBookiesCmd());
         commands.put(CMD_ENDPOINTINFO, new EndpointInfoCmd());
         commands.put(CMD_CONVERT_TO_DB_STORAGE, new ConvertToDbStorageCmd());
         commands.put(CMD_CONVERT_TO_INTERLEAVED_STORAGE, new ConvertToInterleavedStorageCmd());
@@ -0,0 +1,43 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * This is the status of a compaction worker of the garbage collector.
+ * It includes the entry log being compacted and the progress of the worker.
+ */
+@Getter
+@Builder
+public class CompactionWorkerStatus {
+    private int workerId;
+    // the entry log being compacted, -1 if the worker is idle.
+    private long compactingEntryLogId;
+    private long compactedEntryLogs;
+    private long failedCompactions;
+    // bytes of live entries rewritten by the worker.
+    private long compactedBytes;
+    // bytes of disk space reclaimed by the worker.
+    private long reclaimedBytes;
+}
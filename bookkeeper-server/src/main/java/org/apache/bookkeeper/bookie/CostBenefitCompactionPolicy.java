@@ -0,0 +1,111 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cost-benefit compaction policy, as used by log-structured file systems.
+ *
+ * <p>Entry logs below the threshold are compacted by decreasing {@code (1 - u) * age / (1 + u)}, where
+ * {@code u} is the usage of the entry log: compacting it reads the whole log and rewrites {@code u} of it
+ * to reclaim {@code 1 - u}, and the older its remaining data is, the longer it is expected to stay.
+ *
+ * <p>The age of an entry log is the time since the policy first saw it, and the policy also tracks how fast
+ * the remaining data of every entry log shrank since the previous selection which saw it. An entry log
+ * whose data is predicted to be all deleted at that rate sooner than it has lived so far is not compacted:
+ * its ledgers are being deleted, and the log will most likely be reclaimed without rewriting anything.
+ * Once the deletions stop, the entry log is compacted again.
+ *
+ * <p>The state of the policy is kept in memory, after a restart all the entry logs have the same age, and
+ * they are compacted from the emptiest to the fullest.
+ */
+public class CostBenefitCompactionPolicy implements EntryLogCompactionPolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CostBenefitCompactionPolicy.class);
+
+    /**
+     * When the policy first saw an entry log, and its remaining size the last time it saw it.
+     */
+    private static class Observation {
+        final long firstSeenTime;
+        long lastSeenTime;
+        long lastRemainingSize;
+
+        Observation(long firstSeenTime, long remainingSize) {
+            this.firstSeenTime = firstSeenTime;
+            this.lastSeenTime = firstSeenTime;
+            this.lastRemainingSize = remainingSize;
+        }
+    }
+
+    // selections are made by the garbage collector thread, removals may come from the compaction workers
+    private final Map<Long, Observation> observations = new ConcurrentHashMap<>();
+
+    @Override
+    public List<EntryLogUsage> select(List<EntryLogUsage> entryLogs, double threshold) {
+        long now = System.currentTimeMillis();
+        Map<Long, Double> scores = new HashMap<>();
+        List<EntryLogUsage> selected = new ArrayList<>();
+        for (EntryLogUsage entryLog : entryLogs) {
+            Observation observation = observations.computeIfAbsent(entryLog.getEntryLogId(),
+                    id -> new Observation(now, entryLog.getRemainingSize()));
+            // use at least one millisecond, so the logs seen for the first time are ordered by usage
+            long age = Math.max(1L, now - observation.firstSeenTime);
+            long elapsed = Math.max(1L, now - observation.lastSeenTime);
+            long deletedSize = observation.lastRemainingSize - entryLog.getRemainingSize();
+            observation.lastSeenTime = now;
+            observation.lastRemainingSize = entryLog.getRemainingSize();
+            if (entryLog.getUsage() >= threshold) {
+                continue;
+            }
+            // at the deletion rate since the previous selection, the remaining data is deleted in
+            // remaining * elapsed / deleted, skip the log if that is sooner than its age
+            if ((double) deletedSize * age > (double) entryLog.getRemainingSize() * elapsed) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Skipping compaction of {}, {} bytes deleted in the last {} ms",
+                            entryLog, deletedSize, elapsed);
+                }
+                continue;
+            }
+            double usage = entryLog.getUsage();
+            scores.put(entryLog.getEntryLogId(), (1.0d - usage) * age / (1.0d + usage));
+            selected.add(entryLog);
+        }
+        selected.sort(Comparator.comparingDouble(
+                (EntryLogUsage entryLog) -> scores.get(entryLog.getEntryLogId())).reversed());
+        return selected;
+    }
+
+    @Override
+    public void entryLogRemoved(long entryLogId) {
+        // the entry logs which are not selected, or not passed at all, keep their history until they are removed
+        observations.remove(entryLogId);
+    }
+}
@@ -61,6 +61,7 @@ import org.apache.bookkeeper.bookie.storage.CompactionEntryLog;
 import org.apache.bookkeeper.bookie.storage.EntryLogScanner;
 import org.apache.bookkeeper.bookie.storage.EntryLogger;
 import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
 import org.apache.bookkeeper.stats.NullStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.util.DiskChecker;
@@ -217,7 +218,8 @@ public class DefaultEntryLogger implements EntryLogger {
      */
     private final Object compactionLogLock = new Object();
 
-    private volatile BufferedLogChannel compactionLogChannel;
+    // the compaction logs being written, one per compaction, guarded by compactionLogLock
+    private final Set<BufferedLogChannel> compactionLogChannels = new HashSet<>();
 
     final EntryLoggerAllocator entryLoggerAllocator;
     private final EntryLogManager entryLogManager;
@@ -350,7 +352,10 @@ public class DefaultEntryLogger implements EntryLogger {
         this.recentlyCreatedEntryLogsStatus = new RecentEntryLogsStatus(logId + 1);
         this.entryLoggerAllocator = new EntryLoggerAllocator(conf, ledgerDirsManager, recentlyCreatedEntryLogsStatus,
                 logId, allocator);
-        if (entryLogPerLedgerEnabled) {
+        if (entryLogPerLedgerEnabled && conf.getEntryLogLifetimeClassBoundariesSecs().length > 0) {
+            this.entryLogManager = new EntryLogManagerForLifetimeClasses(conf, ledgerDirsManager,
+                    entryLoggerAllocator, listeners, recentlyCreatedEntryLogsStatus, statsLogger);
+        } else if (entryLogPerLedgerEnabled) {
             this.entryLogManager = new EntryLogManagerForEntryLogPerLedger(conf, ledgerDirsManager,
                     entryLoggerAllocator, listeners, recentlyCreatedEntryLogsStatus, statsLogger);
         } else {
@@ -363,6 +368,16 @@ public class DefaultEntryLogger implements EntryLogger {
         return entryLogManager;
     }
 
+    /**
+     * Set the ledger manager the entry log manager reads the retention hints of the ledgers from, when
+     * ledgers are grouped into entry logs by lifetime class.
+     */
+    public void setLedgerManager(LedgerManager ledgerManager) {
+        if (entryLogManager instanceof EntryLogManagerForLifetimeClasses) {
+            ((EntryLogManagerForLifetimeClasses) entryLogManager).setLedgerManager(ledgerManager);
+        }
+    }
+
     void addListener(EntryLogListener listener) {
         if (null != listener) {
             listeners.add(listener);
@@ -478,18 +493,6 @@ public class DefaultEntryLogger implements EntryLogger {
         return entryLoggerAllocator.getPreallocatedLogId();
     }
 
-    /**
-     * Get the current log file for compaction.
-     */
-    private File getCurCompactionLogFile() {
-        synchronized (compactionLogLock) {
-            if (compactionLogChannel == null) {
-                return null;
-            }
-            return compactionLogChannel.getLogFile();
-        }
-    }
-
     void prepareSortedLedgerStorageCheckpoint(long numBytesFlushed) throws IOException {
         entryLogManager.prepareSortedLedgerStorageCheckpoint(numBytesFlushed);
     }
@@ -608,73 +611,6 @@ public class DefaultEntryLogger implements EntryLogger {
         }
     };
 
-    private long addEntryForCompaction(long ledgerId, ByteBuf entry) throws IOException {
-        synchronized (compactionLogLock) {
-            int entrySize = entry.readableBytes() + 4;
-            if (compactionLogChannel == null) {
-                createNewCompactionLog();
-            }
-
-            ByteBuf sizeBuffer = this.sizeBuffer.get();
-            sizeBuffer.clear();
-            sizeBuffer.writeInt(entry.readableBytes());
-            compactionLogChannel.write(sizeBuffer);
-
-            long pos = compactionLogChannel.position();
-            compactionLogChannel.write(entry);
-            compactionLogChannel.registerWrittenEntry(ledgerId, entrySize);
-            return (compactionLogChannel.getLogId() << 32L) | pos;
-        }
-    }
-
-    private void flushCompactionLog() throws IOException {
-        synchronized (compactionLogLock) {
-            if (compactionLogChannel != null) {
-                compactionLogChannel.appendLedgersMap();
-                compactionLogChannel.flushAndForceWrite(false);
-                LOG.info("Flushed compaction log file {} with logId {}.",
-                    compactionLogChannel.getLogFile(),
-                    compactionLogChannel.getLogId());
-                // since this channel is only used for writing, after flushing the channel,
-                // we had to close the underlying file channel. Otherwise, we might end up
-                // leaking fds which cause the disk spaces could not be reclaimed.
-                compactionLogChannel.close();
-            } else {
-                throw new IOException("Failed to flush compaction log which has already been removed.");
-            }
-        }
-    }
-
-    private void createNewCompactionLog() throws IOException {
-        synchronized (compactionLogLock) {
-            if (compactionLogChannel == null) {
-                compactionLogChannel = entryLogManager.createNewLogForCompaction();
-            }
-        }
-    }
-
-    /**
-     * Remove the current compaction log, usually invoked when compaction failed and
-     * we need to do some clean up to remove the compaction log file.
-     */
-    private void removeCurCompactionLog() {
-        synchronized (compactionLogLock) {
-            if (compactionLogChannel != null) {
-                if (!compactionLogChannel.getLogFile().delete()) {
-                    LOG.warn("Could not delete compaction log file {}", compactionLogChannel.getLogFile());
-                }
-
-                try {
-                    compactionLogChannel.close();
-                } catch (IOException e) {
-                    LOG.error("Failed to close file channel for compaction log {}", compactionLogChannel.getLogId(),
-                            e);
-                }
-                compactionLogChannel = null;
-            }
-        }
-    }
-
     static long logIdForOffset(long offset) {
         return offset >> 32L;
     }
@@ -1173,10 +1109,10 @@ public class DefaultEntryLogger implements EntryLogger {
             logid2FileChannel.clear();
             entryLogManager.close();
             synchronized (compactionLogLock) {
-                if (compactionLogChannel != null) {
+                for (BufferedLogChannel compactionLogChannel : compactionLogChannels) {
                     compactionLogChannel.close();
-                    compactionLogChannel = null;
                 }
+                compactionLogChannels.clear();
             }
         } catch (IOException ie) {
             // we have no idea how to avoid io exception during shutting down, so just ignore it
@@ -1188,7 +1124,9 @@ public class DefaultEntryLogger implements EntryLogger {
 
             entryLogManager.forceClose();
             synchronized (compactionLogLock) {
-                IOUtils.close(LOG, compactionLogChannel);
+                for (BufferedLogChannel compactionLogChannel : compactionLogChannels) {
+                    IOUtils.close(LOG, compactionLogChannel);
+                }
             }
         }
         // shutdown the pre-allocation thread
@@ -1263,16 +1201,19 @@ public class DefaultEntryLogger implements EntryLogger {
 
     @Override
     public CompactionEntryLog newCompactionLog(long logToCompact) throws IOException {
-        createNewCompactionLog();
+        // every compaction has its own compaction log, so several entry logs can be compacted at a time
+        BufferedLogChannel compactionLogChannel = entryLogManager.createNewLogForCompaction();
+        synchronized (compactionLogLock) {
+            compactionLogChannels.add(compactionLogChannel);
+        }
 
-        File compactingLogFile = getCurCompactionLogFile();
-        long compactionLogId = fileName2LogId(compactingLogFile.getName());
+        File compactingLogFile = compactionLogChannel.getLogFile();
         File compactedLogFile = compactedLogFileFromCompacting(compactingLogFile, logToCompact);
         File finalLogFile = new File(compactingLogFile.getParentFile(),
                                      compactingLogFile.getName().substring(0,
                                              compactingLogFile.getName().indexOf(".log") + 4));
-        return new EntryLoggerCompactionEntryLog(
-                compactionLogId, logToCompact, compactingLogFile, compactedLogFile, finalLogFile);
+        return new EntryLoggerCompactionEntryLog(compactionLogChannel.getLogId(), compactionLogChannel,
+                logToCompact, compactingLogFile, compactedLogFile, finalLogFile);
 
     }
 
@@ -1282,11 +1223,16 @@ public class DefaultEntryLogger implements EntryLogger {
         private final File compactingLogFile;
         private final File compactedLogFile;
         private final File finalLogFile;
+        // null once the compaction log is removed, or for a compaction log recovered after a restart,
+        // guarded by this
+        private BufferedLogChannel compactionLogChannel;
 
-        EntryLoggerCompactionEntryLog(long compactionLogId, long logIdToCompact,
+        EntryLoggerCompactionEntryLog(long compactionLogId, BufferedLogChannel compactionLogChannel,
+                                      long logIdToCompact,
                                       File compactingLogFile,
                                       File compactedLogFile,
                                       File finalLogFile) {
+            this.compactionLogChannel = compactionLogChannel;
             this.compactionLogId = compactionLogId;
             this.logIdToCompact = logIdToCompact;
             this.compactingLogFile = compactingLogFile;
@@ -1295,20 +1241,63 @@ public class DefaultEntryLogger implements EntryLogger {
         }
 
         @Override
-        public long addEntry(long ledgerId, ByteBuf entry) throws IOException {
-            return addEntryForCompaction(ledgerId, entry);
+        public synchronized long addEntry(long ledgerId, ByteBuf entry) throws IOException {
+            if (compactionLogChannel == null) {
+                throw new IOException("Failed to add entry to compaction log which has already been removed.");
+            }
+            int entrySize = entry.readableBytes() + 4;
+            ByteBuf sizeBuffer = DefaultEntryLogger.this.sizeBuffer.get();
+            sizeBuffer.clear();
+            sizeBuffer.writeInt(entry.readableBytes());
+            compactionLogChannel.write(sizeBuffer);
+
+            long pos = compactionLogChannel.position();
+            compactionLogChannel.write(entry);
+            compactionLogChannel.registerWrittenEntry(ledgerId, entrySize);
+            return (compactionLogId << 32L) | pos;
         }
         @Override
         public void scan(EntryLogScanner scanner) throws IOException {
             scanEntryLog(compactionLogId, scanner);
         }
         @Override
-        public void flush() throws IOException {
-            flushCompactionLog();
+        public synchronized void flush() throws IOException {
+            if (compactionLogChannel == null) {
+                throw new IOException("Failed to flush compaction log which has already been removed.");
+            }
+            compactionLogChannel.appendLedgersMap();
+            compactionLogChannel.flushAndForceWrite(false);
+            LOG.info("Flushed compaction log file {} with logId {}.", compactingLogFile, compactionLogId);
+            // since this channel is only used for writing, after flushing the channel,
+            // we had to close the underlying file channel. Otherwise, we might end up
+            // leaking fds which cause the disk spaces could not be reclaimed.
+            compactionLogChannel.close();
         }
+
+        /**
+         * Remove the compaction log, when the compaction failed or the compaction log is marked as compacted.
+         */
+        private synchronized void removeCompactionLog() {
+            if (compactionLogChannel == null) {
+                return;
+            }
+            if (!compactingLogFile.delete()) {
+                LOG.warn("Could not delete compaction log file {}", compactingLogFile);
+            }
+            try {
+                compactionLogChannel.close();
+            } catch (IOException e) {
+                LOG.error("Failed to close file channel for compaction log {}", compactionLogId, e);
+            }
+            synchronized (compactionLogLock) {
+                compactionLogChannels.remove(compactionLogChannel);
+            }
+            compactionLogChannel = null;
+        }
+
         @Override
         public void abort() {
-            removeCurCompactionLog();
+            removeCompactionLog();
             if (compactedLogFile.exists()) {
                 if (!compactedLogFile.delete()) {
                     LOG.warn("Could not delete file: {}", compactedLogFile);
@@ -1325,7 +1314,7 @@ public class DefaultEntryLogger implements EntryLogger {
             } else {
                 throw new IOException("Compaction log doesn't exist any more after flush: " + compactingLogFile);
             }
-            removeCurCompactionLog();
+            removeCompactionLog();
         }
 
         @Override
@@ -1417,7 +1406,7 @@ public class DefaultEntryLogger implements EntryLogger {
                     File finalLogFile = new File(compactedFile.getParentFile(), compactionLogId + ".log");
 
                     compactionLogs.add(
-                            new EntryLoggerCompactionEntryLog(compactionLogId, compactedLogId,
+                            new EntryLoggerCompactionEntryLog(compactionLogId, null, compactedLogId,
                                                               compactingLogFile, compactedFile, finalLogFile));
                 }
             }
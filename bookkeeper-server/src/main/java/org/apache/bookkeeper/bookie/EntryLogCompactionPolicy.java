@@ -0,0 +1,81 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+
+/**
+ * Policy selecting the entry logs to compact, and the order in which they are compacted.
+ *
+ * <p>The policy is called by the garbage collector thread of a ledger directory on every compaction,
+ * with the usage of all the entry logs of the directory.
+ */
+public interface EntryLogCompactionPolicy {
+
+    /**
+     * Usage of an entry log, as seen by the garbage collector.
+     */
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    class EntryLogUsage {
+        private final long entryLogId;
+        private final long totalSize;
+        private final long remainingSize;
+        // remaining size relative to the size of the entry log, between 0.0 and 1.0
+        private final double usage;
+    }
+
+    /**
+     * Initialize the policy.
+     *
+     * @param conf server configuration
+     */
+    default void initialize(ServerConfiguration conf) {
+    }
+
+    /**
+     * Select the entry logs to compact.
+     *
+     * @param entryLogs usage of all the entry logs
+     * @param threshold usage threshold of the compaction, entry logs whose usage is not below it
+     *                  must not be selected
+     * @return the entry logs to compact, in compaction order
+     */
+    List<EntryLogUsage> select(List<EntryLogUsage> entryLogs, double threshold);
+
+    /**
+     * Notify the policy that an entry log was removed, after it was garbage collected or compacted.
+     *
+     * <p>Entry logs may also be missing from a selection because the compaction ran out of time, so this is
+     * the only signal that an entry log is gone. It may be called by the compaction workers, concurrently
+     * with other removals and with {@link #select}.
+     *
+     * @param entryLogId id of the removed entry log
+     */
+    default void entryLogRemoved(long entryLogId) {
+    }
+}
@@ -70,6 +70,16 @@ abstract class EntryLogManagerBase implements EntryLogManager {
     public long addEntry(long ledger, ByteBuf entry, boolean rollLog) throws IOException {
         int entrySize = entry.readableBytes() + 4; // Adding 4 bytes to prepend the size
         BufferedLogChannel logChannel = getCurrentLogForLedgerForAddEntry(ledger, entrySize, rollLog);
+        return writeEntry(logChannel, ledger, entry);
+    }
+
+    /*
+     * Appends the entry of the given ledger to the given log channel and
+     * returns its location. This method should be guarded by a lock, so
+     * callers of this method should be in the right scope of the lock.
+     */
+    long writeEntry(BufferedLogChannel logChannel, long ledger, ByteBuf entry) throws IOException {
+        int entrySize = entry.readableBytes() + 4; // Adding 4 bytes to prepend the size
         ByteBuf sizeBuffer = sizeBufferForAdd.get();
         sizeBuffer.clear();
         sizeBuffer.writeInt(entry.readableBytes());
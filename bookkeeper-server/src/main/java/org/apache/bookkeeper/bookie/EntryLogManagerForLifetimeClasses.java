@@ -0,0 +1,240 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.NUM_LEDGERS_PROMOTED_TO_COLDER_ENTRYLOGS;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.bookie.DefaultEntryLogger.BufferedLogChannel;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stats.annotations.StatsDoc;
+
+/**
+ * An entry log manager which groups ledgers into a small number of active entry logs by their
+ * expected lifetime, so that the entries of an entry log tend to be deleted together and the whole
+ * log can be garbage collected without being compacted.
+ *
+ * <p>The expected lifetime of a ledger is given by the writer, as a number of seconds in the custom
+ * metadata of the ledger under the configured retention hint key. The metadata is read once, when the
+ * ledger is first written on this bookie, and the ledger is then written to the lifetime class of its
+ * retention: the first class whose boundary is above it. Short lived ledgers thus share the hot entry
+ * logs, which die whole as their ledgers are deleted, while the entries of long lived ledgers end up
+ * in cold entry logs, which are rarely garbage collected.
+ *
+ * <p>The lifetime class of a ledger without a retention hint is derived from how long it has been
+ * written on this bookie instead: it starts in the hottest class and moves to colder classes as its
+ * age crosses the boundaries, since a ledger still written after a long time is likely to be kept for
+ * long too.
+ *
+ * <p>Each lifetime class has one active entry log per ledger directory. Active entry logs are managed
+ * by {@link EntryLogManagerForEntryLogPerLedger}, keyed by a negative log key for each lifetime class
+ * and ledger directory instead of the ledger id.
+ */
+@Slf4j
+class EntryLogManagerForLifetimeClasses extends EntryLogManagerForEntryLogPerLedger {
+
+    private static class LedgerLifetime {
+        private final long firstWriteNanos;
+        private volatile int lifetimeClass;
+        // the lifetime class of the retention hint of the ledger, -1 until it is known
+        private volatile int hintedLifetimeClass = -1;
+
+        private LedgerLifetime(long firstWriteNanos) {
+            this.firstWriteNanos = firstWriteNanos;
+        }
+    }
+
+    private final long[] lifetimeClassBoundariesMs;
+    private final int numStripes;
+    private final String retentionHintKey;
+    private volatile LedgerManager ledgerManager;
+    /*
+     * the first time a ledger was written on this bookie, a ledger is
+     * forgotten (and will restart from the hottest class) once it hasn't been
+     * written for a long time, which is rare for ledgers which are still open.
+     * It is sized by the number of ledgers being written, not by the number
+     * of active entry logs, which is the number of lifetime classes here.
+     */
+    private final Cache<Long, LedgerLifetime> ledgerLifetimes;
+
+    @StatsDoc(
+        name = NUM_LEDGERS_PROMOTED_TO_COLDER_ENTRYLOGS,
+        help = "Number of times a ledger moved to the entry logs of a colder lifetime class"
+    )
+    private final Counter numLedgersPromoted;
+
+    EntryLogManagerForLifetimeClasses(ServerConfiguration conf, LedgerDirsManager ledgerDirsManager,
+                                      EntryLoggerAllocator entryLoggerAllocator,
+                                      List<DefaultEntryLogger.EntryLogListener> listeners,
+                                      DefaultEntryLogger.RecentEntryLogsStatus recentlyCreatedEntryLogsStatus,
+                                      StatsLogger statsLogger) throws IOException {
+        super(conf, ledgerDirsManager, entryLoggerAllocator, listeners, recentlyCreatedEntryLogsStatus,
+                statsLogger);
+        long[] boundariesSecs = conf.getEntryLogLifetimeClassBoundariesSecs();
+        this.lifetimeClassBoundariesMs = new long[boundariesSecs.length];
+        for (int i = 0; i < boundariesSecs.length; i++) {
+            lifetimeClassBoundariesMs[i] = TimeUnit.SECONDS.toMillis(boundariesSecs[i]);
+        }
+        this.numStripes = Math.max(1, ledgerDirsManager.getAllLedgerDirs().size());
+        this.retentionHintKey = conf.getEntryLogLifetimeClassRetentionHintKey();
+        int multFactor = conf.getEntryLogPerLedgerCounterLimitsMultFactor();
+        this.ledgerLifetimes = CacheBuilder.newBuilder()
+                .expireAfterAccess((long) conf.getEntrylogMapAccessExpiryTimeInSeconds() * multFactor,
+                        TimeUnit.SECONDS)
+                .maximumSize(conf.getEntryLogLifetimeClassMaxTrackedLedgers())
+                .build();
+        this.numLedgersPromoted = statsLogger.getCounter(NUM_LEDGERS_PROMOTED_TO_COLDER_ENTRYLOGS);
+        log.info("Grouping ledgers into {} lifetime classes of entry logs, with age boundaries {} ms",
+                getNumLifetimeClasses(), Arrays.toString(lifetimeClassBoundariesMs));
+    }
+
+    int getNumLifetimeClasses() {
+        return lifetimeClassBoundariesMs.length + 1;
+    }
+
+    /*
+     * sets the ledger manager the retention hints of the ledgers are read
+     * from, without it all the ledgers are classified by their age.
+     */
+    void setLedgerManager(LedgerManager ledgerManager) {
+        this.ledgerManager = ledgerManager;
+    }
+
+    private int getLifetimeClassOf(long durationMs, int fromLifetimeClass) {
+        int lifetimeClass = fromLifetimeClass;
+        while (lifetimeClass < lifetimeClassBoundariesMs.length
+                && durationMs >= lifetimeClassBoundariesMs[lifetimeClass]) {
+            lifetimeClass++;
+        }
+        return lifetimeClass;
+    }
+
+    private void readRetentionHint(long ledgerId, LedgerLifetime lifetime) {
+        LedgerManager lm = ledgerManager;
+        if (lm == null || retentionHintKey.isEmpty()) {
+            return;
+        }
+        lm.readLedgerMetadata(ledgerId).whenComplete((metadata, exception) -> {
+            if (exception != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Failed to read the retention hint of ledger {}", ledgerId, exception);
+                }
+                return;
+            }
+            byte[] hint = metadata.getValue().getCustomMetadata().get(retentionHintKey);
+            if (hint == null) {
+                return;
+            }
+            try {
+                long retentionMs = TimeUnit.SECONDS.toMillis(Long.parseLong(new String(hint, UTF_8).trim()));
+                lifetime.hintedLifetimeClass = getLifetimeClassOf(retentionMs, 0);
+                if (log.isDebugEnabled()) {
+                    log.debug("Writing ledger {} with a retention of {} ms to lifetime class {}", ledgerId,
+                            retentionMs, lifetime.hintedLifetimeClass);
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Invalid retention hint of ledger {}: {}", ledgerId, new String(hint, UTF_8));
+            }
+        });
+    }
+
+    /*
+     * returns the lifetime class of the ledger, 0 being the hottest one.
+     */
+    @VisibleForTesting
+    int getLifetimeClass(long ledgerId) {
+        long now = MathUtils.nowInNano();
+        LedgerLifetime lifetime = ledgerLifetimes.getIfPresent(ledgerId);
+        if (lifetime == null) {
+            LedgerLifetime newLifetime = new LedgerLifetime(now);
+            lifetime = ledgerLifetimes.asMap().putIfAbsent(ledgerId, newLifetime);
+            if (lifetime == null) {
+                lifetime = newLifetime;
+                readRetentionHint(ledgerId, newLifetime);
+            }
+        }
+        int hintedLifetimeClass = lifetime.hintedLifetimeClass;
+        if (hintedLifetimeClass >= 0) {
+            return hintedLifetimeClass;
+        }
+        long ageMs = TimeUnit.NANOSECONDS.toMillis(now - lifetime.firstWriteNanos);
+        int lifetimeClass = getLifetimeClassOf(ageMs, lifetime.lifetimeClass);
+        if (lifetimeClass != lifetime.lifetimeClass) {
+            if (log.isDebugEnabled()) {
+                log.debug("Moving ledger {} from lifetime class {} to {}", ledgerId, lifetime.lifetimeClass,
+                        lifetimeClass);
+            }
+            lifetime.lifetimeClass = lifetimeClass;
+            numLedgersPromoted.inc();
+        }
+        return lifetimeClass;
+    }
+
+    /*
+     * returns the key of the active entry log the entries of the ledger should
+     * be added to. Log keys are negative, so they never collide with ledger
+     * ids, and a log key maps to itself.
+     */
+    @VisibleForTesting
+    long getLogKey(long ledgerId) {
+        if (ledgerId < 0) {
+            return ledgerId;
+        }
+        long stripe = MathUtils.signSafeMod(ledgerId, numStripes);
+        // skip -1, which is UNASSIGNED_LEDGERID
+        return -2L - ((long) getLifetimeClass(ledgerId) * numStripes + stripe);
+    }
+
+    @Override
+    public long addEntry(long ledger, ByteBuf entry, boolean rollLog) throws IOException {
+        // resolve the log key only once, since the lifetime class of the ledger may change concurrently
+        long logKey = getLogKey(ledger);
+        Lock lock = getLock(logKey);
+        lock.lock();
+        try {
+            BufferedLogChannel logChannel = getCurrentLogForLedgerForAddEntry(logKey, entry.readableBytes() + 4,
+                    rollLog);
+            return writeEntry(logChannel, ledger, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    void createNewLog(long ledgerId) throws IOException {
+        super.createNewLog(getLogKey(ledgerId));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the latency of the foreground operations of a bookie (journal adds and entry reads), so that
+ * background tasks like compaction can back off when they hurt them.
+ *
+ * <p>Latencies are accumulated in adders, which keep the recording cheap on the request paths. Every
+ * consumer takes its own {@link Sampler}, which returns the average latencies since its previous sample.
+ */
+public class ForegroundLatencyTracker {
+
+    private final LongAdder journalAddLatencyNanos = new LongAdder();
+    private final LongAdder journalAdds = new LongAdder();
+    private final LongAdder readLatencyNanos = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+
+    public void recordJournalAddLatency(long latencyNanos) {
+        journalAddLatencyNanos.add(latencyNanos);
+        journalAdds.increment();
+    }
+
+    public void recordReadLatency(long latencyNanos) {
+        readLatencyNanos.add(latencyNanos);
+        reads.increment();
+    }
+
+    public Sampler newSampler() {
+        return new Sampler();
+    }
+
+    /**
+     * Returns the average foreground latencies since the previous sample. Not thread safe.
+     */
+    public class Sampler {
+        private long lastJournalAddLatencyNanos = journalAddLatencyNanos.sum();
+        private long lastJournalAdds = journalAdds.sum();
+        private long lastReadLatencyNanos = readLatencyNanos.sum();
+        private long lastReads = reads.sum();
+
+        private long avgJournalAddLatencyNanos;
+        private long avgReadLatencyNanos;
+
+        /**
+         * Take a new sample, an average latency is 0 if there was no operation since the previous sample.
+         */
+        public void sample() {
+            long journalAddLatency = journalAddLatencyNanos.sum();
+            long numJournalAdds = journalAdds.sum();
+            long readLatency = readLatencyNanos.sum();
+            long numReads = reads.sum();
+
+            avgJournalAddLatencyNanos = average(journalAddLatency - lastJournalAddLatencyNanos,
+                    numJournalAdds - lastJournalAdds);
+            avgReadLatencyNanos = average(readLatency - lastReadLatencyNanos, numReads - lastReads);
+
+            lastJournalAddLatencyNanos = journalAddLatency;
+            lastJournalAdds = numJournalAdds;
+            lastReadLatencyNanos = readLatency;
+            lastReads = numReads;
+        }
+
+        public long getAvgJournalAddLatencyNanos() {
+            return avgJournalAddLatencyNanos;
+        }
+
+        public long getAvgReadLatencyNanos() {
+            return avgReadLatencyNanos;
+        }
+
+        private long average(long latencyNanos, long count) {
+            return count > 0 ? latencyNanos / count : 0L;
+        }
+    }
+}
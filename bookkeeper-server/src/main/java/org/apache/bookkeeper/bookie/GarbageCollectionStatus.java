@@ -21,6 +21,7 @@
 
 package org.apache.bookkeeper.bookie;
 
+import java.util.List;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -44,4 +45,11 @@ public class GarbageCollectionStatus {
     private long lastMinorCompactionTime;
     private long majorCompactionCounter;
     private long minorCompactionCounter;
+
+    // status of the compaction workers, empty if entry logs are compacted on the GC thread.
+    private List<CompactionWorkerStatus> compactionWorkers;
+
+    // progress of the entry log metadata extraction of the current gc, both 0 when done.
+    private int entryLogMetadataToExtract;
+    private int extractedEntryLogMetadata;
 }
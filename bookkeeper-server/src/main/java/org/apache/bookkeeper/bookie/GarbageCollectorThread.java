@@ -29,23 +29,34 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import lombok.Getter;
 import org.apache.bookkeeper.bookie.BookieException.EntryLogMetadataMapException;
+import org.apache.bookkeeper.bookie.EntryLogCompactionPolicy.EntryLogUsage;
 import org.apache.bookkeeper.bookie.GarbageCollector.GarbageCleaner;
 import org.apache.bookkeeper.bookie.stats.GarbageCollectorStats;
 import org.apache.bookkeeper.bookie.storage.EntryLogger;
 import org.apache.bookkeeper.bookie.storage.ldb.PersistentEntryLogMetadataMap;
+import org.apache.bookkeeper.common.util.ReflectionUtils;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.meta.LedgerManager;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.util.MathUtils;
+import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.commons.lang3.mutable.MutableLong;
 import org.slf4j.Logger;
@@ -89,6 +100,7 @@ public class GarbageCollectorThread implements Runnable {
     // Entry Logger Handle
     final EntryLogger entryLogger;
     final AbstractLogCompactor compactor;
+    final EntryLogCompactionPolicy compactionPolicy;
 
     // Stats loggers for garbage collection operations
     private final GarbageCollectorStats gcStats;
@@ -102,6 +114,25 @@ public class GarbageCollectorThread implements Runnable {
     // to reduce the risk getting entry log corrupted
     final AtomicBoolean compacting = new AtomicBoolean(false);
 
+    // number of entry logs being compacted by the compaction workers, the first one sets the compacting
+    // flag and the last one clears it. Guarded by compactionWorkersLock.
+    private int activeCompactions = 0;
+    private final Object compactionWorkersLock = new Object();
+    // set by the shutdown, so the compaction workers don't start new compactions while it waits
+    private volatile boolean stopCompactionWorkers = false;
+
+    // compaction workers, only used when more than one entry log is compacted at a time
+    private final ExecutorService compactionExecutor;
+    private final List<CompactionWorker> compactionWorkers;
+    private final BlockingQueue<CompactionWorker> idleCompactionWorkers;
+
+    // entry log metadata extraction threads, only used when the metadata of more than one entry log
+    // is extracted at a time
+    private final ExecutorService metadataExtractionExecutor;
+    // progress of the entry log metadata extraction of the current gc
+    private volatile int entryLogMetadataToExtract = 0;
+    private final AtomicInteger extractedEntryLogMetadata = new AtomicInteger(0);
+
     // use to get the compacting status
     final AtomicBoolean minorCompacting = new AtomicBoolean(false);
     final AtomicBoolean majorCompacting = new AtomicBoolean(false);
@@ -171,7 +202,8 @@ public class GarbageCollectorThread implements Runnable {
             statsLogger,
             () -> numActiveEntryLogs,
             () -> totalEntryLogSize,
-            () -> garbageCollector.getNumActiveLedgers()
+            () -> garbageCollector.getNumActiveLedgers(),
+            this::getCompactionAllowedRate
         );
 
         this.garbageCleaner = ledgerId -> {
@@ -216,6 +248,43 @@ public class GarbageCollectorThread implements Runnable {
             this.compactor = new EntryLogCompactor(conf, entryLogger, ledgerStorage, remover);
         }
 
+        int numCompactionWorkers = conf.getCompactionWorkers();
+        if (numCompactionWorkers > 1) {
+            // every worker has its own compactor, they all share the rate limit of the main compactor
+            this.compactionWorkers = new ArrayList<>(numCompactionWorkers);
+            this.idleCompactionWorkers = new ArrayBlockingQueue<>(numCompactionWorkers);
+            for (int i = 0; i < numCompactionWorkers; i++) {
+                AbstractLogCompactor workerCompactor = conf.getUseTransactionalCompaction()
+                        ? new TransactionalEntryLogCompactor(conf, entryLogger, ledgerStorage, remover,
+                                compactor.throttler)
+                        : new EntryLogCompactor(conf, entryLogger, ledgerStorage, remover, compactor.throttler);
+                CompactionWorker worker = new CompactionWorker(i, workerCompactor);
+                this.compactionWorkers.add(worker);
+                this.idleCompactionWorkers.add(worker);
+            }
+            this.compactionExecutor = Executors.newFixedThreadPool(numCompactionWorkers,
+                    new DefaultThreadFactory("GarbageCollectorThread-compaction"));
+        } else {
+            this.compactionWorkers = Collections.emptyList();
+            this.idleCompactionWorkers = null;
+            this.compactionExecutor = null;
+        }
+
+        int numMetadataExtractionThreads = conf.getEntryLogMetadataExtractionThreads();
+        if (numMetadataExtractionThreads > 1) {
+            this.metadataExtractionExecutor = Executors.newFixedThreadPool(numMetadataExtractionThreads,
+                    new DefaultThreadFactory("GarbageCollectorThread-metadata-extraction"));
+        } else {
+            this.metadataExtractionExecutor = null;
+        }
+
+        try {
+            this.compactionPolicy = ReflectionUtils.newInstance(conf.getCompactionPolicyClass());
+        } catch (ConfigurationException e) {
+            throw new IOException("Failed to load compaction policy", e);
+        }
+        this.compactionPolicy.initialize(conf);
+
         this.throttler = new AbstractLogCompactor.Throttler(conf);
         if (minorCompactionInterval > 0 && minorCompactionThreshold > 0) {
             if (minorCompactionThreshold > 1.0d) {
@@ -264,6 +333,8 @@ public class GarbageCollectorThread implements Runnable {
                + minorCompactionThreshold + ", interval=" + minorCompactionInterval);
         LOG.info("Major Compaction : enabled=" + enableMajorCompaction + ", threshold="
                + majorCompactionThreshold + ", interval=" + majorCompactionInterval);
+        LOG.info("Compaction workers : {}, policy : {}", Math.max(1, numCompactionWorkers),
+                compactionPolicy.getClass().getName());
 
         lastMinorCompactionTime = lastMajorCompactionTime = System.currentTimeMillis();
     }
@@ -539,9 +610,15 @@ public class GarbageCollectorThread implements Runnable {
      * Compact entry logs if necessary.
      *
      * <p>
-     * Compaction will be executed from low unused space to high unused space.
-     * Those entry log files whose remaining size percentage is higher than threshold
-     * would not be compacted.
+     * The entry logs to compact, and the order in which they are compacted, are chosen by the
+     * {@link EntryLogCompactionPolicy}. Those entry log files whose remaining size percentage is
+     * higher than threshold would not be compacted.
+     * </p>
+     *
+     * <p>
+     * With more than one compaction worker, entry logs are handed to the workers in the same order
+     * and compacted concurrently. Their live entries are all added to the current entry log, or with
+     * transactional compaction, to a compaction log of their own.
      * </p>
      */
     @VisibleForTesting
@@ -550,17 +627,13 @@ public class GarbageCollectorThread implements Runnable {
 
         final int numBuckets = 10;
         int[] entryLogUsageBuckets = new int[numBuckets];
-        int[] compactedBuckets = new int[numBuckets];
-
-        ArrayList<LinkedList<Long>> compactableBuckets = new ArrayList<>(numBuckets);
-        for (int i = 0; i < numBuckets; i++) {
-            compactableBuckets.add(new LinkedList<>());
-        }
+        AtomicIntegerArray compactedBuckets = new AtomicIntegerArray(numBuckets);
 
         long start = System.currentTimeMillis();
         MutableLong end = new MutableLong(start);
         MutableLong timeDiff = new MutableLong(0);
 
+        List<EntryLogUsage> entryLogs = new ArrayList<>();
         entryLogMetaMap.forEach((entryLogId, meta) -> {
             double usage = meta.getUsage();
             if (conf.isUseTargetEntryLogSizeForGc() && usage < 1.0d) {
@@ -573,40 +646,91 @@ public class GarbageCollectorThread implements Runnable {
                 end.setValue(System.currentTimeMillis());
                 timeDiff.setValue(end.getValue() - start);
             }
-            if ((usage >= threshold
-                || (maxTimeMillis > 0 && timeDiff.getValue() >= maxTimeMillis)
-                || !running)) {
+            if ((maxTimeMillis > 0 && timeDiff.getValue() >= maxTimeMillis) || !running) {
                 // We allow the usage limit calculation to continue so that we get an accurate
                 // report of where the usage was prior to running compaction.
                 return;
             }
 
-            compactableBuckets.get(bucketIndex).add(meta.getEntryLogId());
+            entryLogs.add(new EntryLogUsage(meta.getEntryLogId(), meta.getTotalSize(), meta.getRemainingSize(),
+                    usage));
         });
 
         LOG.info(
                 "Compaction: entry log usage buckets before compaction [10% 20% 30% 40% 50% 60% 70% 80% 90% 100%] = {}",
                 entryLogUsageBuckets);
 
-        final int maxBucket = calculateUsageIndex(numBuckets, threshold);
-        stopCompaction:
-        for (int currBucket = 0; currBucket <= maxBucket; currBucket++) {
-            LinkedList<Long> entryLogIds = compactableBuckets.get(currBucket);
-            while (!entryLogIds.isEmpty()) {
-                if (timeDiff.getValue() < maxTimeMillis) {
-                    end.setValue(System.currentTimeMillis());
-                    timeDiff.setValue(end.getValue() - start);
+        for (EntryLogUsage entryLog : compactionPolicy.select(entryLogs, threshold)) {
+            if (timeDiff.getValue() < maxTimeMillis) {
+                end.setValue(System.currentTimeMillis());
+                timeDiff.setValue(end.getValue() - start);
+            }
+
+            if ((maxTimeMillis > 0 && timeDiff.getValue() >= maxTimeMillis) || !running) {
+                break;
+            }
+
+            final int bucketIndex = calculateUsageIndex(numBuckets, entryLog.getUsage());
+            final long logId = entryLog.getEntryLogId();
+
+            if (compactionExecutor != null) {
+                if (!submitCompaction(logId, threshold, bucketIndex, compactedBuckets)) {
+                    break;
                 }
+                continue;
+            }
 
-                if ((maxTimeMillis > 0 && timeDiff.getValue() >= maxTimeMillis) || !running) {
-                    // We allow the usage limit calculation to continue so that we get an accurate
-                    // report of where the usage was prior to running compaction.
-                    break stopCompaction;
+            entryLogMetaMap.forKey(logId, (entryLogId, meta) -> {
+                if (meta == null) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Metadata for entry log {} already deleted", logId);
+                    }
+                    return;
+                }
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Compacting entry log {} with usage {} below threshold {}",
+                            meta.getEntryLogId(), meta.getUsage(), threshold);
                 }
 
-                final int bucketIndex = currBucket;
-                final long logId = entryLogIds.remove();
+                long priorRemainingSize = meta.getRemainingSize();
+                compactEntryLog(meta);
+                gcStats.getReclaimedSpaceViaCompaction().addCount(meta.getTotalSize() - priorRemainingSize);
+                gcStats.getCompactionRewrittenBytes().addCount(priorRemainingSize);
+                compactedBuckets.incrementAndGet(bucketIndex);
+            });
+        }
+        waitForCompactionWorkers();
+
+        if (LOG.isDebugEnabled()) {
+            if (!running) {
+                LOG.debug("Compaction exited due to gc not running");
+            }
+            if (maxTimeMillis > 0 && timeDiff.getValue() > maxTimeMillis) {
+                LOG.debug("Compaction ran for {}ms but was limited by {}ms", timeDiff, maxTimeMillis);
+            }
+        }
+        LOG.info(
+                "Compaction: entry log usage buckets[10% 20% 30% 40% 50% 60% 70% 80% 90% 100%] = {}, compacted {}",
+                entryLogUsageBuckets, compactedBuckets);
+    }
 
+    /**
+     * Hand an entry log to the next idle compaction worker, waiting for one to be available.
+     *
+     * @return false if the garbage collector was interrupted while waiting
+     */
+    private boolean submitCompaction(long logId, double threshold, int bucketIndex,
+                                     AtomicIntegerArray compactedBuckets) {
+        final CompactionWorker worker;
+        try {
+            worker = idleCompactionWorkers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        compactionExecutor.execute(() -> {
+            try {
+                // the metadata can only be used inside the callback, so it is read on the worker
                 entryLogMetaMap.forKey(logId, (entryLogId, meta) -> {
                     if (meta == null) {
                         if (LOG.isDebugEnabled()) {
@@ -615,29 +739,126 @@ public class GarbageCollectorThread implements Runnable {
                         return;
                     }
                     if (LOG.isDebugEnabled()) {
-                        LOG.debug("Compacting entry log {} with usage {} below threshold {}",
-                                meta.getEntryLogId(), meta.getUsage(), threshold);
+                        LOG.debug("Compaction worker {} compacting entry log {} with usage {} below threshold {}",
+                                worker.workerId, meta.getEntryLogId(), meta.getUsage(), threshold);
+                    }
+                    if (worker.compact(meta)) {
+                        compactedBuckets.incrementAndGet(bucketIndex);
                     }
-
-                    long priorRemainingSize = meta.getRemainingSize();
-                    compactEntryLog(meta);
-                    gcStats.getReclaimedSpaceViaCompaction().addCount(meta.getTotalSize() - priorRemainingSize);
-                    compactedBuckets[bucketIndex]++;
                 });
+            } catch (EntryLogMetadataMapException e) {
+                LOG.warn("Failed to read entry-log metadata {}, skipping compaction", logId, e);
+            } finally {
+                idleCompactionWorkers.add(worker);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Wait until all the compaction workers are idle.
+     */
+    private void waitForCompactionWorkers() {
+        if (compactionExecutor == null) {
+            return;
+        }
+        List<CompactionWorker> idle = new ArrayList<>(compactionWorkers.size());
+        try {
+            while (idle.size() < compactionWorkers.size()) {
+                idle.add(idleCompactionWorkers.take());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            idleCompactionWorkers.addAll(idle);
         }
+    }
 
-        if (LOG.isDebugEnabled()) {
-            if (!running) {
-                LOG.debug("Compaction exited due to gc not running");
+    /**
+     * Compacts entry logs on the compaction executor, with its own compactor.
+     */
+    private class CompactionWorker {
+        final int workerId;
+        final AbstractLogCompactor compactor;
+        volatile long compactingEntryLogId = -1L;
+        final AtomicLong compactedEntryLogs = new AtomicLong(0);
+        final AtomicLong failedCompactions = new AtomicLong(0);
+        final AtomicLong compactedBytes = new AtomicLong(0);
+        final AtomicLong reclaimedBytes = new AtomicLong(0);
+
+        CompactionWorker(int workerId, AbstractLogCompactor compactor) {
+            this.workerId = workerId;
+            this.compactor = compactor;
+        }
+
+        boolean compact(EntryLogMetadata meta) {
+            if (!startCompaction()) {
+                return false;
             }
-            if (maxTimeMillis > 0 && timeDiff.getValue() > maxTimeMillis) {
-                LOG.debug("Compaction ran for {}ms but was limited by {}ms", timeDiff, maxTimeMillis);
+            try {
+                compactingEntryLogId = meta.getEntryLogId();
+                long remainingSize = meta.getRemainingSize();
+                boolean compacted;
+                try {
+                    compacted = compactor.compact(meta);
+                } catch (Exception e) {
+                    LOG.error("Failed to compact entry log {} due to unexpected error", meta.getEntryLogId(), e);
+                    compacted = false;
+                }
+                if (compacted) {
+                    long reclaimed = meta.getTotalSize() - remainingSize;
+                    compactedEntryLogs.incrementAndGet();
+                    compactedBytes.addAndGet(remainingSize);
+                    reclaimedBytes.addAndGet(reclaimed);
+                    gcStats.getReclaimedSpaceViaCompaction().addCount(reclaimed);
+                    gcStats.getCompactionRewrittenBytes().addCount(remainingSize);
+                } else {
+                    failedCompactions.incrementAndGet();
+                }
+                return compacted;
+            } finally {
+                compactingEntryLogId = -1L;
+                finishCompaction();
             }
         }
-        LOG.info(
-                "Compaction: entry log usage buckets[10% 20% 30% 40% 50% 60% 70% 80% 90% 100%] = {}, compacted {}",
-                entryLogUsageBuckets, compactedBuckets);
+
+        /**
+         * Mark the garbage collector as compacting while any worker compacts, like a compaction on the gc
+         * thread, so the shutdown waits for the active compactions.
+         *
+         * @return false if the garbage collector is shutting down
+         */
+        private boolean startCompaction() {
+            synchronized (compactionWorkersLock) {
+                if (!running || stopCompactionWorkers) {
+                    return false;
+                }
+                if (activeCompactions == 0 && !compacting.compareAndSet(false, true)) {
+                    return false;
+                }
+                activeCompactions++;
+                return true;
+            }
+        }
+
+        private void finishCompaction() {
+            synchronized (compactionWorkersLock) {
+                if (--activeCompactions == 0) {
+                    compacting.set(false);
+                }
+            }
+        }
+
+        CompactionWorkerStatus getStatus() {
+            return CompactionWorkerStatus.builder()
+                .workerId(workerId)
+                .compactingEntryLogId(compactingEntryLogId)
+                .compactedEntryLogs(compactedEntryLogs.get())
+                .failedCompactions(failedCompactions.get())
+                .compactedBytes(compactedBytes.get())
+                .reclaimedBytes(reclaimedBytes.get())
+                .build();
+        }
     }
 
     /**
@@ -667,14 +888,26 @@ public class GarbageCollectorThread implements Runnable {
 
         throttler.cancelledAcquire();
         compactor.throttler.cancelledAcquire();
+        stopCompactionWorkers = true;
         while (!compacting.compareAndSet(false, true)) {
-            // Wait till the thread stops compacting
+            // Wait till the thread or the compaction workers stop compacting
             Thread.sleep(100);
         }
 
         this.running = false;
         // Interrupt GC executor thread
         gcExecutor.shutdownNow();
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdownNow();
+        }
+        if (metadataExtractionExecutor != null) {
+            // don't interrupt the extraction threads while they are reading entry logs, the pending
+            // extractions are skipped since the gc thread is not running anymore
+            metadataExtractionExecutor.shutdown();
+            if (!metadataExtractionExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("Entry log metadata extraction threads didn't stop in time");
+            }
+        }
         try {
             entryLogMetaMap.close();
         } catch (Exception e) {
@@ -694,6 +927,7 @@ public class GarbageCollectorThread implements Runnable {
         if (entryLogger.removeEntryLog(entryLogId)) {
             LOG.info("Removing entry log metadata for {}", entryLogId);
             entryLogMetaMap.remove(entryLogId);
+            compactionPolicy.entryLogRemoved(entryLogId);
         }
     }
 
@@ -732,6 +966,7 @@ public class GarbageCollectorThread implements Runnable {
      * @throws EntryLogMetadataMapException
      */
     protected void extractMetaFromEntryLogs() throws EntryLogMetadataMapException {
+        List<Long> entryLogsToExtract = new ArrayList<>();
         for (long entryLogId : entryLogger.getFlushedLogIds()) {
             // Comb the current entry log file if it has not already been extracted.
             if (entryLogMetaMap.containsKey(entryLogId)) {
@@ -743,28 +978,104 @@ public class GarbageCollectorThread implements Runnable {
             if (!entryLogger.logExists(entryLogId)) {
                 continue;
             }
+            entryLogsToExtract.add(entryLogId);
+        }
+        if (entryLogsToExtract.isEmpty()) {
+            return;
+        }
 
-            LOG.info("Extracting entry log meta from entryLogId: {}", entryLogId);
+        entryLogMetadataToExtract = entryLogsToExtract.size();
+        extractedEntryLogMetadata.set(0);
+        try {
+            if (metadataExtractionExecutor == null || entryLogsToExtract.size() == 1) {
+                for (long entryLogId : entryLogsToExtract) {
+                    extractMetaFromEntryLog(entryLogId);
+                }
+            } else {
+                extractMetaFromEntryLogsInParallel(entryLogsToExtract);
+            }
+        } finally {
+            entryLogMetadataToExtract = 0;
+            extractedEntryLogMetadata.set(0);
+        }
+    }
 
-            try {
-                // Read through the entry log file and extract the entry log meta
-                EntryLogMetadata entryLogMeta = entryLogger.getEntryLogMetadata(entryLogId, throttler);
-                removeIfLedgerNotExists(entryLogMeta);
-                if (entryLogMeta.isEmpty()) {
-                    // This means the entry log is not associated with any active
-                    // ledgers anymore.
-                    // We can remove this entry log file now.
-                    LOG.info("Deleting entryLogId {} as it has no active ledgers!", entryLogId);
-                    removeEntryLog(entryLogId);
-                    gcStats.getReclaimedSpaceViaDeletes().addCount(entryLogMeta.getTotalSize());
-                } else {
-                    entryLogMetaMap.put(entryLogId, entryLogMeta);
+    /*
+     * Extracts the metadata of the entry logs on the extraction threads, which
+     * bounds the number of entry logs read at a time. The metadata of every
+     * entry log is persisted as soon as it is extracted, so the progress is
+     * kept if the bookie is restarted in the middle.
+     */
+    private void extractMetaFromEntryLogsInParallel(List<Long> entryLogsToExtract)
+            throws EntryLogMetadataMapException {
+        LOG.info("Extracting entry log meta from {} entry logs", entryLogsToExtract.size());
+        List<Future<Void>> extractions = new ArrayList<>(entryLogsToExtract.size());
+        for (long entryLogId : entryLogsToExtract) {
+            extractions.add(metadataExtractionExecutor.submit(() -> {
+                if (running) {
+                    extractMetaFromEntryLog(entryLogId);
                 }
-            } catch (IOException | RuntimeException e) {
-                LOG.warn("Premature exception when processing " + entryLogId
-                         + " recovery will take care of the problem", e);
+                return null;
+            }));
+        }
+        try {
+            for (Future<Void> extraction : extractions) {
+                extraction.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            extractions.forEach(extraction -> extraction.cancel(false));
+            LOG.info("Interrupted while extracting entry log meta");
+        } catch (ExecutionException e) {
+            extractions.forEach(extraction -> extraction.cancel(false));
+            if (e.getCause() instanceof EntryLogMetadataMapException) {
+                throw (EntryLogMetadataMapException) e.getCause();
+            }
+            LOG.warn("Unexpected exception when extracting entry log meta", e.getCause());
+        }
+    }
+
+    private void extractMetaFromEntryLog(long entryLogId) throws EntryLogMetadataMapException {
+        LOG.info("Extracting entry log meta from entryLogId: {}", entryLogId);
+
+        try {
+            // Read through the entry log file and extract the entry log meta
+            EntryLogMetadata entryLogMeta = entryLogger.getEntryLogMetadata(entryLogId, throttler);
+            removeIfLedgerNotExists(entryLogMeta);
+            if (entryLogMeta.isEmpty()) {
+                // This means the entry log is not associated with any active
+                // ledgers anymore.
+                // We can remove this entry log file now.
+                LOG.info("Deleting entryLogId {} as it has no active ledgers!", entryLogId);
+                removeEntryLog(entryLogId);
+                gcStats.getReclaimedSpaceViaDeletes().addCount(entryLogMeta.getTotalSize());
+            } else {
+                entryLogMetaMap.put(entryLogId, entryLogMeta);
             }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Premature exception when processing " + entryLogId
+                     + " recovery will take care of the problem", e);
         }
+
+        gcStats.getExtractedEntryLogMetadataCounter().inc();
+        int extracted = extractedEntryLogMetadata.incrementAndGet();
+        int total = entryLogMetadataToExtract;
+        if (total > 1 && (extracted == total || extracted % Math.max(1, total / 10) == 0)) {
+            LOG.info("Extracted entry log meta from {}/{} entry logs", extracted, total);
+        }
+    }
+
+    /**
+     * Set the tracker of the foreground latency driving the compaction rate, if adaptive compaction
+     * throttling is enabled. The compaction workers share the throttler of the main compactor.
+     */
+    public void setForegroundLatencyTracker(ForegroundLatencyTracker tracker) {
+        throttler.setForegroundLatencyTracker(tracker);
+        compactor.throttler.setForegroundLatencyTracker(tracker);
+    }
+
+    private long getCompactionAllowedRate() {
+        return compactor == null ? 0L : (long) compactor.throttler.getRate();
     }
 
     CompactableLedgerStorage getLedgerStorage() {
@@ -785,6 +1096,10 @@ public class GarbageCollectorThread implements Runnable {
             .lastMinorCompactionTime(lastMinorCompactionTime)
             .majorCompactionCounter(gcStats.getMajorCompactionCounter().get())
             .minorCompactionCounter(gcStats.getMinorCompactionCounter().get())
+            .compactionWorkers(compactionWorkers.stream()
+                .map(CompactionWorker::getStatus).collect(Collectors.toList()))
+            .entryLogMetadataToExtract(entryLogMetadataToExtract)
+            .extractedEntryLogMetadata(extractedEntryLogMetadata.get())
             .build();
     }
 }
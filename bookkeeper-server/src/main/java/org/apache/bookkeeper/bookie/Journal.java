@@ -304,10 +304,18 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
 
         OpStatsLogger journalAddEntryStats;
         Counter callbackTime;
+        ForegroundLatencyTracker latencyTracker;
 
         static QueueEntry create(ByteBuf entry, boolean ackBeforeSync, long ledgerId, long entryId,
                 WriteCallback cb, Object ctx, long enqueueTime, OpStatsLogger journalAddEntryStats,
                 Counter callbackTime) {
+            return create(entry, ackBeforeSync, ledgerId, entryId, cb, ctx, enqueueTime, journalAddEntryStats,
+                    callbackTime, null);
+        }
+
+        static QueueEntry create(ByteBuf entry, boolean ackBeforeSync, long ledgerId, long entryId,
+                WriteCallback cb, Object ctx, long enqueueTime, OpStatsLogger journalAddEntryStats,
+                Counter callbackTime, ForegroundLatencyTracker latencyTracker) {
             QueueEntry qe = RECYCLER.get();
             qe.entry = entry;
             qe.ackBeforeSync = ackBeforeSync;
@@ -318,6 +326,7 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             qe.enqueueTime = enqueueTime;
             qe.journalAddEntryStats = journalAddEntryStats;
             qe.callbackTime = callbackTime;
+            qe.latencyTracker = latencyTracker;
             return qe;
         }
 
@@ -327,7 +336,11 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Acknowledge Ledger: {}, Entry: {}", ledgerId, entryId);
             }
-            journalAddEntryStats.registerSuccessfulEvent(MathUtils.elapsedNanos(enqueueTime), TimeUnit.NANOSECONDS);
+            long latencyNanos = MathUtils.elapsedNanos(enqueueTime);
+            journalAddEntryStats.registerSuccessfulEvent(latencyNanos, TimeUnit.NANOSECONDS);
+            if (latencyTracker != null) {
+                latencyTracker.recordJournalAddLatency(latencyNanos);
+            }
             cb.writeComplete(0, ledgerId, entryId, null, ctx);
             callbackTime.addLatency(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
             recycle();
@@ -356,6 +369,7 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             this.ctx = null;
             this.journalAddEntryStats = null;
             this.callbackTime = null;
+            this.latencyTracker = null;
             recyclerHandle.recycle(this);
         }
     }
@@ -637,6 +651,7 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
 
     // Expose Stats
     private final JournalStats journalStats;
+    private volatile ForegroundLatencyTracker foregroundLatencyTracker;
 
     private JournalAliveListener journalAliveListener;
 
@@ -725,6 +740,13 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         return this.journalStats;
     }
 
+    /**
+     * Set the tracker recording the latency of the entries added to the journal.
+     */
+    void setForegroundLatencyTracker(ForegroundLatencyTracker tracker) {
+        this.foregroundLatencyTracker = tracker;
+    }
+
     public File getJournalDirectory() {
         return journalDirectory;
     }
@@ -890,7 +912,7 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         queue.put(QueueEntry.create(
                 entry, ackBeforeSync, ledgerId, entryId, cb, ctx, MathUtils.nowInNano(),
                 journalStats.getJournalAddEntryStats(),
-                callbackTime));
+                callbackTime, foregroundLatencyTracker));
     }
 
     void forceLedger(long ledgerId, WriteCallback cb, Object ctx) {
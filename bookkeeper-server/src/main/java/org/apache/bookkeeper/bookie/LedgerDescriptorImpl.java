@@ -161,6 +161,11 @@ public class LedgerDescriptorImpl extends LedgerDescriptor {
         return ledgerStorage.getEntry(ledgerId, entryId);
     }
 
+    @Override
+    ByteBuf readEntryWithoutCaching(long entryId) throws IOException, BookieException {
+        return ledgerStorage.getEntryWithoutCaching(ledgerId, entryId);
+    }
+
     @Override
     long getLastAddConfirmed() throws IOException, BookieException {
         return ledgerStorage.getLastAddConfirmed(ledgerId);
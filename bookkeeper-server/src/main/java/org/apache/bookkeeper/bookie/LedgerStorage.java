@@ -62,6 +62,12 @@ public interface LedgerStorage {
     void setCheckpointSource(CheckpointSource checkpointSource);
     void setCheckpointer(Checkpointer checkpointer);
 
+    /**
+     * Set the tracker of the latency of the foreground operations of the bookie, which background tasks
+     * of the storage (e.g. compaction) may use to back off.
+     */
+    default void setForegroundLatencyTracker(ForegroundLatencyTracker tracker) {}
+
     /**
      * Start any background threads belonging to the storage system. For example, garbage collection.
      */
@@ -144,6 +150,15 @@ public interface LedgerStorage {
      */
     ByteBuf getEntry(long ledgerId, long entryId) throws IOException, BookieException;
 
+    /**
+     * Read an entry from storage without inserting it, nor the entries read ahead of it, in the read cache, as
+     * done for the reads of the autorecovery, which would otherwise evict the entries read by the applications.
+     * The default implementation is for the storages without read cache.
+     */
+    default ByteBuf getEntryWithoutCaching(long ledgerId, long entryId) throws IOException, BookieException {
+        return getEntry(ledgerId, entryId);
+    }
+
     /**
      * Get last add confirmed.
      *
@@ -280,6 +295,22 @@ public interface LedgerStorage {
         return Collections.emptyList();
     }
 
+    /**
+     * Get the number of entries read from the disk which were found in the read cache, since the storage
+     * started. Ledger storages without read cache return 0.
+     */
+    default long getReadCacheHitCount() {
+        return 0L;
+    }
+
+    /**
+     * Get the number of entries read from the disk which weren't found in the read cache, since the storage
+     * started. Ledger storages without read cache return 0.
+     */
+    default long getReadCacheMissCount() {
+        return 0L;
+    }
+
     /**
      * Class for describing location of a generic inconsistency.  Implementations should
      * ensure that detail is populated with an exception which adequately describes the
@@ -35,7 +35,6 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.Cleanup;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
@@ -49,7 +48,9 @@ import org.apache.bookkeeper.meta.MetadataBookieDriver;
 import org.apache.bookkeeper.meta.MetadataDrivers;
 import org.apache.bookkeeper.meta.exceptions.MetadataException;
 import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
 import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.util.collections.ConcurrentLongHashSet;
 import org.apache.bookkeeper.versioning.Versioned;
 import org.apache.commons.configuration.ConfigurationException;
 import org.slf4j.Logger;
@@ -68,6 +69,13 @@ import org.slf4j.LoggerFactory;
  * <b>globalActiveLedgers</b>, do garbage collection on them.
  * </ul>
  * </p>
+ *
+ * <p>
+ * When incremental garbage collection is enabled, the garbage collector watches the metadata
+ * of the ledgers stored by the bookie and only collects the ledgers whose deletion was notified
+ * by the metadata store. The scan and compare above is then only done every
+ * <i>gcFullScanWaitTime</i>, to catch the deletions whose notifications were lost.
+ * </p>
  */
 public class ScanAndCompareGarbageCollector implements GarbageCollector {
 
@@ -84,6 +92,18 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
     private int activeLedgerCounter;
     private StatsLogger statsLogger;
     private final int maxConcurrentRequests;
+    private final boolean incrementalGcEnabled;
+    private final long gcFullScanIntervalMillis;
+    private long lastFullScanTimeMillis;
+    // ledgers whose metadata is watched, and ledgers notified as deleted since the last gc
+    private final ConcurrentLongHashSet watchedLedgers = ConcurrentLongHashSet.newBuilder().build();
+    private final ConcurrentLongHashSet deletedLedgers = ConcurrentLongHashSet.newBuilder().build();
+    private final LedgerMetadataListener deletionListener = (ledgerId, metadata) -> {
+        // `null` metadata indicates that the ledger is deleted
+        if (metadata == null) {
+            deletedLedgers.add(ledgerId);
+        }
+    };
 
     public ScanAndCompareGarbageCollector(LedgerManager ledgerManager, CompactableLedgerStorage ledgerStorage,
             ServerConfiguration conf, StatsLogger statsLogger) throws IOException {
@@ -104,6 +124,12 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
 
         verifyMetadataOnGc = conf.getVerifyMetadataOnGC();
 
+        this.incrementalGcEnabled = conf.isGcIncrementalEnabled();
+        this.gcFullScanIntervalMillis = conf.getGcFullScanWaitTimeMillis();
+        if (incrementalGcEnabled) {
+            LOG.info("Incremental garbage collection : fullScanInterval={}", gcFullScanIntervalMillis);
+        }
+
         this.activeLedgerCounter = 0;
     }
 
@@ -141,16 +167,26 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
                 lastOverReplicatedLedgerGcTimeMillis = System.currentTimeMillis();
             }
 
-            // Iterate over all the ledger on the metadata store
             long zkOpTimeoutMs = this.conf.getZkTimeout() * 2;
+            if (incrementalGcEnabled) {
+                watchLedgers(bkActiveLedgers);
+                if (lastFullScanTimeMillis > 0 && curTime - lastFullScanTimeMillis < gcFullScanIntervalMillis) {
+                    gcDeletedLedgers(bkActiveLedgers, garbageCleaner, zkOpTimeoutMs);
+                    return;
+                }
+                LOG.info("Start full scan of the ledgers on the metadata store. activeLedgerCounter={}",
+                        activeLedgerCounter);
+                // the full scan collects all the deleted ledgers notified so far
+                deletedLedgers.clear();
+            }
+
+            // Iterate over all the ledger on the metadata store
             LedgerRangeIterator ledgerRangeIterator = ledgerManager
                     .getLedgerRanges(zkOpTimeoutMs);
             Set<Long> ledgersInMetadata = null;
             long start;
             long end = -1;
             boolean done = false;
-            AtomicBoolean isBookieInEnsembles = new AtomicBoolean(false);
-            Versioned<LedgerMetadata> metadata = null;
             while (!done) {
                 start = end + 1;
                 if (ledgerRangeIterator.hasNext()) {
@@ -170,51 +206,101 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
                 }
                 for (Long bkLid : subBkActiveLedgers) {
                     if (!ledgersInMetadata.contains(bkLid)) {
-                        if (verifyMetadataOnGc) {
-                            isBookieInEnsembles.set(false);
-                            metadata = null;
-                            int rc = BKException.Code.OK;
-                            try {
-                                metadata = result(ledgerManager.readLedgerMetadata(bkLid), zkOpTimeoutMs,
-                                        TimeUnit.MILLISECONDS);
-                            } catch (BKException | TimeoutException e) {
-                                if (e instanceof BKException) {
-                                    rc = ((BKException) e).getCode();
-                                } else {
-                                    LOG.warn("Time-out while fetching metadata for Ledger {} : {}.", bkLid,
-                                            e.getMessage());
-
-                                    continue;
-                                }
-                            }
-                            // check bookie should be part of ensembles in one
-                            // of the segment else ledger should be deleted from
-                            // local storage
-                            if (metadata != null && metadata.getValue() != null) {
-                                metadata.getValue().getAllEnsembles().forEach((entryId, ensembles) -> {
-                                    if (ensembles != null && ensembles.contains(selfBookieAddress)) {
-                                        isBookieInEnsembles.set(true);
-                                    }
-                                });
-                                if (isBookieInEnsembles.get()) {
-                                    continue;
-                                }
-                            } else if (rc != BKException.Code.NoSuchLedgerExistsOnMetadataServerException) {
-                                LOG.warn("Ledger {} Missing in metadata list, but ledgerManager returned rc: {}.",
-                                        bkLid, rc);
-                                continue;
-                            }
+                        if (verifyMetadataOnGc && !verifyLedgerIsGarbage(bkLid, zkOpTimeoutMs)) {
+                            continue;
                         }
                         garbageCleaner.clean(bkLid);
                     }
                 }
             }
+            if (incrementalGcEnabled) {
+                lastFullScanTimeMillis = curTime;
+            }
         } catch (Throwable t) {
             // ignore exception, collecting garbage next time
             LOG.warn("Exception when iterating over the metadata", t);
         }
     }
 
+    /*
+     * Collects the ledgers stored by the bookie whose deletion was notified by
+     * the metadata store since the last gc.
+     */
+    private void gcDeletedLedgers(NavigableSet<Long> bkActiveLedgers, GarbageCleaner garbageCleaner,
+                                  long zkOpTimeoutMs) throws Exception {
+        for (Long ledgerId : deletedLedgers.items()) {
+            deletedLedgers.remove(ledgerId);
+            if (!bkActiveLedgers.contains(ledgerId)) {
+                continue;
+            }
+            if (verifyMetadataOnGc && !verifyLedgerIsGarbage(ledgerId, zkOpTimeoutMs)) {
+                continue;
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Ledger {} was deleted from the metadata store, collecting it", ledgerId);
+            }
+            garbageCleaner.clean(ledgerId);
+        }
+    }
+
+    /*
+     * Watches the metadata of the ledgers stored by the bookie to be notified
+     * of their deletion, and stops watching the ledgers which are gone from
+     * the bookie. Watching a ledger reads its metadata once, a ledger which
+     * is already deleted is notified right away.
+     */
+    private void watchLedgers(NavigableSet<Long> bkActiveLedgers) {
+        for (Long ledgerId : bkActiveLedgers) {
+            if (watchedLedgers.add(ledgerId)) {
+                ledgerManager.registerLedgerMetadataListener(ledgerId, deletionListener);
+            }
+        }
+        for (Long ledgerId : watchedLedgers.items()) {
+            if (!bkActiveLedgers.contains(ledgerId)) {
+                watchedLedgers.remove(ledgerId);
+                ledgerManager.unregisterLedgerMetadataListener(ledgerId, deletionListener);
+            }
+        }
+    }
+
+    /*
+     * Double checks on the metadata store that a ledger which looks deleted
+     * can be garbage collected: either it doesn't exist anymore, or the bookie
+     * isn't part of its ensembles.
+     */
+    private boolean verifyLedgerIsGarbage(long bkLid, long zkOpTimeoutMs) throws Exception {
+        Versioned<LedgerMetadata> metadata = null;
+        int rc = BKException.Code.OK;
+        try {
+            metadata = result(ledgerManager.readLedgerMetadata(bkLid), zkOpTimeoutMs,
+                    TimeUnit.MILLISECONDS);
+        } catch (BKException | TimeoutException e) {
+            if (e instanceof BKException) {
+                rc = ((BKException) e).getCode();
+            } else {
+                LOG.warn("Time-out while fetching metadata for Ledger {} : {}.", bkLid,
+                        e.getMessage());
+
+                return false;
+            }
+        }
+        // check bookie should be part of ensembles in one
+        // of the segment else ledger should be deleted from
+        // local storage
+        if (metadata != null && metadata.getValue() != null) {
+            for (List<BookieId> ensemble : metadata.getValue().getAllEnsembles().values()) {
+                if (ensemble != null && ensemble.contains(selfBookieAddress)) {
+                    return false;
+                }
+            }
+        } else if (rc != BKException.Code.NoSuchLedgerExistsOnMetadataServerException) {
+            LOG.warn("Ledger {} Missing in metadata list, but ledgerManager returned rc: {}.",
+                    bkLid, rc);
+            return false;
+        }
+        return true;
+    }
+
     private Set<Long> removeOverReplicatedledgers(Set<Long> bkActiveledgers, final GarbageCleaner garbageCleaner)
             throws Exception {
         final Set<Long> overReplicatedLedgers = Sets.newHashSet();
@@ -118,6 +118,11 @@ public class SortedLedgerStorage
         interleavedLedgerStorage.setCheckpointer(checkpointer);
     }
 
+    @Override
+    public void setForegroundLatencyTracker(ForegroundLatencyTracker tracker) {
+        interleavedLedgerStorage.setForegroundLatencyTracker(tracker);
+    }
+
     @VisibleForTesting
     ScheduledExecutorService getScheduler() {
         return scheduler;
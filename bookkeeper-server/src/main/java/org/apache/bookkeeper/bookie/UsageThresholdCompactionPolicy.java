@@ -0,0 +1,48 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The default compaction policy: every entry log whose usage is below the threshold is compacted,
+ * from the emptiest to the fullest in buckets of 10% usage.
+ */
+public class UsageThresholdCompactionPolicy implements EntryLogCompactionPolicy {
+
+    private static final int NUM_BUCKETS = 10;
+
+    @Override
+    public List<EntryLogUsage> select(List<EntryLogUsage> entryLogs, double threshold) {
+        // the sort is stable, so entry logs in the same bucket keep their order
+        return entryLogs.stream()
+            .filter(entryLog -> entryLog.getUsage() < threshold)
+            .sorted(Comparator.comparingInt(entryLog -> bucket(entryLog.getUsage())))
+            .collect(Collectors.toList());
+    }
+
+    private static int bucket(double usage) {
+        return Math.min(NUM_BUCKETS - 1, (int) Math.floor(usage * NUM_BUCKETS));
+    }
+}
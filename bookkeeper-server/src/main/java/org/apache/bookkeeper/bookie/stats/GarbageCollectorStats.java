@@ -24,7 +24,10 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ACTIVE_ENTRY_LO
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ACTIVE_LEDGER_COUNT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.BOOKIE_SCOPE;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.COMPACTION_ALLOWED_RATE;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.COMPACTION_REWRITTEN_BYTES;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.DELETED_LEDGER_COUNT;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.EXTRACTED_ENTRY_LOG_METADATA_COUNT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.MAJOR_COMPACTION_COUNT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.MINOR_COMPACTION_COUNT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RECLAIMED_COMPACTION_SPACE_BYTES;
@@ -71,6 +74,16 @@ public class GarbageCollectorStats {
         help = "Number of disk space bytes reclaimed via compacting entry log files"
     )
     private final Counter reclaimedSpaceViaCompaction;
+    @StatsDoc(
+        name = COMPACTION_REWRITTEN_BYTES,
+        help = "Number of bytes of live entries rewritten by compacting entry log files"
+    )
+    private final Counter compactionRewrittenBytes;
+    @StatsDoc(
+        name = EXTRACTED_ENTRY_LOG_METADATA_COUNT,
+        help = "Number of entry log files whose metadata was extracted by the garbage collector"
+    )
+    private final Counter extractedEntryLogMetadataCounter;
     @StatsDoc(
         name = DELETED_LEDGER_COUNT,
         help = "Number of ledgers deleted by garbage collection"
@@ -96,17 +109,25 @@ public class GarbageCollectorStats {
         help = "Current number of active ledgers"
     )
     private final Gauge<Integer> activeLedgerCountGauge;
+    @StatsDoc(
+        name = COMPACTION_ALLOWED_RATE,
+        help = "Current compaction rate allowed by the compaction throttler, in bytes or entries per second"
+    )
+    private final Gauge<Long> compactionAllowedRateGauge;
 
     public GarbageCollectorStats(StatsLogger statsLogger,
                                  Supplier<Integer> activeEntryLogCountSupplier,
                                  Supplier<Long> activeEntryLogSpaceBytesSupplier,
-                                 Supplier<Integer> activeLedgerCountSupplier) {
+                                 Supplier<Integer> activeLedgerCountSupplier,
+                                 Supplier<Long> compactionAllowedRateSupplier) {
         this.statsLogger = statsLogger;
 
         this.minorCompactionCounter = statsLogger.getCounter(MINOR_COMPACTION_COUNT);
         this.majorCompactionCounter = statsLogger.getCounter(MAJOR_COMPACTION_COUNT);
         this.reclaimedSpaceViaCompaction = statsLogger.getCounter(RECLAIMED_COMPACTION_SPACE_BYTES);
         this.reclaimedSpaceViaDeletes = statsLogger.getCounter(RECLAIMED_DELETION_SPACE_BYTES);
+        this.compactionRewrittenBytes = statsLogger.getCounter(COMPACTION_REWRITTEN_BYTES);
+        this.extractedEntryLogMetadataCounter = statsLogger.getCounter(EXTRACTED_ENTRY_LOG_METADATA_COUNT);
         this.gcThreadRuntime = statsLogger.getOpStatsLogger(THREAD_RUNTIME);
         this.deletedLedgerCounter = statsLogger.getCounter(DELETED_LEDGER_COUNT);
 
@@ -146,6 +167,18 @@ public class GarbageCollectorStats {
             }
         };
         statsLogger.registerGauge(ACTIVE_LEDGER_COUNT, activeLedgerCountGauge);
+        this.compactionAllowedRateGauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return compactionAllowedRateSupplier.get();
+            }
+        };
+        statsLogger.registerGauge(COMPACTION_ALLOWED_RATE, compactionAllowedRateGauge);
     }
 
 }
@@ -48,6 +48,7 @@ import org.apache.bookkeeper.bookie.CheckpointSource;
 import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
 import org.apache.bookkeeper.bookie.Checkpointer;
 import org.apache.bookkeeper.bookie.DefaultEntryLogger;
+import org.apache.bookkeeper.bookie.ForegroundLatencyTracker;
 import org.apache.bookkeeper.bookie.GarbageCollectionStatus;
 import org.apache.bookkeeper.bookie.LastAddConfirmedUpdateNotification;
 import org.apache.bookkeeper.bookie.LedgerCache;
@@ -236,7 +237,9 @@ public class DbLedgerStorage implements LedgerStorage {
                     maxFdCacheTimeSeconds,
                     slog, statsLogger);
             } else {
-                entrylogger = new DefaultEntryLogger(conf, ldm, null, statsLogger, allocator);
+                DefaultEntryLogger defaultEntryLogger = new DefaultEntryLogger(conf, ldm, null, statsLogger, allocator);
+                defaultEntryLogger.setLedgerManager(ledgerManager);
+                entrylogger = defaultEntryLogger;
             }
             ledgerStorageList.add(newSingleDirectoryDbLedgerStorage(conf, ledgerManager, ldm,
                 idm, entrylogger,
@@ -301,6 +304,11 @@ public class DbLedgerStorage implements LedgerStorage {
         ledgerStorageList.forEach(s -> s.setCheckpointer(checkpointer));
     }
 
+    @Override
+    public void setForegroundLatencyTracker(ForegroundLatencyTracker tracker) {
+        ledgerStorageList.forEach(s -> s.setForegroundLatencyTracker(tracker));
+    }
+
     @Override
     public void start() {
         ledgerStorageList.forEach(LedgerStorage::start);
@@ -361,6 +369,11 @@ public class DbLedgerStorage implements LedgerStorage {
         return getLedgerStorage(ledgerId).getEntry(ledgerId, entryId);
     }
 
+    @Override
+    public ByteBuf getEntryWithoutCaching(long ledgerId, long entryId) throws IOException, BookieException {
+        return getLedgerStorage(ledgerId).getEntryWithoutCaching(ledgerId, entryId);
+    }
+
     @Override
     public long getLastAddConfirmed(long ledgerId) throws IOException, BookieException {
         return getLedgerStorage(ledgerId).getLastAddConfirmed(ledgerId);
@@ -591,6 +604,16 @@ public class DbLedgerStorage implements LedgerStorage {
         return allEntryLocationDBPath;
     }
 
+    @Override
+    public long getReadCacheHitCount() {
+        return ledgerStorageList.stream().mapToLong(SingleDirectoryDbLedgerStorage::getReadCacheHitCount).sum();
+    }
+
+    @Override
+    public long getReadCacheMissCount() {
+        return ledgerStorageList.stream().mapToLong(SingleDirectoryDbLedgerStorage::getReadCacheMissCount).sum();
+    }
+
     @Override
     public List<GarbageCollectionStatus> getGarbageCollectionStatus() {
         return ledgerStorageList.stream()
@@ -625,9 +648,7 @@ public class DbLedgerStorage implements LedgerStorage {
 
     @Override
     public OfLong getListOfEntriesOfLedger(long ledgerId) throws IOException {
-        // check Issue #2078
-        throw new UnsupportedOperationException(
-                "getListOfEntriesOfLedger method is currently unsupported for DbLedgerStorage");
+        return getLedgerStorage(ledgerId).getListOfEntriesOfLedger(ledgerId);
     }
 
     @Override
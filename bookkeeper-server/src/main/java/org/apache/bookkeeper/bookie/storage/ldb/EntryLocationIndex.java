@@ -26,9 +26,11 @@ import java.io.IOException;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.bookie.EntryLocation;
 import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.Batch;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.CloseableIterator;
 import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorageFactory.DbConfigType;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.stats.StatsLogger;
@@ -138,6 +140,30 @@ public class EntryLocationIndex implements Closeable {
         }
     }
 
+    /**
+     * Get the ids of the entries of a ledger in the index, by scanning the range of the keys of the ledger.
+     *
+     * @param ledgerId ledger id
+     * @return the entry ids in ascending order, empty if the ledger is deleted
+     */
+    public LongStream getEntriesOfLedger(long ledgerId) throws IOException {
+        LongStream.Builder entries = LongStream.builder();
+        if (deletedLedgers.contains(ledgerId)) {
+            return entries.build();
+        }
+        LongPairWrapper firstKey = LongPairWrapper.get(ledgerId, 0);
+        LongPairWrapper lastKey = LongPairWrapper.get(ledgerId, Long.MAX_VALUE);
+        try (CloseableIterator<byte[]> keys = locationsDb.keys(firstKey.array, lastKey.array)) {
+            while (keys.hasNext()) {
+                entries.add(ArrayUtil.getLong(keys.next(), 8));
+            }
+        } finally {
+            firstKey.recycle();
+            lastKey.recycle();
+        }
+        return entries.build();
+    }
+
     public void addLocation(long ledgerId, long entryId, long location) throws IOException {
         Batch batch = locationsDb.newBatch();
         addLocation(batch, ledgerId, entryId, location);
@@ -46,8 +46,10 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.StampedLock;
+import java.util.stream.LongStream;
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.bookie.Bookie.NoEntryException;
 import org.apache.bookkeeper.bookie.BookieException;
@@ -57,6 +59,7 @@ import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
 import org.apache.bookkeeper.bookie.Checkpointer;
 import org.apache.bookkeeper.bookie.CompactableLedgerStorage;
 import org.apache.bookkeeper.bookie.EntryLocation;
+import org.apache.bookkeeper.bookie.ForegroundLatencyTracker;
 import org.apache.bookkeeper.bookie.GarbageCollectionStatus;
 import org.apache.bookkeeper.bookie.GarbageCollectorThread;
 import org.apache.bookkeeper.bookie.LastAddConfirmedUpdateNotification;
@@ -107,6 +110,9 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
     // Cache where we insert entries for speculative reading
     private final ReadCache readCache;
+    // reported in the load of the bookie, unlike the stats counters which may not be recorded
+    private final LongAdder readCacheHits = new LongAdder();
+    private final LongAdder readCacheMisses = new LongAdder();
 
     private final StampedLock writeCacheRotationLock = new StampedLock();
 
@@ -243,6 +249,11 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
     @Override
     public void setCheckpointer(Checkpointer checkpointer) { }
 
+    @Override
+    public void setForegroundLatencyTracker(ForegroundLatencyTracker tracker) {
+        gcThread.setForegroundLatencyTracker(tracker);
+    }
+
     /**
      * Evict all the ledger info object that were not used recently.
      */
@@ -329,6 +340,16 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         return Lists.newArrayList(entryLocationIndex.getEntryLocationDBPath());
     }
 
+    @Override
+    public long getReadCacheHitCount() {
+        return readCacheHits.sum();
+    }
+
+    @Override
+    public long getReadCacheMissCount() {
+        return readCacheMisses.sum();
+    }
+
     @Override
     public void shutdown() throws InterruptedException {
         try {
@@ -553,9 +574,19 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
     @Override
     public ByteBuf getEntry(long ledgerId, long entryId) throws IOException, BookieException {
+        return getEntry(ledgerId, entryId, true);
+    }
+
+    @Override
+    public ByteBuf getEntryWithoutCaching(long ledgerId, long entryId) throws IOException, BookieException {
+        return getEntry(ledgerId, entryId, false);
+    }
+
+    private ByteBuf getEntry(long ledgerId, long entryId, boolean fillReadCache)
+            throws IOException, BookieException {
         long startTime = MathUtils.nowInNano();
         try {
-            ByteBuf entry = doGetEntry(ledgerId, entryId);
+            ByteBuf entry = doGetEntry(ledgerId, entryId, fillReadCache);
             recordSuccessfulEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
             return entry;
         } catch (IOException e) {
@@ -564,7 +595,8 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         }
     }
 
-    private ByteBuf doGetEntry(long ledgerId, long entryId) throws IOException, BookieException {
+    private ByteBuf doGetEntry(long ledgerId, long entryId, boolean fillReadCache)
+            throws IOException, BookieException {
         if (log.isDebugEnabled()) {
             log.debug("Get Entry: {}@{}", ledgerId, entryId);
         }
@@ -610,10 +642,12 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         entry = readCache.get(ledgerId, entryId);
         if (entry != null) {
             dbLedgerStorageStats.getReadCacheHitCounter().inc();
+            readCacheHits.increment();
             return entry;
         }
 
         dbLedgerStorageStats.getReadCacheMissCounter().inc();
+        readCacheMisses.increment();
 
         // Read from main storage
         long entryLocation;
@@ -639,6 +673,10 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                     MathUtils.elapsedNanos(readEntryStartNano), TimeUnit.NANOSECONDS);
         }
 
+        if (!fillReadCache) {
+            return entry;
+        }
+
         readCache.put(ledgerId, entryId, entry);
 
         // Try to read more entries
@@ -1111,8 +1149,31 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
     @Override
     public OfLong getListOfEntriesOfLedger(long ledgerId) throws IOException {
-        throw new UnsupportedOperationException(
-                "getListOfEntriesOfLedger method is currently unsupported for SingleDirectoryDbLedgerStorage");
+        long stamp = writeCacheRotationLock.tryOptimisticRead();
+        WriteCache localWriteCache = writeCache;
+        WriteCache localWriteCacheBeingFlushed = writeCacheBeingFlushed;
+        if (!writeCacheRotationLock.validate(stamp)) {
+            stamp = writeCacheRotationLock.readLock();
+            try {
+                localWriteCache = writeCache;
+                localWriteCacheBeingFlushed = writeCacheBeingFlushed;
+            } finally {
+                writeCacheRotationLock.unlockRead(stamp);
+            }
+        }
+
+        // The write caches are looked up before the location index, so that an entry flushed meanwhile is found
+        // in the index.
+        LongStream.Builder entriesInCache = LongStream.builder();
+        localWriteCache.forEachEntryOfLedger(ledgerId, entriesInCache);
+        localWriteCacheBeingFlushed.forEachEntryOfLedger(ledgerId, entriesInCache);
+        long[] cachedEntries = entriesInCache.build().toArray();
+
+        LongStream entriesInIndex = entryLocationIndex.getEntriesOfLedger(ledgerId);
+        if (cachedEntries.length == 0) {
+            return entriesInIndex.iterator();
+        }
+        return LongStream.concat(entriesInIndex, LongStream.of(cachedEntries)).sorted().distinct().iterator();
     }
 
     private LedgerDirsManager.LedgerDirsListener getLedgerDirsListener() {
@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
 import org.apache.bookkeeper.common.util.MathUtils;
 import org.apache.bookkeeper.util.collections.ConcurrentLongHashSet;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongHashMap;
@@ -213,6 +214,23 @@ public class WriteCache implements Closeable {
         }
     }
 
+    /**
+     * Pass the ids of the entries of a ledger stored in the cache to a consumer, in no particular order.
+     *
+     * <p>Only the index of the entries of the cache is scanned, without sorting it nor reading the entries.
+     */
+    public void forEachEntryOfLedger(long ledgerId, LongConsumer consumer) {
+        if (lastEntryMap.get(ledgerId) == -1 || deletedLedgers.contains(ledgerId)) {
+            // Ledger not found in write cache
+            return;
+        }
+        index.forEach((entryLedgerId, entryId, offset, length) -> {
+            if (entryLedgerId == ledgerId) {
+                consumer.accept(entryId);
+            }
+        });
+    }
+
     public void deleteLedger(long ledgerId) {
         deletedLedgers.add(ledgerId);
     }
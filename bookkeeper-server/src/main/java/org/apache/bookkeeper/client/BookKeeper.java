@@ -22,6 +22,8 @@ package org.apache.bookkeeper.client;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.WATCHER_SCOPE;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.ENTRY_CACHE_SCOPE;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.LEDGER_METADATA_CACHE_SCOPE;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -32,6 +34,7 @@ import io.netty.util.HashedWheelTimer;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -133,11 +136,16 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
     final FeatureProvider featureProvider;
     final ScheduledExecutorService bookieInfoScheduler;
 
+    // Entries cache shared by the ledger handles, null if disabled
+    final ClientEntryCache entryCache;
+
     final MetadataClientDriver metadataDriver;
     // Ledger manager responsible for how to store ledger meta data
     final LedgerManagerFactory ledgerManagerFactory;
     final LedgerManager ledgerManager;
     final LedgerIdGenerator ledgerIdGenerator;
+    // Ledger metadata cache used by opens, null if disabled
+    final LedgerMetadataCache ledgerMetadataCache;
 
     // Ensemble Placement Policy
     final EnsemblePlacementPolicy placementPolicy;
@@ -481,6 +489,13 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
                     .build();
         }
 
+        if (conf.getClientEntryCacheMaxSizeBytes() > 0) {
+            LOG.info("Client entry cache enabled with max size {} bytes", conf.getClientEntryCacheMaxSizeBytes());
+            this.entryCache = new ClientEntryCache(this.allocator, conf.getClientEntryCacheMaxSizeBytes(),
+                    this.statsLogger.scope(ENTRY_CACHE_SCOPE));
+        } else {
+            this.entryCache = null;
+        }
 
         if (null == requestTimer) {
             this.requestTimer = new HashedWheelTimer(
@@ -511,8 +526,9 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         this.bookieClient = new BookieClientImpl(conf, this.eventLoopGroup, this.allocator, this.mainWorkerPool,
                 scheduler, rootStatsLogger, this.bookieWatcher.getBookieAddressResolver());
 
-        if (conf.getDiskWeightBasedPlacementEnabled()) {
-            LOG.info("Weighted ledger placement enabled");
+        if (conf.getDiskWeightBasedPlacementEnabled() || conf.getLoadAwarePlacementEnabled()) {
+            LOG.info("Weighted ledger placement enabled, disk weight based: {}, load aware: {}",
+                    conf.getDiskWeightBasedPlacementEnabled(), conf.getLoadAwarePlacementEnabled());
             ThreadFactoryBuilder tFBuilder = new ThreadFactoryBuilder()
                     .setNameFormat("BKClientMetaDataPollScheduler-%d");
             this.bookieInfoScheduler = Executors.newSingleThreadScheduledExecutor(tFBuilder.build());
@@ -535,6 +551,14 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         }
         this.ledgerManager = new CleanupLedgerManager(ledgerManagerFactory.newLedgerManager());
         this.ledgerIdGenerator = ledgerManagerFactory.newLedgerIdGenerator();
+        if (conf.getLedgerMetadataCacheMaxSize() > 0) {
+            LOG.info("Ledger metadata cache enabled with max size {}", conf.getLedgerMetadataCacheMaxSize());
+            this.ledgerMetadataCache = new LedgerMetadataCache(ledgerManager, conf.getLedgerMetadataCacheMaxSize(),
+                    conf.getLedgerMetadataCacheWatchClosedLedgers(),
+                    this.statsLogger.scope(LEDGER_METADATA_CACHE_SCOPE));
+        } else {
+            this.ledgerMetadataCache = null;
+        }
 
         this.bookieQuarantineRatio = conf.getBookieQuarantineRatio();
         scheduleBookieHealthCheckIfEnabled(conf);
@@ -558,11 +582,13 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         ledgerManagerFactory = null;
         ledgerManager = null;
         ledgerIdGenerator = null;
+        ledgerMetadataCache = null;
         featureProvider = null;
         eventLoopGroup = null;
         bookieWatcher = null;
         bookieInfoScheduler = null;
         bookieClient = null;
+        entryCache = null;
         allocator = UnpooledByteBufAllocator.DEFAULT;
         bookieQuarantineRatio = 1.0;
     }
@@ -1367,6 +1393,50 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         SyncCallbackUtils.waitForResult(future);
     }
 
+    /**
+     * Deletes several ledgers asynchronously. The metadata of the ledgers is removed in batches, which
+     * is much cheaper than deleting the ledgers one by one. Ledgers which don't exist are considered as
+     * deleted.
+     *
+     * <p>The operation isn't atomic: if it fails, some of the ledgers may have been deleted.
+     *
+     * @param ledgerIds
+     *            ledger Ids
+     * @param cb
+     *            deleteCallback implementation
+     * @param ctx
+     *            optional control object
+     */
+    public void asyncDeleteLedgers(final Collection<Long> ledgerIds, final DeleteCallback cb, final Object ctx) {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                cb.deleteComplete(BKException.Code.ClientClosedException, ctx);
+                return;
+            }
+            new LedgersDeleteOp(BookKeeper.this, clientStats, ledgerIds, cb, ctx).initiate();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Synchronous call to delete several ledgers. Parameters match those of
+     * {@link #asyncDeleteLedgers(Collection, AsyncCallback.DeleteCallback, Object)}
+     *
+     * @param ledgerIds
+     *            ledger Ids
+     * @throws InterruptedException
+     * @throws BKException
+     */
+    public void deleteLedgers(Collection<Long> ledgerIds) throws InterruptedException, BKException {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        SyncDeleteCallback result = new SyncDeleteCallback(future);
+        asyncDeleteLedgers(ledgerIds, result, null);
+
+        SyncCallbackUtils.waitForResult(future);
+    }
+
     /**
      * Check asynchronously whether the ledger with identifier <i>lId</i>
      * has been closed.
@@ -1447,6 +1517,9 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         // Close bookie client so all pending bookie requests would be failed
         // which will reject any incoming bookie requests.
         bookieClient.close();
+        if (ledgerMetadataCache != null) {
+            ledgerMetadataCache.close();
+        }
         try {
             // Close ledger manage so all pending metadata requests would be failed
             // which will reject any incoming metadata requests.
@@ -1478,6 +1551,9 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         if (ownEventLoopGroup) {
             eventLoopGroup.shutdownGracefully();
         }
+        if (entryCache != null) {
+            entryCache.close();
+        }
         this.metadataDriver.close();
     }
 
@@ -1658,6 +1734,16 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
             public ByteBufAllocator getByteBufAllocator() {
                 return allocator;
             }
+
+            @Override
+            public ClientEntryCache getEntryCache() {
+                return entryCache;
+            }
+
+            @Override
+            public LedgerMetadataCache getLedgerMetadataCache() {
+                return ledgerMetadataCache;
+            }
         };
 
     public ClientContext getClientCtx() {
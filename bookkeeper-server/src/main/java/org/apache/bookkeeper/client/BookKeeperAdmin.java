@@ -34,6 +34,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -48,8 +49,10 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
@@ -58,6 +61,7 @@ import java.util.function.Predicate;
 import lombok.SneakyThrows;
 import org.apache.bookkeeper.bookie.BookieException;
 import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.client.AsyncCallback.DeleteCallback;
 import org.apache.bookkeeper.client.AsyncCallback.OpenCallback;
 import org.apache.bookkeeper.client.AsyncCallback.RecoverCallback;
 import org.apache.bookkeeper.client.EnsemblePlacementPolicy.PlacementPolicyAdherence;
@@ -114,6 +118,10 @@ public class BookKeeperAdmin implements AutoCloseable {
     // LedgerFragmentReplicator instance
     private LedgerFragmentReplicator lfr;
 
+    // permits of the fragments replicated concurrently to each bookie, when limited
+    private final int maxConcurrentFragmentsPerBookie;
+    private final ConcurrentHashMap<BookieId, Semaphore> fragmentPermitsPerBookie = new ConcurrentHashMap<>();
+
     private LedgerManagerFactory mFactory;
 
     /*
@@ -170,6 +178,7 @@ public class BookKeeperAdmin implements AutoCloseable {
         bkc = new BookKeeper(conf);
         ownsBK = true;
         this.lfr = new LedgerFragmentReplicator(bkc, NullStatsLogger.INSTANCE, conf);
+        this.maxConcurrentFragmentsPerBookie = conf.getReplicationMaxConcurrentFragmentsPerBookie();
         this.mFactory = bkc.ledgerManagerFactory;
     }
 
@@ -187,6 +196,7 @@ public class BookKeeperAdmin implements AutoCloseable {
         this.bkc = bkc;
         ownsBK = false;
         this.lfr = new LedgerFragmentReplicator(bkc, statsLogger, conf);
+        this.maxConcurrentFragmentsPerBookie = conf.getReplicationMaxConcurrentFragmentsPerBookie();
         this.mFactory = bkc.ledgerManagerFactory;
     }
 
@@ -197,6 +207,7 @@ public class BookKeeperAdmin implements AutoCloseable {
     public BookKeeperAdmin(final BookKeeper bkc) {
         this.bkc = bkc;
         ownsBK = false;
+        this.maxConcurrentFragmentsPerBookie = 0;
         this.mFactory = bkc.ledgerManagerFactory;
     }
 
@@ -372,6 +383,33 @@ public class BookKeeperAdmin implements AutoCloseable {
         return SyncCallbackUtils.waitForResult(future);
     }
 
+    /**
+     * Delete several ledgers, removing their metadata in batches.
+     *
+     * @param ledgerIds
+     *          ledger identifiers
+     * @param cb
+     *          Callback called when the ledgers are deleted
+     * @param ctx
+     *          optional context object, to be passed to the callback (can be null)
+     *
+     * @see BookKeeper#asyncDeleteLedgers
+     */
+    public void asyncDeleteLedgers(final Collection<Long> ledgerIds, final DeleteCallback cb, final Object ctx) {
+        bkc.asyncDeleteLedgers(ledgerIds, cb, ctx);
+    }
+
+    /**
+     * Delete several ledgers, removing their metadata in batches.
+     *
+     * @param ledgerIds
+     *          ledger identifiers
+     * @see BookKeeper#deleteLedgers
+     */
+    public void deleteLedgers(final Collection<Long> ledgerIds) throws InterruptedException, BKException {
+        bkc.deleteLedgers(ledgerIds);
+    }
+
     /**
      * Read entries from a ledger synchronously. If the lastEntry is -1, it will read all the entries in the ledger from
      * the firstEntry.
@@ -1150,6 +1188,58 @@ public class BookKeeperAdmin implements AutoCloseable {
         replicateLedgerFragment(lh, ledgerFragment, targetBookieAddresses, onReadEntryFailureCallback);
     }
 
+    /**
+     * Replicate the Ledger fragment to the target bookies passed, and replace the bookies in its ensemble.
+     *
+     * @param lh
+     *            - ledgerHandle
+     * @param ledgerFragment
+     *            - LedgerFragment to replicate
+     * @param targetBookieAddresses
+     *            - target bookie of each replicated index of the ensemble
+     */
+    void replicateLedgerFragment(LedgerHandle lh, LedgerFragment ledgerFragment,
+            Map<Integer, BookieId> targetBookieAddresses) throws InterruptedException, BKException {
+        replicateLedgerFragment(lh, ledgerFragment, targetBookieAddresses, NOOP_BICONSUMER);
+    }
+
+    /**
+     * Compute the moves of ledger replicas to rebalance the disk usage and the load of the writable bookies.
+     *
+     * @param usageThreshold
+     *            fraction of their disk capacity the bookies may use above the average usage of the cluster
+     * @param loadThreshold
+     *            multiple of the load of the median bookie above which a bookie is hot
+     * @param maxBytesToMove
+     *            maximum number of bytes to move, no limit if not positive
+     * @return the plan of the moves
+     * @see LedgerRebalancer
+     */
+    public LedgerRebalancer.Plan computeRebalancePlan(double usageThreshold, double loadThreshold,
+                                                      long maxBytesToMove) throws BKException, InterruptedException {
+        return new LedgerRebalancer(this, bkc).computePlan(usageThreshold, loadThreshold, maxBytesToMove);
+    }
+
+    /**
+     * Move the ledger replicas of a rebalance plan, at the replication rate of the configuration of this admin.
+     *
+     * @param plan
+     *            the plan computed by {@link #computeRebalancePlan(double, double, long)}
+     * @return the number of replicas moved
+     */
+    public int rebalanceBookies(LedgerRebalancer.Plan plan) throws InterruptedException {
+        return new LedgerRebalancer(this, bkc).execute(plan);
+    }
+
+    /**
+     * Get the progress of the ledgers whose fragments are being replicated by this admin.
+     *
+     * @return the replication progress, keyed by ledger id
+     */
+    public Map<Long, LedgerFragmentReplicator.ReplicationProgress> getReplicationProgress() {
+        return lfr.getReplicationProgress();
+    }
+
     private void replicateLedgerFragment(LedgerHandle lh,
             final LedgerFragment ledgerFragment,
             final Map<Integer, BookieId> targetBookieAddresses,
@@ -1166,13 +1256,44 @@ public class BookKeeperAdmin implements AutoCloseable {
 
         Set<BookieId> targetBookieSet = Sets.newHashSet();
         targetBookieSet.addAll(targetBookieAddresses.values());
-        asyncRecoverLedgerFragment(lh, ledgerFragment, cb, targetBookieSet, onReadEntryFailureCallback);
+        List<Semaphore> fragmentPermits = acquireFragmentPermits(targetBookieSet);
+        try {
+            asyncRecoverLedgerFragment(lh, ledgerFragment, cb, targetBookieSet, onReadEntryFailureCallback);
+
+            try {
+                SyncCallbackUtils.waitForResult(result);
+            } catch (BKException err) {
+                throw BKException.create(bkc.getReturnRc(err.getCode()));
+            }
+        } finally {
+            fragmentPermits.forEach(Semaphore::release);
+        }
+    }
 
+    /**
+     * Wait until the number of fragments replicated concurrently to each of the target bookies is below
+     * the configured limit, and take a permit of each of them. The permits are taken in the order of the
+     * bookie ids, so concurrent replications to overlapping bookies can't wait for each other.
+     */
+    private List<Semaphore> acquireFragmentPermits(Set<BookieId> targetBookies) throws InterruptedException {
+        if (maxConcurrentFragmentsPerBookie <= 0) {
+            return Collections.emptyList();
+        }
+        List<BookieId> sortedBookies = new ArrayList<>(targetBookies);
+        sortedBookies.sort(Comparator.comparing(BookieId::toString));
+        List<Semaphore> acquired = new ArrayList<>(sortedBookies.size());
         try {
-            SyncCallbackUtils.waitForResult(result);
-        } catch (BKException err) {
-            throw BKException.create(bkc.getReturnRc(err.getCode()));
+            for (BookieId bookie : sortedBookies) {
+                Semaphore permits = fragmentPermitsPerBookie.computeIfAbsent(bookie,
+                        b -> new Semaphore(maxConcurrentFragmentsPerBookie, true));
+                permits.acquire();
+                acquired.add(permits);
+            }
+        } catch (InterruptedException ie) {
+            acquired.forEach(Semaphore::release);
+            throw ie;
         }
+        return acquired;
     }
 
     private static Map<BookieId, BookieId> getReplacementBookiesMap(
@@ -1831,6 +1952,22 @@ public class BookKeeperAdmin implements AutoCloseable {
         return bkc.getBookieClient().getListOfEntriesOfLedger(address, ledgerId);
     }
 
+    /**
+     * Makes a single async request for getting the lists of entries of many
+     * ledgers from a bookie and returns a Future for the result of each ledger.
+     *
+     * @param address
+     *            BookieId of the bookie
+     * @param ledgerIds
+     *            ledgerIds
+     * @return returns a Future per ledger, in the order of the ledgerIds
+     * @see org.apache.bookkeeper.proto.BookieClient#getListOfEntriesOfLedgers(BookieId, long[])
+     */
+    public List<CompletableFuture<AvailabilityOfEntriesOfLedger>> asyncGetListOfEntriesOfLedgers(BookieId address,
+            long[] ledgerIds) {
+        return bkc.getBookieClient().getListOfEntriesOfLedgers(address, ledgerIds);
+    }
+
     public BookieId getCurrentAuditor() throws IOException, InterruptedException {
         return getLedgerAuditorManager().getCurrentAuditor();
     }
@@ -43,6 +43,8 @@ public interface BookKeeperClientStats {
     String RECOVER_OP = "LEDGER_RECOVER";
     String LEDGER_RECOVER_READ_ENTRIES = "LEDGER_RECOVER_READ_ENTRIES";
     String LEDGER_RECOVER_ADD_ENTRIES = "LEDGER_RECOVER_ADD_ENTRIES";
+    String LEDGER_RECOVER_ADD_BYTES = "LEDGER_RECOVER_ADD_BYTES";
+    String LEDGER_RECOVER_ENTRY_RATE = "LEDGER_RECOVER_ENTRY_RATE";
     String LEDGER_ENSEMBLE_BOOKIE_DISTRIBUTION = "LEDGER_ENSEMBLE_BOOKIE_DISTRIBUTION";
 
     // Data Operations
@@ -65,6 +67,22 @@ public interface BookKeeperClientStats {
     String SPECULATIVE_READ_COUNT = "SPECULATIVE_READ_COUNT";
     String READ_REQUESTS_REORDERED = "READ_REQUESTS_REORDERED";
     String GET_LIST_OF_ENTRIES_OF_LEDGER_OP = "GET_LIST_OF_ENTRIES_OF_LEDGER";
+    String GET_LIST_OF_ENTRIES_OF_LEDGERS_OP = "GET_LIST_OF_ENTRIES_OF_LEDGERS";
+
+    // client entry cache stats
+    String ENTRY_CACHE_SCOPE = "entry_cache";
+
+    String ENTRY_CACHE_HITS = "ENTRY_CACHE_HITS";
+    String ENTRY_CACHE_MISSES = "ENTRY_CACHE_MISSES";
+    String ENTRY_CACHE_COALESCED_READS = "ENTRY_CACHE_COALESCED_READS";
+    String ENTRY_CACHE_SIZE = "ENTRY_CACHE_SIZE";
+
+    // client ledger metadata cache stats
+    String LEDGER_METADATA_CACHE_SCOPE = "metadata_cache";
+
+    String LEDGER_METADATA_CACHE_HITS = "LEDGER_METADATA_CACHE_HITS";
+    String LEDGER_METADATA_CACHE_MISSES = "LEDGER_METADATA_CACHE_MISSES";
+    String LEDGER_METADATA_CACHE_SIZE = "LEDGER_METADATA_CACHE_SIZE";
 
     // per channel stats
     String CHANNEL_SCOPE = "per_channel_bookie_client";
@@ -83,6 +101,7 @@ public interface BookKeeperClientStats {
     String CHANNEL_START_TLS_OP = "START_TLS";
     String CHANNEL_TIMEOUT_START_TLS_OP = "TIMEOUT_START_TLS";
     String TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGER = "TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGER";
+    String TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGERS = "TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGERS";
 
     String NETTY_EXCEPTION_CNT = "NETTY_EXCEPTION_CNT";
     String CLIENT_CHANNEL_WRITE_WAIT = "CLIENT_CHANNEL_WRITE_WAIT";
@@ -118,6 +137,8 @@ public interface BookKeeperClientStats {
     OpStatsLogger getReadLacOpLogger();
     OpStatsLogger getRecoverAddCountLogger();
     OpStatsLogger getRecoverReadCountLogger();
+    OpStatsLogger getRecoverAddBytesLogger();
+    OpStatsLogger getRecoverEntryRateLogger();
     Counter getReadOpDmCounter();
     Counter getAddOpUrCounter();
     Counter getSpeculativeReadCounter();
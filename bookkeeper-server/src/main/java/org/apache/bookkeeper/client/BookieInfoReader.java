@@ -49,6 +49,8 @@ public class BookieInfoReader {
     private static final long GET_BOOKIE_INFO_REQUEST_FLAGS =
         BookkeeperProtocol.GetBookieInfoRequest.Flags.TOTAL_DISK_CAPACITY_VALUE
                                | BookkeeperProtocol.GetBookieInfoRequest.Flags.FREE_DISK_SPACE_VALUE;
+    private static final long GET_BOOKIE_INFO_WITH_LOAD_REQUEST_FLAGS =
+        GET_BOOKIE_INFO_REQUEST_FLAGS | BookkeeperProtocol.GetBookieInfoRequest.Flags.LOAD_VALUE;
 
     private final ScheduledExecutorService scheduler;
     private final BookKeeper bk;
@@ -62,12 +64,17 @@ public class BookieInfoReader {
     public static class BookieInfo implements WeightedObject {
         private final long freeDiskSpace;
         private final long totalDiskSpace;
+        private final BookieLoad load;
         public BookieInfo() {
             this(0L, 0L);
         }
         public BookieInfo(long totalDiskSpace, long freeDiskSpace) {
+            this(totalDiskSpace, freeDiskSpace, null);
+        }
+        public BookieInfo(long totalDiskSpace, long freeDiskSpace, BookieLoad load) {
             this.totalDiskSpace = totalDiskSpace;
             this.freeDiskSpace = freeDiskSpace;
+            this.load = load;
         }
         public long getFreeDiskSpace() {
             return freeDiskSpace;
@@ -75,13 +82,69 @@ public class BookieInfoReader {
         public long getTotalDiskSpace() {
             return totalDiskSpace;
         }
+        /**
+         * Get the load of the bookie.
+         *
+         * @return the load of the bookie, null if it wasn't requested or the bookie doesn't report it
+         */
+        public BookieLoad getLoad() {
+            return load;
+        }
         @Override
         public long getWeight() {
             return freeDiskSpace;
         }
         @Override
         public String toString() {
-            return "FreeDiskSpace: " + this.freeDiskSpace + " TotalDiskCapacity: " + this.totalDiskSpace;
+            return "FreeDiskSpace: " + this.freeDiskSpace + " TotalDiskCapacity: " + this.totalDiskSpace
+                    + (load == null ? "" : " Load: " + load);
+        }
+    }
+
+    /**
+     * The load of a bookie, as reported to the load aware placement.
+     *
+     * <p>NOTE: This class is tended to be used by this project only. External users should not rely on it directly.
+     */
+    public static class BookieLoad {
+        private final long journalQueueSize;
+        private final long addEntryLatencyMicros;
+        private final double readCacheHitRate;
+        private final long addBytesPerSecond;
+        private final long readBytesPerSecond;
+        public BookieLoad(long journalQueueSize, long addEntryLatencyMicros, double readCacheHitRate,
+                          long addBytesPerSecond, long readBytesPerSecond) {
+            this.journalQueueSize = journalQueueSize;
+            this.addEntryLatencyMicros = addEntryLatencyMicros;
+            this.readCacheHitRate = readCacheHitRate;
+            this.addBytesPerSecond = addBytesPerSecond;
+            this.readBytesPerSecond = readBytesPerSecond;
+        }
+        public long getJournalQueueSize() {
+            return journalQueueSize;
+        }
+        public long getAddEntryLatencyMicros() {
+            return addEntryLatencyMicros;
+        }
+        /**
+         * Get the ratio of the entries read from the disk which were found in the read cache.
+         *
+         * @return the read cache hit rate, or a negative value if the bookie didn't read from the disk
+         */
+        public double getReadCacheHitRate() {
+            return readCacheHitRate;
+        }
+        public long getAddBytesPerSecond() {
+            return addBytesPerSecond;
+        }
+        public long getReadBytesPerSecond() {
+            return readBytesPerSecond;
+        }
+        @Override
+        public String toString() {
+            return "JournalQueueSize: " + journalQueueSize + " AddEntryLatencyMicros: " + addEntryLatencyMicros
+                    + " ReadCacheHitRate: " + readCacheHitRate + " AddBytesPerSecond: " + addBytesPerSecond
+                    + " ReadBytesPerSecond: " + readBytesPerSecond;
         }
     }
 
@@ -259,7 +322,20 @@ public class BookieInfoReader {
                     }
                 }
             }
-        }, 0, conf.getGetBookieInfoIntervalSeconds(), TimeUnit.SECONDS);
+        }, 0, getScanIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    private int getScanIntervalSeconds() {
+        if (conf.getLoadAwarePlacementEnabled()) {
+            return Math.min(conf.getGetBookieInfoIntervalSeconds(), conf.getLoadAwarePlacementIntervalSeconds());
+        } else {
+            return conf.getGetBookieInfoIntervalSeconds();
+        }
+    }
+
+    private long getRequestFlags() {
+        return conf.getLoadAwarePlacementEnabled()
+                ? GET_BOOKIE_INFO_WITH_LOAD_REQUEST_FLAGS : GET_BOOKIE_INFO_REQUEST_FLAGS;
     }
 
     private void submitTask() {
@@ -326,8 +402,7 @@ public class BookieInfoReader {
         }
 
         BookieClient bkc = bk.getBookieClient();
-        final long requested = BookkeeperProtocol.GetBookieInfoRequest.Flags.TOTAL_DISK_CAPACITY_VALUE
-                               | BookkeeperProtocol.GetBookieInfoRequest.Flags.FREE_DISK_SPACE_VALUE;
+        final long requested = getRequestFlags();
         totalSent = 0;
         completedCnt = 0;
         errorCnt = 0;
@@ -403,8 +478,7 @@ public class BookieInfoReader {
         final ConcurrentMap<BookieId, BookieInfo> map =
             new ConcurrentHashMap<BookieId, BookieInfo>();
         final CountDownLatch latch = new CountDownLatch(1);
-        long requested = BookkeeperProtocol.GetBookieInfoRequest.Flags.TOTAL_DISK_CAPACITY_VALUE
-                         | BookkeeperProtocol.GetBookieInfoRequest.Flags.FREE_DISK_SPACE_VALUE;
+        long requested = getRequestFlags();
 
         Collection<BookieId> bookies;
         bookies = bk.bookieWatcher.getBookies();
@@ -27,6 +27,7 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Sets;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -45,12 +46,14 @@ import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.common.util.MathUtils;
 import org.apache.bookkeeper.conf.ClientConfiguration;
 import org.apache.bookkeeper.discover.RegistrationClient;
+import org.apache.bookkeeper.discover.RegistrationClient.RegistrationListener;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookieAddressResolver;
 import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.stats.annotations.StatsDoc;
+import org.apache.bookkeeper.versioning.Versioned;
 
 /**
  * This class is responsible for maintaining a consistent view of what bookies
@@ -190,10 +193,20 @@ class BookieWatcherImpl implements BookieWatcher {
 
     // this callback is already not executed in zookeeper thread
     private synchronized void processWritableBookiesChanged(Set<BookieId> newBookieAddrs) {
+        // the registration client didn't provide the changes, compute them from the previous bookies
+        processWritableBookiesChanged(newBookieAddrs,
+                Sets.difference(newBookieAddrs, writableBookies).immutableCopy(),
+                Sets.difference(writableBookies, newBookieAddrs).immutableCopy());
+    }
+
+    // this callback is already not executed in zookeeper thread
+    private synchronized void processWritableBookiesChanged(Set<BookieId> newBookieAddrs,
+                                                            Set<BookieId> joinedBookies,
+                                                            Set<BookieId> leftBookies) {
         // Update watcher outside ZK callback thread, to avoid deadlock in case some other
         // component is trying to do a blocking ZK operation
         this.writableBookies = newBookieAddrs;
-        placementPolicy.onClusterChanged(newBookieAddrs, readOnlyBookies);
+        placementPolicy.onClusterChanged(newBookieAddrs, readOnlyBookies, joinedBookies, leftBookies);
         // we don't need to close clients here, because:
         // a. the dead bookies will be removed from topology, which will not be used in new ensemble.
         // b. the read sequence will be reordered based on znode availability, so most of the reads
@@ -212,7 +225,8 @@ class BookieWatcherImpl implements BookieWatcher {
 
     private synchronized void processReadOnlyBookiesChanged(Set<BookieId> readOnlyBookies) {
         this.readOnlyBookies = readOnlyBookies;
-        placementPolicy.onClusterChanged(writableBookies, readOnlyBookies);
+        placementPolicy.onClusterChanged(writableBookies, readOnlyBookies,
+                Collections.emptySet(), Collections.emptySet());
     }
 
     /**
@@ -228,8 +242,19 @@ class BookieWatcherImpl implements BookieWatcher {
             if (initialReadonlyBookiesFuture == null) {
                 assert initialWritableBookiesFuture == null;
 
-                writable = this.registrationClient.watchWritableBookies(
-                            bookies -> processWritableBookiesChanged(bookies.getValue()));
+                writable = this.registrationClient.watchWritableBookies(new RegistrationListener() {
+                    @Override
+                    public void onBookiesChanged(Versioned<Set<BookieId>> bookies) {
+                        processWritableBookiesChanged(bookies.getValue());
+                    }
+
+                    @Override
+                    public void onBookiesChanged(Versioned<Set<BookieId>> bookies,
+                                                 Set<BookieId> joinedBookies,
+                                                 Set<BookieId> leftBookies) {
+                        processWritableBookiesChanged(bookies.getValue(), joinedBookies, leftBookies);
+                    }
+                });
 
                 readonly = this.registrationClient.watchReadOnlyBookies(
                             bookies -> processReadOnlyBookiesChanged(bookies.getValue()));
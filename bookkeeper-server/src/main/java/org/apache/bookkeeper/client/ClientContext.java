@@ -43,4 +43,18 @@ public interface ClientContext {
     OrderedScheduler getScheduler();
     BookKeeperClientStats getClientStats();
     boolean isClientClosed();
+
+    /**
+     * Get the entry cache shared by the ledger handles of the client.
+     *
+     * @return the entry cache, or null if client side entry caching is disabled.
+     */
+    ClientEntryCache getEntryCache();
+
+    /**
+     * Get the ledger metadata cache of the client.
+     *
+     * @return the ledger metadata cache, or null if ledger metadata caching is disabled.
+     */
+    LedgerMetadataCache getLedgerMetadataCache();
 }
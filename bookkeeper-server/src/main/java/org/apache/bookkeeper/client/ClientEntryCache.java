@@ -0,0 +1,217 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.apache.bookkeeper.client.BookKeeperClientStats.CATEGORY_CLIENT;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.ENTRY_CACHE_COALESCED_READS;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.ENTRY_CACHE_HITS;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.ENTRY_CACHE_MISSES;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.ENTRY_CACHE_SCOPE;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.ENTRY_CACHE_SIZE;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.apache.bookkeeper.bookie.storage.ldb.ReadCache;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stats.annotations.StatsDoc;
+
+/**
+ * Client side cache of entries shared by all the ledger handles of a {@link BookKeeper} client.
+ *
+ * <p>Entries are stored off-heap in a {@link ReadCache}, keyed by ledger id and entry id. Only entries
+ * up to the last add confirmed of a ledger are cached, so a cached entry can never change.
+ *
+ * <p>Concurrent misses on the same range of entries are coalesced: the first reader goes to the bookies
+ * and populates the cache, the others wait for it and then read from the cache.
+ */
+@StatsDoc(
+    name = ENTRY_CACHE_SCOPE,
+    category = CATEGORY_CLIENT,
+    help = "Client side entry cache stats"
+)
+class ClientEntryCache implements Closeable {
+
+    // the ledger length recorded in the entry is stored in front of the payload
+    private static final int HEADER_SIZE = Long.BYTES;
+
+    private final ReadCache cache;
+    private final ByteBufAllocator allocator;
+    private final ConcurrentHashMap<RangeKey, CompletableFuture<Void>> pendingReads = new ConcurrentHashMap<>();
+
+    @StatsDoc(
+        name = ENTRY_CACHE_HITS,
+        help = "Number of read requests fully served by the client entry cache"
+    )
+    private final Counter hits;
+    @StatsDoc(
+        name = ENTRY_CACHE_MISSES,
+        help = "Number of read requests sent to bookies because of a client entry cache miss"
+    )
+    private final Counter misses;
+    @StatsDoc(
+        name = ENTRY_CACHE_COALESCED_READS,
+        help = "Number of read requests which waited for an identical outstanding read instead of"
+            + " going to bookies"
+    )
+    private final Counter coalescedReads;
+
+    ClientEntryCache(ByteBufAllocator allocator, long maxSizeBytes, StatsLogger statsLogger) {
+        this.allocator = allocator;
+        this.cache = new ReadCache(allocator, maxSizeBytes);
+        this.hits = statsLogger.getCounter(ENTRY_CACHE_HITS);
+        this.misses = statsLogger.getCounter(ENTRY_CACHE_MISSES);
+        this.coalescedReads = statsLogger.getCounter(ENTRY_CACHE_COALESCED_READS);
+        statsLogger.registerGauge(ENTRY_CACHE_SIZE, new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return cache.size();
+            }
+        });
+    }
+
+    /**
+     * Read the entries <i>firstEntry</i> to <i>lastEntry</i> of a ledger, serving them from the cache if
+     * possible. The caller must make sure that <i>lastEntry</i> is not beyond the last add confirmed.
+     *
+     * @param ledgerId ledger id
+     * @param firstEntry first entry to read (inclusive)
+     * @param lastEntry last entry to read (inclusive)
+     * @param bookieRead reads the range from the bookies
+     * @return the read entries, owned by the caller
+     */
+    CompletableFuture<LedgerEntries> read(long ledgerId, long firstEntry, long lastEntry,
+                                          Supplier<CompletableFuture<LedgerEntries>> bookieRead) {
+        LedgerEntries cached = getAll(ledgerId, firstEntry, lastEntry);
+        if (cached != null) {
+            hits.inc();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        RangeKey key = new RangeKey(ledgerId, firstEntry, lastEntry);
+        CompletableFuture<Void> loading = new CompletableFuture<>();
+        CompletableFuture<Void> outstanding = pendingReads.putIfAbsent(key, loading);
+        if (outstanding != null) {
+            coalescedReads.inc();
+            return outstanding.thenCompose(ignore -> {
+                LedgerEntries entries = getAll(ledgerId, firstEntry, lastEntry);
+                if (entries != null) {
+                    return CompletableFuture.completedFuture(entries);
+                }
+                // the outstanding read failed, or its entries were already evicted
+                misses.inc();
+                return readFromBookies(bookieRead);
+            });
+        }
+
+        misses.inc();
+        CompletableFuture<LedgerEntries> result = readFromBookies(bookieRead);
+        result.whenComplete((entries, cause) -> {
+            pendingReads.remove(key, loading);
+            // waiters fall back to the bookies on a cache miss, so always complete normally
+            loading.complete(null);
+        });
+        return result;
+    }
+
+    private CompletableFuture<LedgerEntries> readFromBookies(Supplier<CompletableFuture<LedgerEntries>> bookieRead) {
+        return bookieRead.get().thenApply(entries -> {
+            for (LedgerEntry entry : entries) {
+                put(entry);
+            }
+            return entries;
+        });
+    }
+
+    private LedgerEntries getAll(long ledgerId, long firstEntry, long lastEntry) {
+        List<LedgerEntry> entries = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+        for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+            ByteBuf buf = cache.get(ledgerId, entryId);
+            if (buf == null) {
+                entries.forEach(LedgerEntry::close);
+                return null;
+            }
+            long length = buf.readLong();
+            entries.add(LedgerEntryImpl.create(ledgerId, entryId, length, buf));
+        }
+        return LedgerEntriesImpl.create(entries);
+    }
+
+    private void put(LedgerEntry entry) {
+        ByteBuf payload = entry.getEntryBuffer();
+        ByteBuf buf = allocator.buffer(HEADER_SIZE + payload.readableBytes());
+        try {
+            buf.writeLong(entry.getLength());
+            buf.writeBytes(payload, payload.readerIndex(), payload.readableBytes());
+            cache.put(entry.getLedgerId(), entry.getEntryId(), buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        cache.close();
+    }
+
+    private static final class RangeKey {
+        private final long ledgerId;
+        private final long firstEntry;
+        private final long lastEntry;
+
+        RangeKey(long ledgerId, long firstEntry, long lastEntry) {
+            this.ledgerId = ledgerId;
+            this.firstEntry = firstEntry;
+            this.lastEntry = lastEntry;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RangeKey)) {
+                return false;
+            }
+            RangeKey other = (RangeKey) o;
+            return ledgerId == other.ledgerId && firstEntry == other.firstEntry && lastEntry == other.lastEntry;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ledgerId, firstEntry, lastEntry);
+        }
+    }
+}
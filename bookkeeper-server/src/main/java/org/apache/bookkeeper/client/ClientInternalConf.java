@@ -41,6 +41,7 @@ class ClientInternalConf {
     final boolean enableReorderReadSequence;
     final boolean enableStickyReads;
     final int recoveryReadBatchSize;
+    final int recoveryReadAheadBatches;
     final int throttleValue;
     final int bookieFailureHistoryExpirationMSec;
     final int maxAllowedEnsembleChanges;
@@ -68,6 +69,7 @@ class ClientInternalConf {
         this.enableReorderReadSequence = conf.isReorderReadSequenceEnabled();
         this.enableParallelRecoveryRead = conf.getEnableParallelRecoveryRead();
         this.recoveryReadBatchSize = conf.getRecoveryReadBatchSize();
+        this.recoveryReadAheadBatches = conf.getRecoveryReadAheadBatches();
         this.waitForWriteSetMs = conf.getWaitTimeoutOnBackpressureMillis();
         this.addEntryQuorumTimeoutNanos = TimeUnit.SECONDS.toNanos(conf.getAddEntryQuorumTimeout());
         this.throttleValue = conf.getThrottleValue();
@@ -243,6 +243,30 @@ public interface EnsemblePlacementPolicy {
     Set<BookieId> onClusterChanged(Set<BookieId> writableBookies,
                                               Set<BookieId> readOnlyBookies);
 
+    /**
+     * Incremental variant of {@link #onClusterChanged(Set, Set)}, also given the writable bookies which
+     * joined and left the cluster since the previous cluster change. The implementation can then update its
+     * view of the cluster without comparing it with the full list of writable bookies.
+     *
+     * <p>The default implementation ignores the changes and calls {@link #onClusterChanged(Set, Set)}.
+     *
+     * @param writableBookies
+     *          All the bookies in the cluster available for write/read.
+     * @param readOnlyBookies
+     *          All the bookies in the cluster available for readonly.
+     * @param joinedBookies
+     *          The writable bookies which joined since the previous cluster change.
+     * @param leftBookies
+     *          The writable bookies which left since the previous cluster change.
+     * @return the dead bookies during this cluster change.
+     */
+    default Set<BookieId> onClusterChanged(Set<BookieId> writableBookies,
+                                           Set<BookieId> readOnlyBookies,
+                                           Set<BookieId> joinedBookies,
+                                           Set<BookieId> leftBookies) {
+        return onClusterChanged(writableBookies, readOnlyBookies);
+    }
+
     /**
      * Choose <i>numBookies</i> bookies for ensemble. If the count is more than the number of available
      * nodes, {@link BKNotEnoughBookiesException} is thrown.
@@ -28,6 +28,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -39,12 +42,17 @@ import org.apache.bookkeeper.proto.BookieClient;
 import org.apache.bookkeeper.proto.BookieProtocol;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A utility class to check the complete ledger and finds the UnderReplicated fragments if any.
  *
+ * <p>By default the fragments are verified by reading entries of each fragment from each of its bookies. When
+ * verifying by entry availability, the list of the entries of the ledger is instead requested once from each
+ * bookie of the ledger, in parallel, and all the entries that each bookie should store are looked up in it.
+ *
  * <p>NOTE: This class is tended to be used by this project only. External users should not rely on it directly.
  */
 public class LedgerChecker {
@@ -54,6 +62,11 @@ public class LedgerChecker {
     public final BookieWatcher bookieWatcher;
 
     final Semaphore semaphore;
+    final boolean verifyByEntryAvailability;
+    // runs the checks continued from the completions of the bookie client
+    final Executor executor;
+    // requests waiting for a permit, started by the release of a permit
+    private final ConcurrentLinkedQueue<Runnable> permitWaiters = new ConcurrentLinkedQueue<>();
 
     static class InvalidFragmentException extends Exception {
         private static final long serialVersionUID = 1467201276417062353L;
@@ -154,6 +167,38 @@ public class LedgerChecker {
     }
 
     public LedgerChecker(BookieClient client, BookieWatcher watcher, int inFlightReadEntryNum) {
+        this(client, watcher, inFlightReadEntryNum, false);
+    }
+
+    public LedgerChecker(BookKeeper bkc, int inFlightReadEntryNum, boolean verifyByEntryAvailability) {
+        this(bkc, inFlightReadEntryNum, verifyByEntryAvailability, bkc.getMainWorkerPool());
+    }
+
+    public LedgerChecker(BookKeeper bkc, int inFlightReadEntryNum, boolean verifyByEntryAvailability,
+                         Executor executor) {
+        this(bkc.getBookieClient(), bkc.getBookieWatcher(), inFlightReadEntryNum, verifyByEntryAvailability,
+                executor);
+    }
+
+    public LedgerChecker(BookieClient client, BookieWatcher watcher, int inFlightReadEntryNum,
+                         boolean verifyByEntryAvailability) {
+        this(client, watcher, inFlightReadEntryNum, verifyByEntryAvailability, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a ledger checker.
+     *
+     * @param client bookie client
+     * @param watcher bookie watcher
+     * @param inFlightReadEntryNum maximum number of reads, or of requests of the entries of a ledger, in flight;
+     *                             unlimited if not positive
+     * @param verifyByEntryAvailability whether to verify the fragments with the lists of the entries stored by
+     *                                  the bookies rather than by reading entries
+     * @param executor executor of the checks continued after a response of the bookies, rather than on the
+     *                 threads of the bookie client
+     */
+    public LedgerChecker(BookieClient client, BookieWatcher watcher, int inFlightReadEntryNum,
+                         boolean verifyByEntryAvailability, Executor executor) {
         bookieClient = client;
         bookieWatcher = watcher;
         if (inFlightReadEntryNum > 0) {
@@ -161,6 +206,8 @@ public class LedgerChecker {
         } else {
             semaphore = null;
         }
+        this.verifyByEntryAvailability = verifyByEntryAvailability;
+        this.executor = executor;
     }
 
     /**
@@ -173,12 +220,38 @@ public class LedgerChecker {
         }
     }
 
+    /**
+     * Run a task once a permit is acquired, without blocking. The task is run by the thread acquiring the permit,
+     * possibly a thread releasing a permit, so it must not block, and the permit must be released once done.
+     */
+    void acquirePermitAsync(Runnable task) {
+        if (null == semaphore) {
+            task.run();
+            return;
+        }
+        permitWaiters.add(task);
+        startPermitWaiters();
+    }
+
     /**
      * Release a given permit.
      */
     public void releasePermit() {
         if (null != semaphore) {
             semaphore.release();
+            startPermitWaiters();
+        }
+    }
+
+    private void startPermitWaiters() {
+        // both the waiters and the releasers try, so that a waiter queued while a permit is released is started
+        while (!permitWaiters.isEmpty() && semaphore.tryAcquire()) {
+            Runnable task = permitWaiters.poll();
+            if (null == task) {
+                semaphore.release();
+            } else {
+                task.run();
+            }
         }
     }
 
@@ -189,11 +262,14 @@ public class LedgerChecker {
      *          fragment to verify
      * @param cb
      *          callback
+     * @param entriesOfBookies
+     *          lists of the entries of the ledger requested from its bookies, null to verify by reading entries
      * @throws InvalidFragmentException
      */
     private void verifyLedgerFragment(LedgerFragment fragment,
                                       GenericCallback<LedgerFragment> cb,
-                                      Long percentageOfLedgerFragmentToBeVerified)
+                                      Long percentageOfLedgerFragmentToBeVerified,
+                                      Map<BookieId, CompletableFuture<AvailabilityOfEntriesOfLedger>> entriesOfBookies)
             throws InvalidFragmentException, BKException, InterruptedException {
         Set<Integer> bookiesToCheck = fragment.getBookiesIndexes();
         if (bookiesToCheck.isEmpty()) {
@@ -206,7 +282,8 @@ public class LedgerChecker {
         for (Integer bookieIndex : bookiesToCheck) {
             LedgerFragmentCallback lfCb = new LedgerFragmentCallback(
                     fragment, bookieIndex, cb, badBookies, numBookies);
-            verifyLedgerFragment(fragment, bookieIndex, lfCb, percentageOfLedgerFragmentToBeVerified);
+            verifyLedgerFragment(fragment, bookieIndex, lfCb, percentageOfLedgerFragmentToBeVerified,
+                    entriesOfBookies);
         }
     }
 
@@ -219,12 +296,15 @@ public class LedgerChecker {
      *          bookie index in the fragment
      * @param cb
      *          callback
+     * @param entriesOfBookies
+     *          lists of the entries of the ledger requested from its bookies, null to verify by reading entries
      * @throws InvalidFragmentException
      */
     private void verifyLedgerFragment(LedgerFragment fragment,
                                       int bookieIndex,
                                       GenericCallback<LedgerFragment> cb,
-                                      long percentageOfLedgerFragmentToBeVerified)
+                                      long percentageOfLedgerFragmentToBeVerified,
+                                      Map<BookieId, CompletableFuture<AvailabilityOfEntriesOfLedger>> entriesOfBookies)
             throws InvalidFragmentException, InterruptedException {
         long firstStored = fragment.getFirstStoredEntryId(bookieIndex);
         long lastStored = fragment.getLastStoredEntryId(bookieIndex);
@@ -249,16 +329,76 @@ public class LedgerChecker {
         } else if (bookieWatcher.isBookieUnavailable(fragment.getAddress(bookieIndex))) {
             // fragment is on this bookie, but already know it's unavailable, so skip the call
             cb.operationComplete(BKException.Code.BookieHandleNotAvailableException, fragment);
-        } else if (firstStored == lastStored) {
+        } else if (entriesOfBookies != null) {
+            verifyByEntryAvailability(fragment, bookieIndex, cb, percentageOfLedgerFragmentToBeVerified,
+                    entriesOfBookies);
+        } else {
+            verifyByReadingEntries(fragment, bookieIndex, cb, percentageOfLedgerFragmentToBeVerified);
+        }
+    }
+
+    /**
+     * Verify a bookie inside a ledger fragment by reading the first, the last and a sample of the other entries
+     * stored on the bookie.
+     */
+    private void verifyByReadingEntries(LedgerFragment fragment,
+                                        int bookieIndex,
+                                        GenericCallback<LedgerFragment> cb,
+                                        long percentageOfLedgerFragmentToBeVerified)
+            throws InterruptedException {
+        TreeSet<Long> entriesToBeVerified = getEntriesToBeVerified(fragment, bookieIndex, cb,
+                percentageOfLedgerFragmentToBeVerified);
+        if (entriesToBeVerified == null) {
+            return;
+        }
+        BookieId bookie = fragment.getAddress(bookieIndex);
+        ReadManyEntriesCallback manycb = new ReadManyEntriesCallback(entriesToBeVerified.size(), fragment, cb);
+        for (Long entryID: entriesToBeVerified) {
             acquirePermit();
-            ReadManyEntriesCallback manycb = new ReadManyEntriesCallback(1,
-                    fragment, cb);
-            bookieClient.readEntry(bookie, fragment.getLedgerId(), firstStored,
-                                   manycb, null, BookieProtocol.FLAG_NONE);
+            bookieClient.readEntry(bookie, fragment.getLedgerId(), entryID, manycb, null, BookieProtocol.FLAG_NONE);
+        }
+    }
+
+    /**
+     * Verify a bookie inside a ledger fragment by reading entries, as {@link #verifyByReadingEntries}, from a
+     * completion of the bookie client. The reads wait for their permits without blocking, and are issued on the
+     * executor of the checker, rather than by the thread releasing the permit.
+     */
+    private void verifyByReadingEntriesAsync(LedgerFragment fragment,
+                                             int bookieIndex,
+                                             GenericCallback<LedgerFragment> cb,
+                                             long percentageOfLedgerFragmentToBeVerified) {
+        TreeSet<Long> entriesToBeVerified = getEntriesToBeVerified(fragment, bookieIndex, cb,
+                percentageOfLedgerFragmentToBeVerified);
+        if (entriesToBeVerified == null) {
+            return;
+        }
+        BookieId bookie = fragment.getAddress(bookieIndex);
+        ReadManyEntriesCallback manycb = new ReadManyEntriesCallback(entriesToBeVerified.size(), fragment, cb);
+        for (Long entryID: entriesToBeVerified) {
+            acquirePermitAsync(() -> executor.execute(() -> bookieClient.readEntry(bookie, fragment.getLedgerId(),
+                    entryID, manycb, null, BookieProtocol.FLAG_NONE)));
+        }
+    }
+
+    /**
+     * Get the first, the last and a sample of the other entries stored on a bookie inside a ledger fragment.
+     *
+     * @return the entries to read, null if the fragment is invalid, in which case the callback is completed
+     */
+    private static TreeSet<Long> getEntriesToBeVerified(LedgerFragment fragment,
+                                                        int bookieIndex,
+                                                        GenericCallback<LedgerFragment> cb,
+                                                        long percentageOfLedgerFragmentToBeVerified) {
+        long firstStored = fragment.getFirstStoredEntryId(bookieIndex);
+        long lastStored = fragment.getLastStoredEntryId(bookieIndex);
+        TreeSet<Long> entriesToBeVerified = new TreeSet<Long>();
+        if (firstStored == lastStored) {
+            entriesToBeVerified.add(firstStored);
         } else {
             if (lastStored <= firstStored) {
                 cb.operationComplete(Code.IncorrectParameterException, null);
-                return;
+                return null;
             }
 
             long lengthOfLedgerFragment = lastStored - firstStored + 1;
@@ -266,8 +406,6 @@ public class LedgerChecker {
             int numberOfEntriesToBeVerified =
                 (int) (lengthOfLedgerFragment * (percentageOfLedgerFragmentToBeVerified / 100.0));
 
-            TreeSet<Long> entriesToBeVerified = new TreeSet<Long>();
-
             if (numberOfEntriesToBeVerified < lengthOfLedgerFragment) {
                 // Evenly pick random entries over the length of the fragment
                 if (numberOfEntriesToBeVerified > 0) {
@@ -292,13 +430,61 @@ public class LedgerChecker {
                     firstStored++;
                 }
             }
-            ReadManyEntriesCallback manycb = new ReadManyEntriesCallback(entriesToBeVerified.size(),
-                    fragment, cb);
-            for (Long entryID: entriesToBeVerified) {
-                acquirePermit();
-                bookieClient.readEntry(bookie, fragment.getLedgerId(), entryID, manycb, null, BookieProtocol.FLAG_NONE);
+        }
+        return entriesToBeVerified;
+    }
+
+    /**
+     * Verify a bookie inside a ledger fragment by looking all the entries stored on the bookie up in the list of
+     * the entries of the ledger requested from the bookie, which is shared by all the fragments of the ledger.
+     * If the bookie fails to list the entries, the entries are read instead.
+     */
+    private void verifyByEntryAvailability(LedgerFragment fragment,
+                                           int bookieIndex,
+                                           GenericCallback<LedgerFragment> cb,
+                                           long percentageOfLedgerFragmentToBeVerified,
+                                           Map<BookieId, CompletableFuture<AvailabilityOfEntriesOfLedger>>
+                                                   entriesOfBookies)
+            throws InterruptedException {
+        long firstStored = fragment.getFirstStoredEntryId(bookieIndex);
+        long lastStored = fragment.getLastStoredEntryId(bookieIndex);
+        if (lastStored < firstStored) {
+            cb.operationComplete(Code.IncorrectParameterException, null);
+            return;
+        }
+        BookieId bookie = fragment.getAddress(bookieIndex);
+        CompletableFuture<AvailabilityOfEntriesOfLedger> entriesOfLedger = entriesOfBookies.get(bookie);
+        if (entriesOfLedger == null) {
+            acquirePermit();
+            entriesOfLedger = bookieClient.getListOfEntriesOfLedger(bookie, fragment.getLedgerId());
+            entriesOfLedger.whenComplete((availability, e) -> releasePermit());
+            entriesOfBookies.put(bookie, entriesOfLedger);
+        }
+        // continued on the executor of the checker rather than on the bookie client threads, which complete the
+        // requests of the other bookies, nor on the common pool
+        entriesOfLedger.whenCompleteAsync((availability, e) -> {
+            if (e == null) {
+                cb.operationComplete(hasStoredEntries(fragment, bookieIndex, availability)
+                        ? BKException.Code.OK : BKException.Code.NoSuchEntryException, fragment);
+                return;
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Failed to get the entries of ledger {} from bookie {}, reading them instead",
+                        fragment.getLedgerId(), bookie, e);
+            }
+            verifyByReadingEntriesAsync(fragment, bookieIndex, cb, percentageOfLedgerFragmentToBeVerified);
+        }, executor);
+    }
+
+    private static boolean hasStoredEntries(LedgerFragment fragment, int bookieIndex,
+                                            AvailabilityOfEntriesOfLedger availability) {
+        long lastStored = fragment.getLastStoredEntryId(bookieIndex);
+        for (long entryId = fragment.getFirstStoredEntryId(bookieIndex); entryId <= lastStored; entryId++) {
+            if (fragment.isStoredEntryId(entryId, bookieIndex) && !availability.isEntryAvailable(entryId)) {
+                return false;
             }
         }
+        return true;
     }
 
     /**
@@ -473,12 +659,15 @@ public class LedgerChecker {
         // verify all the collected fragment replicas
         FullLedgerCallback allFragmentsCb = new FullLedgerCallback(fragments
                 .size(), cb);
+        // the entries of the ledger are requested once from each bookie, for all the fragments
+        Map<BookieId, CompletableFuture<AvailabilityOfEntriesOfLedger>> entriesOfBookies =
+                verifyByEntryAvailability ? new HashMap<>() : null;
         for (LedgerFragment r : fragments) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Checking fragment {}", r);
             }
             try {
-                verifyLedgerFragment(r, allFragmentsCb, percentageOfLedgerFragmentToBeVerified);
+                verifyLedgerFragment(r, allFragmentsCb, percentageOfLedgerFragmentToBeVerified, entriesOfBookies);
             } catch (InvalidFragmentException ife) {
                 LOG.error("Invalid fragment found : {}", r);
                 allFragmentsCb.operationComplete(
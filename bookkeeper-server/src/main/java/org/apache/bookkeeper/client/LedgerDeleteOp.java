@@ -81,6 +81,10 @@ class LedgerDeleteOp {
                     if (exception != null) {
                         deleteOpLogger.registerFailedEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
                     } else {
+                        LedgerMetadataCache metadataCache = bk.getClientCtx().getLedgerMetadataCache();
+                        if (metadataCache != null) {
+                            metadataCache.invalidate(ledgerId);
+                        }
                         deleteOpLogger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
                     }
                     cb.deleteComplete(BKException.getExceptionCode(exception), this.ctx);
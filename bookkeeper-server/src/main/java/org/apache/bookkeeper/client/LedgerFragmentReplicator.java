@@ -21,10 +21,13 @@ package org.apache.bookkeeper.client;
 
 import static org.apache.bookkeeper.client.LedgerHandle.INVALID_ENTRY_ID;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_BYTES_READ;
+import static org.apache.bookkeeper.replication.ReplicationStats.NUM_BYTES_REPLICATED;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_BYTES_WRITTEN;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_ENTRIES_READ;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_ENTRIES_WRITTEN;
+import static org.apache.bookkeeper.replication.ReplicationStats.NUM_LEDGERS_BEING_REPLICATED;
 import static org.apache.bookkeeper.replication.ReplicationStats.READ_DATA_LATENCY;
+import static org.apache.bookkeeper.replication.ReplicationStats.REPLICATION_BYTES_IN_FLIGHT;
 import static org.apache.bookkeeper.replication.ReplicationStats.REPLICATION_WORKER_SCOPE;
 import static org.apache.bookkeeper.replication.ReplicationStats.WRITE_DATA_LATENCY;
 
@@ -32,6 +35,7 @@ import com.google.common.util.concurrent.RateLimiter;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCounted;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -39,12 +43,16 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import org.apache.bookkeeper.client.AsyncCallback.ReadCallback;
+import org.apache.bookkeeper.client.api.LedgerEntries;
 import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.conf.ClientConfiguration;
 import org.apache.bookkeeper.meta.LedgerManager;
@@ -53,6 +61,7 @@ import org.apache.bookkeeper.proto.BookieProtocol;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.MultiCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
 import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
 import org.apache.bookkeeper.stats.NullStatsLogger;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
@@ -66,6 +75,11 @@ import org.slf4j.LoggerFactory;
 /**
  * This is the helper class for replicating the fragments from one bookie to
  * another.
+ *
+ * <p>When {@link ClientConfiguration#getReplicationMaxBytesInFlight()} is set, fragments are streamed:
+ * contiguous ranges of entries are read from the remaining replicas and written to the new bookies
+ * as soon as they are read, bounded by a window of bytes in flight which adapts to the write latency
+ * of the new bookies.
  */
 @StatsDoc(
     name = REPLICATION_WORKER_SCOPE,
@@ -96,6 +110,11 @@ public class LedgerFragmentReplicator {
         help = "The distribution of size of entries written by the replicator"
     )
     private final OpStatsLogger numBytesWritten;
+    @StatsDoc(
+        name = NUM_BYTES_REPLICATED,
+        help = "The number of bytes of the entries written to all their new bookies by the replicator"
+    )
+    private final Counter numBytesReplicated;
     @StatsDoc(
             name = READ_DATA_LATENCY,
             help = "The distribution of latency of read entries by the replicator"
@@ -106,9 +125,26 @@ public class LedgerFragmentReplicator {
             help = "The distribution of latency of write entries by the replicator"
     )
     private final OpStatsLogger writeDataLatency;
+    @StatsDoc(
+            name = REPLICATION_BYTES_IN_FLIGHT,
+            help = "The number of bytes read but not yet written by streaming fragment replications"
+    )
+    private final AtomicLong totalBytesInFlight = new AtomicLong(0);
+    @StatsDoc(
+            name = NUM_LEDGERS_BEING_REPLICATED,
+            help = "The number of ledgers with fragments being replicated"
+    )
+    private final ConcurrentHashMap<Long, ReplicationProgress> replicationProgress = new ConcurrentHashMap<>();
 
     protected Throttler replicationThrottle = null;
 
+    private final long maxBytesInFlight;
+    private final long maxTotalBytesInFlight;
+    // streams without bytes in flight, waiting for the total bytes in flight to fit in the budget
+    private final ConcurrentLinkedQueue<FragmentStream> streamsWaitingForBudget = new ConcurrentLinkedQueue<>();
+    private final int readRangeSize;
+    private final long targetWriteLatencyNanos;
+
     private AtomicInteger averageEntrySize;
 
     private static final int INITIAL_AVERAGE_ENTRY_SIZE = 1024;
@@ -122,6 +158,7 @@ public class LedgerFragmentReplicator {
         numBytesRead = this.statsLogger.getOpStatsLogger(NUM_BYTES_READ);
         numEntriesWritten = this.statsLogger.getCounter(NUM_ENTRIES_WRITTEN);
         numBytesWritten = this.statsLogger.getOpStatsLogger(NUM_BYTES_WRITTEN);
+        numBytesReplicated = this.statsLogger.getCounter(NUM_BYTES_REPLICATED);
         readDataLatency = this.statsLogger.getOpStatsLogger(READ_DATA_LATENCY);
         writeDataLatency = this.statsLogger.getOpStatsLogger(WRITE_DATA_LATENCY);
         if (conf.getReplicationRateByBytes() > 0) {
@@ -129,6 +166,32 @@ public class LedgerFragmentReplicator {
         }
         averageEntrySize = new AtomicInteger(INITIAL_AVERAGE_ENTRY_SIZE);
         this.conf = conf;
+        this.maxBytesInFlight = conf.getReplicationMaxBytesInFlight();
+        this.maxTotalBytesInFlight = conf.getReplicationMaxTotalBytesInFlight();
+        this.readRangeSize = Math.max(1, conf.getReplicationReadRangeSize());
+        this.targetWriteLatencyNanos = TimeUnit.MILLISECONDS.toNanos(conf.getReplicationTargetWriteLatencyMs());
+        this.statsLogger.registerGauge(REPLICATION_BYTES_IN_FLIGHT, new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return totalBytesInFlight.get();
+            }
+        });
+        this.statsLogger.registerGauge(NUM_LEDGERS_BEING_REPLICATED, new Gauge<Integer>() {
+            @Override
+            public Integer getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Integer getSample() {
+                return replicationProgress.size();
+            }
+        });
     }
 
     public LedgerFragmentReplicator(BookKeeper bkc, ClientConfiguration conf) {
@@ -142,7 +205,8 @@ public class LedgerFragmentReplicator {
             final LedgerFragment lf,
             final AsyncCallback.VoidCallback ledgerFragmentMcb,
             final Set<BookieId> newBookies,
-            final BiConsumer<Long, Long> onReadEntryFailureCallback) throws InterruptedException {
+            final BiConsumer<Long, Long> onReadEntryFailureCallback,
+            final ReplicationProgress progress) throws InterruptedException {
         if (!lf.isClosed()) {
             LOG.error("Trying to replicate an unclosed fragment;"
                       + " This is not safe {}", lf);
@@ -192,7 +256,7 @@ public class LedgerFragmentReplicator {
         }
         for (final Long entryId : entriesToReplicate) {
             recoverLedgerFragmentEntry(entryId, lh, ledgerFragmentEntryMcb,
-                    newBookies, onReadEntryFailureCallback);
+                    newBookies, onReadEntryFailureCallback, progress);
         }
     }
 
@@ -203,7 +267,8 @@ public class LedgerFragmentReplicator {
      * max entries up to the configured value of rereplicationEntryBatchSize and
      * then it re-replicates that batched entry fragments one by one. After
      * re-replication of all batched entry fragments, it will update the
-     * ensemble info with new Bookie once
+     * ensemble info with new Bookie once. If streaming replication is enabled,
+     * the whole fragment is streamed instead, see {@link FragmentStream}.
      *
      * @param lh
      *            LedgerHandle for the ledger
@@ -221,12 +286,56 @@ public class LedgerFragmentReplicator {
             final Set<BookieId> targetBookieAddresses,
             final BiConsumer<Long, Long> onReadEntryFailureCallback)
             throws InterruptedException {
+        final ReplicationProgress progress = startProgress(lh.getId(), lf);
+        final AsyncCallback.VoidCallback fragmentCb = (rc, path, ctx) -> {
+            finishProgress(progress);
+            ledgerFragmentMcb.processResult(rc, path, ctx);
+        };
+        if (maxBytesInFlight > 0 && lf.isClosed()
+                && lf.getFirstStoredEntryId() != INVALID_ENTRY_ID
+                && lf.getFirstStoredEntryId() <= lf.getLastStoredEntryId()) {
+            LOG.info("Streaming fragment {} with at most {} bytes in flight.", lf, maxBytesInFlight);
+            new FragmentStream(lh, lf, fragmentCb, targetBookieAddresses, onReadEntryFailureCallback, progress)
+                    .start();
+            return;
+        }
         Set<LedgerFragment> partionedFragments = splitIntoSubFragments(lh, lf,
                 bkc.getConf().getRereplicationEntryBatchSize());
         LOG.info("Replicating fragment {} in {} sub fragments.",
                 lf, partionedFragments.size());
         replicateNextBatch(lh, partionedFragments.iterator(),
-                ledgerFragmentMcb, targetBookieAddresses, onReadEntryFailureCallback);
+                fragmentCb, targetBookieAddresses, onReadEntryFailureCallback, progress);
+    }
+
+    /**
+     * Get the progress of the ledgers being replicated by this replicator.
+     *
+     * @return the replication progress, keyed by ledger id
+     */
+    public Map<Long, ReplicationProgress> getReplicationProgress() {
+        return Collections.unmodifiableMap(replicationProgress);
+    }
+
+    private ReplicationProgress startProgress(long ledgerId, LedgerFragment lf) {
+        long numEntries = lf.getFirstStoredEntryId() == INVALID_ENTRY_ID
+                ? 0 : Math.max(0, lf.getLastStoredEntryId() - lf.getFirstStoredEntryId() + 1);
+        return replicationProgress.compute(ledgerId, (lid, progress) -> {
+            if (progress == null) {
+                progress = new ReplicationProgress(lid);
+            }
+            progress.fragmentsInProgress++;
+            progress.entriesToReplicate.addAndGet(numEntries);
+            return progress;
+        });
+    }
+
+    private void finishProgress(ReplicationProgress progress) {
+        replicationProgress.computeIfPresent(progress.getLedgerId(), (lid, current) -> {
+            if (current == progress && --current.fragmentsInProgress == 0) {
+                return null;
+            }
+            return current;
+        });
     }
 
     /**
@@ -236,7 +345,8 @@ public class LedgerFragmentReplicator {
             final Iterator<LedgerFragment> fragments,
             final AsyncCallback.VoidCallback ledgerFragmentMcb,
             final Set<BookieId> targetBookieAddresses,
-            final BiConsumer<Long, Long> onReadEntryFailureCallback) {
+            final BiConsumer<Long, Long> onReadEntryFailureCallback,
+            final ReplicationProgress progress) {
         if (fragments.hasNext()) {
             try {
                 replicateFragmentInternal(lh, fragments.next(),
@@ -250,11 +360,12 @@ public class LedgerFragmentReplicator {
                                     replicateNextBatch(lh, fragments,
                                             ledgerFragmentMcb,
                                             targetBookieAddresses,
-                                            onReadEntryFailureCallback);
+                                            onReadEntryFailureCallback,
+                                            progress);
                                 }
                             }
 
-                        }, targetBookieAddresses, onReadEntryFailureCallback);
+                        }, targetBookieAddresses, onReadEntryFailureCallback, progress);
             } catch (InterruptedException e) {
                 ledgerFragmentMcb.processResult(
                         BKException.Code.InterruptedException, null, null);
@@ -335,12 +446,15 @@ public class LedgerFragmentReplicator {
      * @param newBookies
      *            New bookies we want to use to recover and replicate the ledger
      *            entries that were stored on the failed bookie.
+     * @param progress
+     *            replication progress of the ledger
      */
     private void recoverLedgerFragmentEntry(final Long entryId,
             final LedgerHandle lh,
             final AsyncCallback.VoidCallback ledgerFragmentEntryMcb,
             final Set<BookieId> newBookies,
-            final BiConsumer<Long, Long> onReadEntryFailureCallback) throws InterruptedException {
+            final BiConsumer<Long, Long> onReadEntryFailureCallback,
+            final ReplicationProgress progress) throws InterruptedException {
         final long ledgerId = lh.getId();
         final AtomicInteger numCompleted = new AtomicInteger(0);
         final AtomicBoolean completed = new AtomicBoolean(false);
@@ -368,6 +482,9 @@ public class LedgerFragmentReplicator {
                                 ledgerId, entryId, addr);
                     }
                     if (numCompleted.incrementAndGet() == newBookies.size() && completed.compareAndSet(false, true)) {
+                        long bytes = ctx instanceof Long ? (Long) ctx : 0L;
+                        numBytesReplicated.addCount(bytes);
+                        progress.entryReplicated(bytes);
                         ledgerFragmentEntryMcb.processResult(rc, null, null);
                     }
                 }
@@ -438,6 +555,331 @@ public class LedgerFragmentReplicator {
                 + (1 - AVERAGE_ENTRY_SIZE_RATIO) * toSendSize));
     }
 
+    /**
+     * Streams the entries of a closed fragment to the new bookies.
+     *
+     * <p>Ranges of {@link #readRangeSize} entries are read from the remaining replicas, and every entry is
+     * written to the new bookies as soon as its range is read. A new range is only read while the bytes
+     * read but not yet written fit in the window. When {@link #targetWriteLatencyNanos} is set, the window
+     * is halved (at most once per window of entries) when writes are slower than the target, and grows
+     * back up to {@link #maxBytesInFlight} while they are faster.
+     *
+     * <p>When {@link #maxTotalBytesInFlight} is set, a range is also only read while the bytes in flight of
+     * all the streams fit in this budget. A stream without bytes in flight then waits in
+     * {@link #streamsWaitingForBudget} until another stream releases some of its bytes.
+     *
+     * <p>If a range can't be read, its entries are read again one by one, so the entries that can't be
+     * read are reported to the read failure callback like in the batched replication.
+     */
+    private class FragmentStream {
+        private final LedgerHandle lh;
+        private final long lastEntryId;
+        private final AsyncCallback.VoidCallback cb;
+        private final Set<BookieId> newBookies;
+        private final BiConsumer<Long, Long> onReadEntryFailureCallback;
+        private final ReplicationProgress progress;
+
+        // guarded by this
+        private long nextEntryToRead;
+        private long entriesToWrite;
+        private long bytesInFlight = 0;
+        private long window;
+        private long windowShrunkAt = INVALID_ENTRY_ID;
+        private boolean completed = false;
+
+        FragmentStream(LedgerHandle lh, LedgerFragment lf, AsyncCallback.VoidCallback cb,
+                       Set<BookieId> newBookies, BiConsumer<Long, Long> onReadEntryFailureCallback,
+                       ReplicationProgress progress) {
+            this.lh = lh;
+            this.nextEntryToRead = lf.getFirstStoredEntryId();
+            this.lastEntryId = lf.getLastStoredEntryId();
+            this.entriesToWrite = lastEntryId - nextEntryToRead + 1;
+            this.cb = cb;
+            this.newBookies = newBookies;
+            this.onReadEntryFailureCallback = onReadEntryFailureCallback;
+            this.progress = progress;
+            this.window = maxBytesInFlight;
+        }
+
+        void start() {
+            if (replicationThrottle != null) {
+                replicationThrottle.resetRate(conf.getReplicationRateByBytes());
+            }
+            readNext();
+        }
+
+        private void readNext() {
+            while (true) {
+                long firstEntryId;
+                long endEntryId;
+                long reserved;
+                synchronized (this) {
+                    if (completed || nextEntryToRead > lastEntryId) {
+                        return;
+                    }
+                    firstEntryId = nextEntryToRead;
+                    endEntryId = Math.min(lastEntryId, firstEntryId + readRangeSize - 1);
+                    reserved = (long) averageEntrySize.get() * (endEntryId - firstEntryId + 1);
+                    // always keep one range in flight, so large entries can't stall the stream
+                    if (bytesInFlight > 0 && bytesInFlight + reserved > window) {
+                        return;
+                    }
+                    if (!tryReserveTotalBytesInFlight(reserved)) {
+                        if (bytesInFlight > 0) {
+                            // resumed when its own bytes are written
+                            return;
+                        }
+                        streamsWaitingForBudget.add(this);
+                        // the bytes may have been released before this stream was added to the waiting streams
+                        if (!tryReserveTotalBytesInFlight(reserved)) {
+                            return;
+                        }
+                        // if a release already polled this stream, its read only finds this range in flight
+                        streamsWaitingForBudget.remove(this);
+                    }
+                    nextEntryToRead = endEntryId + 1;
+                    bytesInFlight += reserved;
+                }
+                readRange(firstEntryId, endEntryId, reserved);
+            }
+        }
+
+        private void readRange(long firstEntryId, long endEntryId, long reserved) {
+            if (replicationThrottle != null) {
+                replicationThrottle.acquire((int) Math.min(Integer.MAX_VALUE, reserved));
+            }
+            long startReadTime = MathUtils.nowInNano();
+            lh.readAsync(firstEntryId, endEntryId).whenComplete((entries, cause) -> {
+                if (cause != null) {
+                    readDataLatency.registerFailedEvent(MathUtils.elapsedNanos(startReadTime), TimeUnit.NANOSECONDS);
+                    onReadFailure(firstEntryId, endEntryId, reserved,
+                            BKException.getExceptionCode(cause, BKException.Code.ReadException));
+                    return;
+                }
+                readDataLatency.registerSuccessfulEvent(MathUtils.elapsedNanos(startReadTime), TimeUnit.NANOSECONDS);
+                try {
+                    writeEntries(entries, reserved);
+                } finally {
+                    entries.close();
+                }
+            });
+        }
+
+        private void onReadFailure(long firstEntryId, long endEntryId, long reserved, int rc) {
+            if (firstEntryId == endEntryId) {
+                LOG.error("BK error reading ledger entry: {}", firstEntryId, BKException.create(rc));
+                onReadEntryFailureCallback.accept(lh.getId(), firstEntryId);
+                complete(rc);
+                return;
+            }
+            LOG.warn("Failed to read entries {} - {} of ledger {} : {}, reading them one by one.",
+                    firstEntryId, endEntryId, lh.getId(), BKException.getMessage(rc));
+            long numEntries = endEntryId - firstEntryId + 1;
+            long reservedPerEntry = reserved / numEntries;
+            for (long entryId = firstEntryId; entryId <= endEntryId; entryId++) {
+                synchronized (this) {
+                    if (completed) {
+                        return;
+                    }
+                }
+                // the first entry also carries the rounding remainder of the range reservation
+                readRange(entryId, entryId,
+                        entryId == firstEntryId ? reserved - reservedPerEntry * (numEntries - 1) : reservedPerEntry);
+            }
+        }
+
+        private void writeEntries(LedgerEntries entries, long reserved) {
+            long readBytes = 0;
+            for (org.apache.bookkeeper.client.api.LedgerEntry entry : entries) {
+                readBytes += entry.getEntryBuffer().readableBytes();
+            }
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                // replace the estimate with the actual size of the entries
+                bytesInFlight += readBytes - reserved;
+                totalBytesInFlight.addAndGet(readBytes - reserved);
+            }
+            for (org.apache.bookkeeper.client.api.LedgerEntry entry : entries) {
+                writeEntry(entry);
+            }
+        }
+
+        private void writeEntry(org.apache.bookkeeper.client.api.LedgerEntry entry) {
+            final long entryId = entry.getEntryId();
+            final ByteBuf data = entry.getEntryBuffer();
+            final int dataLength = data.readableBytes();
+            numEntriesRead.inc();
+            numBytesRead.registerSuccessfulValue(dataLength);
+            updateAverageEntrySize(dataLength);
+
+            ReferenceCounted toSend = lh.getDigestManager()
+                    .computeDigestAndPackageForSending(entryId,
+                            lh.getLastAddConfirmed(), entry.getLength(),
+                            data.retain(),
+                            lh.getLedgerKey(),
+                            0
+                    );
+            final long startWriteTime = MathUtils.nowInNano();
+            final AtomicInteger numCompleted = new AtomicInteger(0);
+            final WriteCallback writeCallback = (rc, ledgerId, eid, addr, ctx) -> {
+                if (rc != BKException.Code.OK) {
+                    LOG.error("BK error writing entry for ledgerId: {}, entryId: {}, bookie: {}",
+                            ledgerId, eid, addr, BKException.create(rc));
+                    writeDataLatency.registerFailedEvent(MathUtils.elapsedNanos(startWriteTime),
+                            TimeUnit.NANOSECONDS);
+                    complete(rc);
+                    return;
+                }
+                numEntriesWritten.inc();
+                numBytesWritten.registerSuccessfulValue(dataLength);
+                if (numCompleted.incrementAndGet() == newBookies.size()) {
+                    long latencyNanos = MathUtils.elapsedNanos(startWriteTime);
+                    writeDataLatency.registerSuccessfulEvent(latencyNanos, TimeUnit.NANOSECONDS);
+                    onEntryWritten(eid, dataLength, latencyNanos);
+                }
+            };
+            for (BookieId newBookie : newBookies) {
+                bkc.getBookieClient().addEntry(newBookie, lh.getId(),
+                        lh.getLedgerKey(), entryId, toSend,
+                        writeCallback, null, BookieProtocol.FLAG_RECOVERY_ADD,
+                        false, WriteFlag.NONE);
+            }
+            toSend.release();
+        }
+
+        private void onEntryWritten(long entryId, int dataLength, long latencyNanos) {
+            boolean done;
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                bytesInFlight -= dataLength;
+                releaseTotalBytesInFlight(dataLength);
+                if (targetWriteLatencyNanos > 0) {
+                    long minWindow = Math.min(maxBytesInFlight, (long) averageEntrySize.get() * readRangeSize);
+                    if (latencyNanos > targetWriteLatencyNanos) {
+                        if (entryId > windowShrunkAt) {
+                            window = Math.max(minWindow, window / 2);
+                            windowShrunkAt = nextEntryToRead - 1;
+                            if (LOG.isDebugEnabled()) {
+                                LOG.debug("Write latency of entry {} of ledger {} is {} ns, shrinking the window"
+                                        + " to {} bytes", entryId, lh.getId(), latencyNanos, window);
+                            }
+                        }
+                    } else {
+                        // grow by about one entry per window of entries written
+                        window = Math.min(maxBytesInFlight,
+                                window + Math.max(1L, (long) averageEntrySize.get() * dataLength / window));
+                    }
+                }
+                done = --entriesToWrite == 0;
+                completed = done;
+            }
+            numBytesReplicated.addCount(dataLength);
+            progress.entryReplicated(dataLength);
+            if (done) {
+                cb.processResult(BKException.Code.OK, null, null);
+            } else {
+                readNext();
+            }
+        }
+
+        private void complete(int rc) {
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+                releaseTotalBytesInFlight(bytesInFlight);
+                bytesInFlight = 0;
+            }
+            cb.processResult(rc, null, null);
+        }
+    }
+
+    /**
+     * Adds the bytes to the total bytes in flight, unless they don't fit in {@link #maxTotalBytesInFlight}.
+     * The check and the update are a single atomic step, so concurrent streams can't overshoot the budget.
+     */
+    private boolean tryReserveTotalBytesInFlight(long reserved) {
+        if (maxTotalBytesInFlight <= 0) {
+            totalBytesInFlight.addAndGet(reserved);
+            return true;
+        }
+        while (true) {
+            long total = totalBytesInFlight.get();
+            // always keep one range in flight, so the streams can't all wait for each other
+            if (total > 0 && total + reserved > maxTotalBytesInFlight) {
+                return false;
+            }
+            if (totalBytesInFlight.compareAndSet(total, total + reserved)) {
+                return true;
+            }
+        }
+    }
+
+    private void releaseTotalBytesInFlight(long bytes) {
+        totalBytesInFlight.addAndGet(-bytes);
+        if (maxTotalBytesInFlight > 0 && bytes > 0) {
+            FragmentStream waiting = streamsWaitingForBudget.poll();
+            if (waiting != null) {
+                // read outside of the lock of the releasing stream
+                bkc.getMainWorkerPool().executeOrdered(waiting.lh.getId(), waiting::readNext);
+            }
+        }
+    }
+
+    /**
+     * Progress of the replication of the fragments of a ledger.
+     */
+    public static class ReplicationProgress {
+        private final long ledgerId;
+        private final long startTimeMillis;
+        private final AtomicLong entriesToReplicate = new AtomicLong(0);
+        private final AtomicLong entriesReplicated = new AtomicLong(0);
+        private final AtomicLong bytesReplicated = new AtomicLong(0);
+        // guarded by the progress map
+        private int fragmentsInProgress = 0;
+
+        ReplicationProgress(long ledgerId) {
+            this.ledgerId = ledgerId;
+            this.startTimeMillis = System.currentTimeMillis();
+        }
+
+        void entryReplicated(long bytes) {
+            entriesReplicated.incrementAndGet();
+            bytesReplicated.addAndGet(bytes);
+        }
+
+        public long getLedgerId() {
+            return ledgerId;
+        }
+
+        public long getStartTimeMillis() {
+            return startTimeMillis;
+        }
+
+        public long getEntriesToReplicate() {
+            return entriesToReplicate.get();
+        }
+
+        public long getEntriesReplicated() {
+            return entriesReplicated.get();
+        }
+
+        public long getBytesReplicated() {
+            return bytesReplicated.get();
+        }
+
+        @Override
+        public String toString() {
+            return "ReplicationProgress(ledgerId=" + ledgerId + ", entries=" + entriesReplicated.get()
+                    + "/" + entriesToReplicate.get() + ", bytes=" + bytesReplicated.get() + ")";
+        }
+    }
+
     /**
      * Callback for recovery of a single ledger fragment. Once the fragment has
      * had all entries replicated, update the ensemble in zookeeper. Once
@@ -98,9 +98,14 @@ public class LedgerHandle implements WriteHandle {
     final ClientContext clientCtx;
 
     final byte[] ledgerKey;
-    private Versioned<LedgerMetadata> versionedMetadata;
+    private volatile Versioned<LedgerMetadata> versionedMetadata;
     final long ledgerId;
-    long lastAddPushed;
+
+    /**
+     * Last entryId which has been assigned to an add operation. Only updated while holding the
+     * handle monitor, together with {@link #pendingAddOps}, but read without locking.
+     */
+    volatile long lastAddPushed;
 
     private enum HandleState {
         OPEN,
@@ -134,7 +139,7 @@ public class LedgerHandle implements WriteHandle {
      */
     private int stickyBookieIndex;
 
-    long length;
+    volatile long length;
     final DigestManager macManager;
     final DistributionSchedule distributionSchedule;
     final RateLimiter throttler;
@@ -316,7 +321,7 @@ public class LedgerHandle implements WriteHandle {
      * {@inheritDoc}
      */
     @Override
-    public synchronized long getLastAddConfirmed() {
+    public long getLastAddConfirmed() {
         return lastAddConfirmed;
     }
 
@@ -328,7 +333,7 @@ public class LedgerHandle implements WriteHandle {
      * {@inheritDoc}
      */
     @Override
-    public synchronized long getLastAddPushed() {
+    public long getLastAddPushed() {
         return lastAddPushed;
     }
 
@@ -429,7 +434,7 @@ public class LedgerHandle implements WriteHandle {
      * @return the length of the ledger in bytes
      */
     @Override
-    public synchronized long getLength() {
+    public long getLength() {
         return this.length;
     }
 
@@ -500,7 +505,7 @@ public class LedgerHandle implements WriteHandle {
      * {@inheritDoc}
      */
     @Override
-    public synchronized boolean isClosed() {
+    public boolean isClosed() {
         return getLedgerMetadata().isClosed();
     }
 
@@ -861,6 +866,19 @@ public class LedgerHandle implements WriteHandle {
     CompletableFuture<LedgerEntries> readEntriesInternalAsync(long firstEntry,
                                                               long lastEntry,
                                                               boolean isRecoveryRead) {
+        ClientEntryCache entryCache = clientCtx.getEntryCache();
+        // only entries up to the LAC are immutable and can be shared with other readers
+        if (entryCache != null && !isRecoveryRead && lastEntry <= lastAddConfirmed
+                && !clientCtx.isClientClosed()) {
+            return entryCache.read(ledgerId, firstEntry, lastEntry,
+                    () -> readEntriesFromBookiesAsync(firstEntry, lastEntry, false));
+        }
+        return readEntriesFromBookiesAsync(firstEntry, lastEntry, isRecoveryRead);
+    }
+
+    private CompletableFuture<LedgerEntries> readEntriesFromBookiesAsync(long firstEntry,
+                                                                        long lastEntry,
+                                                                        boolean isRecoveryRead) {
         PendingReadOp op = new PendingReadOp(this, clientCtx,
                                              firstEntry, lastEntry, isRecoveryRead);
         if (!clientCtx.isClientClosed()) {
@@ -1302,14 +1320,16 @@ public class LedgerHandle implements WriteHandle {
             throttler.acquire();
         }
 
+        final int entryLength = op.payload.readableBytes();
         boolean wasClosed = false;
         synchronized (this) {
             // synchronized on this to ensure that
             // the ledger isn't closed between checking and
-            // updating lastAddPushed
+            // updating lastAddPushed. Keep this block minimal: readers of
+            // lastAddPushed, lastAddConfirmed and length don't take the lock.
             if (isHandleWritable()) {
                 long entryId = ++lastAddPushed;
-                long currentLedgerLength = addToLength(op.payload.readableBytes());
+                long currentLedgerLength = addToLength(entryLength);
                 op.setEntryId(entryId);
                 op.setLedgerLength(currentLedgerLength);
                 pendingAddOps.add(op);
@@ -0,0 +1,238 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.apache.bookkeeper.client.BookKeeperClientStats.CATEGORY_CLIENT;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.LEDGER_METADATA_CACHE_HITS;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.LEDGER_METADATA_CACHE_MISSES;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.LEDGER_METADATA_CACHE_SCOPE;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.LEDGER_METADATA_CACHE_SIZE;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import java.io.Closeable;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stats.annotations.StatsDoc;
+import org.apache.bookkeeper.versioning.Version;
+import org.apache.bookkeeper.versioning.Versioned;
+
+/**
+ * Client side cache of ledger metadata, used to serve repeated opens of the same ledgers without
+ * reading the metadata store each time.
+ *
+ * <p>Cached ledgers which are not closed are watched through a single {@link LedgerMetadataListener}
+ * registered on the {@link LedgerManager}, which keeps the cached copy up to date and drops it when the
+ * ledger is deleted. Read-only ledger handles register their listeners here, so opening a cached ledger
+ * does not add another metadata store watch.
+ *
+ * <p>Registering a listener reads the metadata again on most metadata stores, so the closed ledgers
+ * are only watched while a handle listens to them, unless {@code watchClosedLedgers} is set. Without
+ * a watch, the cached metadata of a closed ledger misses the ensemble changes done by re-replication
+ * and the deletions done by other clients until it is evicted.
+ *
+ * <p>Closed ledger metadata is always served from the cache. Metadata of ledgers which are still open
+ * is only served from the cache to opens that don't recover the ledger, recovery always reads the
+ * latest metadata from the store.
+ */
+@StatsDoc(
+    name = LEDGER_METADATA_CACHE_SCOPE,
+    category = CATEGORY_CLIENT,
+    help = "Client side ledger metadata cache stats"
+)
+@Slf4j
+class LedgerMetadataCache implements Closeable {
+
+    private final LedgerManager ledgerManager;
+    private final boolean watchClosedLedgers;
+    private final Cache<Long, Versioned<LedgerMetadata>> cache;
+    private final ConcurrentHashMap<Long, LedgerWatcher> watchers = new ConcurrentHashMap<>();
+
+    @StatsDoc(
+        name = LEDGER_METADATA_CACHE_HITS,
+        help = "Number of ledger metadata reads served by the cache"
+    )
+    private final Counter hits;
+    @StatsDoc(
+        name = LEDGER_METADATA_CACHE_MISSES,
+        help = "Number of ledger metadata reads sent to the metadata store"
+    )
+    private final Counter misses;
+
+    /**
+     * Watches one ledger on the metadata store, on behalf of the cache and of the ledger handles.
+     */
+    private class LedgerWatcher implements LedgerMetadataListener {
+        private final long ledgerId;
+        private final Set<LedgerMetadataListener> listeners = ConcurrentHashMap.newKeySet();
+
+        LedgerWatcher(long ledgerId) {
+            this.ledgerId = ledgerId;
+        }
+
+        @Override
+        public void onChanged(long lid, Versioned<LedgerMetadata> metadata) {
+            if (metadata == null) {
+                // the ledger is deleted, the ledger manager has already dropped its listeners
+                watchers.remove(ledgerId, this);
+                cache.invalidate(ledgerId);
+            } else {
+                update(ledgerId, metadata);
+            }
+            for (LedgerMetadataListener listener : listeners) {
+                listener.onChanged(lid, metadata);
+            }
+        }
+    }
+
+    LedgerMetadataCache(LedgerManager ledgerManager, int maxSize, boolean watchClosedLedgers,
+                        StatsLogger statsLogger) {
+        this.ledgerManager = ledgerManager;
+        this.watchClosedLedgers = watchClosedLedgers;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .<Long, Versioned<LedgerMetadata>>removalListener(notification -> {
+                    if (notification.getCause() != RemovalCause.REPLACED) {
+                        maybeUnwatch(notification.getKey());
+                    }
+                })
+                .build();
+        this.hits = statsLogger.getCounter(LEDGER_METADATA_CACHE_HITS);
+        this.misses = statsLogger.getCounter(LEDGER_METADATA_CACHE_MISSES);
+        statsLogger.registerGauge(LEDGER_METADATA_CACHE_SIZE, new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return cache.size();
+            }
+        });
+    }
+
+    /**
+     * Read the metadata of a ledger, from the cache if possible.
+     *
+     * @param ledgerId ledger id
+     * @param allowOpenLedgers whether the cached metadata of a ledger which is not closed can be returned
+     * @return the versioned ledger metadata
+     */
+    CompletableFuture<Versioned<LedgerMetadata>> readLedgerMetadata(long ledgerId, boolean allowOpenLedgers) {
+        Versioned<LedgerMetadata> cached = cache.getIfPresent(ledgerId);
+        if (cached != null && (allowOpenLedgers || cached.getValue().isClosed())) {
+            hits.inc();
+            if (cached.getValue().isClosed() && !watchClosedLedgers) {
+                // the ledger was closed while it was watched
+                maybeUnwatch(ledgerId);
+            }
+            return CompletableFuture.completedFuture(cached);
+        }
+        misses.inc();
+        return ledgerManager.readLedgerMetadata(ledgerId).thenApply(metadata -> {
+            update(ledgerId, metadata);
+            if (needsWatch(metadata)) {
+                watch(ledgerId);
+            }
+            return metadata;
+        });
+    }
+
+    /**
+     * Drop the cached metadata of a ledger, e.g. after it has been deleted.
+     */
+    void invalidate(long ledgerId) {
+        cache.invalidate(ledgerId);
+    }
+
+    /**
+     * Register a ledger metadata listener, sharing the metadata store watch of the cache.
+     *
+     * @see LedgerManager#registerLedgerMetadataListener(long, LedgerMetadataListener)
+     */
+    void registerLedgerMetadataListener(long ledgerId, LedgerMetadataListener listener) {
+        watch(ledgerId).listeners.add(listener);
+    }
+
+    /**
+     * Unregister a ledger metadata listener registered through this cache.
+     *
+     * @see LedgerManager#unregisterLedgerMetadataListener(long, LedgerMetadataListener)
+     */
+    void unregisterLedgerMetadataListener(long ledgerId, LedgerMetadataListener listener) {
+        LedgerWatcher watcher = watchers.get(ledgerId);
+        if (watcher != null) {
+            watcher.listeners.remove(listener);
+            maybeUnwatch(ledgerId);
+        }
+    }
+
+    private void update(long ledgerId, Versioned<LedgerMetadata> metadata) {
+        cache.asMap().merge(ledgerId, metadata, (current, updated) -> {
+            if (current.getVersion().compare(updated.getVersion()) == Version.Occurred.BEFORE) {
+                return updated;
+            }
+            return current;
+        });
+    }
+
+    private boolean needsWatch(Versioned<LedgerMetadata> metadata) {
+        return metadata != null && (watchClosedLedgers || !metadata.getValue().isClosed());
+    }
+
+    private LedgerWatcher watch(long ledgerId) {
+        return watchers.computeIfAbsent(ledgerId, lid -> {
+            LedgerWatcher watcher = new LedgerWatcher(lid);
+            ledgerManager.registerLedgerMetadataListener(lid, watcher);
+            return watcher;
+        });
+    }
+
+    private void maybeUnwatch(long ledgerId) {
+        watchers.computeIfPresent(ledgerId, (lid, watcher) -> {
+            if (watcher.listeners.isEmpty() && !needsWatch(cache.getIfPresent(lid))) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Stop watching metadata of ledger {}", lid);
+                }
+                ledgerManager.unregisterLedgerMetadataListener(lid, watcher);
+                return null;
+            }
+            return watcher;
+        });
+    }
+
+    @Override
+    public void close() {
+        watchers.forEach((ledgerId, watcher) -> ledgerManager.unregisterLedgerMetadataListener(ledgerId, watcher));
+        watchers.clear();
+        cache.invalidateAll();
+    }
+}
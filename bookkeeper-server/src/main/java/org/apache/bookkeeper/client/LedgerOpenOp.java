@@ -110,7 +110,12 @@ class LedgerOpenOp {
         /**
          * Asynchronously read the ledger metadata node.
          */
-        bk.getLedgerManager().readLedgerMetadata(ledgerId)
+        LedgerMetadataCache metadataCache = bk.getClientCtx().getLedgerMetadataCache();
+        CompletableFuture<Versioned<LedgerMetadata>> metadataFuture = metadataCache != null
+                // metadata of a ledger still being written is only good enough if we won't recover it
+                ? metadataCache.readLedgerMetadata(ledgerId, !doRecovery)
+                : bk.getLedgerManager().readLedgerMetadata(ledgerId);
+        metadataFuture
                 .thenAcceptAsync(this::openWithMetadata, bk.getScheduler().chooseThread(ledgerId))
                 .exceptionally(exception -> {
                     openComplete(BKException.getExceptionCode(exception), null);
@@ -0,0 +1,422 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieLoad;
+import org.apache.bookkeeper.client.EnsemblePlacementPolicy.PlacementPolicyAdherence;
+import org.apache.bookkeeper.client.EnsemblePlacementPolicy.PlacementResult;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.net.BookieId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves ledger replicas from the bookies which are fuller or more loaded than the others to the bookies
+ * which have room, e.g. to make use of the bookies added to a cluster.
+ *
+ * <p>The move plan is computed from the free disk space and the load reported by the writable bookies. A
+ * bookie whose disk usage is above the average usage of the cluster by more than the threshold moves its
+ * largest ledgers until its usage is back to the average. A bookie more loaded than the median bookie by the
+ * load threshold moves the share of its data matching its excess load, its most recent ledgers first as they
+ * serve most of the reads. The replicas are moved to the bookies whose usage is below the average and which
+ * aren't hot, chosen by the placement policy so that the ensembles keep adhering to it.
+ *
+ * <p>Only the closed ledgers are moved, their size being known and their ensembles not being changed by a
+ * writer. Each move copies the entries of a replica of a ledger fragment to the target bookie with the
+ * fragment replicator, which is throttled to the replication rate of the configuration of the admin, then
+ * swaps the bookie in the ensemble of the fragment. The source bookie deletes its copy once its garbage
+ * collector finds it isn't part of the ensembles of the ledger anymore.
+ */
+public class LedgerRebalancer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LedgerRebalancer.class);
+
+    /**
+     * Move of the replica of a ledger fragment from a bookie to another.
+     */
+    public static class Move {
+        private final long ledgerId;
+        private final long firstEntryId;
+        private final long lastEntryId;
+        private final int bookieIndex;
+        private final BookieId source;
+        private final BookieId target;
+        private final long estimatedBytes;
+
+        Move(long ledgerId, long firstEntryId, long lastEntryId, int bookieIndex,
+             BookieId source, BookieId target, long estimatedBytes) {
+            this.ledgerId = ledgerId;
+            this.firstEntryId = firstEntryId;
+            this.lastEntryId = lastEntryId;
+            this.bookieIndex = bookieIndex;
+            this.source = source;
+            this.target = target;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        public long getLedgerId() {
+            return ledgerId;
+        }
+
+        public long getFirstEntryId() {
+            return firstEntryId;
+        }
+
+        public long getLastEntryId() {
+            return lastEntryId;
+        }
+
+        public int getBookieIndex() {
+            return bookieIndex;
+        }
+
+        public BookieId getSource() {
+            return source;
+        }
+
+        public BookieId getTarget() {
+            return target;
+        }
+
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Ledger " + ledgerId + " fragment [" + firstEntryId + " - " + lastEntryId + "] index "
+                    + bookieIndex + " : " + source + " -> " + target + " (" + estimatedBytes + " bytes)";
+        }
+    }
+
+    /**
+     * Plan of the moves to rebalance the bookies.
+     */
+    public static class Plan {
+        private final List<Move> moves;
+        private final Map<BookieId, Long> bytesOut;
+        private final Map<BookieId, Long> bytesIn;
+
+        Plan(List<Move> moves) {
+            this.moves = Collections.unmodifiableList(moves);
+            Map<BookieId, Long> bytesOut = new HashMap<>();
+            Map<BookieId, Long> bytesIn = new HashMap<>();
+            for (Move move : moves) {
+                bytesOut.merge(move.getSource(), move.getEstimatedBytes(), Long::sum);
+                bytesIn.merge(move.getTarget(), move.getEstimatedBytes(), Long::sum);
+            }
+            this.bytesOut = Collections.unmodifiableMap(bytesOut);
+            this.bytesIn = Collections.unmodifiableMap(bytesIn);
+        }
+
+        public List<Move> getMoves() {
+            return moves;
+        }
+
+        /**
+         * Get the estimated number of bytes moved out of each source bookie.
+         */
+        public Map<BookieId, Long> getBytesOut() {
+            return bytesOut;
+        }
+
+        /**
+         * Get the estimated number of bytes moved into each target bookie.
+         */
+        public Map<BookieId, Long> getBytesIn() {
+            return bytesIn;
+        }
+
+        public long getTotalBytes() {
+            long total = 0L;
+            for (Move move : moves) {
+                total += move.getEstimatedBytes();
+            }
+            return total;
+        }
+
+        public boolean isEmpty() {
+            return moves.isEmpty();
+        }
+    }
+
+    private final BookKeeperAdmin admin;
+    private final BookKeeper bkc;
+
+    LedgerRebalancer(BookKeeperAdmin admin, BookKeeper bkc) {
+        this.admin = admin;
+        this.bkc = bkc;
+    }
+
+    /**
+     * Compute the moves to rebalance the bookies.
+     *
+     * @param usageThreshold fraction of their disk capacity the bookies may use above the average usage
+     * @param loadThreshold multiple of the median load above which a bookie is hot
+     * @param maxBytesToMove maximum number of bytes to move, no limit if not positive
+     * @return the plan
+     */
+    Plan computePlan(double usageThreshold, double loadThreshold, long maxBytesToMove)
+            throws BKException, InterruptedException {
+        Collection<BookieId> writableBookies = admin.getAvailableBookies();
+        Map<BookieId, BookieInfo> bookieInfos = bkc.getBookieInfo();
+
+        List<BookieId> bookies = new ArrayList<>();
+        long totalUsed = 0L;
+        long totalCapacity = 0L;
+        for (BookieId bookie : writableBookies) {
+            BookieInfo info = bookieInfos.get(bookie);
+            if (info == null || info.getTotalDiskSpace() <= 0) {
+                LOG.warn("No disk usage reported by bookie {}, it isn't rebalanced", bookie);
+                continue;
+            }
+            bookies.add(bookie);
+            totalUsed += info.getTotalDiskSpace() - info.getFreeDiskSpace();
+            totalCapacity += info.getTotalDiskSpace();
+        }
+        if (bookies.size() < 2 || totalCapacity == 0) {
+            return new Plan(Collections.emptyList());
+        }
+        double averageUsage = (double) totalUsed / totalCapacity;
+
+        BookieLoad[] loads = new BookieLoad[bookies.size()];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = bookieInfos.get(bookies.get(i)).getLoad();
+        }
+        double[] hotness = TopologySnapshot.hotness(loads);
+
+        // bytes each source bookie should move out, and bytes each target bookie may receive
+        Map<BookieId, Long> excess = new HashMap<>();
+        Map<BookieId, Long> room = new HashMap<>();
+        Set<BookieId> hotBookies = new HashSet<>();
+        for (int i = 0; i < bookies.size(); i++) {
+            BookieId bookie = bookies.get(i);
+            BookieInfo info = bookieInfos.get(bookie);
+            long capacity = info.getTotalDiskSpace();
+            long used = capacity - info.getFreeDiskSpace();
+            double usage = (double) used / capacity;
+            if (hotness[i] >= loadThreshold) {
+                // the load of a bookie follows the data it serves, a bookie twice as loaded as the median
+                // bookie moves half of its data
+                long bytes = (long) (used * (1 - 1 / hotness[i]));
+                if (bytes > 0) {
+                    excess.put(bookie, bytes);
+                    hotBookies.add(bookie);
+                }
+            } else if (usage > averageUsage + usageThreshold) {
+                excess.put(bookie, used - (long) (averageUsage * capacity));
+            } else if (usage < averageUsage) {
+                room.put(bookie, (long) (averageUsage * capacity) - used);
+            }
+            LOG.info("Bookie {} : usage {}, hotness {}{}", bookie, String.format("%.3f", usage),
+                    String.format("%.2f", hotness[i]), excess.containsKey(bookie) ? ", overloaded" : "");
+        }
+        LOG.info("Average usage {}, {} overloaded bookies, {} bookies with room",
+                String.format("%.3f", averageUsage), excess.size(), room.size());
+        if (excess.isEmpty() || room.isEmpty()) {
+            return new Plan(Collections.emptyList());
+        }
+
+        SortedMap<Long, LedgerMetadata> ledgers = admin.getLedgersContainBookies(excess.keySet());
+        List<Map.Entry<Long, LedgerMetadata>> hotLedgers = new ArrayList<>();
+        List<Map.Entry<Long, LedgerMetadata>> fullLedgers = new ArrayList<>();
+        for (Map.Entry<Long, LedgerMetadata> e : ledgers.entrySet()) {
+            LedgerMetadata metadata = e.getValue();
+            if (metadata.isClosed() && metadata.getLength() > 0 && metadata.getLastEntryId() >= 0) {
+                (containsAny(metadata, hotBookies) ? hotLedgers : fullLedgers).add(e);
+            }
+        }
+        // the ledgers of the hot bookies first, the most recent first as they are the most read
+        hotLedgers.sort(Comparator.comparing((Map.Entry<Long, LedgerMetadata> e) -> e.getValue().getCtime())
+                .thenComparing(Map.Entry::getKey).reversed());
+        // then the largest ledgers of the full bookies, to move fewer ledgers
+        fullLedgers.sort(Comparator.comparing((Map.Entry<Long, LedgerMetadata> e) -> e.getValue().getLength())
+                .reversed());
+        List<Map.Entry<Long, LedgerMetadata>> closedLedgers = new ArrayList<>(hotLedgers);
+        closedLedgers.addAll(fullLedgers);
+
+        List<Move> moves = new ArrayList<>();
+        long plannedBytes = 0L;
+        for (Map.Entry<Long, LedgerMetadata> e : closedLedgers) {
+            if (excess.isEmpty() || room.isEmpty()
+                    || (maxBytesToMove > 0 && plannedBytes >= maxBytesToMove)) {
+                break;
+            }
+            long ledgerId = e.getKey();
+            LedgerMetadata metadata = e.getValue();
+            long numEntries = metadata.getLastEntryId() + 1;
+            List<Map.Entry<Long, ? extends List<BookieId>>> segments =
+                    new ArrayList<>(metadata.getAllEnsembles().entrySet());
+            for (int s = 0; s < segments.size(); s++) {
+                long firstEntryId = segments.get(s).getKey();
+                long lastEntryId = s + 1 < segments.size()
+                        ? segments.get(s + 1).getKey() - 1 : metadata.getLastEntryId();
+                if (firstEntryId > lastEntryId) {
+                    continue;
+                }
+                // each bookie of the ensemble stores writeQuorumSize / ensembleSize of the entries
+                long bytesPerBookie = (long) ((double) metadata.getLength() * (lastEntryId - firstEntryId + 1)
+                        / numEntries * metadata.getWriteQuorumSize() / metadata.getEnsembleSize());
+                List<BookieId> ensemble = new ArrayList<>(segments.get(s).getValue());
+                for (int index = 0; index < ensemble.size(); index++) {
+                    BookieId source = ensemble.get(index);
+                    if (!excess.containsKey(source)) {
+                        continue;
+                    }
+                    BookieId target = selectTarget(writableBookies, metadata, ensemble, source, room,
+                            bytesPerBookie);
+                    if (target == null) {
+                        continue;
+                    }
+                    moves.add(new Move(ledgerId, firstEntryId, lastEntryId, index, source, target,
+                            bytesPerBookie));
+                    plannedBytes += bytesPerBookie;
+                    ensemble.set(index, target);
+                    consume(excess, source, bytesPerBookie);
+                    consume(room, target, bytesPerBookie);
+                }
+            }
+        }
+        return new Plan(moves);
+    }
+
+    /**
+     * Select the bookie to move a replica to, among the bookies with enough room, with the placement policy.
+     * The replica isn't moved if the ensemble would adhere less to the placement policy than it does.
+     */
+    private BookieId selectTarget(Collection<BookieId> writableBookies, LedgerMetadata metadata,
+                                  List<BookieId> ensemble, BookieId source, Map<BookieId, Long> room, long bytes) {
+        Set<BookieId> excludeBookies = new HashSet<>(ensemble);
+        for (BookieId bookie : writableBookies) {
+            Long bookieRoom = room.get(bookie);
+            if (bookieRoom == null || bookieRoom < bytes) {
+                excludeBookies.add(bookie);
+            }
+        }
+        try {
+            EnsemblePlacementPolicy placementPolicy = bkc.getPlacementPolicy();
+            PlacementResult<BookieId> result = placementPolicy.replaceBookie(
+                    metadata.getEnsembleSize(), metadata.getWriteQuorumSize(), metadata.getAckQuorumSize(),
+                    metadata.getCustomMetadata(), ensemble, source, excludeBookies);
+            PlacementPolicyAdherence currentAdherence = placementPolicy.isEnsembleAdheringToPlacementPolicy(
+                    ensemble, metadata.getWriteQuorumSize(), metadata.getAckQuorumSize());
+            if (result.getAdheringToPolicy().getNumVal() < currentAdherence.getNumVal()
+                    || !room.containsKey(result.getResult())) {
+                return null;
+            }
+            return result.getResult();
+        } catch (BKException.BKNotEnoughBookiesException e) {
+            return null;
+        }
+    }
+
+    private static boolean containsAny(LedgerMetadata metadata, Set<BookieId> bookies) {
+        for (List<BookieId> ensemble : metadata.getAllEnsembles().values()) {
+            for (BookieId bookie : ensemble) {
+                if (bookies.contains(bookie)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void consume(Map<BookieId, Long> budgets, BookieId bookie, long bytes) {
+        budgets.computeIfPresent(bookie, (b, budget) -> budget > bytes ? budget - bytes : null);
+    }
+
+    /**
+     * Execute the moves of a plan.
+     *
+     * <p>The moves of a fragment are done together. A move is skipped if the ensemble of its fragment
+     * changed since the plan was computed.
+     *
+     * @param plan the plan
+     * @return the number of moves done
+     */
+    int execute(Plan plan) throws InterruptedException {
+        // moves of each fragment of each ledger, in the order of the plan
+        Map<Long, Map<Long, List<Move>>> movesByLedger = new LinkedHashMap<>();
+        for (Move move : plan.getMoves()) {
+            movesByLedger.computeIfAbsent(move.getLedgerId(), l -> new LinkedHashMap<>())
+                    .computeIfAbsent(move.getFirstEntryId(), f -> new ArrayList<>()).add(move);
+        }
+        int numDone = 0;
+        int numFailed = 0;
+        for (Map.Entry<Long, Map<Long, List<Move>>> e : movesByLedger.entrySet()) {
+            long ledgerId = e.getKey();
+            LedgerHandle lh;
+            try {
+                lh = admin.openLedgerNoRecovery(ledgerId);
+            } catch (BKException bke) {
+                LOG.warn("Failed to open ledger {}, its replicas aren't moved", ledgerId, bke);
+                numFailed += e.getValue().size();
+                continue;
+            }
+            try {
+                for (List<Move> fragmentMoves : e.getValue().values()) {
+                    Move first = fragmentMoves.get(0);
+                    List<BookieId> ensemble = lh.getLedgerMetadata().getAllEnsembles().get(first.getFirstEntryId());
+                    Map<Integer, BookieId> targetBookies = new HashMap<>();
+                    for (Move move : fragmentMoves) {
+                        if (ensemble != null && move.getSource().equals(ensemble.get(move.getBookieIndex()))) {
+                            targetBookies.put(move.getBookieIndex(), move.getTarget());
+                        } else {
+                            LOG.info("Ensemble of ledger {} changed, skipping move: {}", ledgerId, move);
+                        }
+                    }
+                    if (targetBookies.isEmpty()) {
+                        continue;
+                    }
+                    LedgerFragment fragment = new LedgerFragment(lh, first.getFirstEntryId(),
+                            first.getLastEntryId(), new HashSet<>(targetBookies.keySet()));
+                    try {
+                        admin.replicateLedgerFragment(lh, fragment, targetBookies);
+                        numDone += targetBookies.size();
+                        LOG.info("Moved the replicas of ledger {} fragment [{} - {}] to {}", ledgerId,
+                                first.getFirstEntryId(), first.getLastEntryId(), targetBookies);
+                    } catch (BKException bke) {
+                        numFailed += targetBookies.size();
+                        LOG.warn("Failed to move the replicas of ledger {} fragment [{} - {}] to {}", ledgerId,
+                                first.getFirstEntryId(), first.getLastEntryId(), targetBookies, bke);
+                    }
+                }
+            } finally {
+                try {
+                    lh.close();
+                } catch (BKException bke) {
+                    LOG.warn("Error on closing ledger handle for {}.", ledgerId);
+                }
+            }
+        }
+        LOG.info("Rebalancing done : {} replicas moved, {} failed", numDone, numFailed);
+        return numDone;
+    }
+}
@@ -18,10 +18,14 @@
 package org.apache.bookkeeper.client;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.bookkeeper.client.AsyncCallback.AddCallback;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.util.MathUtils;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryListener;
 import org.apache.bookkeeper.proto.checksum.DigestManager.RecoveryData;
 import org.slf4j.Logger;
@@ -32,6 +36,10 @@ import org.slf4j.LoggerFactory;
  * with entry-id of -1 (BookieProtocol.LAST_ADD_CONFIRMED) to all bookies. Then
  * starting from the last confirmed entry (from hints in the ledger entries),
  * it reads forward until it is not able to find a particular entry.
+ *
+ * <p>Entries are read in batches of {@link ClientInternalConf#recoveryReadBatchSize} entries, with up to
+ * {@link ClientInternalConf#recoveryReadAheadBatches} batches in flight. Entries are re-added in order
+ * as soon as they are read, so reads and recovery adds are pipelined.
  */
 class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
 
@@ -42,9 +50,14 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
     final CompletableFuture<LedgerHandle> promise;
 
     final AtomicLong readCount, writeCount;
+    final AtomicLong bytesWritten = new AtomicLong(0);
     volatile boolean readDone;
     volatile long startEntryToRead;
     volatile long endEntryToRead;
+    long startTimeNanos;
+
+    // batches in flight, in entry id order; only the head batch delivers entries to the recovery
+    private final Deque<RecoveryBatch> readAheadBatches = new ArrayDeque<>();
 
     // keep a copy of metadata for recovery.
     LedgerMetadata metadataForRecovery;
@@ -53,6 +66,28 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
     @VisibleForTesting
     ReadEntryListener entryListener = null;
 
+    /**
+     * Read results of one batch, buffered until all the previous batches are recovered.
+     */
+    private static class RecoveryBatch {
+        final long endEntryId;
+        final Deque<ReadResult> results = new ArrayDeque<>();
+
+        RecoveryBatch(long endEntryId) {
+            this.endEntryId = endEntryId;
+        }
+    }
+
+    private static class ReadResult {
+        final int rc;
+        final LedgerEntry entry;
+
+        ReadResult(int rc, LedgerEntry entry) {
+            this.rc = rc;
+            this.entry = entry;
+        }
+    }
+
     class RecoveryReadOp extends ListenerBasedPendingReadOp {
 
         RecoveryReadOp(LedgerHandle lh,
@@ -92,6 +127,7 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
     }
 
     public CompletableFuture<LedgerHandle> initiate() {
+        startTimeNanos = MathUtils.nowInNano();
         ReadLastConfirmedOp rlcop = new ReadLastConfirmedOp(clientCtx.getBookieClient(),
                                                             lh.distributionSchedule,
                                                             lh.macManager,
@@ -153,6 +189,10 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
         if (BKException.Code.OK == rc) {
             clientCtx.getClientStats().getRecoverAddCountLogger().registerSuccessfulValue(writeCount.get());
             clientCtx.getClientStats().getRecoverReadCountLogger().registerSuccessfulValue(readCount.get());
+            clientCtx.getClientStats().getRecoverAddBytesLogger().registerSuccessfulValue(bytesWritten.get());
+            long elapsedMicros = Math.max(1L, TimeUnit.NANOSECONDS.toMicros(MathUtils.elapsedNanos(startTimeNanos)));
+            clientCtx.getClientStats().getRecoverEntryRateLogger()
+                    .registerSuccessfulValue(writeCount.get() * TimeUnit.SECONDS.toMicros(1) / elapsedMicros);
             promise.complete(lh);
         } else {
             clientCtx.getClientStats().getRecoverAddCountLogger().registerFailedValue(writeCount.get());
@@ -162,13 +202,23 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
     }
 
     /**
-     * Try to read past the last confirmed.
+     * Try to read past the last confirmed, keeping the configured number of batches in flight.
      */
     private void doRecoveryRead() {
-        if (!promise.isDone()) {
-            startEntryToRead = endEntryToRead + 1;
-            endEntryToRead = endEntryToRead + clientCtx.getConf().recoveryReadBatchSize;
-            new RecoveryReadOp(lh, clientCtx, startEntryToRead, endEntryToRead, this, null)
+        int readAheadBatches = Math.max(1, clientCtx.getConf().recoveryReadAheadBatches);
+        while (true) {
+            long startEntryId;
+            RecoveryBatch batch;
+            synchronized (this) {
+                if (promise.isDone() || readDone || this.readAheadBatches.size() >= readAheadBatches) {
+                    return;
+                }
+                startEntryId = startEntryToRead = endEntryToRead + 1;
+                endEntryToRead = endEntryToRead + clientCtx.getConf().recoveryReadBatchSize;
+                batch = new RecoveryBatch(endEntryToRead);
+                this.readAheadBatches.addLast(batch);
+            }
+            new RecoveryReadOp(lh, clientCtx, startEntryId, batch.endEntryId, this, batch)
                 .initiate();
         }
     }
@@ -178,9 +228,39 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
         // notify entry listener on individual entries being read during ledger recovery.
         ReadEntryListener listener = entryListener;
         if (null != listener) {
-            listener.onEntryComplete(rc, lh, entry, ctx);
+            listener.onEntryComplete(rc, lh, entry, null);
         }
 
+        // entries of a batch are delivered in order, but batches may complete out of order:
+        // buffer the result and recover entries in entry id order.
+        RecoveryBatch batch = (RecoveryBatch) ctx;
+        boolean batchDone = false;
+        synchronized (this) {
+            batch.results.addLast(new ReadResult(rc, entry));
+            RecoveryBatch head;
+            while ((head = readAheadBatches.peekFirst()) != null && !head.results.isEmpty()) {
+                if (readDone || promise.isDone()) {
+                    // the end of the ledger was found, or recovery failed: drop the read-ahead batches
+                    readAheadBatches.clear();
+                    break;
+                }
+                ReadResult result = head.results.pollFirst();
+                recoverEntry(result.rc, result.entry);
+                if (result.rc != BKException.Code.OK
+                        || (result.entry != null && result.entry.getEntryId() == head.endEntryId)) {
+                    // the batch is either fully recovered, or we reached the end of the ledger
+                    readAheadBatches.pollFirst();
+                    batchDone = true;
+                }
+            }
+        }
+        if (batchDone) {
+            // trigger next batch read
+            doRecoveryRead();
+        }
+    }
+
+    private void recoverEntry(int rc, LedgerEntry entry) {
         // we only trigger recovery add an entry when readDone == false && callbackDone == false
         if (!promise.isDone() && !readDone && rc == BKException.Code.OK) {
             readCount.incrementAndGet();
@@ -201,11 +281,8 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
                 }
             }
             if (BKException.Code.OK == rc) {
+                bytesWritten.addAndGet(data.length);
                 lh.asyncRecoveryAddEntry(data, 0, data.length, this, null);
-                if (entry.getEntryId() == endEntryToRead) {
-                    // trigger next batch read
-                    doRecoveryRead();
-                }
                 return;
             }
         }
@@ -0,0 +1,104 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.client;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.AsyncCallback.DeleteCallback;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
+import org.apache.bookkeeper.versioning.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Encapsulates asynchronous delete operation of several ledgers, whose metadata is removed in batches
+ * by the ledger manager.
+ */
+class LedgersDeleteOp {
+
+    static final Logger LOG = LoggerFactory.getLogger(LedgersDeleteOp.class);
+
+    final BookKeeper bk;
+    final Collection<Long> ledgerIds;
+    final DeleteCallback cb;
+    final Object ctx;
+    final long startTime;
+    final OpStatsLogger deleteOpLogger;
+
+    LedgersDeleteOp(BookKeeper bk, BookKeeperClientStats clientStats,
+                    Collection<Long> ledgerIds, DeleteCallback cb, Object ctx) {
+        this.bk = bk;
+        this.ledgerIds = ledgerIds;
+        this.cb = cb;
+        this.ctx = ctx;
+        this.startTime = MathUtils.nowInNano();
+        this.deleteOpLogger = clientStats.getDeleteOpLogger();
+    }
+
+    /**
+     * Initiates the operation.
+     */
+    public void initiate() {
+        Map<Long, Version> ledgers = new HashMap<>(ledgerIds.size());
+        for (long ledgerId : ledgerIds) {
+            if (ledgerId < 0) {
+                LOG.error("invalid ledgerId {} < 0", ledgerId);
+                cb.deleteComplete(BKException.Code.IncorrectParameterException, ctx);
+                return;
+            }
+            ledgers.put(ledgerId, Version.ANY);
+        }
+        if (ledgers.isEmpty()) {
+            cb.deleteComplete(BKException.Code.OK, ctx);
+            return;
+        }
+
+        bk.getLedgerManager().removeLedgersMetadata(ledgers)
+            .whenCompleteAsync((ignore, exception) -> {
+                    long elapsedNanos = MathUtils.elapsedNanos(startTime);
+                    if (exception != null) {
+                        LOG.warn("Failed to delete some of the {} ledgers", ledgers.size(), exception);
+                        for (int i = 0; i < ledgers.size(); i++) {
+                            deleteOpLogger.registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                        }
+                    } else {
+                        for (int i = 0; i < ledgers.size(); i++) {
+                            deleteOpLogger.registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                    // some ledgers may have been deleted even if the operation failed
+                    LedgerMetadataCache metadataCache = bk.getClientCtx().getLedgerMetadataCache();
+                    if (metadataCache != null) {
+                        ledgers.keySet().forEach(metadataCache::invalidate);
+                    }
+                    cb.deleteComplete(BKException.getExceptionCode(exception), this.ctx);
+                }, bk.getMainWorkerPool().chooseThread(ledgers.keySet().iterator().next()));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LedgersDeleteOp(%d ledgers)", ledgerIds.size());
+    }
+}
@@ -95,6 +95,17 @@ public class RackawareEnsemblePlacementPolicy extends RackawareEnsemblePlacement
         return deadBookies;
     }
 
+    @Override
+    public Set<BookieId> onClusterChanged(Set<BookieId> writableBookies,
+            Set<BookieId> readOnlyBookies, Set<BookieId> joinedBookies, Set<BookieId> leftBookies) {
+        Set<BookieId> deadBookies =
+                super.onClusterChanged(writableBookies, readOnlyBookies, joinedBookies, leftBookies);
+        if (null != slave) {
+            deadBookies = slave.onClusterChanged(writableBookies, readOnlyBookies, joinedBookies, leftBookies);
+        }
+        return deadBookies;
+    }
+
     @Override
     public PlacementResult<List<BookieId>> newEnsemble(int ensembleSize, int writeQuorumSize,
             int ackQuorumSize, Map<String, byte[]> customMetadata, Set<BookieId> excludeBookies)
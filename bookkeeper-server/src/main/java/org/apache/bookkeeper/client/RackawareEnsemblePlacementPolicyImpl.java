@@ -135,6 +135,9 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
 
     private String defaultRack = NetworkTopology.DEFAULT_RACK;
 
+    // view of the topology used to select the bookies, rebuilt after the topology or the known bookies change
+    private volatile TopologySnapshot topologySnapshot = null;
+
     RackawareEnsemblePlacementPolicyImpl() {
         this(false);
     }
@@ -304,7 +307,25 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
                 conf.getEnforceMinNumRacksPerWriteQuorum(),
                 conf.getIgnoreLocalNodeInPlacementPolicy(),
                 statsLogger,
-                bookieAddressResolver);
+                bookieAddressResolver)
+                .withLoadAwarePlacement(conf.getLoadAwarePlacementEnabled(),
+                        conf.getBookieMaxMultipleForLoadAwarePlacement());
+    }
+
+    /**
+     * Weight the bookies by their load, to select the hot bookies less often.
+     *
+     * @param loadAware whether the load aware placement is enabled
+     * @param maxLoadMultiple maximum multiple of the median load a bookie is penalized for
+     * @return the placement policy
+     */
+    public RackawareEnsemblePlacementPolicyImpl withLoadAwarePlacement(boolean loadAware, int maxLoadMultiple) {
+        this.isLoadAware = loadAware;
+        this.maxLoadMultiple = maxLoadMultiple;
+        if (loadAware) {
+            LOG.info("Load aware placement with max multiple of {}", maxLoadMultiple);
+        }
+        return this;
     }
 
     @Override
@@ -312,6 +333,27 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         // do nothing
     }
 
+    /**
+     * Get the snapshot of the topology, building a new one if the topology or the known bookies changed.
+     *
+     * <p>This method should be called in readlock scope of 'rwLock'. Concurrent selections may build the
+     * same snapshot, only the first selection after a change pays for it.
+     */
+    protected TopologySnapshot getTopologySnapshot() {
+        TopologySnapshot snapshot = topologySnapshot;
+        long topologyVersion = topology.getVersion();
+        long bookiesVersion = knownBookiesVersion.get();
+        if (snapshot == null || topologyVersion < 0
+                || snapshot.topologyVersion != topologyVersion || snapshot.knownBookiesVersion != bookiesVersion) {
+            snapshot = TopologySnapshot.build(topologyVersion, bookiesVersion, topology.getNumOfRacks(),
+                    topology.getLeaves(NodeBase.ROOT), knownBookies.values(),
+                    isWeighted || isLoadAware ? bookieInfoMap : null,
+                    isWeighted, maxWeightMultiple, isLoadAware, maxLoadMultiple);
+            topologySnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
     /*
      * this method should be called in readlock scope of 'rwLock'
      */
@@ -320,16 +362,12 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         Set<BookieId> comprehensiveExclusionBookiesSet;
         if (enforceMinNumRacksPerWriteQuorum) {
             Set<BookieId> bookiesInDefaultRack = null;
-            Set<Node> defaultRackLeaves = topology.getLeaves(getDefaultRack());
-            for (Node node : defaultRackLeaves) {
-                if (node instanceof BookieNode) {
-                    if (bookiesInDefaultRack == null) {
-                        bookiesInDefaultRack = new HashSet<BookieId>(excludeBookies);
-                    }
-                    bookiesInDefaultRack.add(((BookieNode) node).getAddr());
-                } else {
-                    LOG.error("found non-BookieNode: {} as leaf of defaultrack: {}", node, getDefaultRack());
+            List<BookieNode> defaultRackLeaves = getTopologySnapshot().getLeaves(getDefaultRack());
+            for (BookieNode node : defaultRackLeaves) {
+                if (bookiesInDefaultRack == null) {
+                    bookiesInDefaultRack = new HashSet<BookieId>(excludeBookies);
                 }
+                bookiesInDefaultRack.add(node.getAddr());
             }
             if ((bookiesInDefaultRack == null) || bookiesInDefaultRack.isEmpty()) {
                 comprehensiveExclusionBookiesSet = excludeBookies;
@@ -399,7 +437,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
                             parentPredicate,
                             minNumRacksPerWriteQuorumForThisEnsemble);
             BookieNode prevNode = null;
-            int numRacks = topology.getNumOfRacks();
+            int numRacks = getTopologySnapshot().getNumOfRacks();
             // only one rack, use the random algorithm.
             if (numRacks < 2) {
                 if (enforceMinNumRacksPerWriteQuorum && (minNumRacksPerWriteQuorumForThisEnsemble > 1)) {
@@ -580,16 +618,15 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
                                                    boolean fallbackToRandom)
             throws BKNotEnoughBookiesException {
 
-        List<BookieNode> knownNodes = new ArrayList<>(knownBookies.values());
         Set<Node> fullExclusionBookiesList = new HashSet<Node>(excludeBookies);
-        for (BookieNode knownNode : knownNodes) {
+        for (BookieNode knownNode : knownBookies.values()) {
             if (excludeRacks.contains(knownNode.getNetworkLocation())) {
                 fullExclusionBookiesList.add(knownNode);
             }
         }
 
         try {
-            return selectRandomInternal(knownNodes, 1, fullExclusionBookiesList, predicate, ensemble).get(0);
+            return selectRandomInternal(null, 1, fullExclusionBookiesList, predicate, ensemble).get(0);
         } catch (BKNotEnoughBookiesException e) {
             if (!fallbackToRandom) {
                 LOG.error(
@@ -606,32 +643,6 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         }
     }
 
-    private WeightedRandomSelection<BookieNode> prepareForWeightedSelection(List<Node> leaves) {
-        // create a map of bookieNode->freeDiskSpace for this rack. The assumption is that
-        // the number of nodes in a rack is of the order of 40, so it shouldn't be too bad
-        // to build it every time during a ledger creation
-        Map<BookieNode, WeightedObject> rackMap = new HashMap<BookieNode, WeightedObject>();
-        for (Node n : leaves) {
-            if (!(n instanceof BookieNode)) {
-                continue;
-            }
-            BookieNode bookie = (BookieNode) n;
-            if (this.bookieInfoMap.containsKey(bookie)) {
-                rackMap.put(bookie, this.bookieInfoMap.get(bookie));
-            } else {
-                rackMap.put(bookie, new BookieInfo());
-            }
-        }
-        if (rackMap.size() == 0) {
-            return null;
-        }
-
-        WeightedRandomSelection<BookieNode> wRSelection = new WeightedRandomSelectionImpl<BookieNode>(
-                maxWeightMultiple);
-        wRSelection.updateMap(rackMap);
-        return wRSelection;
-    }
-
     /**
      * Choose random node under a given network path.
      *
@@ -647,45 +658,19 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
      */
     protected BookieNode selectRandomFromRack(String netPath, Set<Node> excludeBookies, Predicate<BookieNode> predicate,
             Ensemble<BookieNode> ensemble) throws BKNotEnoughBookiesException {
-        WeightedRandomSelection<BookieNode> wRSelection = null;
-        List<Node> leaves = new ArrayList<Node>(topology.getLeaves(netPath));
-        if (!this.isWeighted) {
-            Collections.shuffle(leaves);
-        } else {
-            if (CollectionUtils.subtract(leaves, excludeBookies).size() < 1) {
-                throw new BKNotEnoughBookiesException();
-            }
-            wRSelection = prepareForWeightedSelection(leaves);
-            if (wRSelection == null) {
-                throw new BKNotEnoughBookiesException();
-            }
+        TopologySnapshot.Candidates candidates = getTopologySnapshot().candidates(netPath);
+        if (isWeighted && !candidates.hasAvailable(excludeBookies, 1)) {
+            throw new BKNotEnoughBookiesException();
         }
 
-        Iterator<Node> it = leaves.iterator();
-        Set<Node> bookiesSeenSoFar = new HashSet<Node>();
-        while (true) {
-            Node n;
-            if (isWeighted) {
-                if (bookiesSeenSoFar.size() == leaves.size()) {
-                    // Don't loop infinitely.
-                    break;
-                }
-                n = wRSelection.getNextRandom();
-                bookiesSeenSoFar.add(n);
-            } else {
-                if (it.hasNext()) {
-                    n = it.next();
-                } else {
-                    break;
-                }
-            }
-            if (excludeBookies.contains(n)) {
+        BookieNode bn;
+        while ((bn = candidates.next()) != null) {
+            if (excludeBookies.contains(bn)) {
                 continue;
             }
-            if (!(n instanceof BookieNode) || !predicate.apply((BookieNode) n, ensemble)) {
+            if (!predicate.apply(bn, ensemble)) {
                 continue;
             }
-            BookieNode bn = (BookieNode) n;
             // got a good candidate
             if (ensemble.addNode(bn)) {
                 // add the candidate to exclude set
@@ -722,19 +707,17 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
                                                     Predicate<BookieNode> predicate,
                                                     Ensemble<BookieNode> ensemble)
         throws BKNotEnoughBookiesException {
-        WeightedRandomSelection<BookieNode> wRSelection = null;
         if (bookiesToSelectFrom == null) {
             // If the list is null, we need to select from the entire knownBookies set
-            wRSelection = this.weightedSelection;
-            bookiesToSelectFrom = new ArrayList<BookieNode>(knownBookies.values());
+            return selectRandomFromCandidates(getTopologySnapshot().knownBookieCandidates(),
+                    numBookies, excludeBookies, predicate, ensemble);
         }
+        WeightedRandomSelection<BookieNode> wRSelection = null;
         if (isWeighted) {
             if (CollectionUtils.subtract(bookiesToSelectFrom, excludeBookies).size() < numBookies) {
                 throw new BKNotEnoughBookiesException();
             }
-            if (wRSelection == null) {
-                wRSelection = new WeightedRandomSelectionImpl<BookieNode>(this.maxWeightMultiple);
-            }
+            wRSelection = new WeightedRandomSelectionImpl<BookieNode>(this.maxWeightMultiple);
 
             Map<BookieNode, WeightedObject> rackMap = new HashMap<BookieNode, WeightedObject>();
             for (BookieNode n : bookiesToSelectFrom) {
@@ -799,6 +782,44 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         throw new BKNotEnoughBookiesException();
     }
 
+    private List<BookieNode> selectRandomFromCandidates(TopologySnapshot.Candidates candidates,
+                                                        int numBookies,
+                                                        Set<Node> excludeBookies,
+                                                        Predicate<BookieNode> predicate,
+                                                        Ensemble<BookieNode> ensemble)
+            throws BKNotEnoughBookiesException {
+        if (isWeighted && !candidates.hasAvailable(excludeBookies, numBookies)) {
+            throw new BKNotEnoughBookiesException();
+        }
+        List<BookieNode> newBookies = new ArrayList<BookieNode>(numBookies);
+        BookieNode bookie;
+        while (numBookies > 0 && (bookie = candidates.next()) != null) {
+            if (excludeBookies.contains(bookie)) {
+                continue;
+            }
+
+            // When durability is being enforced; we must not violate the
+            // predicate even when selecting a random bookie; as durability
+            // guarantee is not best effort; correctness is implied by it
+            if (enforceDurability && !predicate.apply(bookie, ensemble)) {
+                continue;
+            }
+
+            if (ensemble.addNode(bookie)) {
+                excludeBookies.add(bookie);
+                newBookies.add(bookie);
+                --numBookies;
+            }
+        }
+        if (numBookies == 0) {
+            return newBookies;
+        }
+        LOG.warn("Failed to find {} bookies : excludeBookies {}, allBookies {}.",
+            numBookies, excludeBookies, knownBookies.keySet());
+
+        throw new BKNotEnoughBookiesException();
+    }
+
     @Override
     public void registerSlowBookie(BookieId bookieSocketAddress, long entryId) {
         if (reorderThresholdPendingRequests <= 0) {
@@ -1268,51 +1289,25 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         // avoid to use same rack between previous index by netPath
         conditionList.add(Pair.of(netPath, Collections.emptyList()));
 
+        final TopologySnapshot snapshot = getTopologySnapshot();
         for (Pair<String, List<BookieNode>> condition : conditionList) {
-            WeightedRandomSelection<BookieNode> wRSelection = null;
-
-            final List<Node> leaves = new ArrayList<>(topology.getLeaves(condition.getLeft()));
-            if (!isWeighted) {
-                Collections.shuffle(leaves);
-            } else {
-                if (CollectionUtils.subtract(leaves, excludeBookies).size() < 1) {
-                    throw new BKNotEnoughBookiesException();
-                }
-                wRSelection = prepareForWeightedSelection(leaves);
-                if (wRSelection == null) {
-                    throw new BKNotEnoughBookiesException();
-                }
+            final TopologySnapshot.Candidates candidates = snapshot.candidates(condition.getLeft());
+            if (isWeighted && !candidates.hasAvailable(excludeBookies, 1)) {
+                throw new BKNotEnoughBookiesException();
             }
 
-            final Iterator<Node> it = leaves.iterator();
-            final Set<Node> bookiesSeenSoFar = new HashSet<>();
-            while (true) {
-                Node n;
-                if (isWeighted) {
-                    if (bookiesSeenSoFar.size() == leaves.size()) {
-                        // Don't loop infinitely.
-                        break;
-                    }
-                    n = wRSelection.getNextRandom();
-                    bookiesSeenSoFar.add(n);
-                } else {
-                    if (it.hasNext()) {
-                        n = it.next();
-                    } else {
-                        break;
-                    }
-                }
-                if (excludeBookies.contains(n)) {
+            BookieNode bn;
+            while ((bn = candidates.next()) != null) {
+                if (excludeBookies.contains(bn)) {
                     continue;
                 }
-                if (!(n instanceof BookieNode) || !predicate.apply((BookieNode) n, ensemble)) {
+                if (!predicate.apply(bn, ensemble)) {
                     continue;
                 }
                 // additional excludeBookies
-                if (condition.getRight().contains(n)) {
+                if (condition.getRight().contains(bn)) {
                     continue;
                 }
-                BookieNode bn = (BookieNode) n;
                 return bn;
             }
         }
@@ -99,22 +99,37 @@ class ReadOnlyLedgerHandle extends LedgerHandle implements LedgerMetadataListene
             throws GeneralSecurityException, NumberFormatException {
         super(clientCtx, ledgerId, metadata, digestType, password, WriteFlag.NONE);
         if (watch) {
-            clientCtx.getLedgerManager().registerLedgerMetadataListener(ledgerId, this);
+            LedgerMetadataCache metadataCache = clientCtx.getLedgerMetadataCache();
+            if (metadataCache != null) {
+                // share the metadata watch of the cache
+                metadataCache.registerLedgerMetadataListener(ledgerId, this);
+            } else {
+                clientCtx.getLedgerManager().registerLedgerMetadataListener(ledgerId, this);
+            }
         }
     }
 
     @Override
     public void close()
             throws InterruptedException, BKException {
-        clientCtx.getLedgerManager().unregisterLedgerMetadataListener(ledgerId, this);
+        unregisterLedgerMetadataListener();
     }
 
     @Override
     public void asyncClose(CloseCallback cb, Object ctx) {
-        clientCtx.getLedgerManager().unregisterLedgerMetadataListener(ledgerId, this);
+        unregisterLedgerMetadataListener();
         cb.closeComplete(BKException.Code.OK, this, ctx);
     }
 
+    private void unregisterLedgerMetadataListener() {
+        LedgerMetadataCache metadataCache = clientCtx.getLedgerMetadataCache();
+        if (metadataCache != null) {
+            metadataCache.unregisterLedgerMetadataListener(ledgerId, this);
+        } else {
+            clientCtx.getLedgerManager().unregisterLedgerMetadataListener(ledgerId, this);
+        }
+    }
+
     @Override
     public long addEntry(byte[] data) throws InterruptedException, BKException {
         return addEntry(data, 0, data.length);
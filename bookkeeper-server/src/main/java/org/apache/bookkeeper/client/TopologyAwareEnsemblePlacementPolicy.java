@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
@@ -64,9 +65,13 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
     protected final Map<BookieId, BookieNode> historyBookies = new HashMap<BookieId, BookieNode>();
     protected final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
     protected Map<BookieNode, WeightedObject> bookieInfoMap = new HashMap<BookieNode, WeightedObject>();
+    // incremented on every change of the known bookies, their network locations or their weights
+    protected final AtomicLong knownBookiesVersion = new AtomicLong(0L);
     // Initialize to empty set
     protected ImmutableSet<BookieId> readOnlyBookies = ImmutableSet.of();
     boolean isWeighted;
+    boolean isLoadAware;
+    int maxLoadMultiple;
     protected WeightedRandomSelection<BookieNode> weightedSelection;
     // for now, we just maintain the writable bookies' topology
     protected NetworkTopology topology;
@@ -650,33 +655,73 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
             Set<BookieId> readOnlyBookies) {
         rwLock.writeLock().lock();
         try {
-            ImmutableSet<BookieId> joinedBookies, leftBookies, deadBookies;
-            Set<BookieId> oldBookieSet = knownBookies.keySet();
-            // left bookies : bookies in known bookies, but not in new writable bookie cluster.
-            leftBookies = Sets.difference(oldBookieSet, writableBookies).immutableCopy();
-            // joined bookies : bookies in new writable bookie cluster, but not in known bookies
-            joinedBookies = Sets.difference(writableBookies, oldBookieSet).immutableCopy();
-            // dead bookies.
-            deadBookies = Sets.difference(leftBookies, readOnlyBookies).immutableCopy();
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Cluster changed : left bookies are {}, joined bookies are {}, while dead bookies are {}.",
-                        leftBookies, joinedBookies, deadBookies);
-            }
-            handleBookiesThatLeft(leftBookies);
-            handleBookiesThatJoined(joinedBookies);
-            if (this.isWeighted && (leftBookies.size() > 0 || joinedBookies.size() > 0)) {
-                this.weightedSelection.updateMap(this.bookieInfoMap);
-            }
-            if (!readOnlyBookies.isEmpty()) {
-                this.readOnlyBookies = ImmutableSet.copyOf(readOnlyBookies);
-            }
+            return handleClusterChange(writableBookies, readOnlyBookies);
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
 
-            return deadBookies;
+    @Override
+    public Set<BookieId> onClusterChanged(Set<BookieId> writableBookies,
+                                          Set<BookieId> readOnlyBookies,
+                                          Set<BookieId> joinedBookies,
+                                          Set<BookieId> leftBookies) {
+        rwLock.writeLock().lock();
+        try {
+            ImmutableSet<BookieId> newBookies = joinedBookies.stream()
+                    .filter(addr -> !knownBookies.containsKey(addr))
+                    .collect(ImmutableSet.toImmutableSet());
+            ImmutableSet<BookieId> removedBookies = leftBookies.stream()
+                    .filter(knownBookies::containsKey)
+                    .collect(ImmutableSet.toImmutableSet());
+            if (knownBookies.size() + newBookies.size() - removedBookies.size() != writableBookies.size()) {
+                // the known bookies drifted from the writable bookies, e.g. a joining bookie
+                // couldn't be added to the topology, compare the full lists instead
+                return handleClusterChange(writableBookies, readOnlyBookies);
+            }
+            return handleClusterChange(newBookies, removedBookies, readOnlyBookies);
         } finally {
             rwLock.writeLock().unlock();
         }
     }
 
+    /*
+     * this method should be called in writelock scope of 'rwLock'
+     */
+    private Set<BookieId> handleClusterChange(Set<BookieId> writableBookies, Set<BookieId> readOnlyBookies) {
+        ImmutableSet<BookieId> joinedBookies, leftBookies;
+        Set<BookieId> oldBookieSet = knownBookies.keySet();
+        // left bookies : bookies in known bookies, but not in new writable bookie cluster.
+        leftBookies = Sets.difference(oldBookieSet, writableBookies).immutableCopy();
+        // joined bookies : bookies in new writable bookie cluster, but not in known bookies
+        joinedBookies = Sets.difference(writableBookies, oldBookieSet).immutableCopy();
+        return handleClusterChange(joinedBookies, leftBookies, readOnlyBookies);
+    }
+
+    /*
+     * this method should be called in writelock scope of 'rwLock'
+     */
+    private Set<BookieId> handleClusterChange(ImmutableSet<BookieId> joinedBookies,
+                                              ImmutableSet<BookieId> leftBookies,
+                                              Set<BookieId> readOnlyBookies) {
+        // dead bookies.
+        ImmutableSet<BookieId> deadBookies = Sets.difference(leftBookies, readOnlyBookies).immutableCopy();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Cluster changed : left bookies are {}, joined bookies are {}, while dead bookies are {}.",
+                    leftBookies, joinedBookies, deadBookies);
+        }
+        handleBookiesThatLeft(leftBookies);
+        handleBookiesThatJoined(joinedBookies);
+        if (this.isWeighted && (leftBookies.size() > 0 || joinedBookies.size() > 0)) {
+            this.weightedSelection.updateMap(this.bookieInfoMap);
+        }
+        if (!readOnlyBookies.isEmpty()) {
+            this.readOnlyBookies = ImmutableSet.copyOf(readOnlyBookies);
+        }
+
+        return deadBookies;
+    }
+
     /*
      * this method should be called in writelock scope of 'rwLock'
      */
@@ -690,6 +735,7 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
                     if (this.isWeighted) {
                         this.bookieInfoMap.remove(node);
                     }
+                    knownBookiesVersion.incrementAndGet();
 
                     bookiesLeftCounter.registerSuccessfulValue(1L);
 
@@ -723,6 +769,7 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
                 if (this.isWeighted) {
                     this.bookieInfoMap.putIfAbsent(node, new BookieInfo());
                 }
+                knownBookiesVersion.incrementAndGet();
 
                 bookiesJoinedCounter.registerSuccessfulValue(1L);
 
@@ -755,6 +802,7 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
                             topology.add(newNode);
                             knownBookies.put(bookieAddress, newNode);
                             historyBookies.put(bookieAddress, newNode);
+                            knownBookiesVersion.incrementAndGet();
                         }
                     }
                 } catch (IllegalArgumentException | NetworkTopologyImpl.InvalidTopologyException e) {
@@ -784,7 +832,7 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
 
     @Override
     public void updateBookieInfo(Map<BookieId, BookieInfo> bookieInfoMap) {
-        if (!isWeighted) {
+        if (!isWeighted && !isLoadAware) {
             LOG.info("bookieFreeDiskInfo callback called even without weighted placement policy being used.");
             return;
         }
@@ -801,7 +849,10 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
                 }
             }
             this.bookieInfoMap = map;
-            this.weightedSelection.updateMap(this.bookieInfoMap);
+            if (this.isWeighted) {
+                this.weightedSelection.updateMap(this.bookieInfoMap);
+            }
+            knownBookiesVersion.incrementAndGet();
         } finally {
             rwLock.writeLock().unlock();
         }
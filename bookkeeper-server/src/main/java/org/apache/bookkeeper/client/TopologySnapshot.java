@@ -0,0 +1,575 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieLoad;
+import org.apache.bookkeeper.client.WeightedRandomSelection.WeightedObject;
+import org.apache.bookkeeper.net.BookieNode;
+import org.apache.bookkeeper.net.NetworkTopologyImpl;
+import org.apache.bookkeeper.net.Node;
+import org.apache.bookkeeper.net.NodeBase;
+
+/**
+ * Immutable view of the network topology used to select bookies, without locking the topology.
+ *
+ * <p>The leaves of the topology are grouped by network location in an array, so the bookies under a
+ * network path are a few ranges of the array. In weighted mode, the weights of the bookies are computed
+ * once as {@link WeightedRandomSelectionImpl} does, over all the bookies, and kept as cumulative sums, so
+ * a bookie is drawn from any ranges by a binary search.
+ *
+ * <p>With the load aware placement, the weight of a bookie, its disk weight or 1, is divided by how much
+ * more loaded than the median bookie it is, up to a maximum multiple, so that the hot bookies are selected
+ * less often. The load of a bookie is compared to the median on each signal reported by the bookies: the
+ * journal queue size, the add entry latency, the add and read throughput and the read cache miss rate.
+ *
+ * <p>A snapshot is built by the placement policy on the first selection after a change of the topology,
+ * the known bookies or their weights, and replaced as a whole.
+ */
+final class TopologySnapshot {
+
+    final long topologyVersion;
+    final long knownBookiesVersion;
+    private final int numOfRacks;
+
+    // leaves of the topology, grouped by network location
+    private final BookieNode[] leaves;
+    // cumulativeLeafWeights[i] is the sum of the weights of leaves[0..i-1], null if not weighted
+    private final double[] cumulativeLeafWeights;
+    // network locations, and the range of their leaves from rackStarts[i] to rackStarts[i + 1]
+    private final String[] racks;
+    private final int[] rackStarts;
+    private final Map<String, Integer> rackIndexes;
+
+    private final BookieNode[] knownBookies;
+    private final double[] cumulativeKnownBookieWeights;
+
+    private TopologySnapshot(long topologyVersion, long knownBookiesVersion, int numOfRacks,
+                             BookieNode[] leaves, double[] cumulativeLeafWeights,
+                             String[] racks, int[] rackStarts,
+                             BookieNode[] knownBookies, double[] cumulativeKnownBookieWeights) {
+        this.topologyVersion = topologyVersion;
+        this.knownBookiesVersion = knownBookiesVersion;
+        this.numOfRacks = numOfRacks;
+        this.leaves = leaves;
+        this.cumulativeLeafWeights = cumulativeLeafWeights;
+        this.racks = racks;
+        this.rackStarts = rackStarts;
+        this.rackIndexes = new HashMap<>(racks.length * 2);
+        for (int i = 0; i < racks.length; i++) {
+            rackIndexes.put(racks[i], i);
+        }
+        this.knownBookies = knownBookies;
+        this.cumulativeKnownBookieWeights = cumulativeKnownBookieWeights;
+    }
+
+    /**
+     * Build a snapshot of the topology.
+     *
+     * @param topologyVersion version of the topology the leaves are read from
+     * @param knownBookiesVersion version of the known bookies and their weights
+     * @param numOfRacks number of racks of the topology
+     * @param topologyLeaves leaves of the topology
+     * @param knownBookies known bookies
+     * @param bookieInfoMap weights and loads of the bookies, null if the placement isn't weighted
+     * @param diskWeighted whether the bookies are weighted by their free disk space
+     * @param maxWeightMultiple maximum multiple of the median weight of the weight of a bookie
+     * @param loadAware whether the bookies are weighted by their load
+     * @param maxLoadMultiple maximum multiple of the median load a bookie is penalized for
+     * @return the snapshot
+     */
+    static TopologySnapshot build(long topologyVersion, long knownBookiesVersion, int numOfRacks,
+                                  Collection<Node> topologyLeaves, Collection<BookieNode> knownBookies,
+                                  Map<BookieNode, WeightedObject> bookieInfoMap,
+                                  boolean diskWeighted, int maxWeightMultiple,
+                                  boolean loadAware, int maxLoadMultiple) {
+        List<BookieNode> sortedLeaves = new ArrayList<>(topologyLeaves.size());
+        for (Node n : topologyLeaves) {
+            if (n instanceof BookieNode) {
+                sortedLeaves.add((BookieNode) n);
+            }
+        }
+        sortedLeaves.sort((n1, n2) -> n1.getNetworkLocation().compareTo(n2.getNetworkLocation()));
+        BookieNode[] leaves = sortedLeaves.toArray(new BookieNode[0]);
+
+        List<String> racks = new ArrayList<>();
+        int[] rackStarts = new int[leaves.length + 1];
+        for (int i = 0; i < leaves.length; i++) {
+            String rack = leaves[i].getNetworkLocation();
+            if (racks.isEmpty() || !racks.get(racks.size() - 1).equals(rack)) {
+                rackStarts[racks.size()] = i;
+                racks.add(rack);
+            }
+        }
+        rackStarts[racks.size()] = leaves.length;
+
+        BookieNode[] known = knownBookies.toArray(new BookieNode[0]);
+        double[] cumulativeLeafWeights = null;
+        double[] cumulativeKnownBookieWeights = null;
+        if (bookieInfoMap != null && (diskWeighted || loadAware)) {
+            cumulativeLeafWeights = cumulativeWeights(leaves, bookieInfoMap,
+                    diskWeighted, maxWeightMultiple, loadAware, maxLoadMultiple);
+            cumulativeKnownBookieWeights = cumulativeWeights(known, bookieInfoMap,
+                    diskWeighted, maxWeightMultiple, loadAware, maxLoadMultiple);
+        }
+        return new TopologySnapshot(topologyVersion, knownBookiesVersion, numOfRacks,
+                leaves, cumulativeLeafWeights,
+                racks.toArray(new String[0]), Arrays.copyOf(rackStarts, racks.size() + 1),
+                known, cumulativeKnownBookieWeights);
+    }
+
+    private static double[] cumulativeWeights(BookieNode[] bookies, Map<BookieNode, WeightedObject> bookieInfoMap,
+                                              boolean diskWeighted, int maxWeightMultiple,
+                                              boolean loadAware, int maxLoadMultiple) {
+        double[] weights;
+        if (diskWeighted) {
+            weights = diskWeights(bookies, bookieInfoMap, maxWeightMultiple);
+        } else {
+            weights = new double[bookies.length];
+            Arrays.fill(weights, 1.0);
+        }
+        if (loadAware) {
+            applyLoadFactors(bookies, bookieInfoMap, maxLoadMultiple, weights);
+        }
+        double[] cumulativeWeights = new double[bookies.length + 1];
+        for (int i = 0; i < bookies.length; i++) {
+            cumulativeWeights[i + 1] = cumulativeWeights[i] + weights[i];
+        }
+        return cumulativeWeights;
+    }
+
+    /**
+     * Compute the weights of the bookies as {@link WeightedRandomSelectionImpl#updateMap(Map)} does: the
+     * bookies without weight get the minimum weight, and the weights are capped to a multiple of the median.
+     */
+    private static double[] diskWeights(BookieNode[] bookies, Map<BookieNode, WeightedObject> bookieInfoMap,
+                                        int maxWeightMultiple) {
+        long[] weights = new long[bookies.length];
+        long totalWeight = 0L;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < bookies.length; i++) {
+            WeightedObject weight = bookieInfoMap.get(bookies[i]);
+            weights[i] = weight == null ? new BookieInfo().getWeight() : weight.getWeight();
+            totalWeight += weights[i];
+            if (weights[i] != 0 && min > weights[i]) {
+                min = weights[i];
+            }
+        }
+        double median;
+        if (totalWeight == 0) {
+            // all the weights are zeros, every bookie gets the same weight
+            min = 1L;
+            median = 1;
+            totalWeight = bookies.length;
+        } else {
+            long[] sortedWeights = weights.clone();
+            Arrays.sort(sortedWeights);
+            int mid = sortedWeights.length / 2;
+            if ((sortedWeights.length % 2) == 1) {
+                median = sortedWeights[mid];
+            } else {
+                median = (double) (sortedWeights[mid - 1] + sortedWeights[mid]) / 2;
+            }
+        }
+        double minWeight = (double) min / totalWeight;
+        double maxWeight = maxWeightMultiple * (median / totalWeight);
+
+        double[] diskWeights = new double[bookies.length];
+        for (int i = 0; i < bookies.length; i++) {
+            double weight = weights[i] > 0 ? (double) weights[i] / totalWeight : minWeight;
+            if (maxWeight > 0 && weight > maxWeight) {
+                weight = maxWeight;
+            }
+            diskWeights[i] = weight;
+        }
+        return diskWeights;
+    }
+
+    // offsets added to the load signals before comparing them, so that the small differences between idle
+    // bookies don't matter
+    private static final double JOURNAL_QUEUE_SIZE_OFFSET = 100;
+    private static final double ADD_ENTRY_LATENCY_MICROS_OFFSET = 1000;
+    private static final double BYTES_PER_SECOND_OFFSET = 1024 * 1024;
+    private static final double READ_CACHE_MISS_RATE_OFFSET = 0.1;
+
+    /**
+     * Divide the weights of the bookies by how much more loaded than the median they are, capped to
+     * {@code maxLoadMultiple}. The bookies which didn't report their load keep their weight.
+     */
+    private static void applyLoadFactors(BookieNode[] bookies, Map<BookieNode, WeightedObject> bookieInfoMap,
+                                         int maxLoadMultiple, double[] weights) {
+        BookieLoad[] loads = new BookieLoad[bookies.length];
+        for (int i = 0; i < bookies.length; i++) {
+            WeightedObject info = bookieInfoMap.get(bookies[i]);
+            if (info instanceof BookieInfo) {
+                loads[i] = ((BookieInfo) info).getLoad();
+            }
+        }
+        double[] hotness = hotness(loads);
+        for (int i = 0; i < bookies.length; i++) {
+            weights[i] /= Math.min(hotness[i], Math.max(maxLoadMultiple, 1));
+        }
+    }
+
+    /**
+     * Compute how much more loaded than the median bookie each bookie is, on its worst load signal.
+     *
+     * @param loads loads of the bookies, null for the bookies which didn't report their load
+     * @return the ratios of the loads of the bookies to the median load, at least 1
+     */
+    static double[] hotness(BookieLoad[] loads) {
+        int numLoads = 0;
+        int numReadCacheHitRates = 0;
+        for (BookieLoad load : loads) {
+            if (load != null) {
+                numLoads++;
+                if (load.getReadCacheHitRate() >= 0) {
+                    numReadCacheHitRates++;
+                }
+            }
+        }
+        double[] hotness = new double[loads.length];
+        Arrays.fill(hotness, 1.0);
+        if (numLoads == 0) {
+            return hotness;
+        }
+        double[] journalQueueSizes = new double[numLoads];
+        double[] addEntryLatencies = new double[numLoads];
+        double[] throughputs = new double[numLoads];
+        double[] readCacheMissRates = new double[numReadCacheHitRates];
+        for (int i = 0, j = 0, k = 0; i < loads.length; i++) {
+            BookieLoad load = loads[i];
+            if (load == null) {
+                continue;
+            }
+            journalQueueSizes[j] = load.getJournalQueueSize();
+            addEntryLatencies[j] = load.getAddEntryLatencyMicros();
+            throughputs[j] = load.getAddBytesPerSecond() + load.getReadBytesPerSecond();
+            j++;
+            if (load.getReadCacheHitRate() >= 0) {
+                readCacheMissRates[k++] = 1 - load.getReadCacheHitRate();
+            }
+        }
+        double medianJournalQueueSize = median(journalQueueSizes);
+        double medianAddEntryLatency = median(addEntryLatencies);
+        double medianThroughput = median(throughputs);
+        double medianReadCacheMissRate = numReadCacheHitRates == 0 ? 0 : median(readCacheMissRates);
+
+        for (int i = 0; i < loads.length; i++) {
+            BookieLoad load = loads[i];
+            if (load == null) {
+                continue;
+            }
+            double h = hotness[i];
+            h = Math.max(h, ratio(load.getJournalQueueSize(), medianJournalQueueSize,
+                    JOURNAL_QUEUE_SIZE_OFFSET));
+            h = Math.max(h, ratio(load.getAddEntryLatencyMicros(), medianAddEntryLatency,
+                    ADD_ENTRY_LATENCY_MICROS_OFFSET));
+            h = Math.max(h, ratio(load.getAddBytesPerSecond() + load.getReadBytesPerSecond(),
+                    medianThroughput, BYTES_PER_SECOND_OFFSET));
+            if (load.getReadCacheHitRate() >= 0) {
+                h = Math.max(h, ratio(1 - load.getReadCacheHitRate(), medianReadCacheMissRate,
+                        READ_CACHE_MISS_RATE_OFFSET));
+            }
+            hotness[i] = h;
+        }
+        return hotness;
+    }
+
+    private static double ratio(double value, double median, double offset) {
+        return (value + offset) / (median + offset);
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int mid = sorted.length / 2;
+        if ((sorted.length % 2) == 1) {
+            return sorted[mid];
+        } else {
+            return (sorted[mid - 1] + sorted[mid]) / 2;
+        }
+    }
+
+    int getNumOfRacks() {
+        return numOfRacks;
+    }
+
+    /**
+     * Get the bookies under a network path.
+     *
+     * @param netPath network path, or the network paths to exclude separated by
+     *                {@link NetworkTopologyImpl#NODE_SEPARATOR} after {@link NetworkTopologyImpl#INVERSE}
+     * @return the bookies under the network path
+     */
+    List<BookieNode> getLeaves(String netPath) {
+        int[] ranges = getRanges(netPath);
+        List<BookieNode> bookies = new ArrayList<>();
+        for (int i = 0; i < ranges.length; i += 2) {
+            bookies.addAll(Arrays.asList(leaves).subList(ranges[i], ranges[i + 1]));
+        }
+        return bookies;
+    }
+
+    /**
+     * Get the candidates to select a bookie under a network path.
+     *
+     * @param netPath network path, or the network paths to exclude separated by
+     *                {@link NetworkTopologyImpl#NODE_SEPARATOR} after {@link NetworkTopologyImpl#INVERSE}
+     * @return the candidates
+     */
+    Candidates candidates(String netPath) {
+        return new Candidates(leaves, cumulativeLeafWeights, getRanges(netPath));
+    }
+
+    /**
+     * Get the candidates to select a bookie from the known bookies.
+     *
+     * @return the candidates
+     */
+    Candidates knownBookieCandidates() {
+        return new Candidates(knownBookies, cumulativeKnownBookieWeights, new int[] { 0, knownBookies.length });
+    }
+
+    /**
+     * Get the ranges of the leaves under a network path, as the start and the end of each range.
+     */
+    private int[] getRanges(String netPath) {
+        if (netPath.startsWith(NetworkTopologyImpl.INVERSE)) {
+            String[] excludedScopes = netPath.substring(1).split(NetworkTopologyImpl.NODE_SEPARATOR);
+            for (int i = 0; i < excludedScopes.length; i++) {
+                excludedScopes[i] = NodeBase.normalize(excludedScopes[i]);
+            }
+            int[] ranges = new int[racks.length * 2];
+            int numRanges = 0;
+            for (int i = 0; i < racks.length; i++) {
+                boolean excluded = false;
+                for (String scope : excludedScopes) {
+                    if (isUnderScope(racks[i], scope)) {
+                        excluded = true;
+                        break;
+                    }
+                }
+                if (!excluded) {
+                    numRanges = addRange(ranges, numRanges, i);
+                }
+            }
+            return Arrays.copyOf(ranges, numRanges * 2);
+        }
+        netPath = NodeBase.normalize(netPath);
+        Integer rackIndex = rackIndexes.get(netPath);
+        if (rackIndex != null) {
+            return new int[] { rackStarts[rackIndex], rackStarts[rackIndex + 1] };
+        }
+        // a path above the racks, e.g. the root or a region
+        int[] ranges = new int[racks.length * 2];
+        int numRanges = 0;
+        for (int i = 0; i < racks.length; i++) {
+            if (isUnderScope(racks[i], netPath)) {
+                numRanges = addRange(ranges, numRanges, i);
+            }
+        }
+        return Arrays.copyOf(ranges, numRanges * 2);
+    }
+
+    private int addRange(int[] ranges, int numRanges, int rackIndex) {
+        // the ranges of consecutive racks are merged
+        if (numRanges > 0 && ranges[numRanges * 2 - 1] == rackStarts[rackIndex]) {
+            ranges[numRanges * 2 - 1] = rackStarts[rackIndex + 1];
+            return numRanges;
+        }
+        ranges[numRanges * 2] = rackStarts[rackIndex];
+        ranges[numRanges * 2 + 1] = rackStarts[rackIndex + 1];
+        return numRanges + 1;
+    }
+
+    private static boolean isUnderScope(String rack, String scope) {
+        return scope.isEmpty() || rack.equals(scope)
+                || (rack.startsWith(scope) && rack.charAt(scope.length()) == NodeBase.PATH_SEPARATOR);
+    }
+
+    /**
+     * Candidates to select a bookie, returned in a random order.
+     *
+     * <p>Without weights, every candidate is returned once, in a uniformly random order. With weights, the
+     * candidates are drawn by weight with replacement, until all of them have been drawn, as
+     * {@link WeightedRandomSelection#getNextRandom()} is used by the placement policy.
+     *
+     * <p>The first candidate is drawn without copying anything, as it is usually a good one.
+     */
+    static final class Candidates {
+
+        private final BookieNode[] nodes;
+        private final double[] cumulativeWeights;
+        private final int[] ranges;
+        private final int size;
+
+        private int numReturned = 0;
+        private BookieNode first = null;
+        // candidates not returned yet, copied after the first one is returned without weights
+        private BookieNode[] remaining = null;
+        private int numRemaining = 0;
+        // candidates drawn so far with weights
+        private Set<BookieNode> drawn = null;
+
+        private Candidates(BookieNode[] nodes, double[] cumulativeWeights, int[] ranges) {
+            this.nodes = nodes;
+            this.cumulativeWeights = cumulativeWeights;
+            this.ranges = ranges;
+            int size = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                size += ranges[i + 1] - ranges[i];
+            }
+            this.size = size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Check whether enough candidates aren't excluded.
+         */
+        boolean hasAvailable(Set<? extends Node> excludeBookies, int numBookies) {
+            if (size - excludeBookies.size() >= numBookies) {
+                // no need to look for the excluded candidates
+                return true;
+            }
+            int available = 0;
+            for (int i = 0; i < ranges.length && available < numBookies; i += 2) {
+                for (int j = ranges[i]; j < ranges[i + 1]; j++) {
+                    if (!excludeBookies.contains(nodes[j])) {
+                        available++;
+                    }
+                }
+            }
+            return available >= numBookies;
+        }
+
+        /**
+         * Get the next candidate.
+         *
+         * @return the next candidate, or null if all the candidates were returned
+         */
+        BookieNode next() {
+            if (cumulativeWeights == null) {
+                return nextUniform();
+            } else {
+                return nextWeighted();
+            }
+        }
+
+        private BookieNode nextUniform() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (numReturned == 0) {
+                if (size == 0) {
+                    return null;
+                }
+                numReturned++;
+                first = get(random.nextInt(size));
+                return first;
+            }
+            if (remaining == null) {
+                remaining = new BookieNode[size];
+                for (int i = 0; i < ranges.length; i += 2) {
+                    System.arraycopy(nodes, ranges[i], remaining, numRemaining, ranges[i + 1] - ranges[i]);
+                    numRemaining += ranges[i + 1] - ranges[i];
+                }
+                for (int i = 0; i < numRemaining; i++) {
+                    if (remaining[i] == first) {
+                        remaining[i] = remaining[--numRemaining];
+                        break;
+                    }
+                }
+            }
+            if (numRemaining == 0) {
+                return null;
+            }
+            int i = random.nextInt(numRemaining);
+            BookieNode node = remaining[i];
+            remaining[i] = remaining[--numRemaining];
+            remaining[numRemaining] = null;
+            numReturned++;
+            return node;
+        }
+
+        private BookieNode nextWeighted() {
+            if (numReturned == 0) {
+                if (size == 0) {
+                    return null;
+                }
+                numReturned++;
+                first = draw();
+                return first;
+            }
+            if (drawn == null) {
+                drawn = new HashSet<>();
+                drawn.add(first);
+            }
+            if (drawn.size() == size) {
+                // Don't loop infinitely.
+                return null;
+            }
+            BookieNode node = draw();
+            drawn.add(node);
+            numReturned++;
+            return node;
+        }
+
+        private BookieNode get(int position) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                int rangeSize = ranges[i + 1] - ranges[i];
+                if (position < rangeSize) {
+                    return nodes[ranges[i] + position];
+                }
+                position -= rangeSize;
+            }
+            throw new IndexOutOfBoundsException("No candidate at position " + position);
+        }
+
+        private BookieNode draw() {
+            double totalWeight = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                totalWeight += cumulativeWeights[ranges[i + 1]] - cumulativeWeights[ranges[i]];
+            }
+            double r = totalWeight * ThreadLocalRandom.current().nextDouble();
+            for (int i = 0; i < ranges.length; i += 2) {
+                int start = ranges[i];
+                int end = ranges[i + 1];
+                double rangeWeight = cumulativeWeights[end] - cumulativeWeights[start];
+                if (r < rangeWeight || i == ranges.length - 2) {
+                    // the last leaf whose cumulative weight is not above the drawn value
+                    int pos = Arrays.binarySearch(cumulativeWeights, start, end + 1, cumulativeWeights[start] + r);
+                    int index = pos >= 0 ? pos : -pos - 2;
+                    return nodes[Math.max(start, Math.min(end - 1, index))];
+                }
+                r -= rangeWeight;
+            }
+            throw new IllegalStateException("No candidate to draw");
+        }
+    }
+}
@@ -80,6 +80,17 @@ public class ZoneawareEnsemblePlacementPolicy extends ZoneawareEnsemblePlacement
         return deadBookies;
     }
 
+    @Override
+    public Set<BookieId> onClusterChanged(Set<BookieId> writableBookies,
+            Set<BookieId> readOnlyBookies, Set<BookieId> joinedBookies, Set<BookieId> leftBookies) {
+        Set<BookieId> deadBookies =
+                super.onClusterChanged(writableBookies, readOnlyBookies, joinedBookies, leftBookies);
+        if (null != slave) {
+            deadBookies = slave.onClusterChanged(writableBookies, readOnlyBookies, joinedBookies, leftBookies);
+        }
+        return deadBookies;
+    }
+
     @Override
     public PlacementResult<List<BookieId>> newEnsemble(int ensembleSize, int writeQuorumSize,
             int ackQuorumSize, Map<String, byte[]> customMetadata, Set<BookieId> excludeBookies)
@@ -114,6 +114,16 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         help = "the distribution of entries read in ledger recovery requests"
     )
     private final OpStatsLogger recoverReadEntriesStats;
+    @StatsDoc(
+        name = LEDGER_RECOVER_ADD_BYTES,
+        help = "the distribution of bytes written in ledger recovery requests"
+    )
+    private final OpStatsLogger recoverAddBytesStats;
+    @StatsDoc(
+        name = LEDGER_RECOVER_ENTRY_RATE,
+        help = "the distribution of entries recovered per second in ledger recovery requests"
+    )
+    private final OpStatsLogger recoverEntryRateStats;
 
     @StatsDoc(
         name = ENSEMBLE_CHANGES,
@@ -177,6 +187,8 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         this.readLacOpLogger = stats.getOpStatsLogger(READ_LAC_OP);
         this.recoverAddEntriesStats = stats.getOpStatsLogger(LEDGER_RECOVER_ADD_ENTRIES);
         this.recoverReadEntriesStats = stats.getOpStatsLogger(LEDGER_RECOVER_READ_ENTRIES);
+        this.recoverAddBytesStats = stats.getOpStatsLogger(LEDGER_RECOVER_ADD_BYTES);
+        this.recoverEntryRateStats = stats.getOpStatsLogger(LEDGER_RECOVER_ENTRY_RATE);
 
         this.ensembleChangeCounter = stats.getCounter(ENSEMBLE_CHANGES);
         this.lacUpdateHitsCounter = stats.getCounter(LAC_UPDATE_HITS);
@@ -245,6 +257,14 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         return recoverReadEntriesStats;
     }
     @Override
+    public OpStatsLogger getRecoverAddBytesLogger() {
+        return recoverAddBytesStats;
+    }
+    @Override
+    public OpStatsLogger getRecoverEntryRateLogger() {
+        return recoverEntryRateStats;
+    }
+    @Override
     public Counter getReadOpDmCounter() {
         return readOpDmCounter;
     }
@@ -79,6 +79,7 @@ public abstract class AbstractConfiguration<T extends AbstractConfiguration>
     protected static final String LEDGER_MANAGER_TYPE = "ledgerManagerType";
     protected static final String LEDGER_MANAGER_FACTORY_CLASS = "ledgerManagerFactoryClass";
     protected static final String LEDGER_METADATA_FORMAT_VERSION = "ledgerMetadataVersion";
+    protected static final String LEDGER_ID_BLOCK_SIZE = "ledgerIdBlockSize";
     protected static final String ALLOW_SHADED_LEDGER_MANAGER_FACTORY_CLASS = "allowShadedLedgerManagerFactoryClass";
     protected static final String SHADED_LEDGER_MANAGER_FACTORY_CLASS_PREFIX = "shadedLedgerManagerFactoryClassPrefix";
     protected static final String METADATA_SERVICE_URI = "metadataServiceUri";
@@ -188,6 +189,12 @@ public abstract class AbstractConfiguration<T extends AbstractConfiguration>
     public static final String LIMIT_STATS_LOGGING = "limitStatsLogging";
 
     protected static final String REPLICATION_RATE_BY_BYTES = "replicationRateByBytes";
+    protected static final String REPLICATION_MAX_BYTES_IN_FLIGHT = "replicationMaxBytesInFlight";
+    protected static final String REPLICATION_READ_RANGE_SIZE = "replicationReadRangeSize";
+    protected static final String REPLICATION_TARGET_WRITE_LATENCY_MS = "replicationTargetWriteLatencyMs";
+    protected static final String REPLICATION_MAX_TOTAL_BYTES_IN_FLIGHT = "replicationMaxTotalBytesInFlight";
+    protected static final String REPLICATION_MAX_CONCURRENT_FRAGMENTS_PER_BOOKIE =
+            "replicationMaxConcurrentFragmentsPerBookie";
 
     protected AbstractConfiguration() {
         super();
@@ -483,6 +490,33 @@ public abstract class AbstractConfiguration<T extends AbstractConfiguration>
         return getInt(LEDGER_METADATA_FORMAT_VERSION, -1);
     }
 
+    /**
+     * Get the number of ledger ids reserved at once from the metadata store by a ledger id generator.
+     * The ids of a block are then handed out locally, without any metadata store access. A value of
+     * 0 or less keeps the regular ledger id generator of the ledger manager. Default value is 0.
+     *
+     * <p>With ZooKeeper, the clients keeping the regular generator can be handed an id of a block, and
+     * one of the two ledger creations is then retried with a new ledger id. Set this on all the clients,
+     * to 1 to still reserve a single id at a time, to avoid such retries.
+     *
+     * @return the number of ledger ids reserved at once.
+     */
+    public int getLedgerIdBlockSize() {
+        return getInt(LEDGER_ID_BLOCK_SIZE, 0);
+    }
+
+    /**
+     * Set the number of ledger ids reserved at once from the metadata store by a ledger id generator.
+     *
+     * @param blockSize number of ledger ids reserved at once, 0 or less to keep the regular ledger id
+     *                  generator of the ledger manager.
+     * @return the configuration object.
+     */
+    public T setLedgerIdBlockSize(int blockSize) {
+        setProperty(LEDGER_ID_BLOCK_SIZE, blockSize);
+        return getThis();
+    }
+
     /**
      * Get layout string ("null" if unconfigured).
      *
@@ -1236,6 +1270,126 @@ public abstract class AbstractConfiguration<T extends AbstractConfiguration>
         return getThis();
     }
 
+    /**
+     * Get the maximum number of bytes read but not yet written by a streaming fragment replication.
+     * Default value is 0, which disables streaming replication: fragments are then replicated
+     * in batches of {@link #getRereplicationEntryBatchSize()} entries, one entry read at a time.
+     *
+     * @return the maximum number of bytes in flight per replicated fragment.
+     */
+    public long getReplicationMaxBytesInFlight() {
+        return getLong(REPLICATION_MAX_BYTES_IN_FLIGHT, 0L);
+    }
+
+    /**
+     * Set the maximum number of bytes read but not yet written by a streaming fragment replication.
+     *
+     * @param maxBytesInFlight maximum number of bytes in flight per replicated fragment, 0 to disable
+     *                         streaming replication.
+     *
+     * @return ClientConfiguration
+     */
+    public T setReplicationMaxBytesInFlight(long maxBytesInFlight) {
+        this.setProperty(REPLICATION_MAX_BYTES_IN_FLIGHT, maxBytesInFlight);
+        return getThis();
+    }
+
+    /**
+     * Get the number of contiguous entries read in a single request by a streaming fragment replication.
+     *
+     * @return the number of entries per read request.
+     */
+    public int getReplicationReadRangeSize() {
+        return getInt(REPLICATION_READ_RANGE_SIZE, 16);
+    }
+
+    /**
+     * Set the number of contiguous entries read in a single request by a streaming fragment replication.
+     *
+     * @param rangeSize number of entries per read request.
+     *
+     * @return ClientConfiguration
+     */
+    public T setReplicationReadRangeSize(int rangeSize) {
+        this.setProperty(REPLICATION_READ_RANGE_SIZE, rangeSize);
+        return getThis();
+    }
+
+    /**
+     * Get the target latency of writes to the new bookies in a streaming fragment replication.
+     * When writes are slower, the bytes in flight window is halved, and it grows back up to
+     * {@link #getReplicationMaxBytesInFlight()} while they are faster.
+     * Default value is 0, which means the window is not adapted.
+     *
+     * @return the target write latency in milliseconds.
+     */
+    public long getReplicationTargetWriteLatencyMs() {
+        return getLong(REPLICATION_TARGET_WRITE_LATENCY_MS, 0L);
+    }
+
+    /**
+     * Set the target latency of writes to the new bookies in a streaming fragment replication.
+     *
+     * @param latencyMs target write latency in milliseconds, 0 to disable adaptation.
+     *
+     * @return ClientConfiguration
+     */
+    public T setReplicationTargetWriteLatencyMs(long latencyMs) {
+        this.setProperty(REPLICATION_TARGET_WRITE_LATENCY_MS, latencyMs);
+        return getThis();
+    }
+
+    /**
+     * Get the maximum number of bytes read but not yet written by all the streaming fragment replications
+     * of a replicator, e.g. when several ledgers are replicated concurrently. A replication always keeps
+     * at least one range of entries in flight, so the budget may be exceeded by one range.
+     * Default value is 0, which means the bytes in flight are only bounded per fragment, by
+     * {@link #getReplicationMaxBytesInFlight()}.
+     *
+     * @return the maximum number of bytes in flight of all the replicated fragments.
+     */
+    public long getReplicationMaxTotalBytesInFlight() {
+        return getLong(REPLICATION_MAX_TOTAL_BYTES_IN_FLIGHT, 0L);
+    }
+
+    /**
+     * Set the maximum number of bytes read but not yet written by all the streaming fragment replications
+     * of a replicator.
+     *
+     * @param maxTotalBytesInFlight maximum number of bytes in flight of all the replicated fragments,
+     *                              0 for no limit.
+     *
+     * @return ClientConfiguration
+     */
+    public T setReplicationMaxTotalBytesInFlight(long maxTotalBytesInFlight) {
+        this.setProperty(REPLICATION_MAX_TOTAL_BYTES_IN_FLIGHT, maxTotalBytesInFlight);
+        return getThis();
+    }
+
+    /**
+     * Get the maximum number of fragments replicated concurrently to the same bookie, so a bookie
+     * isn't overloaded when many ledgers are replicated concurrently and pick it as replacement.
+     * Default value is 0, which means no limit.
+     *
+     * @return the maximum number of fragments replicated concurrently to a bookie.
+     */
+    public int getReplicationMaxConcurrentFragmentsPerBookie() {
+        return getInt(REPLICATION_MAX_CONCURRENT_FRAGMENTS_PER_BOOKIE, 0);
+    }
+
+    /**
+     * Set the maximum number of fragments replicated concurrently to the same bookie.
+     *
+     * @param maxConcurrentFragments maximum number of fragments replicated concurrently to a bookie,
+     *                               0 for no limit.
+     *
+     * @return ClientConfiguration
+     */
+    public T setReplicationMaxConcurrentFragmentsPerBookie(int maxConcurrentFragments) {
+        this.setProperty(REPLICATION_MAX_CONCURRENT_FRAGMENTS_PER_BOOKIE, maxConcurrentFragments);
+        return getThis();
+    }
+
     /**
      * Trickery to allow inheritance with fluent style.
      */
@@ -98,6 +98,7 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String CLIENT_TCP_USER_TIMEOUT_MILLIS = "clientTcpUserTimeoutMillis";
     protected static final String NUM_CHANNELS_PER_BOOKIE = "numChannelsPerBookie";
     protected static final String USE_V2_WIRE_PROTOCOL = "useV2WireProtocol";
+    protected static final String REPLICATION_CLIENT = "replicationClient";
     protected static final String NETTY_USE_POOLED_BUFFERS = "nettyUsePooledBuffers";
 
     // Read Parameters
@@ -113,8 +114,12 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         "speculativeReadLACTimeoutBackoffMultiplier";
     protected static final String ENABLE_PARALLEL_RECOVERY_READ = "enableParallelRecoveryRead";
     protected static final String RECOVERY_READ_BATCH_SIZE = "recoveryReadBatchSize";
+    protected static final String RECOVERY_READ_AHEAD_BATCHES = "recoveryReadAheadBatches";
     protected static final String REORDER_READ_SEQUENCE_ENABLED = "reorderReadSequenceEnabled";
     protected static final String STICKY_READS_ENABLED = "stickyReadSEnabled";
+    protected static final String CLIENT_ENTRY_CACHE_MAX_SIZE_BYTES = "clientEntryCacheMaxSizeBytes";
+    protected static final String LEDGER_METADATA_CACHE_MAX_SIZE = "ledgerMetadataCacheMaxSize";
+    protected static final String LEDGER_METADATA_CACHE_WATCH_CLOSED_LEDGERS = "ledgerMetadataCacheWatchClosedLedgers";
     // Add Parameters
     protected static final String OPPORTUNISTIC_STRIPING = "opportunisticStriping";
     protected static final String DELAY_ENSEMBLE_CHANGE = "delayEnsembleChange";
@@ -147,6 +152,10 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String BOOKIE_MAX_MULTIPLE_FOR_WEIGHTED_PLACEMENT =
         "bookieMaxMultipleForWeightBasedPlacement";
     protected static final String GET_BOOKIE_INFO_TIMEOUT_SECS = "getBookieInfoTimeoutSecs";
+    protected static final String LOAD_AWARE_PLACEMENT_ENABLED = "loadAwarePlacementEnabled";
+    protected static final String LOAD_AWARE_PLACEMENT_INTERVAL_SECONDS = "loadAwarePlacementIntervalSeconds";
+    protected static final String BOOKIE_MAX_MULTIPLE_FOR_LOAD_AWARE_PLACEMENT =
+        "bookieMaxMultipleForLoadAwarePlacement";
     protected static final String START_TLS_TIMEOUT_SECS = "startTLSTimeoutSecs";
     protected static final String TLS_HOSTNAME_VERIFICATION_ENABLED = "tlsHostnameVerificationEnabled";
 
@@ -595,6 +604,29 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Whether this client is used by the autorecovery to check and re-replicate the ledgers. The reads of
+     * such a client, except the fencing and long poll reads, are tagged so that the bookies serve them apart
+     * from the reads of the applications, without caching the entries read.
+     *
+     * @return true if this client is used by the autorecovery. By default it is false.
+     */
+    public boolean isReplicationClient() {
+        return getBoolean(REPLICATION_CLIENT, false);
+    }
+
+    /**
+     * Set whether this client is used by the autorecovery to check and re-replicate the ledgers.
+     *
+     * @param replicationClient
+     *          whether this client is used by the autorecovery
+     * @return client configuration.
+     */
+    public ClientConfiguration setReplicationClient(boolean replicationClient) {
+        setProperty(REPLICATION_CLIENT, replicationClient);
+        return this;
+    }
+
     /**
      * Get the socket read timeout. This is the number of
      * seconds we wait without hearing a response from a bookie
@@ -1139,6 +1171,31 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the number of recovery read batches kept in flight during ledger recovery.
+     *
+     * <p>With more than one batch in flight, the next batches are read while the entries of the
+     * previous ones are being written back, which speeds up the recovery of ledgers with a long
+     * unconfirmed tail.
+     *
+     * @return the number of recovery read batches in flight.
+     */
+    public int getRecoveryReadAheadBatches() {
+        return getInt(RECOVERY_READ_AHEAD_BATCHES, 1);
+    }
+
+    /**
+     * Set the number of recovery read batches kept in flight during ledger recovery.
+     *
+     * @param numBatches
+     *          number of recovery read batches in flight.
+     * @return client configuration.
+     */
+    public ClientConfiguration setRecoveryReadAheadBatches(int numBatches) {
+        setProperty(RECOVERY_READ_AHEAD_BATCHES, numBatches);
+        return this;
+    }
+
     /**
      * If reorder read sequence enabled or not.
      *
@@ -1197,6 +1254,80 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the maximum size, in bytes, of the client side entry cache.
+     *
+     * @return the max size of the client entry cache, 0 if the cache is disabled.
+     */
+    public long getClientEntryCacheMaxSizeBytes() {
+        return getLong(CLIENT_ENTRY_CACHE_MAX_SIZE_BYTES, 0L);
+    }
+
+    /**
+     * Set the maximum size, in bytes, of the client side entry cache.
+     *
+     * <p>When enabled, the entries read from bookies are kept in an off-heap cache shared by all
+     * the ledger handles of the client, so that many readers of the same ledger in one JVM only
+     * read each entry once from the bookies. Only entries up to the last add confirmed are cached.
+     *
+     * @param maxSizeBytes the max size of the client entry cache, 0 to disable it.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setClientEntryCacheMaxSizeBytes(long maxSizeBytes) {
+        setProperty(CLIENT_ENTRY_CACHE_MAX_SIZE_BYTES, maxSizeBytes);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of ledgers whose metadata is cached by the client.
+     *
+     * @return the max number of cached ledger metadata, 0 if the cache is disabled.
+     */
+    public int getLedgerMetadataCacheMaxSize() {
+        return getInt(LEDGER_METADATA_CACHE_MAX_SIZE, 0);
+    }
+
+    /**
+     * Set the maximum number of ledgers whose metadata is cached by the client.
+     *
+     * <p>When enabled, opening a ledger serves its metadata from memory if it was read before. The cached
+     * metadata of ledgers which are not closed is kept up to date by watching the ledger on the metadata
+     * store, and is only used by opens without recovery. See
+     * {@link #setLedgerMetadataCacheWatchClosedLedgers(boolean)} for the closed ledgers.
+     *
+     * @param maxSize the max number of cached ledger metadata, 0 to disable the cache.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setLedgerMetadataCacheMaxSize(int maxSize) {
+        setProperty(LEDGER_METADATA_CACHE_MAX_SIZE, maxSize);
+        return this;
+    }
+
+    /**
+     * Whether the ledger metadata cache watches the closed ledgers it caches.
+     *
+     * @return true if the cached closed ledgers are watched on the metadata store.
+     */
+    public boolean getLedgerMetadataCacheWatchClosedLedgers() {
+        return getBoolean(LEDGER_METADATA_CACHE_WATCH_CLOSED_LEDGERS, false);
+    }
+
+    /**
+     * Set whether the ledger metadata cache watches the closed ledgers it caches.
+     *
+     * <p>By default, the metadata of a closed ledger is read once and cached without a watch, which
+     * costs a metadata store read and a watch for every cached ledger otherwise. The cached metadata
+     * then misses the ensemble changes done by re-replication and the deletions done by other clients
+     * until it is evicted. It is still updated while a ledger handle opened without recovery is open.
+     *
+     * @param watch whether to watch the cached closed ledgers.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setLedgerMetadataCacheWatchClosedLedgers(boolean watch) {
+        setProperty(LEDGER_METADATA_CACHE_WATCH_CLOSED_LEDGERS, watch);
+        return this;
+    }
+
     /**
      * Get Ensemble Placement Policy Class.
      *
@@ -1585,6 +1716,77 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Return whether load aware placement is enabled.
+     *
+     * <p>When enabled, the client polls the load of the bookies (journal queue size, add latency, read cache
+     * hit rate and throughput), and the rack aware placement policy selects the bookies which are more loaded
+     * than the median bookie with a lower probability. It can be combined with disk weight based placement.
+     *
+     * @return true if load aware placement is enabled
+     */
+    public boolean getLoadAwarePlacementEnabled() {
+        return getBoolean(LOAD_AWARE_PLACEMENT_ENABLED, false);
+    }
+
+    /**
+     * Set whether load aware placement is enabled.
+     *
+     * @param enabled whether load aware placement is enabled
+     * @return client configuration
+     */
+    public ClientConfiguration setLoadAwarePlacementEnabled(boolean enabled) {
+        setProperty(LOAD_AWARE_PLACEMENT_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the time interval between successive polls of the load of the bookies, when load aware placement
+     * is enabled. Default is 30 seconds.
+     *
+     * <p>The bookie info, including the free disk space, is then polled at the shortest of this interval and
+     * {@link #getGetBookieInfoIntervalSeconds()}.
+     *
+     * @return the interval between the polls of the load of the bookies, in seconds
+     */
+    public int getLoadAwarePlacementIntervalSeconds() {
+        return getInt(LOAD_AWARE_PLACEMENT_INTERVAL_SECONDS, 30);
+    }
+
+    /**
+     * Set the time interval between successive polls of the load of the bookies.
+     *
+     * @param interval the interval between the polls of the load of the bookies
+     * @param unit the unit of the interval
+     * @return client configuration
+     */
+    public ClientConfiguration setLoadAwarePlacementIntervalSeconds(int interval, TimeUnit unit) {
+        setProperty(LOAD_AWARE_PLACEMENT_INTERVAL_SECONDS, unit.toSeconds(interval));
+        return this;
+    }
+
+    /**
+     * Get the max multiple by which the load of a bookie above the median load reduces its probability
+     * to be selected by the load aware placement. Default is 4.
+     *
+     * @return max multiple
+     */
+    public int getBookieMaxMultipleForLoadAwarePlacement() {
+        return getInt(BOOKIE_MAX_MULTIPLE_FOR_LOAD_AWARE_PLACEMENT, 4);
+    }
+
+    /**
+     * Set the max multiple by which the load of a bookie above the median load reduces its probability
+     * to be selected by the load aware placement.
+     *
+     * @param multiple max multiple
+     * @return client configuration
+     */
+    public ClientConfiguration setBookieMaxMultipleForLoadAwarePlacement(int multiple) {
+        setProperty(BOOKIE_MAX_MULTIPLE_FOR_LOAD_AWARE_PLACEMENT, multiple);
+        return this;
+    }
+
     /**
      * Set the timeout value in secs for the GET_BOOKIE_INFO request.
      *
@@ -24,11 +24,14 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import java.io.File;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.EntryLogCompactionPolicy;
 import org.apache.bookkeeper.bookie.FileChannelProvider;
 import org.apache.bookkeeper.bookie.InterleavedLedgerStorage;
 import org.apache.bookkeeper.bookie.LedgerStorage;
 import org.apache.bookkeeper.bookie.SortedLedgerStorage;
+import org.apache.bookkeeper.bookie.UsageThresholdCompactionPolicy;
 import org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage;
 import org.apache.bookkeeper.common.conf.ConfigDef;
 import org.apache.bookkeeper.common.conf.ConfigException;
@@ -105,6 +108,15 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String COMPACTION_RATE = "compactionRate";
     protected static final String COMPACTION_RATE_BY_ENTRIES = "compactionRateByEntries";
     protected static final String COMPACTION_RATE_BY_BYTES = "compactionRateByBytes";
+    protected static final String COMPACTION_ADAPTIVE_THROTTLE_ENABLED = "compactionAdaptiveThrottleEnabled";
+    protected static final String COMPACTION_ADAPTIVE_RATE_MULTIPLIER = "compactionAdaptiveRateMultiplier";
+    protected static final String COMPACTION_ADAPTIVE_JOURNAL_ADD_LATENCY_THRESHOLD_MS =
+            "compactionAdaptiveJournalAddLatencyThresholdMs";
+    protected static final String COMPACTION_ADAPTIVE_READ_LATENCY_THRESHOLD_MS =
+            "compactionAdaptiveReadLatencyThresholdMs";
+    protected static final String COMPACTION_WORKERS = "compactionWorkers";
+    protected static final String COMPACTION_POLICY_CLASS = "compactionPolicyClass";
+    protected static final String ENTRY_LOG_METADATA_EXTRACTION_THREADS = "entryLogMetadataExtractionThreads";
 
     // Gc Parameters
     protected static final String GC_WAIT_TIME = "gcWaitTime";
@@ -114,6 +126,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
             "gcOverreplicatedLedgerMaxConcurrentRequests";
     protected static final String USE_TRANSACTIONAL_COMPACTION = "useTransactionalCompaction";
     protected static final String VERIFY_METADATA_ON_GC = "verifyMetadataOnGC";
+    protected static final String GC_INCREMENTAL_ENABLED = "gcIncrementalEnabled";
+    protected static final String GC_FULL_SCAN_WAIT_TIME = "gcFullScanWaitTime";
     protected static final String GC_ENTRYLOGMETADATA_CACHE_ENABLED = "gcEntryLogMetadataCacheEnabled";
     protected static final String GC_ENTRYLOG_METADATA_CACHE_PATH = "gcEntryLogMetadataCachePath";
     protected static final String USE_TARGET_ENTRYLOG_SIZE_FOR_GC = "useTargetEntryLogSizeForGc";
@@ -203,6 +217,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     // Replication parameters
     protected static final String AUDITOR_PERIODIC_CHECK_INTERVAL = "auditorPeriodicCheckInterval";
     protected static final String AUDITOR_PERIODIC_BOOKIE_CHECK_INTERVAL = "auditorPeriodicBookieCheckInterval";
+    protected static final String AUDITOR_INCREMENTAL_BOOKIE_LEDGER_INDEX_ENABLED =
+                                                                "auditorIncrementalBookieLedgerIndexEnabled";
     protected static final String AUDITOR_PERIODIC_PLACEMENT_POLICY_CHECK_INTERVAL =
                                                                 "auditorPeriodicPlacementPolicyCheckInterval";
     protected static final String REPAIRED_PLACEMENT_POLICY_NOT_ADHERING_BOOKIE_ENABLED =
@@ -211,14 +227,20 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String AUTO_RECOVERY_DAEMON_ENABLED = "autoRecoveryDaemonEnabled";
     protected static final String LOST_BOOKIE_RECOVERY_DELAY = "lostBookieRecoveryDelay";
     protected static final String RW_REREPLICATE_BACKOFF_MS = "rwRereplicateBackoffMs";
+    protected static final String RW_REREPLICATE_CONCURRENT_LEDGERS = "rwRereplicateConcurrentLedgers";
     protected static final String UNDERREPLICATED_LEDGER_RECOVERY_GRACE_PERIOD =
             "underreplicatedLedgerRecoveryGracePeriod";
     protected static final String AUDITOR_REPLICAS_CHECK_INTERVAL = "auditorReplicasCheckInterval";
+    protected static final String AUDITOR_REPLICAS_CHECK_BATCH_SIZE = "auditorReplicasCheckBatchSize";
+    protected static final String AUDITOR_REPLICAS_CHECK_MAX_CONCURRENT_LEDGERS =
+            "auditorReplicasCheckMaxConcurrentLedgers";
     protected static final String AUDITOR_MAX_NUMBER_OF_CONCURRENT_OPEN_LEDGER_OPERATIONS =
         "auditorMaxNumberOfConcurrentOpenLedgerOperations";
     protected static final String AUDITOR_ACQUIRE_CONCURRENT_OPEN_LEDGER_OPERATIONS_TIMEOUT_MSEC =
         "auditorAcquireConcurrentOpenLedgerOperationsTimeOutMSec";
+    protected static final String AUDITOR_LEDGER_CHECKER_THREADS = "auditorLedgerCheckerThreads";
     protected static final String IN_FLIGHT_READ_ENTRY_NUM_IN_LEDGER_CHECKER = "inFlightReadEntryNumInLedgerChecker";
+    protected static final String LEDGER_CHECKER_ENTRY_AVAILABILITY_ENABLED = "ledgerCheckerEntryAvailabilityEnabled";
 
 
     // Worker Thread parameters.
@@ -228,6 +250,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String MAX_PENDING_ADD_REQUESTS_PER_THREAD = "maxPendingAddRequestsPerThread";
     protected static final String NUM_LONG_POLL_WORKER_THREADS = "numLongPollWorkerThreads";
     protected static final String NUM_HIGH_PRIORITY_WORKER_THREADS = "numHighPriorityWorkerThreads";
+    protected static final String NUM_REPLICATION_READ_WORKER_THREADS = "numReplicationReadWorkerThreads";
+    protected static final String REPLICATION_READ_RATE_BY_BYTES = "replicationReadRateByBytes";
     protected static final String READ_WORKER_THREADS_THROTTLING_ENABLED = "readWorkerThreadsThrottlingEnabled";
 
     // Long poll parameters
@@ -321,6 +345,27 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String ENTRY_LOG_PER_LEDGER_COUNTER_LIMITS_MULT_FACTOR =
             "entryLogPerLedgerCounterLimitsMultFactor";
 
+    /*
+     * in entryLogPerLedger feature, the ledger age boundaries (in seconds) of
+     * the lifetime classes ledgers are grouped into, instead of having an
+     * active entrylog for each ledger.
+     */
+    protected static final String ENTRY_LOG_LIFETIME_CLASS_BOUNDARIES_SECS = "entryLogLifetimeClassBoundariesSecs";
+
+    /*
+     * in entryLogPerLedger feature with lifetime classes, the maximum number
+     * of ledgers whose first write time is tracked to compute their age.
+     */
+    protected static final String ENTRY_LOG_LIFETIME_CLASS_MAX_TRACKED_LEDGERS =
+            "entryLogLifetimeClassMaxTrackedLedgers";
+
+    /*
+     * in entryLogPerLedger feature with lifetime classes, the custom metadata
+     * key of the expected retention (in seconds) of a ledger.
+     */
+    protected static final String ENTRY_LOG_LIFETIME_CLASS_RETENTION_HINT_KEY =
+            "entryLogLifetimeClassRetentionHintKey";
+
     // Perform local consistency check on bookie startup
     protected static final String LOCAL_CONSISTENCY_CHECK_ON_STARTUP = "localConsistencyCheckOnStartup";
 
@@ -509,6 +554,53 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Get whether the garbage collector finds deleted ledgers incrementally, from ledger deletion
+     * notifications of the metadata store, instead of scanning all the ledgers of the metadata store
+     * on every garbage collection.
+     *
+     * @return true if incremental garbage collection is enabled
+     */
+    public boolean isGcIncrementalEnabled() {
+        return this.getBoolean(GC_INCREMENTAL_ENABLED, false);
+    }
+
+    /**
+     * Set whether the garbage collector finds deleted ledgers incrementally, from ledger deletion
+     * notifications of the metadata store.
+     *
+     * @param gcIncrementalEnabled
+     * @return server configuration
+     */
+    public ServerConfiguration setGcIncrementalEnabled(boolean gcIncrementalEnabled) {
+        this.setProperty(GC_INCREMENTAL_ENABLED, gcIncrementalEnabled);
+        return this;
+    }
+
+    /**
+     * Get wait time in millis between two full scans of the ledgers of the metadata store, when
+     * incremental garbage collection is enabled. Default: 1 day
+     *
+     * @return full scan wait time
+     */
+    public long getGcFullScanWaitTimeMillis() {
+        return this.getLong(GC_FULL_SCAN_WAIT_TIME, TimeUnit.DAYS.toMillis(1));
+    }
+
+    /**
+     * Set wait time between two full scans of the ledgers of the metadata store, when incremental
+     * garbage collection is enabled. Full scans catch the deletions whose notifications were lost,
+     * e.g. on a metadata store session expiry.
+     *
+     * @param gcFullScanWaitTime
+     * @param unit
+     * @return server configuration
+     */
+    public ServerConfiguration setGcFullScanWaitTime(long gcFullScanWaitTime, TimeUnit unit) {
+        this.setProperty(GC_FULL_SCAN_WAIT_TIME, Long.toString(unit.toMillis(gcFullScanWaitTime)));
+        return this;
+    }
+
     /**
      * Get whether the bookie is configured to use persistent
      * entrylogMetadataMap.
@@ -2003,6 +2095,51 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getInt(NUM_HIGH_PRIORITY_WORKER_THREADS, 8);
     }
 
+    /**
+     * Set the number of threads that should be used for the reads of the autorecovery, which are served apart
+     * from the other reads so that the re-replication doesn't delay them. If it is 0, the reads of the
+     * autorecovery are served by the read worker threads.
+     *
+     * @param numThreads
+     *          number of threads to handle the reads of the autorecovery.
+     * @return server configuration
+     */
+    public ServerConfiguration setNumReplicationReadWorkerThreads(int numThreads) {
+        setProperty(NUM_REPLICATION_READ_WORKER_THREADS, numThreads);
+        return this;
+    }
+
+    /**
+     * Get the number of threads that should be used for the reads of the autorecovery.
+     *
+     * @return the number of threads. By default it is 2.
+     */
+    public int getNumReplicationReadWorkerThreads() {
+        return getInt(NUM_REPLICATION_READ_WORKER_THREADS, 2);
+    }
+
+    /**
+     * Set the maximum number of bytes per second read by the threads serving the reads of the autorecovery.
+     * It doesn't apply if the reads of the autorecovery are served by the read worker threads.
+     *
+     * @param rate
+     *          maximum number of bytes per second, unlimited if it is not positive.
+     * @return server configuration
+     */
+    public ServerConfiguration setReplicationReadRateByBytes(int rate) {
+        setProperty(REPLICATION_READ_RATE_BY_BYTES, rate);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of bytes per second read by the threads serving the reads of the autorecovery.
+     *
+     * @return the maximum number of bytes per second. By default it is -1, which is unlimited.
+     */
+    public int getReplicationReadRateByBytes() {
+        return getInt(REPLICATION_READ_RATE_BY_BYTES, -1);
+    }
+
     /**
      * Use auto-throttling of the read-worker threads. This is done
      * to ensure the bookie is not using unlimited amount of memory
@@ -2618,6 +2755,29 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getLong(AUDITOR_PERIODIC_BOOKIE_CHECK_INTERVAL, 86400);
     }
 
+    /**
+     * Enable or disable the incremental bookie to ledgers index of the auditor.
+     * When enabled, the auditor reads the metadata of all the ledgers once, when it is elected, and then keeps
+     * the index up to date by watching the metadata of every ledger, instead of reading the metadata of all
+     * the ledgers on each bookie check.
+     *
+     * @param enabled whether the bookie to ledgers index is maintained incrementally
+     * @return server configuration
+     */
+    public ServerConfiguration setAuditorIncrementalBookieLedgerIndexEnabled(boolean enabled) {
+        setProperty(AUDITOR_INCREMENTAL_BOOKIE_LEDGER_INDEX_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Whether the auditor maintains the bookie to ledgers index incrementally.
+     * @see #setAuditorIncrementalBookieLedgerIndexEnabled(boolean)
+     * @return true if the index is maintained incrementally. Default is false.
+     */
+    public boolean isAuditorIncrementalBookieLedgerIndexEnabled() {
+        return getBoolean(AUDITOR_INCREMENTAL_BOOKIE_LEDGER_INDEX_ENABLED, false);
+    }
+
     /**
      * Sets the regularity/interval at which the auditor will run a placement
      * policy check of all ledgers, which are closed. This should not be run
@@ -2709,6 +2869,49 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getLong(AUDITOR_REPLICAS_CHECK_INTERVAL, 0);
     }
 
+    /**
+     * Get the maximum number of ledgers whose entries are requested from a bookie in a single request by the
+     * auditor replicas check. The auditor falls back to a request per ledger for the bookies which don't
+     * support these requests.
+     *
+     * @return The number of ledgers per request. By default it is 100, 0 makes a request per ledger.
+     */
+    public int getAuditorReplicasCheckBatchSize() {
+        return getInt(AUDITOR_REPLICAS_CHECK_BATCH_SIZE, 100);
+    }
+
+    /**
+     * Set the maximum number of ledgers whose entries are requested from a bookie in a single request by the
+     * auditor replicas check.
+     * @param batchSize
+     * @return server configuration
+     */
+    public ServerConfiguration setAuditorReplicasCheckBatchSize(int batchSize) {
+        setProperty(AUDITOR_REPLICAS_CHECK_BATCH_SIZE, batchSize);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of ledgers checked concurrently by the auditor replicas check. The number of
+     * ledgers checked concurrently grows up to this limit while the bookies respond in time, and is halved
+     * when requests time out or are rejected by the bookies.
+     *
+     * @return The maximum number of ledgers. By default it is 1000.
+     */
+    public int getAuditorReplicasCheckMaxConcurrentLedgers() {
+        return getInt(AUDITOR_REPLICAS_CHECK_MAX_CONCURRENT_LEDGERS, 1000);
+    }
+
+    /**
+     * Set the maximum number of ledgers checked concurrently by the auditor replicas check.
+     * @param maxConcurrentLedgers
+     * @return server configuration
+     */
+    public ServerConfiguration setAuditorReplicasCheckMaxConcurrentLedgers(int maxConcurrentLedgers) {
+        setProperty(AUDITOR_REPLICAS_CHECK_MAX_CONCURRENT_LEDGERS, maxConcurrentLedgers);
+        return this;
+    }
+
     /**
      * Get the semaphore limit value of getting ledger from zookeeper in auto recovery.
      *
@@ -2743,6 +2946,52 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         setProperty(AUDITOR_ACQUIRE_CONCURRENT_OPEN_LEDGER_OPERATIONS_TIMEOUT_MSEC, timeoutMs);
     }
 
+    /**
+     * Get the number of threads checking the ledgers in the auditor periodic check of all the ledgers.
+     * The ledgers are sharded across the threads by ledger id.
+     *
+     * @return The number of threads. By default it is 1.
+     */
+    public int getAuditorLedgerCheckerThreads() {
+        return getInt(AUDITOR_LEDGER_CHECKER_THREADS, 1);
+    }
+
+    /**
+     * Set the number of threads checking the ledgers in the auditor periodic check of all the ledgers.
+     * @param numThreads
+     * @return server configuration
+     */
+    public ServerConfiguration setAuditorLedgerCheckerThreads(int numThreads) {
+        setProperty(AUDITOR_LEDGER_CHECKER_THREADS, numThreads);
+        return this;
+    }
+
+    /**
+     * Whether the ledger checker of the auditor and of the replication worker verifies the fragments of the ledgers
+     * with the lists of the entries stored by the bookies, requested once per bookie of the ledger, rather than by
+     * reading entries of each fragment from each bookie.
+     *
+     * <p>This only checks that the bookies have the entries in their indexes, not that the entries can be read.
+     * The bookies which fail to list the entries of a ledger are checked by reading the entries.
+     *
+     * @return true if the fragments are verified with the lists of entries of the bookies. By default it is false.
+     */
+    public boolean isLedgerCheckerEntryAvailabilityEnabled() {
+        return getBoolean(LEDGER_CHECKER_ENTRY_AVAILABILITY_ENABLED, false);
+    }
+
+    /**
+     * Set whether the ledger checker verifies the fragments of the ledgers with the lists of the entries stored by
+     * the bookies rather than by reading entries.
+     *
+     * @param enabled
+     * @return server configuration
+     */
+    public ServerConfiguration setLedgerCheckerEntryAvailabilityEnabled(boolean enabled) {
+        setProperty(LEDGER_CHECKER_ENTRY_AVAILABILITY_ENABLED, enabled);
+        return this;
+    }
+
 
     /**
      * Set what percentage of a ledger (fragment)'s entries will be verified.
@@ -2824,6 +3073,29 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         setProperty(RW_REREPLICATE_BACKOFF_MS, backoffMs);
     }
 
+    /**
+     * Get the number of under replicated ledgers replicated concurrently by the replication worker.
+     * The bytes in flight of all these replications can be bounded with
+     * {@link #getReplicationMaxTotalBytesInFlight()}, and the fragments replicated concurrently to
+     * a bookie with {@link #getReplicationMaxConcurrentFragmentsPerBookie()}.
+     *
+     * @return the number of ledgers replicated concurrently, 1 by default.
+     */
+    public int getRwRereplicateConcurrentLedgers() {
+        return getInt(RW_REREPLICATE_CONCURRENT_LEDGERS, 1);
+    }
+
+    /**
+     * Set the number of under replicated ledgers replicated concurrently by the replication worker.
+     *
+     * @param concurrentLedgers number of ledgers replicated concurrently
+     * @return server configuration
+     */
+    public ServerConfiguration setRwRereplicateConcurrentLedgers(int concurrentLedgers) {
+        setProperty(RW_REREPLICATE_CONCURRENT_LEDGERS, concurrentLedgers);
+        return this;
+    }
+
     /**
      * Sets that whether force start a bookie in readonly mode.
      *
@@ -2965,6 +3237,165 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Get whether the compaction rate adapts to the latency of the foreground journal adds and entry reads.
+     * Default is false, compaction is throttled at the fixed compaction rate.
+     *
+     * @return true if adaptive compaction throttling is enabled
+     */
+    public boolean isCompactionAdaptiveThrottleEnabled() {
+        return getBoolean(COMPACTION_ADAPTIVE_THROTTLE_ENABLED, false);
+    }
+
+    /**
+     * Set whether the compaction rate adapts to the latency of the foreground journal adds and entry reads.
+     *
+     * @param enabled whether adaptive compaction throttling is enabled
+     *
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionAdaptiveThrottleEnabled(boolean enabled) {
+        setProperty(COMPACTION_ADAPTIVE_THROTTLE_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the range of the adaptive compaction rate: the rate varies between the compaction rate divided
+     * by this multiplier and the compaction rate multiplied by it. Default is 4.
+     *
+     * @return adaptive compaction rate multiplier
+     */
+    public int getCompactionAdaptiveRateMultiplier() {
+        return getInt(COMPACTION_ADAPTIVE_RATE_MULTIPLIER, 4);
+    }
+
+    /**
+     * Set the range of the adaptive compaction rate.
+     *
+     * @param multiplier adaptive compaction rate multiplier
+     *
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionAdaptiveRateMultiplier(int multiplier) {
+        setProperty(COMPACTION_ADAPTIVE_RATE_MULTIPLIER, multiplier);
+        return this;
+    }
+
+    /**
+     * Get the average journal add latency above which the adaptive compaction rate backs off.
+     * Default is 20 milliseconds.
+     *
+     * @return journal add latency threshold in milliseconds
+     */
+    public long getCompactionAdaptiveJournalAddLatencyThresholdMs() {
+        return getLong(COMPACTION_ADAPTIVE_JOURNAL_ADD_LATENCY_THRESHOLD_MS, 20L);
+    }
+
+    /**
+     * Set the average journal add latency above which the adaptive compaction rate backs off.
+     *
+     * @param thresholdMs journal add latency threshold in milliseconds
+     *
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionAdaptiveJournalAddLatencyThresholdMs(long thresholdMs) {
+        setProperty(COMPACTION_ADAPTIVE_JOURNAL_ADD_LATENCY_THRESHOLD_MS, thresholdMs);
+        return this;
+    }
+
+    /**
+     * Get the average entry read latency above which the adaptive compaction rate backs off.
+     * Default is 50 milliseconds.
+     *
+     * @return read latency threshold in milliseconds
+     */
+    public long getCompactionAdaptiveReadLatencyThresholdMs() {
+        return getLong(COMPACTION_ADAPTIVE_READ_LATENCY_THRESHOLD_MS, 50L);
+    }
+
+    /**
+     * Set the average entry read latency above which the adaptive compaction rate backs off.
+     *
+     * @param thresholdMs read latency threshold in milliseconds
+     *
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionAdaptiveReadLatencyThresholdMs(long thresholdMs) {
+        setProperty(COMPACTION_ADAPTIVE_READ_LATENCY_THRESHOLD_MS, thresholdMs);
+        return this;
+    }
+
+    /**
+     * Get the number of entry logs compacted concurrently by the garbage collector of a ledger directory.
+     * The workers share the compaction rate limit. Default is 1, entry logs are compacted one at a time
+     * on the garbage collector thread.
+     *
+     * @return number of compaction workers
+     */
+    public int getCompactionWorkers() {
+        return getInt(COMPACTION_WORKERS, 1);
+    }
+
+    /**
+     * Set the number of entry logs compacted concurrently by the garbage collector of a ledger directory.
+     *
+     * @param numWorkers number of compaction workers
+     *
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionWorkers(int numWorkers) {
+        setProperty(COMPACTION_WORKERS, numWorkers);
+        return this;
+    }
+
+    /**
+     * Get the number of entry logs whose metadata is extracted concurrently by the garbage collector of
+     * a ledger directory, e.g. after an upgrade when entry logs have to be scanned because they don't
+     * have a ledgers map. Default is 1, the metadata of entry logs is extracted one at a time on the
+     * garbage collector thread.
+     *
+     * @return number of entry log metadata extraction threads
+     */
+    public int getEntryLogMetadataExtractionThreads() {
+        return getInt(ENTRY_LOG_METADATA_EXTRACTION_THREADS, 1);
+    }
+
+    /**
+     * Set the number of entry logs whose metadata is extracted concurrently by the garbage collector of
+     * a ledger directory.
+     *
+     * @param numThreads number of entry log metadata extraction threads
+     *
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setEntryLogMetadataExtractionThreads(int numThreads) {
+        setProperty(ENTRY_LOG_METADATA_EXTRACTION_THREADS, numThreads);
+        return this;
+    }
+
+    /**
+     * Get the policy selecting the entry logs to compact. Default is {@link UsageThresholdCompactionPolicy}.
+     *
+     * @return compaction policy class
+     * @throws ConfigurationException if the class can't be loaded
+     */
+    public Class<? extends EntryLogCompactionPolicy> getCompactionPolicyClass() throws ConfigurationException {
+        return ReflectionUtils.getClass(this, COMPACTION_POLICY_CLASS,
+                UsageThresholdCompactionPolicy.class, EntryLogCompactionPolicy.class, DEFAULT_LOADER);
+    }
+
+    /**
+     * Set the policy selecting the entry logs to compact.
+     *
+     * @param policyClass compaction policy class
+     *
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionPolicyClass(Class<? extends EntryLogCompactionPolicy> policyClass) {
+        setProperty(COMPACTION_POLICY_CLASS, policyClass.getName());
+        return this;
+    }
+
     /**
      * Should we remove pages from page cache after force write.
      *
@@ -3925,6 +4356,70 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /*
+     * in entryLogPerLedger feature, the ledger age boundaries (in seconds) of
+     * the lifetime classes of entrylogs. If it is not empty, ledgers are
+     * grouped into one active entrylog per lifetime class and ledger directory
+     * instead of having an active entrylog for each ledger.
+     */
+    public long[] getEntryLogLifetimeClassBoundariesSecs() {
+        return Arrays.stream(this.getStringArray(ENTRY_LOG_LIFETIME_CLASS_BOUNDARIES_SECS))
+                .map(String::trim)
+                .filter(boundary -> !boundary.isEmpty())
+                .mapToLong(Long::parseLong)
+                .sorted()
+                .toArray();
+    }
+
+    /*
+     * sets the ledger age boundaries (in seconds) of the lifetime classes of
+     * entrylogs, in entryLogPerLedger feature.
+     */
+    public ServerConfiguration setEntryLogLifetimeClassBoundariesSecs(long... boundariesSecs) {
+        this.setProperty(ENTRY_LOG_LIFETIME_CLASS_BOUNDARIES_SECS,
+                Arrays.stream(boundariesSecs).mapToObj(Long::toString).toArray(String[]::new));
+        return this;
+    }
+
+    /*
+     * in entryLogPerLedger feature with lifetime classes, the maximum number
+     * of ledgers whose first write time is tracked. It should be above the
+     * number of ledgers being written on the bookie, since a ledger which is
+     * evicted restarts from the hottest lifetime class.
+     */
+    public int getEntryLogLifetimeClassMaxTrackedLedgers() {
+        return this.getInt(ENTRY_LOG_LIFETIME_CLASS_MAX_TRACKED_LEDGERS, 100000);
+    }
+
+    /*
+     * sets the maximum number of ledgers whose first write time is tracked,
+     * in entryLogPerLedger feature with lifetime classes.
+     */
+    public ServerConfiguration setEntryLogLifetimeClassMaxTrackedLedgers(int maxTrackedLedgers) {
+        this.setProperty(ENTRY_LOG_LIFETIME_CLASS_MAX_TRACKED_LEDGERS, maxTrackedLedgers);
+        return this;
+    }
+
+    /*
+     * in entryLogPerLedger feature with lifetime classes, the custom metadata
+     * key under which writers give the expected retention (in seconds) of a
+     * ledger. The metadata of a ledger is read when it is first written on
+     * the bookie, the ledgers without hint are classified by their age. An
+     * empty key disables the metadata reads.
+     */
+    public String getEntryLogLifetimeClassRetentionHintKey() {
+        return this.getString(ENTRY_LOG_LIFETIME_CLASS_RETENTION_HINT_KEY, "retentionSecs");
+    }
+
+    /*
+     * sets the custom metadata key of the expected retention (in seconds) of
+     * a ledger, in entryLogPerLedger feature with lifetime classes.
+     */
+    public ServerConfiguration setEntryLogLifetimeClassRetentionHintKey(String retentionHintKey) {
+        this.setProperty(ENTRY_LOG_LIFETIME_CLASS_RETENTION_HINT_KEY, retentionHintKey);
+        return this;
+    }
+
     /**
      * True if a local consistency check should be performed on startup.
      */
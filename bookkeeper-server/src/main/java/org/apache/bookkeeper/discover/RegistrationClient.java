@@ -43,6 +43,23 @@ public interface RegistrationClient extends AutoCloseable {
 
         void onBookiesChanged(Versioned<Set<BookieId>> bookies);
 
+        /**
+         * Notified of the changes of the bookies, along with the bookies which joined and left since the
+         * previous notification to this listener. The first notification reports all the bookies as joined.
+         *
+         * <p>Registration clients which can compute the changes call this method, so listeners maintaining
+         * a view of the bookies can update it incrementally. The default implementation ignores the changes.
+         *
+         * @param bookies all the bookies, versioned by the registration service
+         * @param joinedBookies the bookies which joined since the previous notification
+         * @param leftBookies the bookies which left since the previous notification
+         */
+        default void onBookiesChanged(Versioned<Set<BookieId>> bookies,
+                                      Set<BookieId> joinedBookies,
+                                      Set<BookieId> leftBookies) {
+            onBookiesChanged(bookies);
+        }
+
     }
 
     @Override
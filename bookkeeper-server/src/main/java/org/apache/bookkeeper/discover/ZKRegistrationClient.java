@@ -26,6 +26,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -94,7 +95,7 @@ public class ZKRegistrationClient implements RegistrationClient {
                 if (null != bookies) {
                     scheduler.execute(() -> {
                             listener.onBookiesChanged(
-                                    new Versioned<>(bookies, version));
+                                    new Versioned<>(bookies, version), bookies, Collections.emptySet());
                         });
                 }
             }
@@ -139,11 +140,17 @@ public class ZKRegistrationClient implements RegistrationClient {
             }
 
             if (this.version.compare(bookieSet.getVersion()) == Occurred.BEFORE) {
+                Set<BookieId> previousBookies = null == bookies ? Collections.emptySet() : bookies;
+                Set<BookieId> joinedBookies = Sets.difference(bookieSet.getValue(), previousBookies).immutableCopy();
+                Set<BookieId> leftBookies = Sets.difference(previousBookies, bookieSet.getValue()).immutableCopy();
+                boolean firstRead = null == bookies;
                 this.version = bookieSet.getVersion();
                 this.bookies = bookieSet.getValue();
-                if (!listeners.isEmpty()) {
+                // the children may have changed back and forth between two reads, the listeners
+                // are only notified when the bookies actually changed
+                if (firstRead || !joinedBookies.isEmpty() || !leftBookies.isEmpty()) {
                     for (RegistrationListener listener : listeners) {
-                        listener.onBookiesChanged(bookieSet);
+                        listener.onBookiesChanged(bookieSet, joinedBookies, leftBookies);
                     }
                 }
             }
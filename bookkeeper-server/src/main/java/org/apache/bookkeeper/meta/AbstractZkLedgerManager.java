@@ -18,10 +18,14 @@
 package org.apache.bookkeeper.meta;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.Set;
@@ -57,6 +61,8 @@ import org.apache.zookeeper.AsyncCallback.VoidCallback;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooKeeper;
@@ -74,6 +80,8 @@ public abstract class AbstractZkLedgerManager implements LedgerManager, Watcher
 
     @VisibleForTesting
     static final int ZK_CONNECT_BACKOFF_MS = 200;
+    // max number of ledgers read or removed by a single multi operation
+    static final int MAX_LEDGERS_PER_MULTI = 128;
 
     private final LedgerMetadataSerDe serDe;
     protected final AbstractConfiguration conf;
@@ -349,19 +357,12 @@ public abstract class AbstractZkLedgerManager implements LedgerManager, Watcher
     @Override
     public CompletableFuture<Void> removeLedgerMetadata(final long ledgerId, final Version version) {
         CompletableFuture<Void> promise = new CompletableFuture<>();
-        int znodeVersion = -1;
-        if (Version.NEW == version) {
-            LOG.error("Request to delete ledger {} metadata with version set to the initial one", ledgerId);
-            promise.completeExceptionally(new BKException.BKMetadataVersionException());
+        final int znodeVersion;
+        try {
+            znodeVersion = getZnodeVersionForRemoval(ledgerId, version);
+        } catch (BKException.BKMetadataVersionException e) {
+            promise.completeExceptionally(e);
             return promise;
-        } else if (Version.ANY != version) {
-            if (!(version instanceof LongVersion)) {
-                LOG.info("Not an instance of ZKVersion: {}", ledgerId);
-                promise.completeExceptionally(new BKException.BKMetadataVersionException());
-                return promise;
-            } else {
-                znodeVersion = (int) ((LongVersion) version).getLongVersion();
-            }
         }
 
         VoidCallback callbackForDelete = new VoidCallback() {
@@ -391,7 +392,7 @@ public abstract class AbstractZkLedgerManager implements LedgerManager, Watcher
             }
         };
         String ledgerZnodePath = getLedgerPath(ledgerId);
-        if (this instanceof HierarchicalLedgerManager || this instanceof LongHierarchicalLedgerManager) {
+        if (isHierarchical()) {
             /*
              * do recursive deletes only for HierarchicalLedgerManager and
              * LongHierarchicalLedgerManager
@@ -404,6 +405,96 @@ public abstract class AbstractZkLedgerManager implements LedgerManager, Watcher
         return promise;
     }
 
+    private static int getZnodeVersionForRemoval(long ledgerId, Version version)
+            throws BKException.BKMetadataVersionException {
+        if (Version.NEW == version) {
+            LOG.error("Request to delete ledger {} metadata with version set to the initial one", ledgerId);
+            throw new BKException.BKMetadataVersionException();
+        } else if (Version.ANY == version) {
+            return -1;
+        } else if (!(version instanceof LongVersion)) {
+            LOG.info("Not an instance of ZKVersion: {}", ledgerId);
+            throw new BKException.BKMetadataVersionException();
+        } else {
+            return (int) ((LongVersion) version).getLongVersion();
+        }
+    }
+
+    private boolean isHierarchical() {
+        return this instanceof HierarchicalLedgerManager || this instanceof LongHierarchicalLedgerManager;
+    }
+
+    /**
+     * Remove the metadata of the ledgers with a multi operation per batch of ledgers. A multi operation
+     * is atomic, so when it fails (e.g. because a ledger doesn't exist or has another version) the
+     * ledgers of its batch are removed one by one.
+     */
+    @Override
+    public CompletableFuture<Void> removeLedgersMetadata(Map<Long, Version> ledgers) {
+        // sorted, so the ledgers of a batch mostly share their parent znodes
+        List<Long> ledgerIds = new ArrayList<>(new TreeSet<>(ledgers.keySet()));
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (List<Long> batch : Iterables.partition(ledgerIds, MAX_LEDGERS_PER_MULTI)) {
+            batches.add(removeLedgersMetadataBatch(batch, ledgers));
+        }
+        return FutureUtils.collect(batches).thenApply(ignored -> null);
+    }
+
+    private CompletableFuture<Void> removeLedgersMetadataBatch(List<Long> ledgerIds, Map<Long, Version> versions) {
+        CompletableFuture<Void> promise = new CompletableFuture<>();
+        List<Op> ops = new ArrayList<>(ledgerIds.size());
+        for (long ledgerId : ledgerIds) {
+            try {
+                int znodeVersion = getZnodeVersionForRemoval(ledgerId, versions.get(ledgerId));
+                ops.add(Op.delete(getLedgerPath(ledgerId), znodeVersion));
+            } catch (BKException.BKMetadataVersionException e) {
+                promise.completeExceptionally(e);
+                return promise;
+            }
+        }
+        zk.multi(ops, (rc, path, ctx, opResults) -> {
+            if (rc != KeeperException.Code.OK.intValue()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to remove the metadata of ledgers {} in a single operation, removing them"
+                            + " one by one", ledgerIds, KeeperException.create(Code.get(rc), path));
+                }
+                List<CompletableFuture<Void>> removals = new ArrayList<>(ledgerIds.size());
+                for (long ledgerId : ledgerIds) {
+                    removals.add(removeLedgerMetadata(ledgerId, versions.get(ledgerId)));
+                }
+                FutureUtils.proxyTo(FutureUtils.collect(removals).thenApply(ignored -> null), promise);
+                return;
+            }
+            ledgerIds.forEach(listeners::remove);
+            if (isHierarchical()) {
+                FutureUtils.proxyTo(removeEmptyParentZnodes(ledgerIds), promise);
+            } else {
+                promise.complete(null);
+            }
+        }, null);
+        return promise;
+    }
+
+    /*
+     * remove the parent znodes of the ledgers which became empty, as the
+     * removal of a single ledger does.
+     */
+    private CompletableFuture<Void> removeEmptyParentZnodes(List<Long> ledgerIds) {
+        Set<String> parents = new HashSet<>();
+        for (long ledgerId : ledgerIds) {
+            String ledgerPath = getLedgerPath(ledgerId);
+            parents.add(ledgerPath.substring(0, ledgerPath.lastIndexOf('/')));
+        }
+        List<CompletableFuture<Void>> removals = new ArrayList<>(parents.size());
+        for (String parent : parents) {
+            CompletableFuture<Void> removal = new CompletableFuture<>();
+            // fails if the parent znode isn't empty, which is fine
+            ZkUtils.asyncDeleteFullPathOptimistic(zk, parent, -1, (rc, path, ctx) -> removal.complete(null), parent);
+            removals.add(removal);
+        }
+        return FutureUtils.collect(removals).thenApply(ignored -> null);
+    }
+
     @Override
     public void registerLedgerMetadataListener(long ledgerId, LedgerMetadataListener listener) {
         if (null != listener) {
@@ -509,6 +600,89 @@ public abstract class AbstractZkLedgerManager implements LedgerManager, Watcher
         return promise;
     }
 
+    /**
+     * Read the metadata of the ledgers with a multi read operation per batch of ledgers.
+     */
+    @Override
+    public CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> readLedgersMetadata(Collection<Long> ledgerIds) {
+        Map<Long, Versioned<LedgerMetadata>> ledgers = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (List<Long> batch : Iterables.partition(ledgerIds, MAX_LEDGERS_PER_MULTI)) {
+            batches.add(readLedgersMetadataBatch(batch, ledgers));
+        }
+        return FutureUtils.collect(batches).thenApply(ignored -> ledgers);
+    }
+
+    private CompletableFuture<Void> readLedgersMetadataBatch(List<Long> ledgerIds,
+                                                             Map<Long, Versioned<LedgerMetadata>> ledgers) {
+        CompletableFuture<Void> promise = new CompletableFuture<>();
+        List<Op> ops = new ArrayList<>(ledgerIds.size());
+        for (long ledgerId : ledgerIds) {
+            ops.add(Op.getData(getLedgerPath(ledgerId)));
+        }
+        zk.multi(ops, (rc, path, ctx, opResults) -> {
+            if (opResults == null) {
+                // the whole operation failed, e.g. with a connection loss when the response of the batch
+                // doesn't fit in jute.maxbuffer, while the ledgers may still be read one by one
+                LOG.warn("Failed to read the metadata of ledgers {} in a single operation, reading them one by one",
+                        ledgerIds, KeeperException.create(Code.get(rc), path));
+                FutureUtils.proxyTo(readLedgersMetadataOneByOne(ledgerIds, ledgers), promise);
+                return;
+            }
+            for (int i = 0; i < opResults.size(); i++) {
+                long ledgerId = ledgerIds.get(i);
+                OpResult opResult = opResults.get(i);
+                if (opResult instanceof OpResult.ErrorResult) {
+                    int opRc = ((OpResult.ErrorResult) opResult).getErr();
+                    if (opRc == KeeperException.Code.NONODE.intValue()) {
+                        continue;
+                    }
+                    LOG.error("Could not read metadata for ledger: " + ledgerId,
+                            KeeperException.create(KeeperException.Code.get(opRc), getLedgerPath(ledgerId)));
+                    promise.completeExceptionally(new BKException.ZKException(
+                            KeeperException.create(Code.get(opRc), getLedgerPath(ledgerId))));
+                    return;
+                }
+                OpResult.GetDataResult dataResult = (OpResult.GetDataResult) opResult;
+                try {
+                    Stat stat = dataResult.getStat();
+                    LedgerMetadata metadata = serDe.parseConfig(dataResult.getData(), ledgerId,
+                            Optional.of(stat.getCtime()));
+                    ledgers.put(ledgerId, new Versioned<>(metadata, new LongVersion(stat.getVersion())));
+                } catch (Throwable t) {
+                    LOG.error("Could not parse ledger metadata for ledger: {}", ledgerId, t);
+                    promise.completeExceptionally(new BKException.ZKException(
+                            new Exception("Could not parse ledger metadata for ledger: "
+                                    + ledgerId, t).fillInStackTrace()));
+                    return;
+                }
+            }
+            promise.complete(null);
+        }, null);
+        return promise;
+    }
+
+    private CompletableFuture<Void> readLedgersMetadataOneByOne(List<Long> ledgerIds,
+                                                                Map<Long, Versioned<LedgerMetadata>> ledgers) {
+        List<CompletableFuture<Void>> reads = new ArrayList<>(ledgerIds.size());
+        for (long ledgerId : ledgerIds) {
+            CompletableFuture<Void> read = new CompletableFuture<>();
+            readLedgerMetadata(ledgerId).whenComplete((metadata, cause) -> {
+                if (cause == null) {
+                    ledgers.put(ledgerId, metadata);
+                    read.complete(null);
+                } else if (BKException.getExceptionCode(cause)
+                        == BKException.Code.NoSuchLedgerExistsOnMetadataServerException) {
+                    read.complete(null);
+                } else {
+                    read.completeExceptionally(cause);
+                }
+            });
+            reads.add(read);
+        }
+        return FutureUtils.collect(reads).thenApply(ignored -> null);
+    }
+
     @Override
     public CompletableFuture<Versioned<LedgerMetadata>> writeLedgerMetadata(long ledgerId, LedgerMetadata metadata,
                                                                             Version currentVersion) {
@@ -632,6 +806,7 @@ public abstract class AbstractZkLedgerManager implements LedgerManager, Watcher
     public static boolean isLeadgerIdGeneratorZnode(String znode) {
         return LegacyHierarchicalLedgerManager.IDGEN_ZNODE.equals(znode)
             || LongHierarchicalLedgerManager.IDGEN_ZNODE.equals(znode)
+            || BookKeeperConstants.LEDGER_ID_BLOCK_ZNODE.equals(znode)
             || znode.startsWith(ZkLedgerIdGenerator.LEDGER_ID_GEN_PREFIX);
     }
 
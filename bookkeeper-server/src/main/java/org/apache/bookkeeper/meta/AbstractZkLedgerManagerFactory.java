@@ -29,6 +29,7 @@ import org.apache.bookkeeper.common.util.ReflectionUtils;
 import org.apache.bookkeeper.conf.AbstractConfiguration;
 import org.apache.bookkeeper.meta.LayoutManager.LedgerLayoutExistsException;
 import org.apache.bookkeeper.meta.zk.ZKMetadataDriverBase;
+import org.apache.bookkeeper.util.ZkUtils;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.ZKUtil;
@@ -43,6 +44,26 @@ public abstract class AbstractZkLedgerManagerFactory implements LedgerManagerFac
 
     protected ZooKeeper zk;
 
+    /**
+     * Returns a block ledger id generator, which reserves blocks of
+     * {@link AbstractConfiguration#getLedgerIdBlockSize()} ids if it is greater than 0. Otherwise
+     * the ledger id generator of the ledger manager is returned as is.
+     *
+     * @param conf configuration
+     * @param idGenerator the ledger id generator of the ledger manager
+     * @param ledgerIdLimit the ledger ids supported by the ledger manager are lower than this limit
+     * @return the ledger id generator to use
+     */
+    protected LedgerIdGenerator newBlockLedgerIdGenerator(AbstractConfiguration<?> conf,
+                                                          LedgerIdGenerator idGenerator,
+                                                          long ledgerIdLimit) {
+        if (conf.getLedgerIdBlockSize() <= 0) {
+            return idGenerator;
+        }
+        return new ZkBlockLedgerIdGenerator(zk, ZKMetadataDriverBase.resolveZkLedgersRootPath(conf),
+                idGenerator, conf.getLedgerIdBlockSize(), ledgerIdLimit, ZkUtils.getACLs(conf));
+    }
+
     @SuppressWarnings("deprecation")
     @Override
     public void format(AbstractConfiguration<?> conf, LayoutManager layoutManager)
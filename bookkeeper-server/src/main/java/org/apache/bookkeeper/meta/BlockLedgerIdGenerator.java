@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.meta;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
+
+/**
+ * A ledger id generator which reserves blocks of contiguous ledger ids from the metadata store, and
+ * hands out the ids of the current block locally. Generating a ledger id thus only accesses the
+ * metadata store once every <i>blockSize</i> ids.
+ *
+ * <p>The metadata store specific part is the reservation of a block, see {@link #reserveBlock}. The ids
+ * of a block which are not handed out when the generator is closed are lost, which is fine since ledger
+ * ids are not required to be contiguous.
+ */
+public abstract class BlockLedgerIdGenerator implements LedgerIdGenerator {
+
+    private final int blockSize;
+    private final long ledgerIdLimit;
+
+    // requests waiting for the reservation of a new block
+    private final Queue<GenericCallback<Long>> pendingRequests = new ArrayDeque<>();
+    private long nextLedgerId = 0L;
+    private long blockEndLedgerId = 0L;
+    private boolean reserving = false;
+
+    /**
+     * @param blockSize number of ledger ids reserved at once
+     * @param ledgerIdLimit the generated ledger ids are lower than this limit
+     */
+    protected BlockLedgerIdGenerator(int blockSize, long ledgerIdLimit) {
+        this.blockSize = blockSize;
+        this.ledgerIdLimit = ledgerIdLimit;
+    }
+
+    /**
+     * Reserve a new block of <i>blockSize</i> ids for this generator, which is completed with the
+     * first id of the block. The blocks reserved by all the generators sharing the same metadata
+     * store must not overlap.
+     *
+     * @param blockSize number of ledger ids to reserve
+     * @param cb callback completed with the first id of the reserved block
+     */
+    protected abstract void reserveBlock(int blockSize, GenericCallback<Long> cb);
+
+    @Override
+    public void generateLedgerId(GenericCallback<Long> cb) {
+        long ledgerId;
+        synchronized (this) {
+            if (nextLedgerId >= blockEndLedgerId) {
+                pendingRequests.add(cb);
+                if (!reserving) {
+                    reserving = true;
+                    reserveBlock(blockSize, this::blockReserved);
+                }
+                return;
+            }
+            ledgerId = nextLedgerId++;
+        }
+        cb.operationComplete(BKException.Code.OK, ledgerId);
+    }
+
+    private void blockReserved(int rc, Long firstLedgerId) {
+        List<GenericCallback<Long>> callbacks = new ArrayList<>();
+        List<Long> ledgerIds = new ArrayList<>();
+        List<GenericCallback<Long>> failedCallbacks = new ArrayList<>();
+        int failureRc = rc;
+        synchronized (this) {
+            reserving = false;
+            if (rc == BKException.Code.OK && firstLedgerId >= ledgerIdLimit) {
+                failureRc = BKException.Code.LedgerIdOverflowException;
+            } else if (rc == BKException.Code.OK) {
+                nextLedgerId = firstLedgerId;
+                blockEndLedgerId = firstLedgerId + Math.min(blockSize, ledgerIdLimit - firstLedgerId);
+                while (!pendingRequests.isEmpty() && nextLedgerId < blockEndLedgerId) {
+                    callbacks.add(pendingRequests.poll());
+                    ledgerIds.add(nextLedgerId++);
+                }
+                if (!pendingRequests.isEmpty()) {
+                    // more requests than ids in the block, reserve another one for them
+                    reserving = true;
+                    reserveBlock(blockSize, this::blockReserved);
+                }
+            }
+            if (!reserving) {
+                failedCallbacks.addAll(pendingRequests);
+                pendingRequests.clear();
+            }
+        }
+        for (int i = 0; i < callbacks.size(); i++) {
+            callbacks.get(i).operationComplete(BKException.Code.OK, ledgerIds.get(i));
+        }
+        for (GenericCallback<Long> cb : failedCallbacks) {
+            cb.operationComplete(failureRc, null);
+        }
+    }
+
+    /**
+     * Returns the first id of the block following a block starting at the given id, capped to
+     * {@link Long#MAX_VALUE}.
+     */
+    protected static long nextBlockStart(long firstLedgerId, int blockSize) {
+        return firstLedgerId > Long.MAX_VALUE - blockSize ? Long.MAX_VALUE : firstLedgerId + blockSize;
+    }
+}
@@ -74,7 +74,8 @@ public class FlatLedgerManagerFactory extends AbstractZkLedgerManagerFactory {
     public LedgerIdGenerator newLedgerIdGenerator() {
         List<ACL> zkAcls = ZkUtils.getACLs(conf);
         String ledgersRootPath = ZKMetadataDriverBase.resolveZkLedgersRootPath(conf);
-        return new ZkLedgerIdGenerator(zk, ledgersRootPath, null, zkAcls);
+        return newBlockLedgerIdGenerator(conf, new ZkLedgerIdGenerator(zk, ledgersRootPath, null, zkAcls),
+                Integer.MAX_VALUE);
     }
 
     @Override
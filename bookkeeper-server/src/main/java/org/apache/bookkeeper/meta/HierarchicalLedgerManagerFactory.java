@@ -35,8 +35,9 @@ public class HierarchicalLedgerManagerFactory extends LegacyHierarchicalLedgerMa
         String zkLedgersRootPath = ZKMetadataDriverBase.resolveZkLedgersRootPath(conf);
         ZkLedgerIdGenerator subIdGenerator = new ZkLedgerIdGenerator(zk, zkLedgersRootPath,
                 LegacyHierarchicalLedgerManager.IDGEN_ZNODE, zkAcls);
-        return new LongZkLedgerIdGenerator(zk, zkLedgersRootPath, LongHierarchicalLedgerManager.IDGEN_ZNODE,
-                subIdGenerator, zkAcls);
+        LongZkLedgerIdGenerator idGenerator = new LongZkLedgerIdGenerator(zk, zkLedgersRootPath,
+                LongHierarchicalLedgerManager.IDGEN_ZNODE, subIdGenerator, zkAcls);
+        return newBlockLedgerIdGenerator(conf, idGenerator, Long.MAX_VALUE);
     }
 
     @Override
@@ -19,11 +19,18 @@ package org.apache.bookkeeper.meta;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.Processor;
 import org.apache.bookkeeper.versioning.Version;
@@ -106,6 +113,71 @@ public interface LedgerManager extends Closeable {
     CompletableFuture<Versioned<LedgerMetadata>> writeLedgerMetadata(long ledgerId, LedgerMetadata metadata,
                                                                      Version currentVersion);
 
+    /**
+     * Read the metadata of several ledgers.
+     *
+     * <p>The default implementation reads the ledgers one by one, implementations should batch the
+     * reads when their metadata store allows it.
+     *
+     * @param ledgerIds
+     *          Ids of the ledgers to read
+     * @return Future which, when completed, contains the versioned metadata of the requested ledgers.
+     *         Ledgers which don't exist are not part of the result. Completed with an exception if the
+     *         metadata of a ledger couldn't be read.
+     */
+    default CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> readLedgersMetadata(Collection<Long> ledgerIds) {
+        Map<Long, Versioned<LedgerMetadata>> ledgers = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> reads = new ArrayList<>(ledgerIds.size());
+        for (long ledgerId : ledgerIds) {
+            CompletableFuture<Void> read = new CompletableFuture<>();
+            readLedgerMetadata(ledgerId).whenComplete((metadata, cause) -> {
+                int rc = BKException.getExceptionCode(cause);
+                if (cause == null) {
+                    ledgers.put(ledgerId, metadata);
+                    read.complete(null);
+                } else if (rc == BKException.Code.NoSuchLedgerExistsOnMetadataServerException
+                        || rc == BKException.Code.NoSuchLedgerExistsException) {
+                    read.complete(null);
+                } else {
+                    read.completeExceptionally(cause);
+                }
+            });
+            reads.add(read);
+        }
+        return FutureUtils.collect(reads).thenApply(ignored -> ledgers);
+    }
+
+    /**
+     * Remove the metadata of several ledgers.
+     *
+     * <p>The default implementation removes the ledgers one by one, implementations should batch the
+     * removals when their metadata store allows it.
+     *
+     * @param ledgers
+     *          Ids of the ledgers to remove, with the version of their metadata or {@link Version#ANY}
+     * @return Future which, when completed, denotes that the metadata of all the ledgers has been removed.
+     *         Ledgers which don't exist are considered as removed. Completed with an exception if the
+     *         metadata of a ledger couldn't be removed, the other ledgers may have been removed.
+     */
+    default CompletableFuture<Void> removeLedgersMetadata(Map<Long, Version> ledgers) {
+        List<CompletableFuture<Void>> removals = new ArrayList<>(ledgers.size());
+        ledgers.forEach((ledgerId, version) -> {
+            CompletableFuture<Void> removal = new CompletableFuture<>();
+            removeLedgerMetadata(ledgerId, version).whenComplete((ignored, cause) -> {
+                int rc = BKException.getExceptionCode(cause);
+                if (cause == null
+                        || rc == BKException.Code.NoSuchLedgerExistsOnMetadataServerException
+                        || rc == BKException.Code.NoSuchLedgerExistsException) {
+                    removal.complete(null);
+                } else {
+                    removal.completeExceptionally(cause);
+                }
+            });
+            removals.add(removal);
+        });
+        return FutureUtils.collect(removals).thenApply(ignored -> null);
+    }
+
     /**
      * Register the ledger metadata <i>listener</i> on <i>ledgerId</i>.
      *
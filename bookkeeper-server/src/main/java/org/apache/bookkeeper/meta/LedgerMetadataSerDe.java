@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.TextFormat;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
@@ -34,7 +35,9 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -45,6 +48,7 @@ import org.apache.bookkeeper.client.api.DigestType;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.client.api.LedgerMetadata.State;
 import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.DataFormats.CompactSegments;
 import org.apache.bookkeeper.proto.DataFormats.LedgerMetadataFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -74,7 +78,14 @@ public class LedgerMetadataSerDe {
      */
     public static final int METADATA_FORMAT_VERSION_3 = 3;
 
-    public static final int MAXIMUM_METADATA_FORMAT_VERSION = METADATA_FORMAT_VERSION_3;
+    /**
+     * Protobuf based, serialized in binary format without the textual header. The bookies of the ensembles
+     * are dictionary encoded and the ensembles are delta encoded, they are decoded and validated when the
+     * metadata is parsed. Available from v4.16.x onwards, so it is only used when explicitly configured.
+     */
+    public static final int METADATA_FORMAT_VERSION_4 = 4;
+
+    public static final int MAXIMUM_METADATA_FORMAT_VERSION = METADATA_FORMAT_VERSION_4;
     public static final int CURRENT_METADATA_FORMAT_VERSION = METADATA_FORMAT_VERSION_3;
     private static final int LOWEST_COMPAT_METADATA_FORMAT_VERSION = METADATA_FORMAT_VERSION_1;
 
@@ -84,6 +95,10 @@ public class LedgerMetadataSerDe {
     private static final String LINE_SPLITTER = "\n";
     private static final byte[] LINE_SPLITTER_BYTES = LINE_SPLITTER.getBytes(UTF_8);
     private static final String FIELD_SPLITTER = "\t";
+    // the binary header is a magic byte followed by the version byte, the magic byte can't be
+    // mistaken with the first byte of the textual header
+    private static final byte BINARY_HEADER_MAGIC = 0;
+    private static final int BINARY_HEADER_LENGTH = 2;
 
     // old V1 constants
     private static final String V1_CLOSED_TAG = "CLOSED";
@@ -128,6 +143,9 @@ public class LedgerMetadataSerDe {
         int formatVersion = metadata.getMetadataFormatVersion();
         final byte[] serialized;
         switch (formatVersion) {
+        case METADATA_FORMAT_VERSION_4:
+            serialized = serializeVersion4(metadata);
+            break;
         case METADATA_FORMAT_VERSION_3:
             serialized = serializeVersion3(metadata);
             break;
@@ -155,48 +173,7 @@ public class LedgerMetadataSerDe {
     private static byte[] serializeVersion3(LedgerMetadata metadata) throws IOException {
         try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
             writeHeader(os, METADATA_FORMAT_VERSION_3);
-            LedgerMetadataFormat.Builder builder = LedgerMetadataFormat.newBuilder();
-            builder.setQuorumSize(metadata.getWriteQuorumSize())
-                .setAckQuorumSize(metadata.getAckQuorumSize())
-                .setEnsembleSize(metadata.getEnsembleSize())
-                .setLength(metadata.getLength())
-                .setLastEntryId(metadata.getLastEntryId());
-
-            switch (metadata.getState()) {
-            case CLOSED:
-                builder.setState(LedgerMetadataFormat.State.CLOSED);
-                break;
-            case IN_RECOVERY:
-                builder.setState(LedgerMetadataFormat.State.IN_RECOVERY);
-                break;
-            case OPEN:
-                builder.setState(LedgerMetadataFormat.State.OPEN);
-                break;
-            default:
-                checkArgument(false,
-                              String.format("Unknown state %s for protobuf serialization", metadata.getState()));
-                break;
-            }
-
-            /** Hack to get around fact that ctime was never versioned correctly */
-            if (LedgerMetadataUtils.shouldStoreCtime(metadata)) {
-                builder.setCtime(metadata.getCtime());
-            }
-
-
-            builder.setDigestType(apiToProtoDigestType(metadata.getDigestType()));
-
-            serializePassword(metadata.getPassword(), builder);
-
-            Map<String, byte[]> customMetadata = metadata.getCustomMetadata();
-            if (customMetadata.size() > 0) {
-                LedgerMetadataFormat.cMetadataMapEntry.Builder cMetadataBuilder =
-                    LedgerMetadataFormat.cMetadataMapEntry.newBuilder();
-                for (Map.Entry<String, byte[]> entry : customMetadata.entrySet()) {
-                    cMetadataBuilder.setKey(entry.getKey()).setValue(ByteString.copyFrom(entry.getValue()));
-                    builder.addCustomMetadata(cMetadataBuilder.build());
-                }
-            }
+            LedgerMetadataFormat.Builder builder = newFormatBuilder(metadata);
 
             for (Map.Entry<Long, ? extends List<BookieId>> entry : metadata.getAllEnsembles().entrySet()) {
                 LedgerMetadataFormat.Segment.Builder segmentBuilder = LedgerMetadataFormat.Segment.newBuilder();
@@ -207,13 +184,100 @@ public class LedgerMetadataSerDe {
                 builder.addSegment(segmentBuilder.build());
             }
 
-            builder.setCToken(metadata.getCToken());
-
             builder.build().writeDelimitedTo(os);
             return os.toByteArray();
         }
     }
 
+    private static byte[] serializeVersion4(LedgerMetadata metadata) throws IOException {
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+            os.write(BINARY_HEADER_MAGIC);
+            os.write(METADATA_FORMAT_VERSION_4);
+            LedgerMetadataFormat.Builder builder = newFormatBuilder(metadata);
+
+            // each segment only stores the positions replaced since the previous one, with the
+            // index of the new bookie in the dictionary
+            Map<BookieId, Integer> bookieIndexes = new HashMap<>();
+            CompactSegments.Builder segmentsBuilder = CompactSegments.newBuilder();
+            List<BookieId> previousEnsemble = null;
+            long previousFirstEntryId = 0L;
+            for (Map.Entry<Long, ? extends List<BookieId>> entry : metadata.getAllEnsembles().entrySet()) {
+                CompactSegments.Segment.Builder segmentBuilder = CompactSegments.Segment.newBuilder();
+                segmentBuilder.setFirstEntryIdDelta(entry.getKey() - previousFirstEntryId);
+                List<BookieId> ensemble = entry.getValue();
+                for (int i = 0; i < ensemble.size(); i++) {
+                    BookieId addr = ensemble.get(i);
+                    if (previousEnsemble == null || !addr.equals(previousEnsemble.get(i))) {
+                        Integer index = bookieIndexes.get(addr);
+                        if (index == null) {
+                            index = bookieIndexes.size();
+                            bookieIndexes.put(addr, index);
+                            builder.addBookie(addr.toString());
+                        }
+                        segmentBuilder.addPosition(i).addBookieIndex(index);
+                    }
+                }
+                segmentsBuilder.addSegment(segmentBuilder.build());
+                previousEnsemble = ensemble;
+                previousFirstEntryId = entry.getKey();
+            }
+            builder.setCompactSegments(segmentsBuilder.build().toByteString());
+
+            builder.build().writeTo(os);
+            return os.toByteArray();
+        }
+    }
+
+    /**
+     * Returns a protobuf builder with all the fields of the metadata but the ensembles.
+     */
+    private static LedgerMetadataFormat.Builder newFormatBuilder(LedgerMetadata metadata) {
+        LedgerMetadataFormat.Builder builder = LedgerMetadataFormat.newBuilder();
+        builder.setQuorumSize(metadata.getWriteQuorumSize())
+            .setAckQuorumSize(metadata.getAckQuorumSize())
+            .setEnsembleSize(metadata.getEnsembleSize())
+            .setLength(metadata.getLength())
+            .setLastEntryId(metadata.getLastEntryId());
+
+        switch (metadata.getState()) {
+        case CLOSED:
+            builder.setState(LedgerMetadataFormat.State.CLOSED);
+            break;
+        case IN_RECOVERY:
+            builder.setState(LedgerMetadataFormat.State.IN_RECOVERY);
+            break;
+        case OPEN:
+            builder.setState(LedgerMetadataFormat.State.OPEN);
+            break;
+        default:
+            checkArgument(false,
+                          String.format("Unknown state %s for protobuf serialization", metadata.getState()));
+            break;
+        }
+
+        /** Hack to get around fact that ctime was never versioned correctly */
+        if (LedgerMetadataUtils.shouldStoreCtime(metadata)) {
+            builder.setCtime(metadata.getCtime());
+        }
+
+        builder.setDigestType(apiToProtoDigestType(metadata.getDigestType()));
+
+        serializePassword(metadata.getPassword(), builder);
+
+        Map<String, byte[]> customMetadata = metadata.getCustomMetadata();
+        if (customMetadata.size() > 0) {
+            LedgerMetadataFormat.cMetadataMapEntry.Builder cMetadataBuilder =
+                LedgerMetadataFormat.cMetadataMapEntry.newBuilder();
+            for (Map.Entry<String, byte[]> entry : customMetadata.entrySet()) {
+                cMetadataBuilder.setKey(entry.getKey()).setValue(ByteString.copyFrom(entry.getValue()));
+                builder.addCustomMetadata(cMetadataBuilder.build());
+            }
+        }
+
+        builder.setCToken(metadata.getCToken());
+        return builder;
+    }
+
     private static byte[] serializeVersion2(LedgerMetadata metadata) throws IOException {
         try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
             writeHeader(os, METADATA_FORMAT_VERSION_2);
@@ -342,6 +406,18 @@ public class LedgerMetadataSerDe {
         if (log.isDebugEnabled()) {
             log.debug("Deserializing {}", Base64.getEncoder().encodeToString(bytes));
         }
+        if (bytes.length >= BINARY_HEADER_LENGTH && bytes[0] == BINARY_HEADER_MAGIC) {
+            int metadataFormatVersion = bytes[1];
+            if (log.isDebugEnabled()) {
+                log.debug("Format version {} detected", metadataFormatVersion);
+            }
+            if (metadataFormatVersion == METADATA_FORMAT_VERSION_4) {
+                return parseVersion4Config(ledgerId, bytes, metadataStoreCtime);
+            }
+            throw new IOException(
+                    String.format("Metadata version not compatible. Expected %d for a binary header, but got %d",
+                                  METADATA_FORMAT_VERSION_4, metadataFormatVersion));
+        }
         try (ByteArrayInputStream is = new ByteArrayInputStream(bytes)) {
             int metadataFormatVersion = readHeader(is);
             if (log.isDebugEnabled()) {
@@ -362,12 +438,33 @@ public class LedgerMetadataSerDe {
             default:
                 throw new IOException(
                         String.format("Metadata version not compatible. Expected between %d and %d, but got %d",
-                                      LOWEST_COMPAT_METADATA_FORMAT_VERSION, CURRENT_METADATA_FORMAT_VERSION,
+                                      LOWEST_COMPAT_METADATA_FORMAT_VERSION, METADATA_FORMAT_VERSION_3,
                                       metadataFormatVersion));
             }
         }
     }
 
+    private static LedgerMetadata parseVersion4Config(long ledgerId, byte[] bytes, Optional<Long> metadataStoreCtime)
+            throws IOException {
+        LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
+                .withId(ledgerId)
+                .withMetadataFormatVersion(METADATA_FORMAT_VERSION_4);
+        LedgerMetadataFormat data = LedgerMetadataFormat.parseFrom(
+                CodedInputStream.newInstance(bytes, BINARY_HEADER_LENGTH, bytes.length - BINARY_HEADER_LENGTH));
+        try {
+            decodeFormat(data, builder);
+            if (data.hasCtime()) {
+                builder.storingCreationTime(true);
+            } else if (metadataStoreCtime.isPresent()) {
+                builder.withCreationTime(metadataStoreCtime.get()).storingCreationTime(false);
+            }
+            return builder.build();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // an invalid bookie id, or metadata rejected by the checks of the builder
+            throw new IOException("Invalid ledger metadata for ledger " + ledgerId, e);
+        }
+    }
+
     private static LedgerMetadata parseVersion3Config(long ledgerId, InputStream is, Optional<Long> metadataStoreCtime)
             throws IOException {
         LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
@@ -430,12 +527,16 @@ public class LedgerMetadataSerDe {
                 .withDigestType(protoToApiDigestType(data.getDigestType()));
         }
 
-        for (LedgerMetadataFormat.Segment s : data.getSegmentList()) {
-            List<BookieId> addrs = new ArrayList<>();
-            for (String addr : s.getEnsembleMemberList()) {
-                addrs.add(BookieId.parse(addr));
+        if (data.hasCompactSegments()) {
+            decodeCompactSegments(data, builder);
+        } else {
+            for (LedgerMetadataFormat.Segment s : data.getSegmentList()) {
+                List<BookieId> addrs = new ArrayList<>();
+                for (String addr : s.getEnsembleMemberList()) {
+                    addrs.add(BookieId.parse(addr));
+                }
+                builder.newEnsembleEntry(s.getFirstEntryId(), addrs);
             }
-            builder.newEnsembleEntry(s.getFirstEntryId(), addrs);
         }
 
         if (data.getCustomMetadataCount() > 0) {
@@ -449,6 +550,48 @@ public class LedgerMetadataSerDe {
         }
     }
 
+    private static void decodeCompactSegments(LedgerMetadataFormat data, LedgerMetadataBuilder builder)
+            throws IOException {
+        CompactSegments segments = CompactSegments.parseFrom(data.getCompactSegments());
+        if (segments.getSegmentCount() == 0) {
+            throw new IOException("No ensemble in the ledger metadata");
+        }
+        BookieId[] dictionary = new BookieId[data.getBookieCount()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = BookieId.parse(data.getBookie(i));
+        }
+
+        BookieId[] ensemble = new BookieId[data.getEnsembleSize()];
+        long firstEntryId = 0L;
+        for (CompactSegments.Segment segment : segments.getSegmentList()) {
+            if (segment.getPositionCount() != segment.getBookieIndexCount()) {
+                throw new IOException("Corrupted ensembles in the ledger metadata: " + segment.getPositionCount()
+                        + " positions for " + segment.getBookieIndexCount() + " bookies");
+            }
+            firstEntryId += segment.getFirstEntryIdDelta();
+            for (int i = 0; i < segment.getPositionCount(); i++) {
+                int position = segment.getPosition(i);
+                int bookieIndex = segment.getBookieIndex(i);
+                if (position < 0 || position >= ensemble.length) {
+                    throw new IOException("Corrupted ensembles in the ledger metadata: position " + position
+                            + " out of an ensemble of " + ensemble.length);
+                }
+                if (bookieIndex < 0 || bookieIndex >= dictionary.length) {
+                    throw new IOException("Corrupted ensembles in the ledger metadata: bookie " + bookieIndex
+                            + " out of a dictionary of " + dictionary.length);
+                }
+                ensemble[position] = dictionary[bookieIndex];
+            }
+            for (int i = 0; i < ensemble.length; i++) {
+                if (ensemble[i] == null) {
+                    throw new IOException("Corrupted ensembles in the ledger metadata: no bookie at position " + i
+                            + " of the ensemble at entry " + firstEntryId);
+                }
+            }
+            builder.newEnsembleEntry(firstEntryId, Arrays.asList(ensemble.clone()));
+        }
+    }
+
     private static LedgerMetadata parseVersion1Config(long ledgerId, InputStream is) throws IOException {
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, UTF_8.name()))) {
             LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
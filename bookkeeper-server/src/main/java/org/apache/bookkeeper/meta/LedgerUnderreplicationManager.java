@@ -202,6 +202,26 @@ public interface LedgerUnderreplicationManager extends AutoCloseable {
      */
     long getCheckAllLedgersCTime() throws ReplicationException.UnavailableException;
 
+    /**
+     * Setter for the checkpoint of an incomplete CheckAllLedgers, i.e. the ledger id up to which all the
+     * ledgers were checked. The checkpoint is cleared by {@link #setCheckAllLedgersCTime(long)}.
+     *
+     * @param ledgerId the last ledger id of the checked ledgers
+     * @throws ReplicationException.UnavailableException
+     */
+    default void setCheckAllLedgersCheckpoint(long ledgerId) throws ReplicationException.UnavailableException {
+    }
+
+    /**
+     * Getter for the checkpoint of an incomplete CheckAllLedgers.
+     *
+     * @return the ledger id up to which all the ledgers were checked, or -1 if there is no checkpoint
+     * @throws ReplicationException.UnavailableException
+     */
+    default long getCheckAllLedgersCheckpoint() throws ReplicationException.UnavailableException {
+        return -1L;
+    }
+
     /**
      * Setter for the PlacementPolicyCheck last executed ctime.
      *
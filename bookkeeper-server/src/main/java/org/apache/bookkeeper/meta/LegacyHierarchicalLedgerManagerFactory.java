@@ -71,11 +71,12 @@ public class LegacyHierarchicalLedgerManagerFactory extends AbstractZkLedgerMana
     @Override
     public LedgerIdGenerator newLedgerIdGenerator() {
         List<ACL> zkAcls = ZkUtils.getACLs(conf);
-        return new ZkLedgerIdGenerator(
+        ZkLedgerIdGenerator idGenerator = new ZkLedgerIdGenerator(
             zk,
             ZKMetadataDriverBase.resolveZkLedgersRootPath(conf),
             LegacyHierarchicalLedgerManager.IDGEN_ZNODE,
             zkAcls);
+        return newBlockLedgerIdGenerator(conf, idGenerator, Integer.MAX_VALUE);
     }
 
     @Override
@@ -202,11 +202,12 @@ public class MSLedgerManagerFactory extends AbstractZkLedgerManagerFactory {
     @Override
     public LedgerIdGenerator newLedgerIdGenerator() {
         List<ACL> zkAcls = ZkUtils.getACLs(conf);
-        return new ZkLedgerIdGenerator(
+        ZkLedgerIdGenerator idGenerator = new ZkLedgerIdGenerator(
             zk,
             ZKMetadataDriverBase.resolveZkLedgersRootPath(conf),
             MsLedgerManager.IDGEN_ZNODE,
             zkAcls);
+        return newBlockLedgerIdGenerator(conf, idGenerator, Integer.MAX_VALUE);
     }
 
     static class MsLedgerManager implements LedgerManager, MetastoreWatcher {
@@ -661,6 +662,7 @@ public class MSLedgerManagerFactory extends AbstractZkLedgerManagerFactory {
                 || BookKeeperConstants.LAYOUT_ZNODE.equals(znode)
                 || BookKeeperConstants.INSTANCEID.equals(znode)
                 || BookKeeperConstants.UNDER_REPLICATION_NODE.equals(znode)
+                || BookKeeperConstants.LEDGER_ID_BLOCK_ZNODE.equals(znode)
                 || MsLedgerManager.IDGEN_ZNODE.equals(znode);
         }
     }
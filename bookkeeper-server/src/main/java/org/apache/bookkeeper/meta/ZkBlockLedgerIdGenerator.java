@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.meta;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.List;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
+import org.apache.bookkeeper.util.BookKeeperConstants;
+import org.apache.bookkeeper.util.ZkUtils;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.ACL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ZooKeeper based block ledger id generator. The first id of the next block to reserve is stored in
+ * the <i>(ledgersPath)/idgen-block</i> znode, and a block is reserved with a single conditional
+ * update of this znode.
+ *
+ * <p>When the znode doesn't exist yet, the first block starts at an id generated by the regular ledger
+ * id generator of the ledger manager, so the blocks don't overlap with the ledgers created before.
+ *
+ * <p>The regular sequence can't be moved past the reserved blocks, so a client still using the regular
+ * generator can be handed an id of a block. The ledger creation of one of the two clients then fails
+ * with {@link BKException.Code#LedgerExistException} and is retried with a new ledger id.
+ */
+public class ZkBlockLedgerIdGenerator extends BlockLedgerIdGenerator {
+    private static final Logger LOG = LoggerFactory.getLogger(ZkBlockLedgerIdGenerator.class);
+
+    private final ZooKeeper zk;
+    private final String blockPath;
+    private final LedgerIdGenerator idGenerator;
+    private final List<ACL> zkAcls;
+
+    /**
+     * @param zk zookeeper client
+     * @param ledgersPath the ledgers root path
+     * @param idGenerator the regular ledger id generator of the ledger manager
+     * @param blockSize number of ledger ids reserved at once
+     * @param ledgerIdLimit the generated ledger ids are lower than this limit
+     * @param zkAcls acls of the block znode
+     */
+    public ZkBlockLedgerIdGenerator(ZooKeeper zk,
+                                    String ledgersPath,
+                                    LedgerIdGenerator idGenerator,
+                                    int blockSize,
+                                    long ledgerIdLimit,
+                                    List<ACL> zkAcls) {
+        super(blockSize, ledgerIdLimit);
+        this.zk = zk;
+        this.blockPath = ledgersPath + "/" + BookKeeperConstants.LEDGER_ID_BLOCK_ZNODE;
+        this.idGenerator = idGenerator;
+        this.zkAcls = zkAcls;
+    }
+
+    @Override
+    protected void reserveBlock(int blockSize, GenericCallback<Long> cb) {
+        zk.getData(blockPath, false, (rc, path, ctx, data, stat) -> {
+            if (rc == KeeperException.Code.NONODE.intValue()) {
+                createBlockZnode(blockSize, cb);
+                return;
+            } else if (rc != KeeperException.Code.OK.intValue()) {
+                LOG.error("Could not read ledger id block znode {}",
+                        blockPath, KeeperException.create(KeeperException.Code.get(rc), path));
+                cb.operationComplete(BKException.Code.ZKException, null);
+                return;
+            }
+
+            long firstLedgerId;
+            try {
+                firstLedgerId = Long.parseLong(new String(data, UTF_8));
+            } catch (NumberFormatException e) {
+                LOG.error("Invalid content of ledger id block znode {}", blockPath, e);
+                cb.operationComplete(BKException.Code.ZKException, null);
+                return;
+            }
+            byte[] nextBlockStart = Long.toString(nextBlockStart(firstLedgerId, blockSize)).getBytes(UTF_8);
+            zk.setData(blockPath, nextBlockStart, stat.getVersion(), (setRc, setPath, setCtx, setStat) -> {
+                if (setRc == KeeperException.Code.OK.intValue()) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Reserved ledger ids [{}, {})", firstLedgerId,
+                                nextBlockStart(firstLedgerId, blockSize));
+                    }
+                    cb.operationComplete(BKException.Code.OK, firstLedgerId);
+                } else if (setRc == KeeperException.Code.BADVERSION.intValue()) {
+                    // another client reserved the block first, try the next one
+                    reserveBlock(blockSize, cb);
+                } else {
+                    LOG.error("Could not update ledger id block znode {}",
+                            blockPath, KeeperException.create(KeeperException.Code.get(setRc), setPath));
+                    cb.operationComplete(BKException.Code.ZKException, null);
+                }
+            }, null);
+        }, null);
+    }
+
+    private void createBlockZnode(int blockSize, GenericCallback<Long> cb) {
+        idGenerator.generateLedgerId((rc, firstLedgerId) -> {
+            if (rc != BKException.Code.OK) {
+                cb.operationComplete(rc, null);
+                return;
+            }
+            byte[] nextBlockStart = Long.toString(nextBlockStart(firstLedgerId, blockSize)).getBytes(UTF_8);
+            ZkUtils.asyncCreateFullPathOptimistic(zk, blockPath, nextBlockStart, zkAcls, CreateMode.PERSISTENT,
+                    (createRc, path, ctx, name) -> {
+                        if (createRc == KeeperException.Code.OK.intValue()) {
+                            LOG.info("Created ledger id block znode {}, starting at ledger id {}",
+                                    blockPath, firstLedgerId);
+                            cb.operationComplete(BKException.Code.OK, firstLedgerId);
+                        } else if (createRc == KeeperException.Code.NODEEXISTS.intValue()) {
+                            // created concurrently by another client
+                            reserveBlock(blockSize, cb);
+                        } else {
+                            LOG.error("Could not create ledger id block znode {}",
+                                    blockPath, KeeperException.create(KeeperException.Code.get(createRc), path));
+                            cb.operationComplete(BKException.Code.ZKException, null);
+                        }
+                    }, null);
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        idGenerator.close();
+    }
+}
@@ -999,6 +999,60 @@ public class ZkLedgerUnderreplicationManager implements LedgerUnderreplicationMa
         }
     }
 
+    @Override
+    public void setCheckAllLedgersCheckpoint(long ledgerId) throws UnavailableException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("setCheckAllLedgersCheckpoint {}", ledgerId);
+        }
+        try {
+            Stat stat = new Stat();
+            CheckAllLedgersFormat.Builder builder = CheckAllLedgersFormat.newBuilder();
+            try {
+                // keep the ctime of the last complete check
+                builder.mergeFrom(zkc.getData(checkAllLedgersCtimeZnode, false, stat));
+            } catch (KeeperException.NoNodeException ne) {
+                stat = null;
+            }
+            builder.setCheckpointLedgerId(ledgerId);
+            byte[] checkAllLedgersFormatByteArray = builder.build().toByteArray();
+            if (stat != null) {
+                zkc.setData(checkAllLedgersCtimeZnode, checkAllLedgersFormatByteArray, stat.getVersion());
+            } else {
+                zkc.create(checkAllLedgersCtimeZnode, checkAllLedgersFormatByteArray, ZkUtils.getACLs(conf),
+                        CreateMode.PERSISTENT);
+            }
+        } catch (KeeperException ke) {
+            throw ReplicationException.fromKeeperException("Error contacting zookeeper", ke);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new ReplicationException.UnavailableException("Interrupted while contacting zookeeper", ie);
+        } catch (InvalidProtocolBufferException ipbe) {
+            throw new ReplicationException.UnavailableException("Error while parsing ZK protobuf binary data", ipbe);
+        }
+    }
+
+    @Override
+    public long getCheckAllLedgersCheckpoint() throws UnavailableException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("getCheckAllLedgersCheckpoint");
+        }
+        try {
+            byte[] data = zkc.getData(checkAllLedgersCtimeZnode, false, null);
+            CheckAllLedgersFormat checkAllLedgersFormat = CheckAllLedgersFormat.parseFrom(data);
+            return checkAllLedgersFormat.hasCheckpointLedgerId() ? checkAllLedgersFormat.getCheckpointLedgerId()
+                    : -1;
+        } catch (KeeperException.NoNodeException ne) {
+            return -1;
+        } catch (KeeperException ke) {
+            throw ReplicationException.fromKeeperException("Error contacting zookeeper", ke);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new ReplicationException.UnavailableException("Interrupted while contacting zookeeper", ie);
+        } catch (InvalidProtocolBufferException ipbe) {
+            throw new ReplicationException.UnavailableException("Error while parsing ZK protobuf binary data", ipbe);
+        }
+    }
+
     @Override
     public void setPlacementPolicyCheckCTime(long placementPolicyCheckCTime) throws UnavailableException {
         if (LOG.isDebugEnabled()) {
@@ -90,4 +90,16 @@ public interface NetworkTopology {
      * @return number of available nodes
      */
     int countNumOfAvailableNodes(String scope, Collection<Node> excludedNodes);
+
+    /**
+     * Returns the version of the network topology, which changes every time a node is added or removed.
+     *
+     * <p>It allows to cache views of the topology until it changes. Topologies which don't track their
+     * changes return a negative version, i.e. such views must not be cached.
+     *
+     * @return version of the network topology, or a negative value if it isn't tracked
+     */
+    default long getVersion() {
+        return -1L;
+    }
 }
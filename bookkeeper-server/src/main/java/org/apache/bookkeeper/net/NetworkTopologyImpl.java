@@ -21,10 +21,14 @@ import com.google.common.base.Strings;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.slf4j.Logger;
@@ -39,6 +43,10 @@ import org.slf4j.LoggerFactory;
  * nodes represent switches/routers that manage traffic in/out of data centers
  * or racks.
  *
+ * <p>The tree is only changed by {@link #add(Node)} and {@link #remove(Node)}, under the write lock. The lookups
+ * use an immutable snapshot of the tree instead, which is built on the first lookup after a change and
+ * published atomically, so that the placement policies looking up the topology on every ledger creation and
+ * read do not contend on the lock.
  */
 public class NetworkTopologyImpl implements NetworkTopology {
 
@@ -373,6 +381,69 @@ public class NetworkTopologyImpl implements NetworkTopology {
         }
     } // end of InnerNode
 
+    /**
+     * A node of the snapshot of the tree, with the range of its leaves in the leaves of the snapshot.
+     */
+    private static final class Subtree {
+        final Node node;
+        final int start;
+        final int end;
+        // null for a leaf
+        final Node[] children;
+        // null for the root, set when the parent is built
+        Subtree parent;
+
+        Subtree(Node node, int start, int end, Node[] children) {
+            this.node = node;
+            this.start = start;
+            this.end = end;
+            this.children = children;
+        }
+
+        boolean isInner() {
+            return children != null;
+        }
+
+        int getNumOfLeaves() {
+            return end - start;
+        }
+
+        boolean contains(Subtree other) {
+            return other.start >= start && other.end <= end;
+        }
+    }
+
+    /**
+     * An immutable snapshot of the tree. The leaves are in the order of a depth first walk of the tree, so that
+     * the leaves of any node are a range of them.
+     */
+    private static final class Snapshot {
+        // the nodes by their normalized path
+        final Map<String, Subtree> subtrees;
+        // the nodes by identity, as the nodes in the tree are the instances which were added
+        final Map<Node, Subtree> subtreesByNode;
+        final Node[] leaves;
+        final int numOfRacks;
+
+        Snapshot(Map<String, Subtree> subtrees, Node[] leaves, int numOfRacks) {
+            this.subtrees = subtrees;
+            this.subtreesByNode = new IdentityHashMap<Node, Subtree>(subtrees.size());
+            for (Subtree subtree : subtrees.values()) {
+                subtreesByNode.put(subtree.node, subtree);
+            }
+            this.leaves = leaves;
+            this.numOfRacks = numOfRacks;
+        }
+
+        Subtree getSubtree(String loc) {
+            return subtrees.get(NodeBase.normalize(loc));
+        }
+
+        Subtree getSubtree(Node node) {
+            return subtreesByNode.get(node);
+        }
+    }
+
     /**
      * The root cluster map.
      */
@@ -385,10 +456,18 @@ public class NetworkTopologyImpl implements NetworkTopology {
      * Rack counter.
      */
     protected int numOfRacks = 0;
+    /**
+     * Number of changes of the topology.
+     */
+    private final AtomicLong version = new AtomicLong(0L);
     /**
      * The lock used to manage access.
      */
     protected ReadWriteLock netlock = new ReentrantReadWriteLock();
+    /**
+     * The snapshot of the tree used by the lookups, null if the tree changed since it was built.
+     */
+    private volatile Snapshot snapshot = null;
 
     public NetworkTopologyImpl() {
         clusterMap = new InnerNode(InnerNode.ROOT);
@@ -406,7 +485,6 @@ public class NetworkTopologyImpl implements NetworkTopology {
         if (node == null) {
             return;
         }
-        String oldTopoStr = this.toString();
         if (node instanceof InnerNode) {
             throw new IllegalArgumentException("Not allow to add an inner node: " + NodeBase.getPath(node));
         }
@@ -414,7 +492,8 @@ public class NetworkTopologyImpl implements NetworkTopology {
         netlock.writeLock().lock();
         try {
             if ((depthOfAllLeaves != -1) && (depthOfAllLeaves != newDepth)) {
-                LOG.error("Error: can't add leaf node {} at depth {} to topology:\n{}", node, newDepth, oldTopoStr);
+                // the topology is only printed on error, as printing it is linear in the number of nodes
+                LOG.error("Error: can't add leaf node {} at depth {} to topology:\n{}", node, newDepth, this);
                 throw new InvalidTopologyException("Invalid network topology. "
                         + "You cannot have a rack and a non-rack node at the same level of the network topology.");
             }
@@ -429,6 +508,8 @@ public class NetworkTopologyImpl implements NetworkTopology {
                 if (rack == null) {
                     numOfRacks++;
                 }
+                snapshot = null;
+                version.incrementAndGet();
                 if (!(node instanceof InnerNode)) {
                     if (depthOfAllLeaves == -1) {
                         depthOfAllLeaves = node.getLevel();
@@ -445,7 +526,7 @@ public class NetworkTopologyImpl implements NetworkTopology {
 
     /**
      * Return a reference to the node given its string representation.
-     * Default implementation delegates to {@link #getNode(String)}.
+     * Default implementation looks the network location of the node up in the tree.
      *
      * <p>To be overridden in subclasses for specific NetworkTopology
      * implementations, as alternative to overriding the full {@link #add(Node)}
@@ -456,34 +537,87 @@ public class NetworkTopologyImpl implements NetworkTopology {
      * @return a reference to the node; null if the node is not in the tree
      *
      * @see #add(Node)
-     * @see #getNode(String)
      */
     protected Node getNodeForNetworkLocation(Node node) {
-        return getNode(node.getNetworkLocation());
+        return getNodeInTree(node.getNetworkLocation());
     }
 
     /**
-     * Given a string representation of a rack, return its children.
-     * @param loc a path-like string representation of a rack
-     * @return a newly allocated list with all the node's children
+     * Look a node up in the tree, which is only consistent under the lock.
      */
-    public List<Node> getDatanodesInRack(String loc) {
+    private Node getNodeInTree(String loc) {
+        loc = NodeBase.normalize(loc);
+        if (!NodeBase.ROOT.equals(loc)) {
+            loc = loc.substring(1);
+        }
+        return clusterMap.getLoc(loc);
+    }
+
+    /**
+     * Get the snapshot of the tree, building it if the tree changed since the last one was built.
+     */
+    private Snapshot getSnapshot() {
+        Snapshot s = snapshot;
+        if (s != null) {
+            return s;
+        }
         netlock.readLock().lock();
         try {
-            loc = NodeBase.normalize(loc);
-            if (!NodeBase.ROOT.equals(loc)) {
-                loc = loc.substring(1);
+            // the tree can't change while the read lock is held, and the writers clear the snapshot after
+            // changing it, so the snapshot published here can't be stale
+            s = snapshot;
+            if (s == null) {
+                List<Node> leaves = new ArrayList<Node>(clusterMap.getNumOfLeaves());
+                Map<String, Subtree> subtrees = new HashMap<String, Subtree>();
+                addToSnapshot(NodeBase.ROOT, clusterMap, leaves, subtrees);
+                s = new Snapshot(subtrees, leaves.toArray(new Node[leaves.size()]), numOfRacks);
+                snapshot = s;
             }
-            InnerNode rack = (InnerNode) clusterMap.getLoc(loc);
-            if (rack == null) {
-                return null;
-            }
-            return new ArrayList<Node>(rack.getChildren());
+            return s;
         } finally {
             netlock.readLock().unlock();
         }
     }
 
+    private static Subtree addToSnapshot(String path, Node node, List<Node> leaves,
+                                         Map<String, Subtree> subtrees) {
+        int start = leaves.size();
+        Node[] children = null;
+        Subtree[] childSubtrees = null;
+        if (node instanceof InnerNode) {
+            List<Node> childList = ((InnerNode) node).getChildren();
+            children = childList.toArray(new Node[childList.size()]);
+            childSubtrees = new Subtree[children.length];
+            for (int i = 0; i < children.length; i++) {
+                childSubtrees[i] = addToSnapshot(path + NodeBase.PATH_SEPARATOR_STR + children[i].getName(),
+                        children[i], leaves, subtrees);
+            }
+        } else {
+            leaves.add(node);
+        }
+        Subtree subtree = new Subtree(node, start, leaves.size(), children);
+        if (childSubtrees != null) {
+            for (Subtree child : childSubtrees) {
+                child.parent = subtree;
+            }
+        }
+        subtrees.put(path, subtree);
+        return subtree;
+    }
+
+    /**
+     * Given a string representation of a rack, return its children.
+     * @param loc a path-like string representation of a rack
+     * @return a newly allocated list with all the node's children, null if there is no rack at this location
+     */
+    public List<Node> getDatanodesInRack(String loc) {
+        Subtree rack = getSnapshot().getSubtree(loc);
+        if (rack == null || !rack.isInner()) {
+            return null;
+        }
+        return new ArrayList<Node>(Arrays.asList(rack.children));
+    }
+
     /**
      * Remove a node.
      * Update node counter and rack counter if necessary.
@@ -501,10 +635,12 @@ public class NetworkTopologyImpl implements NetworkTopology {
         netlock.writeLock().lock();
         try {
             if (clusterMap.remove(node)) {
-                InnerNode rack = (InnerNode) getNode(node.getNetworkLocation());
+                InnerNode rack = (InnerNode) getNodeInTree(node.getNetworkLocation());
                 if (rack == null) {
                     numOfRacks--;
                 }
+                snapshot = null;
+                version.incrementAndGet();
             }
             if (LOG.isDebugEnabled()) {
                 LOG.debug("NetworkTopology became:\n" + this);
@@ -525,18 +661,7 @@ public class NetworkTopologyImpl implements NetworkTopology {
         if (node == null) {
             return false;
         }
-        netlock.readLock().lock();
-        try {
-            Node parent = node.getParent();
-            for (int level = node.getLevel(); parent != null && level > 0; parent = parent.getParent(), level--) {
-                if (parent == clusterMap) {
-                    return true;
-                }
-            }
-        } finally {
-            netlock.readLock().unlock();
-        }
-        return false;
+        return getSnapshot().getSubtree(node) != null;
     }
 
     /**
@@ -548,16 +673,8 @@ public class NetworkTopologyImpl implements NetworkTopology {
      */
     @Override
     public Node getNode(String loc) {
-        netlock.readLock().lock();
-        try {
-            loc = NodeBase.normalize(loc);
-            if (!NodeBase.ROOT.equals(loc)) {
-                loc = loc.substring(1);
-            }
-            return clusterMap.getLoc(loc);
-        } finally {
-            netlock.readLock().unlock();
-        }
+        Subtree subtree = getSnapshot().getSubtree(loc);
+        return subtree == null ? null : subtree.node;
     }
 
     /**
@@ -577,22 +694,17 @@ public class NetworkTopologyImpl implements NetworkTopology {
     /** @return the total number of racks */
     @Override
     public int getNumOfRacks() {
-        netlock.readLock().lock();
-        try {
-            return numOfRacks;
-        } finally {
-            netlock.readLock().unlock();
-        }
+        return getSnapshot().numOfRacks;
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
     }
 
     /** @return the total number of leaf nodes */
     public int getNumOfLeaves() {
-        netlock.readLock().lock();
-        try {
-            return clusterMap.getNumOfLeaves();
-        } finally {
-            netlock.readLock().unlock();
-        }
+        return getSnapshot().leaves.length;
     }
 
     /**
@@ -610,28 +722,25 @@ public class NetworkTopologyImpl implements NetworkTopology {
         if (node1 == node2) {
             return 0;
         }
+        // the parents of the nodes of the tree are walked in the snapshot, as the tree may be changed meanwhile
+        Snapshot s = getSnapshot();
         Node n1 = node1, n2 = node2;
         int dis = 0;
-        netlock.readLock().lock();
-        try {
-            int level1 = node1.getLevel(), level2 = node2.getLevel();
-            while (n1 != null && level1 > level2) {
-                n1 = n1.getParent();
-                level1--;
-                dis++;
-            }
-            while (n2 != null && level2 > level1) {
-                n2 = n2.getParent();
-                level2--;
-                dis++;
-            }
-            while (n1 != null && n2 != null && n1.getParent() != n2.getParent()) {
-                n1 = n1.getParent();
-                n2 = n2.getParent();
-                dis += 2;
-            }
-        } finally {
-            netlock.readLock().unlock();
+        int level1 = getLevel(s, node1), level2 = getLevel(s, node2);
+        while (n1 != null && level1 > level2) {
+            n1 = getParent(s, n1);
+            level1--;
+            dis++;
+        }
+        while (n2 != null && level2 > level1) {
+            n2 = getParent(s, n2);
+            level2--;
+            dis++;
+        }
+        while (n1 != null && n2 != null && getParent(s, n1) != getParent(s, n2)) {
+            n1 = getParent(s, n1);
+            n2 = getParent(s, n2);
+            dis += 2;
         }
         if (n1 == null) {
             LOG.warn("The cluster does not contain node: {}", NodeBase.getPath(node1));
@@ -644,6 +753,29 @@ public class NetworkTopologyImpl implements NetworkTopology {
         return dis + 2;
     }
 
+    /**
+     * The parent of a node of the snapshot, or the parent of a node which isn't in the tree.
+     */
+    private static Node getParent(Snapshot s, Node node) {
+        Subtree subtree = s.getSubtree(node);
+        if (subtree == null) {
+            return node.getParent();
+        }
+        return subtree.parent == null ? null : subtree.parent.node;
+    }
+
+    private static int getLevel(Snapshot s, Node node) {
+        Subtree subtree = s.getSubtree(node);
+        if (subtree == null) {
+            return node.getLevel();
+        }
+        int level = 0;
+        for (Subtree parent = subtree.parent; parent != null; parent = parent.parent) {
+            level++;
+        }
+        return level;
+    }
+
     /**
      * Check if two nodes are on the same rack.
      * @param node1 one node (can be null)
@@ -657,12 +789,7 @@ public class NetworkTopologyImpl implements NetworkTopology {
             return false;
         }
 
-        netlock.readLock().lock();
-        try {
-            return isSameParents(node1, node2);
-        } finally {
-            netlock.readLock().unlock();
-        }
+        return isSameParents(node1, node2);
     }
 
     /**
@@ -688,16 +815,17 @@ public class NetworkTopologyImpl implements NetworkTopology {
      *
      * @param node1 the first node to compare
      * @param node2 the second node to compare
-     * @return true if their parents are equal, false otherwise
+     * @return true if their parents are equal, false otherwise or if either node is not in the tree
      *
      * @see #isOnSameRack(Node, Node)
      */
     protected boolean isSameParents(Node node1, Node node2) {
-        return node1.getParent() == node2.getParent();
+        // the parents are compared in the snapshot, as the tree may be changed meanwhile
+        Snapshot s = getSnapshot();
+        Subtree n1 = s.getSubtree(node1), n2 = s.getSubtree(node2);
+        return n1 != null && n2 != null && n1.parent == n2.parent;
     }
 
-    private static final Random r = new Random();
-
     /**
      * Randomly choose one node from <i>scope</i>.
      *
@@ -707,15 +835,10 @@ public class NetworkTopologyImpl implements NetworkTopology {
      * @return the chosen node
      */
     public Node chooseRandom(String scope) {
-        netlock.readLock().lock();
-        try {
-            if (scope.startsWith(INVERSE)) {
-                return chooseRandom(NodeBase.ROOT, scope.substring(1));
-            } else {
-                return chooseRandom(scope, null);
-            }
-        } finally {
-            netlock.readLock().unlock();
+        if (scope.startsWith(INVERSE)) {
+            return chooseRandom(NodeBase.ROOT, scope.substring(1));
+        } else {
+            return chooseRandom(scope, null);
         }
     }
 
@@ -728,68 +851,60 @@ public class NetworkTopologyImpl implements NetworkTopology {
                 excludedScope = null;
             }
         }
-        Node node = getNode(scope);
-        if (!(node instanceof InnerNode)) {
-            return node;
+        Snapshot s = getSnapshot();
+        Subtree subtree = s.getSubtree(scope);
+        if (subtree == null || !subtree.isInner()) {
+            return subtree == null ? null : subtree.node;
         }
-        InnerNode innerNode = (InnerNode) node;
-        int numOfDatanodes = innerNode.getNumOfLeaves();
-        if (excludedScope == null) {
-            node = null;
-        } else {
-            node = getNode(excludedScope);
-            if (!(node instanceof InnerNode)) {
-                numOfDatanodes -= 1;
-            } else {
-                numOfDatanodes -= ((InnerNode) node).getNumOfLeaves();
-            }
+        int numOfDatanodes = subtree.getNumOfLeaves();
+        Subtree excluded = null;
+        if (excludedScope != null) {
+            excluded = s.getSubtree(excludedScope);
+            numOfDatanodes -= excluded == null ? 1 : excluded.getNumOfLeaves();
+        }
+        int leaveIndex = subtree.start + ThreadLocalRandom.current().nextInt(numOfDatanodes);
+        // skip the range of the excluded leaves
+        if (excluded != null && subtree.contains(excluded) && leaveIndex >= excluded.start) {
+            leaveIndex += excluded.getNumOfLeaves();
         }
-        int leaveIndex = r.nextInt(numOfDatanodes);
-        return innerNode.getLeaf(leaveIndex, node);
+        return leaveIndex < subtree.end ? s.leaves[leaveIndex] : null;
     }
 
-    /**
-     * Return leaves in <i>scope</i>.
-     * @param scope a path string
-     * @return leaves nodes under specific scope
-     */
-    private Set<Node> doGetLeaves(String scope) {
-        Node node = getNode(scope);
-        Set<Node> leafNodes = new HashSet<Node>();
-        if (node == null) {
+    @Override
+    public Set<Node> getLeaves(String scope) {
+        Snapshot s = getSnapshot();
+        if (scope.startsWith(INVERSE)) {
+            String[] excludeScopes = scope.substring(1).split(NODE_SEPARATOR);
+            Subtree[] excluded = new Subtree[excludeScopes.length];
+            for (int i = 0; i < excludeScopes.length; i++) {
+                excluded[i] = s.getSubtree(excludeScopes[i]);
+            }
+            Set<Node> leafNodes = new HashSet<Node>();
+            for (int i = 0; i < s.leaves.length; i++) {
+                if (!isInRanges(i, excluded)) {
+                    leafNodes.add(s.leaves[i]);
+                }
+            }
             return leafNodes;
-        }
-
-        if (!(node instanceof InnerNode)) {
-            leafNodes.add(node);
         } else {
-            InnerNode innerNode = (InnerNode) node;
-            for (int i = 0; i < innerNode.getNumOfLeaves(); i++) {
-                leafNodes.add(innerNode.getLeaf(i, null));
+            Set<Node> leafNodes = new HashSet<Node>();
+            Subtree subtree = s.getSubtree(scope);
+            if (subtree != null) {
+                for (int i = subtree.start; i < subtree.end; i++) {
+                    leafNodes.add(s.leaves[i]);
+                }
             }
+            return leafNodes;
         }
-        return leafNodes;
     }
 
-    @Override
-    public Set<Node> getLeaves(String scope) {
-        netlock.readLock().lock();
-        try {
-            if (scope.startsWith(INVERSE)) {
-                Set<Node> allNodes = doGetLeaves(NodeBase.ROOT);
-                String[] excludeScopes = scope.substring(1).split(NODE_SEPARATOR);
-                Set<Node> excludeNodes = new HashSet<Node>();
-                Arrays.stream(excludeScopes).forEach((excludeScope) -> {
-                    excludeNodes.addAll(doGetLeaves(excludeScope));
-                });
-                allNodes.removeAll(excludeNodes);
-                return allNodes;
-            } else {
-                return doGetLeaves(scope);
+    private static boolean isInRanges(int leafIndex, Subtree[] subtrees) {
+        for (Subtree subtree : subtrees) {
+            if (subtree != null && leafIndex >= subtree.start && leafIndex < subtree.end) {
+                return true;
             }
-        } finally {
-            netlock.readLock().unlock();
         }
+        return false;
     }
 
     @Override
@@ -801,26 +916,22 @@ public class NetworkTopologyImpl implements NetworkTopology {
         }
         scope = NodeBase.normalize(scope);
         int count = 0; // the number of nodes in both scope & excludedNodes
-        netlock.readLock().lock();
-        try {
-            for (Node node : excludedNodes) {
-                if ((NodeBase.getPath(node) + NodeBase.PATH_SEPARATOR_STR).startsWith(scope
-                        + NodeBase.PATH_SEPARATOR_STR)) {
-                    count++;
-                }
+        for (Node node : excludedNodes) {
+            if ((NodeBase.getPath(node) + NodeBase.PATH_SEPARATOR_STR).startsWith(scope
+                    + NodeBase.PATH_SEPARATOR_STR)) {
+                count++;
             }
-            Node n = getNode(scope);
-            int scopeNodeCount = 0;
-            if (n instanceof InnerNode) {
-                scopeNodeCount = ((InnerNode) n).getNumOfLeaves();
-            }
-            if (isExcluded) {
-                return clusterMap.getNumOfLeaves() - scopeNodeCount - excludedNodes.size() + count;
-            } else {
-                return scopeNodeCount - count;
-            }
-        } finally {
-            netlock.readLock().unlock();
+        }
+        Snapshot s = getSnapshot();
+        Subtree subtree = s.getSubtree(scope);
+        int scopeNodeCount = 0;
+        if (subtree != null && subtree.isInner()) {
+            scopeNodeCount = subtree.getNumOfLeaves();
+        }
+        if (isExcluded) {
+            return s.leaves.length - scopeNodeCount - excludedNodes.size() + count;
+        } else {
+            return scopeNodeCount - count;
         }
     }
 
@@ -831,18 +942,24 @@ public class NetworkTopologyImpl implements NetworkTopology {
     public String toString() {
         // print the number of racks
         StringBuilder tree = new StringBuilder();
-        tree.append("Number of racks: ");
-        tree.append(numOfRacks);
-        tree.append("\n");
-        // print the number of leaves
-        int numOfLeaves = getNumOfLeaves();
-        tree.append("Expected number of leaves:");
-        tree.append(numOfLeaves);
-        tree.append("\n");
-        // print nodes
-        for (int i = 0; i < numOfLeaves; i++) {
-            tree.append(NodeBase.getPath(clusterMap.getLeaf(i, null)));
+        // walk the tree rather than the snapshot, as it is also printed by the writers while changing it
+        netlock.readLock().lock();
+        try {
+            tree.append("Number of racks: ");
+            tree.append(numOfRacks);
             tree.append("\n");
+            // print the number of leaves
+            int numOfLeaves = clusterMap.getNumOfLeaves();
+            tree.append("Expected number of leaves:");
+            tree.append(numOfLeaves);
+            tree.append("\n");
+            // print nodes
+            for (int i = 0; i < numOfLeaves; i++) {
+                tree.append(NodeBase.getPath(clusterMap.getLeaf(i, null)));
+                tree.append("\n");
+            }
+        } finally {
+            netlock.readLock().unlock();
         }
         return tree.toString();
     }
@@ -928,7 +1045,7 @@ public class NetworkTopologyImpl implements NetworkTopology {
 
         // put a random node at position 0 if it is not a local/local-rack node
         if (tempIndex == 0 && localRackNode == -1 && nodes.length != 0) {
-            swap(nodes, 0, r.nextInt(nodes.length));
+            swap(nodes, 0, ThreadLocalRandom.current().nextInt(nodes.length));
         }
     }
 
@@ -21,6 +21,7 @@
 package org.apache.bookkeeper.proto;
 
 import io.netty.util.ReferenceCounted;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -230,6 +231,30 @@ public interface BookieClient {
     CompletableFuture<AvailabilityOfEntriesOfLedger> getListOfEntriesOfLedger(BookieId address,
             long ledgerId);
 
+    /**
+     * Makes a single async request for getting the lists of entries of many
+     * ledgers from a bookie and returns a Future for the result of each ledger.
+     *
+     * <p>The futures are completed exceptionally with
+     * {@link org.apache.bookkeeper.client.BKException.BKIllegalOpException}
+     * if the bookie doesn't support this request. The default implementation
+     * makes a request per ledger.
+     *
+     * @param address
+     *            BookieId of the bookie
+     * @param ledgerIds
+     *            ledgerIds
+     * @return returns a Future per ledger, in the order of the ledgerIds
+     */
+    default List<CompletableFuture<AvailabilityOfEntriesOfLedger>> getListOfEntriesOfLedgers(BookieId address,
+            long[] ledgerIds) {
+        List<CompletableFuture<AvailabilityOfEntriesOfLedger>> futures = new ArrayList<>(ledgerIds.length);
+        for (long ledgerId : ledgerIds) {
+            futures.add(getListOfEntriesOfLedger(address, ledgerId));
+        }
+        return futures;
+    }
+
     /**
      * @return whether bookie client object has been closed
      */
@@ -35,6 +35,7 @@ import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -339,6 +340,48 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         return futureResult;
     }
 
+    @Override
+    public List<CompletableFuture<AvailabilityOfEntriesOfLedger>> getListOfEntriesOfLedgers(BookieId address,
+            long[] ledgerIds) {
+        FutureGetListOfEntriesOfLedger[] futureResults = new FutureGetListOfEntriesOfLedger[ledgerIds.length];
+        for (int i = 0; i < ledgerIds.length; i++) {
+            futureResults[i] = new FutureGetListOfEntriesOfLedger(ledgerIds[i]);
+        }
+        List<CompletableFuture<AvailabilityOfEntriesOfLedger>> futures = Arrays.asList(futureResults);
+        if (ledgerIds.length == 0) {
+            return futures;
+        }
+        final PerChannelBookieClientPool client = lookupClient(address);
+        if (client == null) {
+            for (int i = 0; i < ledgerIds.length; i++) {
+                futureResults[i].getListOfEntriesOfLedgerComplete(
+                        getRc(BKException.Code.BookieHandleNotAvailableException), ledgerIds[i], null);
+            }
+            return futures;
+        }
+        // the same channel is used for all the ledgers of the request
+        final long orderingKey = ledgerIds[0];
+        client.obtain((rc, pcbc) -> {
+            if (rc != BKException.Code.OK) {
+                try {
+                    executor.executeOrdered(orderingKey, () -> {
+                        for (int i = 0; i < ledgerIds.length; i++) {
+                            futureResults[i].getListOfEntriesOfLedgerComplete(rc, ledgerIds[i], null);
+                        }
+                    });
+                } catch (RejectedExecutionException re) {
+                    for (int i = 0; i < ledgerIds.length; i++) {
+                        futureResults[i].getListOfEntriesOfLedgerComplete(
+                                getRc(BKException.Code.InterruptedException), ledgerIds[i], null);
+                    }
+                }
+            } else {
+                pcbc.getListOfEntriesOfLedgers(ledgerIds, futureResults);
+            }
+        }, orderingKey);
+        return futures;
+    }
+
     private void completeRead(final int rc,
                               final long ledgerId,
                               final long entryId,
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.LedgerStorage;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BookieLoad;
+import org.apache.bookkeeper.util.MathUtils;
+
+/**
+ * Tracks the load of a bookie, which is reported to the clients in the GetBookieInfo responses for the load
+ * aware placement.
+ *
+ * <p>The adds and reads are accumulated in adders. The rates are computed over the time since the previous
+ * report, and the same load is reported again to the requests received less than a second later, so that
+ * the clients polling the bookie at the same time get the same load.
+ */
+class BookieLoadTracker {
+
+    private static final long MIN_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder numAdds = new LongAdder();
+    private final LongAdder addLatencyNanos = new LongAdder();
+    private final LongAdder addBytes = new LongAdder();
+    private final LongAdder readBytes = new LongAdder();
+
+    private long lastReportNanos = MathUtils.nowInNano();
+    private long lastReadCacheHits = 0L;
+    private long lastReadCacheMisses = 0L;
+    private BookieLoad lastLoad = null;
+
+    void recordAdd(long latencyNanos, long bytes) {
+        numAdds.increment();
+        addLatencyNanos.add(latencyNanos);
+        addBytes.add(bytes);
+    }
+
+    void recordRead(long bytes) {
+        readBytes.add(bytes);
+    }
+
+    /**
+     * Get the load of the bookie.
+     *
+     * @param bookie the bookie
+     * @return the load of the bookie
+     */
+    synchronized BookieLoad getLoad(Bookie bookie) {
+        long nowNanos = MathUtils.nowInNano();
+        long elapsedNanos = nowNanos - lastReportNanos;
+        if (lastLoad != null && elapsedNanos < MIN_REPORT_INTERVAL_NANOS) {
+            return lastLoad;
+        }
+        lastReportNanos = nowNanos;
+        double elapsedSeconds = Math.max(elapsedNanos, 1L) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        BookieLoad.Builder load = BookieLoad.newBuilder()
+                .setJournalQueueSize(bookie.getJournalQueueLength())
+                .setAddBytesPerSecond((long) (addBytes.sumThenReset() / elapsedSeconds))
+                .setReadBytesPerSecond((long) (readBytes.sumThenReset() / elapsedSeconds));
+        long adds = numAdds.sumThenReset();
+        long latencyNanos = addLatencyNanos.sumThenReset();
+        load.setAddEntryLatencyMicros(adds == 0 ? 0L : TimeUnit.NANOSECONDS.toMicros(latencyNanos / adds));
+
+        LedgerStorage ledgerStorage = bookie.getLedgerStorage();
+        long readCacheHits = ledgerStorage.getReadCacheHitCount();
+        long readCacheMisses = ledgerStorage.getReadCacheMissCount();
+        long hits = readCacheHits - lastReadCacheHits;
+        long reads = hits + readCacheMisses - lastReadCacheMisses;
+        if (reads > 0) {
+            load.setReadCacheHitRate((double) hits / reads);
+        }
+        lastReadCacheHits = readCacheHits;
+        lastReadCacheMisses = readCacheMisses;
+
+        lastLoad = load.build();
+        return lastLoad;
+    }
+}
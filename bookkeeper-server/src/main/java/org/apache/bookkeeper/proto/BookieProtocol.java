@@ -188,6 +188,7 @@ public interface BookieProtocol {
     short FLAG_DO_FENCING = 0x0001;
     short FLAG_RECOVERY_ADD = 0x0002;
     short FLAG_HIGH_PRIORITY = 0x0004;
+    short FLAG_REPLICATION = 0x0008;
 
     /**
      * A Bookie request object.
@@ -326,6 +327,10 @@ public interface BookieProtocol {
             return (flags & FLAG_DO_FENCING) == FLAG_DO_FENCING;
         }
 
+        boolean isReplication() {
+            return (flags & FLAG_REPLICATION) == FLAG_REPLICATION;
+        }
+
         private final Handle<ReadRequest> recyclerHandle;
 
         private ReadRequest(Handle<ReadRequest> recyclerHandle) {
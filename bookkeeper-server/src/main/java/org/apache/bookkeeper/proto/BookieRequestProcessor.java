@@ -26,6 +26,7 @@ import static org.apache.bookkeeper.proto.RequestUtils.hasFlag;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.RateLimiter;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ByteString;
 import io.netty.buffer.ByteBufAllocator;
@@ -106,6 +107,16 @@ public class BookieRequestProcessor implements RequestProcessor {
      */
     private final OrderedExecutor highPriorityThreadPool;
 
+    /**
+     * The threadpool used to execute the reads of the autorecovery, the read threadpool if not configured.
+     */
+    private final OrderedExecutor replicationReadThreadPool;
+
+    /**
+     * The rate limiter of the bytes read by the replication read threadpool, null if unlimited.
+     */
+    private final RateLimiter replicationReadThrottle;
+
     /**
      * The Timer used to time out requests for long polling.
      */
@@ -166,6 +177,18 @@ public class BookieRequestProcessor implements RequestProcessor {
                 this.serverCfg.getNumHighPriorityWorkerThreads(),
                 "BookieHighPriorityThread",
                 OrderedExecutor.NO_TASK_LIMIT, statsLogger);
+        if (serverCfg.getNumReplicationReadWorkerThreads() <= 0) {
+            this.replicationReadThreadPool = this.readThreadPool;
+            this.replicationReadThrottle = null;
+        } else {
+            this.replicationReadThreadPool = createExecutor(
+                    this.serverCfg.getNumReplicationReadWorkerThreads(),
+                    "BookieReplicationReadThreadPool",
+                    serverCfg.getMaxPendingReadRequestPerThread(),
+                    statsLogger);
+            this.replicationReadThrottle = serverCfg.getReplicationReadRateByBytes() > 0
+                    ? RateLimiter.create(serverCfg.getReplicationReadRateByBytes()) : null;
+        }
         this.shFactory = shFactory;
         if (shFactory != null) {
             shFactory.init(NodeType.Server, serverCfg, allocator);
@@ -273,6 +296,9 @@ public class BookieRequestProcessor implements RequestProcessor {
             shutdownExecutor(longPollThreadPool);
         }
         shutdownExecutor(highPriorityThreadPool);
+        if (serverCfg.getNumReplicationReadWorkerThreads() > 0) {
+            shutdownExecutor(replicationReadThreadPool);
+        }
         requestTimer.stop();
         LOG.info("Closed RequestProcessor");
     }
@@ -351,7 +377,11 @@ public class BookieRequestProcessor implements RequestProcessor {
                         processStartTLSRequestV3(r, requestHandler);
                         break;
                     case GET_LIST_OF_ENTRIES_OF_LEDGER:
-                        processGetListOfEntriesOfLedgerProcessorV3(r, requestHandler);
+                        if (r.hasGetListOfEntriesOfLedgersRequest()) {
+                            processGetListOfEntriesOfLedgersProcessorV3(r, requestHandler);
+                        } else {
+                            processGetListOfEntriesOfLedgerProcessorV3(r, requestHandler);
+                        }
                         break;
                     default:
                         LOG.info("Unknown operation type {}", header.getOperation());
@@ -530,6 +560,8 @@ public class BookieRequestProcessor implements RequestProcessor {
                 || hasFlag(r.getReadRequest(), BookkeeperProtocol.ReadRequest.Flag.FENCE_LEDGER);
             if (isHighPriority) {
                 threadPool = highPriorityThreadPool;
+            } else if (RequestUtils.isReplicationReadRequest(r.getReadRequest())) {
+                threadPool = replicationReadThreadPool;
             } else {
                 threadPool = readThreadPool;
             }
@@ -639,6 +671,17 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processGetListOfEntriesOfLedgersProcessorV3(final BookkeeperProtocol.Request r,
+                                                             final BookieRequestHandler requestHandler) {
+        GetListOfEntriesOfLedgersProcessorV3 getListOfEntriesOfLedgers =
+                new GetListOfEntriesOfLedgersProcessorV3(r, requestHandler, this);
+        if (null == readThreadPool) {
+            getListOfEntriesOfLedgers.run();
+        } else {
+            readThreadPool.submit(getListOfEntriesOfLedgers);
+        }
+    }
+
     private void processAddRequest(final BookieProtocol.ParsedAddRequest r, final BookieRequestHandler requestHandler) {
         WriteEntryProcessor write = WriteEntryProcessor.create(r, requestHandler, this);
 
@@ -683,6 +726,8 @@ public class BookieRequestProcessor implements RequestProcessor {
         final OrderedExecutor threadPool;
         if (r.isHighPriority() || r.isFencing()) {
             threadPool = highPriorityThreadPool;
+        } else if (r.isReplication()) {
+            threadPool = replicationReadThreadPool;
         } else {
             threadPool = readThreadPool;
         }
@@ -707,6 +752,18 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    /**
+     * Throttle the reads of the autorecovery after reading an entry, by waiting on the replication read thread
+     * until the rate of the bytes read is below the limit.
+     *
+     * @param bytes size of the entry read
+     */
+    void throttleReplicationRead(int bytes) {
+        if (null != replicationReadThrottle && bytes > 0) {
+            replicationReadThrottle.acquire(bytes);
+        }
+    }
+
     public long getWaitTimeoutOnBackpressureMillis() {
         return waitTimeoutOnBackpressureMillis;
     }
@@ -70,6 +70,10 @@ public class GetBookieInfoProcessorV3 extends PacketProcessorBaseV3 implements R
                 totalDiskSpace = requestProcessor.getBookie().getTotalDiskSpace();
                 getBookieInfoResponse.setTotalDiskCapacity(totalDiskSpace);
             }
+            if ((requested & GetBookieInfoRequest.Flags.LOAD_VALUE) != 0) {
+                getBookieInfoResponse.setLoad(requestProcessor.getRequestStats().getLoadTracker()
+                        .getLoad(requestProcessor.getBookie()));
+            }
             if (LOG.isDebugEnabled()) {
                 LOG.debug("FreeDiskSpace info is " + freeDiskSpace + " totalDiskSpace is: " + totalDiskSpace);
             }
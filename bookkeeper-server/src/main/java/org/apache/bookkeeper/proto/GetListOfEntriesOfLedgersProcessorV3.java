@@ -0,0 +1,108 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgersRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgersResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A processor class for v3 entries of many ledgers packets.
+ *
+ * <p>The availability of the entries of each requested ledger is returned in a single response, with a status
+ * per ledger, so that checking the replicas of many ledgers doesn't take a request per ledger.
+ */
+public class GetListOfEntriesOfLedgersProcessorV3 extends PacketProcessorBaseV3 implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GetListOfEntriesOfLedgersProcessorV3.class);
+    protected final GetListOfEntriesOfLedgersRequest getListOfEntriesOfLedgersRequest;
+
+    public GetListOfEntriesOfLedgersProcessorV3(Request request, BookieRequestHandler requestHandler,
+            BookieRequestProcessor requestProcessor) {
+        super(request, requestHandler, requestProcessor);
+        this.getListOfEntriesOfLedgersRequest = request.getGetListOfEntriesOfLedgersRequest();
+    }
+
+    private GetListOfEntriesOfLedgersResponse getListOfEntriesOfLedgersResponse() {
+        long startTimeNanos = MathUtils.nowInNano();
+
+        GetListOfEntriesOfLedgersResponse.Builder getListOfEntriesOfLedgersResponse =
+                GetListOfEntriesOfLedgersResponse.newBuilder();
+
+        if (!isVersionCompatible()) {
+            getListOfEntriesOfLedgersResponse.setStatus(StatusCode.EBADVERSION);
+            requestProcessor.getRequestStats().getListOfEntriesOfLedgersStats
+                    .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            return getListOfEntriesOfLedgersResponse.build();
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Received new getListOfEntriesOfLedgers request for {} ledgers",
+                    getListOfEntriesOfLedgersRequest.getLedgerIdCount());
+        }
+        for (long ledgerId : getListOfEntriesOfLedgersRequest.getLedgerIdList()) {
+            GetListOfEntriesOfLedgerResponse.Builder ledgerResponse = GetListOfEntriesOfLedgerResponse.newBuilder()
+                    .setLedgerId(ledgerId);
+            StatusCode status = StatusCode.EOK;
+            try {
+                AvailabilityOfEntriesOfLedger availabilityOfEntriesOfLedger = new AvailabilityOfEntriesOfLedger(
+                        requestProcessor.bookie.getListOfEntriesOfLedger(ledgerId));
+                ledgerResponse.setAvailabilityOfEntriesOfLedger(
+                        ByteString.copyFrom(availabilityOfEntriesOfLedger.serializeStateOfEntriesOfLedger()));
+            } catch (Bookie.NoLedgerException e) {
+                // expected for the ledgers whose entries weren't striped to this bookie
+                status = StatusCode.ENOLEDGER;
+            } catch (IOException e) {
+                status = StatusCode.EIO;
+                LOG.error("IOException while performing getListOfEntriesOfLedgers from ledger: {}", ledgerId, e);
+            }
+            getListOfEntriesOfLedgersResponse.addLedgerResponse(ledgerResponse.setStatus(status));
+        }
+
+        requestProcessor.getRequestStats().getListOfEntriesOfLedgersStats
+                .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+        // Finally set the status and return
+        getListOfEntriesOfLedgersResponse.setStatus(StatusCode.EOK);
+        return getListOfEntriesOfLedgersResponse.build();
+    }
+
+    @Override
+    public void run() {
+        GetListOfEntriesOfLedgersResponse listOfEntriesOfLedgersResponse = getListOfEntriesOfLedgersResponse();
+        Response.Builder response = Response.newBuilder().setHeader(getHeader())
+                .setStatus(listOfEntriesOfLedgersResponse.getStatus())
+                .setGetListOfEntriesOfLedgersResponse(listOfEntriesOfLedgersResponse);
+        Response resp = response.build();
+        sendResponse(listOfEntriesOfLedgersResponse.getStatus(), resp,
+                requestProcessor.getRequestStats().getListOfEntriesOfLedgersRequestStats);
+    }
+}
@@ -96,6 +96,7 @@ import org.apache.bookkeeper.auth.ClientAuthProvider;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeperClientStats;
 import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieLoad;
 import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.common.util.MdcUtils;
 import org.apache.bookkeeper.common.util.OrderedExecutor;
@@ -121,6 +122,8 @@ import org.apache.bookkeeper.proto.BookkeeperProtocol.GetBookieInfoRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetBookieInfoResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgersRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgersResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadLacRequest;
@@ -272,6 +275,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     private final OpStatsLogger connectTimer;
     private final OpStatsLogger getListOfEntriesOfLedgerCompletionOpLogger;
     private final OpStatsLogger getListOfEntriesOfLedgerCompletionTimeoutOpLogger;
+    private final OpStatsLogger getListOfEntriesOfLedgersCompletionOpLogger;
+    private final OpStatsLogger getListOfEntriesOfLedgersCompletionTimeoutOpLogger;
     @StatsDoc(
         name = BookKeeperClientStats.NETTY_EXCEPTION_CNT,
         help = "the number of exceptions received from this channel"
@@ -315,6 +320,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     private final Counter failedTlsHandshakeCounter;
 
     private final boolean useV2WireProtocol;
+    private final boolean replicationClient;
     private final boolean preserveMdcForTaskExecution;
 
     /**
@@ -402,6 +408,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         this.getBookieInfoTimeoutNanos = TimeUnit.SECONDS.toNanos(conf.getBookieInfoTimeout());
         this.startTLSTimeout = conf.getStartTLSTimeout();
         this.useV2WireProtocol = conf.getUseV2WireProtocol();
+        this.replicationClient = conf.isReplicationClient();
         this.preserveMdcForTaskExecution = conf.getPreserveMdcForTaskExecution();
 
         this.authProviderFactory = authProviderFactory;
@@ -432,6 +439,10 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         startTLSTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_START_TLS_OP);
         getListOfEntriesOfLedgerCompletionTimeoutOpLogger = statsLogger
                 .getOpStatsLogger(BookKeeperClientStats.TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGER);
+        getListOfEntriesOfLedgersCompletionOpLogger = statsLogger
+                .getOpStatsLogger(BookKeeperClientStats.GET_LIST_OF_ENTRIES_OF_LEDGERS_OP);
+        getListOfEntriesOfLedgersCompletionTimeoutOpLogger = statsLogger
+                .getOpStatsLogger(BookKeeperClientStats.TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGERS);
         exceptionCounter = statsLogger.getCounter(BookKeeperClientStats.NETTY_EXCEPTION_CNT);
         connectTimer = statsLogger.getOpStatsLogger(BookKeeperClientStats.CLIENT_CONNECT_TIMER);
         addEntryOutstanding = statsLogger.getCounter(BookKeeperClientStats.ADD_OP_OUTSTANDING);
@@ -899,6 +910,37 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         writeAndFlush(channel, completionKey, getListOfEntriesOfLedgerRequest);
     }
 
+    /**
+     * Get the availability of the entries of many ledgers in a single request.
+     *
+     * <p>The callback of each ledger is called back with the result of this ledger. The callbacks are called back
+     * with {@link BKException.Code#IllegalOpException} if the bookie doesn't support this request, in which case it
+     * replies to a request of the entries of a single ledger.
+     *
+     * @param ledgerIds ids of the ledgers
+     * @param cbs callback of each ledger, at the same index as the ledger id
+     */
+    public void getListOfEntriesOfLedgers(final long[] ledgerIds, final GetListOfEntriesOfLedgerCallback[] cbs) {
+        final long txnId = getTxnId();
+        final CompletionKey completionKey = new V3CompletionKey(txnId, OperationType.GET_LIST_OF_ENTRIES_OF_LEDGER);
+        completionObjects.put(completionKey, new GetListOfEntriesOfLedgersCompletion(completionKey, cbs, ledgerIds));
+
+        // Build the request.
+        BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder().setVersion(ProtocolVersion.VERSION_THREE)
+                .setOperation(OperationType.GET_LIST_OF_ENTRIES_OF_LEDGER).setTxnId(txnId);
+
+        GetListOfEntriesOfLedgersRequest.Builder getListOfEntriesOfLedgersRequestBuilder =
+                GetListOfEntriesOfLedgersRequest.newBuilder();
+        for (long ledgerId : ledgerIds) {
+            getListOfEntriesOfLedgersRequestBuilder.addLedgerId(ledgerId);
+        }
+
+        final Request getListOfEntriesOfLedgersRequest = Request.newBuilder().setHeader(headerBuilder)
+                .setGetListOfEntriesOfLedgersRequest(getListOfEntriesOfLedgersRequestBuilder).build();
+
+        writeAndFlush(channel, completionKey, getListOfEntriesOfLedgersRequest);
+    }
+
     /**
      * Long Poll Reads.
      */
@@ -939,7 +981,14 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                                    boolean allowFastFail) {
         Object request = null;
         CompletionKey completionKey = null;
+        // the fencing, recovery and long poll reads are not served apart, as they are not part of the
+        // re-replication and the recovery reads have to be served as fast as possible
+        boolean replication = replicationClient && null == previousLAC
+                && ((short) flags & (BookieProtocol.FLAG_DO_FENCING | BookieProtocol.FLAG_HIGH_PRIORITY)) == 0;
         if (useV2WireProtocol) {
+            if (replication) {
+                flags |= BookieProtocol.FLAG_REPLICATION;
+            }
             request = BookieProtocol.ReadRequest.create(BookieProtocol.CURRENT_PROTOCOL_VERSION,
                     ledgerId, entryId, (short) flags, masterKey);
             completionKey = acquireV2Key(ledgerId, entryId, OperationType.READ_ENTRY);
@@ -964,6 +1013,10 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 readBuilder = readBuilder.setPreviousLAC(previousLAC);
             }
 
+            if (replication) {
+                readBuilder.setReplication(true);
+            }
+
             if (null != timeOutInMillis) {
                 // Long poll requires previousLAC
                 if (null == previousLAC) {
@@ -2072,10 +2125,18 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 logResponse(status, "freeDisk", freeDiskSpace, "totalDisk", totalDiskSpace);
             }
 
+            BookieLoad load = null;
+            if (getBookieInfoResponse.hasLoad()) {
+                BookkeeperProtocol.BookieLoad bookieLoad = getBookieInfoResponse.getLoad();
+                load = new BookieLoad(bookieLoad.getJournalQueueSize(), bookieLoad.getAddEntryLatencyMicros(),
+                        bookieLoad.hasReadCacheHitRate() ? bookieLoad.getReadCacheHitRate() : -1.0,
+                        bookieLoad.getAddBytesPerSecond(), bookieLoad.getReadBytesPerSecond());
+            }
+
             int rc = convertStatus(status, BKException.Code.ReadException);
             cb.getBookieInfoComplete(rc,
                                      new BookieInfo(totalDiskSpace,
-                                                    freeDiskSpace), ctx);
+                                                    freeDiskSpace, load), ctx);
         }
     }
 
@@ -2134,6 +2195,77 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
     }
 
+    class GetListOfEntriesOfLedgersCompletion extends CompletionValue {
+        final CompletionKey key;
+        final GetListOfEntriesOfLedgerCallback[] cbs;
+        final long[] ledgerIds;
+
+        public GetListOfEntriesOfLedgersCompletion(final CompletionKey key,
+                final GetListOfEntriesOfLedgerCallback[] cbs, final long[] ledgerIds) {
+            super("GetListOfEntriesOfLedgers", null, ledgerIds.length > 0 ? ledgerIds[0] : -1L, 0L,
+                    getListOfEntriesOfLedgersCompletionOpLogger, getListOfEntriesOfLedgersCompletionTimeoutOpLogger);
+            this.key = key;
+            this.cbs = cbs;
+            this.ledgerIds = ledgerIds;
+        }
+
+        private void complete(int rc, GetListOfEntriesOfLedgersResponse response) {
+            logOpResult(rc);
+            for (int i = 0; i < ledgerIds.length; i++) {
+                int ledgerRc = rc;
+                long ledgerIdOfTheResponse = ledgerIds[i];
+                AvailabilityOfEntriesOfLedger availabilityOfEntriesOfLedger = null;
+                if (rc == BKException.Code.OK) {
+                    if (i < response.getLedgerResponseCount()) {
+                        GetListOfEntriesOfLedgerResponse ledgerResponse = response.getLedgerResponse(i);
+                        ledgerIdOfTheResponse = ledgerResponse.getLedgerId();
+                        ledgerRc = convertStatus(ledgerResponse.getStatus(), BKException.Code.ReadException);
+                        if (ledgerRc == BKException.Code.OK) {
+                            availabilityOfEntriesOfLedger = new AvailabilityOfEntriesOfLedger(Unpooled.wrappedBuffer(
+                                    ledgerResponse.getAvailabilityOfEntriesOfLedger().asReadOnlyByteBuffer()));
+                        }
+                    } else {
+                        ledgerRc = BKException.Code.ReadException;
+                    }
+                }
+                cbs[i].getListOfEntriesOfLedgerComplete(ledgerRc, ledgerIdOfTheResponse,
+                        availabilityOfEntriesOfLedger);
+            }
+            key.release();
+        }
+
+        @Override
+        public void errorOut() {
+            errorOut(BKException.Code.BookieHandleNotAvailableException);
+        }
+
+        @Override
+        public void errorOut(final int rc) {
+            errorOutAndRunCallback(() -> complete(rc, null));
+        }
+
+        @Override
+        public void handleV3Response(BookkeeperProtocol.Response response) {
+            GetListOfEntriesOfLedgersResponse getListOfEntriesOfLedgersResponse = response
+                    .getGetListOfEntriesOfLedgersResponse();
+            StatusCode status = response.getStatus() == StatusCode.EOK ? getListOfEntriesOfLedgersResponse.getStatus()
+                    : response.getStatus();
+
+            if (LOG.isDebugEnabled()) {
+                logResponse(status, "numLedgers", ledgerIds.length);
+            }
+
+            int rc;
+            if (response.hasGetListOfEntriesOfLedgerResponse() && !response.hasGetListOfEntriesOfLedgersResponse()) {
+                // the bookies which don't support this request reply to a request of a single ledger
+                rc = BKException.Code.IllegalOpException;
+            } else {
+                rc = convertStatus(status, BKException.Code.ReadException);
+            }
+            complete(rc, getListOfEntriesOfLedgersResponse);
+        }
+    }
+
     private final Recycler<AddCompletion> addCompletionRecycler = new Recycler<AddCompletion>() {
             @Override
             protected AddCompletion newObject(Recycler.Handle<AddCompletion> handle) {
@@ -85,7 +85,12 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
                     throw BookieException.create(BookieException.Code.UnauthorizedAccessException);
                 }
             }
-            data = requestProcessor.getBookie().readEntry(request.getLedgerId(), request.getEntryId());
+            if (request.isReplication()) {
+                data = requestProcessor.getBookie().readEntryForReplication(request.getLedgerId(),
+                        request.getEntryId());
+            } else {
+                data = requestProcessor.getBookie().readEntry(request.getLedgerId(), request.getEntryId());
+            }
             if (LOG.isDebugEnabled()) {
                 LOG.debug("##### Read entry ##### {} -- ref-count: {}", data.readableBytes(), data.refCnt());
             }
@@ -128,10 +133,15 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
 
     private void sendResponse(ByteBuf data, int errorCode, long startTimeNanos) {
         final RequestStats stats = requestProcessor.getRequestStats();
-        final OpStatsLogger logger = stats.getReadEntryStats();
+        final boolean replication = request.isReplication();
+        final OpStatsLogger logger = replication ? stats.getReplicationReadStats() : stats.getReadEntryStats();
         BookieProtocol.Response response;
         if (errorCode == BookieProtocol.EOK) {
             logger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            stats.getLoadTracker().recordRead(data.readableBytes());
+            if (replication) {
+                requestProcessor.throttleReplicationRead(data.readableBytes());
+            }
             response = ResponseBuilder.buildReadResponse(data, request);
         } else {
             if (data != null) {
@@ -141,7 +151,9 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
             response = ResponseBuilder.buildErrorResponse(errorCode, request);
         }
 
-        sendReadReqResponse(errorCode, response, stats.getReadRequestStats(), throttleReadResponses);
+        sendReadReqResponse(errorCode, response,
+                replication ? stats.getReplicationReadRequestStats() : stats.getReadRequestStats(),
+                throttleReadResponses);
         recycle();
     }
 
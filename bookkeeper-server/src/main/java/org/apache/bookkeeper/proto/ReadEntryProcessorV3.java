@@ -72,6 +72,9 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
         } else if (readRequest.hasPreviousLAC()) {
             this.readStats = requestProcessor.getRequestStats().getLongPollReadStats();
             this.reqStats = requestProcessor.getRequestStats().getLongPollReadRequestStats();
+        } else if (RequestUtils.isReplicationReadRequest(readRequest)) {
+            this.readStats = requestProcessor.getRequestStats().getReplicationReadStats();
+            this.reqStats = requestProcessor.getRequestStats().getReplicationReadRequestStats();
         } else {
             this.readStats = requestProcessor.getRequestStats().getReadEntryStats();
             this.reqStats = requestProcessor.getRequestStats().getReadRequestStats();
@@ -170,13 +173,20 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
                                      boolean readLACPiggyBack,
                                      Stopwatch startTimeSw)
         throws IOException, BookieException {
-        ByteBuf entryBody = requestProcessor.getBookie().readEntry(ledgerId, entryId);
+        boolean replication = RequestUtils.isReplicationReadRequest(readRequest);
+        ByteBuf entryBody = replication
+                ? requestProcessor.getBookie().readEntryForReplication(ledgerId, entryId)
+                : requestProcessor.getBookie().readEntry(ledgerId, entryId);
         if (null != fenceResult) {
             handleReadResultForFenceRead(entryBody, readResponseBuilder, entryId, startTimeSw);
             return null;
         } else {
             try {
                 readResponseBuilder.setBody(ByteString.copyFrom(entryBody.nioBuffer()));
+                requestProcessor.getRequestStats().getLoadTracker().recordRead(entryBody.readableBytes());
+                if (replication) {
+                    requestProcessor.throttleReplicationRead(entryBody.readableBytes());
+                }
                 if (readLACPiggyBack) {
                     readResponseBuilder.setEntryId(entryId);
                 } else {
@@ -32,6 +32,8 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.FORCE_LEDGER_RE
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_BOOKIE_INFO;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_BOOKIE_INFO_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGER;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGERS;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGERS_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_BLOCKED;
@@ -45,6 +47,8 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_LONG
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_LONG_POLL_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_LONG_POLL_WAIT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_REJECTED;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_REPLICATION_READ;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_REPLICATION_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_SCHEDULING_DELAY;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_LAC;
@@ -76,6 +80,7 @@ import org.apache.bookkeeper.stats.annotations.StatsDoc;
 public class RequestStats {
 
     final AtomicInteger addsInProgress = new AtomicInteger(0);
+    final BookieLoadTracker loadTracker = new BookieLoadTracker();
     final AtomicInteger maxAddsInProgress = new AtomicInteger(0);
     final AtomicInteger addsBlocked = new AtomicInteger(0);
     final AtomicInteger readsInProgress = new AtomicInteger(0);
@@ -183,6 +188,17 @@ public class RequestStats {
         help = "request stats of LongPoll Reads on a bookie"
     )
     final OpStatsLogger longPollReadRequestStats;
+    @StatsDoc(
+        name = READ_ENTRY_REPLICATION_READ,
+        help = "operation stats of the reads of the autorecovery on a bookie",
+        parent = READ_ENTRY_REPLICATION_REQUEST
+    )
+    final OpStatsLogger replicationReadStats;
+    @StatsDoc(
+        name = READ_ENTRY_REPLICATION_REQUEST,
+        help = "request stats of the reads of the autorecovery on a bookie"
+    )
+    final OpStatsLogger replicationReadRequestStats;
     @StatsDoc(
         name = READ_LAST_ENTRY_NOENTRY_ERROR,
         help = "total NOENTRY errors of reading last entry on a bookie"
@@ -246,6 +262,17 @@ public class RequestStats {
             parent = GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST
     )
     final OpStatsLogger getListOfEntriesOfLedgerStats;
+    @StatsDoc(
+            name = GET_LIST_OF_ENTRIES_OF_LEDGERS_REQUEST,
+            help = "request stats of GetListOfEntriesOfLedgers on a bookie"
+    )
+    final OpStatsLogger getListOfEntriesOfLedgersRequestStats;
+    @StatsDoc(
+            name = GET_LIST_OF_ENTRIES_OF_LEDGERS,
+            help = "operation stats of GetListOfEntriesOfLedgers",
+            parent = GET_LIST_OF_ENTRIES_OF_LEDGERS_REQUEST
+    )
+    final OpStatsLogger getListOfEntriesOfLedgersStats;
 
     public RequestStats(StatsLogger statsLogger) {
         this.addEntryStats = statsLogger.getThreadScopedOpStatsLogger(ADD_ENTRY);
@@ -265,6 +292,8 @@ public class RequestStats {
         this.longPollWaitStats = statsLogger.getOpStatsLogger(READ_ENTRY_LONG_POLL_WAIT);
         this.longPollReadStats = statsLogger.getOpStatsLogger(READ_ENTRY_LONG_POLL_READ);
         this.longPollReadRequestStats = statsLogger.getOpStatsLogger(READ_ENTRY_LONG_POLL_REQUEST);
+        this.replicationReadStats = statsLogger.getOpStatsLogger(READ_ENTRY_REPLICATION_READ);
+        this.replicationReadRequestStats = statsLogger.getOpStatsLogger(READ_ENTRY_REPLICATION_REQUEST);
         this.readLastEntryNoEntryErrorCounter = statsLogger.getCounter(READ_LAST_ENTRY_NOENTRY_ERROR);
         this.writeLacStats = statsLogger.getOpStatsLogger(WRITE_LAC);
         this.writeLacRequestStats = statsLogger.getOpStatsLogger(WRITE_LAC_REQUEST);
@@ -280,6 +309,9 @@ public class RequestStats {
         this.getListOfEntriesOfLedgerStats = statsLogger.getOpStatsLogger(GET_LIST_OF_ENTRIES_OF_LEDGER);
         this.getListOfEntriesOfLedgerRequestStats =
                 statsLogger.getOpStatsLogger(GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST);
+        this.getListOfEntriesOfLedgersStats = statsLogger.getOpStatsLogger(GET_LIST_OF_ENTRIES_OF_LEDGERS);
+        this.getListOfEntriesOfLedgersRequestStats =
+                statsLogger.getOpStatsLogger(GET_LIST_OF_ENTRIES_OF_LEDGERS_REQUEST);
 
         statsLogger.registerGauge(ADD_ENTRY_IN_PROGRESS, new Gauge<Number>() {
             @Override
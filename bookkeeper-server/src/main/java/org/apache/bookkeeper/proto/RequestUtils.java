@@ -32,6 +32,10 @@ class RequestUtils {
         return !isFenceRequest(readRequest) && readRequest.hasPreviousLAC();
     }
 
+    public static boolean isReplicationReadRequest(BookkeeperProtocol.ReadRequest readRequest) {
+        return readRequest.hasReplication() && readRequest.getReplication();
+    }
+
     public static boolean isHighPriority(BookkeeperProtocol.Request request) {
         return request.getHeader().getPriority() > 0;
     }
@@ -82,6 +86,9 @@ class RequestUtils {
             if (readRequest.hasTimeOut()) {
                 stringHelper.add("timeOut", readRequest.getTimeOut());
             }
+            if (readRequest.hasReplication()) {
+                stringHelper.add("replication", readRequest.getReplication());
+            }
             return stringHelper.toString();
         } else if (request.hasWriteLacRequest()) {
             BookkeeperProtocol.WriteLacRequest writeLacRequest = request.getWriteLacRequest();
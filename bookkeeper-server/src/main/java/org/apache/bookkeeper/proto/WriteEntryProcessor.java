@@ -39,11 +39,13 @@ class WriteEntryProcessor extends PacketProcessorBase<ParsedAddRequest> implemen
     private static final Logger LOG = LoggerFactory.getLogger(WriteEntryProcessor.class);
 
     long startTimeNanos;
+    int entrySize;
 
     @Override
     protected void reset() {
         super.reset();
         startTimeNanos = -1L;
+        entrySize = 0;
     }
 
     public static WriteEntryProcessor create(ParsedAddRequest request, BookieRequestHandler requestHandler,
@@ -72,6 +74,7 @@ class WriteEntryProcessor extends PacketProcessorBase<ParsedAddRequest> implemen
         startTimeNanos = MathUtils.nowInNano();
         int rc = BookieProtocol.EOK;
         ByteBuf addData = request.getData();
+        entrySize = addData.readableBytes();
         try {
             if (request.isRecoveryAdd()) {
                 requestProcessor.getBookie().recoveryAddEntry(addData, this, requestHandler, request.getMasterKey());
@@ -118,8 +121,10 @@ class WriteEntryProcessor extends PacketProcessorBase<ParsedAddRequest> implemen
     public void writeComplete(int rc, long ledgerId, long entryId,
                               BookieId addr, Object ctx) {
         if (BookieProtocol.EOK == rc) {
+            long elapsedNanos = MathUtils.elapsedNanos(startTimeNanos);
             requestProcessor.getRequestStats().getAddEntryStats()
-                .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+                .registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+            requestProcessor.getRequestStats().getLoadTracker().recordAdd(elapsedNanos, entrySize);
         } else {
             requestProcessor.getRequestStats().getAddEntryStats()
                 .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
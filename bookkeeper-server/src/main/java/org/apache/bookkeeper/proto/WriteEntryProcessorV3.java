@@ -77,8 +77,11 @@ class WriteEntryProcessorV3 extends PacketProcessorBaseV3 {
             public void writeComplete(int rc, long ledgerId, long entryId,
                                       BookieId addr, Object ctx) {
                 if (BookieProtocol.EOK == rc) {
+                    long elapsedNanos = MathUtils.elapsedNanos(startTimeNanos);
                     requestProcessor.getRequestStats().getAddEntryStats()
-                        .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+                        .registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                    requestProcessor.getRequestStats().getLoadTracker()
+                        .recordAdd(elapsedNanos, addRequest.getBody().size());
                 } else {
                     requestProcessor.getRequestStats().getAddEntryStats()
                         .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
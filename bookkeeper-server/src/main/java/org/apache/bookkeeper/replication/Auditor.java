@@ -99,6 +99,7 @@ public class Auditor implements AutoCloseable {
             throws InterruptedException, IOException {
         ClientConfiguration clientConfiguration = new ClientConfiguration(conf);
         clientConfiguration.setClientRole(ClientConfiguration.CLIENT_ROLE_SYSTEM);
+        clientConfiguration.setReplicationClient(true);
         try {
             return BookKeeper.forConfig(clientConfiguration).statsLogger(statsLogger).build();
         } catch (BKException e) {
@@ -199,7 +200,9 @@ public class Auditor implements AutoCloseable {
         try {
             LedgerManagerFactory ledgerManagerFactory = bkc.getLedgerManagerFactory();
             ledgerManager = ledgerManagerFactory.newLedgerManager();
-            this.bookieLedgerIndexer = new BookieLedgerIndexer(ledgerManager);
+            this.bookieLedgerIndexer = conf.isAuditorIncrementalBookieLedgerIndexEnabled()
+                    ? new IncrementalBookieLedgerIndexer(ledgerManager)
+                    : new BookieLedgerIndexer(ledgerManager);
 
             this.ledgerUnderreplicationManager = ledgerManagerFactory
                     .newLedgerUnderreplicationManager();
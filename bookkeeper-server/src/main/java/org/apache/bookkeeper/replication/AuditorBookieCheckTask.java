@@ -74,7 +74,7 @@ public class AuditorBookieCheckTask extends AuditorTask {
 
     @Override
     public void shutdown() {
-
+        bookieLedgerIndexer.close();
     }
 
     /**
@@ -19,13 +19,13 @@ package org.apache.bookkeeper.replication;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Sets;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
@@ -37,11 +37,15 @@ import org.apache.bookkeeper.client.LedgerChecker;
 import org.apache.bookkeeper.client.LedgerFragment;
 import org.apache.bookkeeper.client.LedgerHandle;
 import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRange;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRangeIterator;
 import org.apache.bookkeeper.meta.LedgerUnderreplicationManager;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.MultiCallback;
 import org.apache.bookkeeper.replication.ReplicationException.UnavailableException;
 import org.apache.zookeeper.AsyncCallback;
 import org.slf4j.Logger;
@@ -52,7 +56,7 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
 
     private final Semaphore openLedgerNoRecoverySemaphore;
     private final int openLedgerNoRecoverySemaphoreWaitTimeoutMSec;
-    private final ExecutorService ledgerCheckerExecutor;
+    private final OrderedExecutor ledgerCheckerExecutor;
 
     AuditorCheckAllLedgersTask(ServerConfiguration conf,
                                AuditorStats auditorStats,
@@ -80,14 +84,14 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
         this.openLedgerNoRecoverySemaphoreWaitTimeoutMSec =
                 conf.getAuditorAcquireConcurrentOpenLedgerOperationsTimeoutMSec();
 
-        this.ledgerCheckerExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r, "AuditorCheckAllLedgers-LedgerChecker");
-                t.setDaemon(true);
-                return t;
-            }
-        });
+        if (conf.getAuditorLedgerCheckerThreads() <= 0) {
+            LOG.error("auditorLedgerCheckerThreads should be greater than 0");
+            throw new UnavailableException("auditorLedgerCheckerThreads should be greater than 0");
+        }
+        this.ledgerCheckerExecutor = OrderedExecutor.newBuilder()
+                .numThreads(conf.getAuditorLedgerCheckerThreads())
+                .threadFactory(new DefaultThreadFactory("AuditorCheckAllLedgers-LedgerChecker", true))
+                .build();
     }
 
     @Override
@@ -139,44 +143,46 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
     public void shutdown() {
         LOG.info("Shutting down AuditorCheckAllLedgersTask");
         ledgerCheckerExecutor.shutdown();
-        try {
-            while (!ledgerCheckerExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
-                LOG.warn("Executor for ledger checker not shutting down, interrupting");
-                ledgerCheckerExecutor.shutdownNow();
-            }
-
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            LOG.warn("Interrupted while shutting down AuditorCheckAllLedgersTask", ie);
-        }
+        ledgerCheckerExecutor.forceShutdown(30, TimeUnit.SECONDS);
     }
 
     /**
      * List all the ledgers and check them individually. This should not
      * be run very often.
+     *
+     * <p>The ledgers are listed range by range, in ascending order of ledger ids, and their checks are sharded
+     * across the ledger checker threads by ledger id. Once all the ledgers up to the end of a range are
+     * checked, the end of the range is saved as checkpoint, so a check which doesn't complete, e.g. because
+     * the auditor lost its leadership, resumes after the checkpoint instead of checking all the ledgers again.
      */
     void checkAllLedgers() throws BKException, IOException, InterruptedException {
         final BookKeeper localClient = getBookKeeper(conf);
         final BookKeeperAdmin localAdmin = getBookKeeperAdmin(localClient);
         try {
-            final LedgerChecker checker = new LedgerChecker(localClient, conf.getInFlightReadEntryNumInLedgerChecker());
+            final LedgerChecker checker = new LedgerChecker(localClient, conf.getInFlightReadEntryNumInLedgerChecker(),
+                    conf.isLedgerCheckerEntryAvailabilityEnabled(), ledgerCheckerExecutor);
 
-            final CompletableFuture<Void> processFuture = new CompletableFuture<>();
+            // completed when the check is aborted before all the ledgers are checked
+            final CompletableFuture<Void> abortFuture = new CompletableFuture<>();
 
             BookkeeperInternalCallbacks.Processor<Long> checkLedgersProcessor = (ledgerId, callback) -> {
                 try {
                     if (!ledgerUnderreplicationManager.isLedgerReplicationEnabled()) {
                         LOG.info("Ledger rereplication has been disabled, aborting periodic check");
-                        FutureUtils.complete(processFuture, null);
+                        FutureUtils.complete(abortFuture, null);
+                        callback.processResult(BKException.Code.ReplicationException, null, null);
                         return;
                     }
                 } catch (ReplicationException.NonRecoverableReplicationException nre) {
                     LOG.error("Non Recoverable Exception while reading from ZK", nre);
                     submitShutdownTask();
+                    FutureUtils.complete(abortFuture, null);
+                    callback.processResult(BKException.Code.ReplicationException, null, null);
                     return;
                 } catch (ReplicationException.UnavailableException ue) {
                     LOG.error("Underreplication manager unavailable running periodic check", ue);
-                    FutureUtils.complete(processFuture, null);
+                    FutureUtils.complete(abortFuture, null);
+                    callback.processResult(BKException.Code.ReplicationException, null, null);
                     return;
                 }
 
@@ -185,13 +191,15 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
                             TimeUnit.MILLISECONDS)) {
                         LOG.warn("Failed to acquire semaphore for {} ms, ledgerId: {}",
                                 openLedgerNoRecoverySemaphoreWaitTimeoutMSec, ledgerId);
-                        FutureUtils.complete(processFuture, null);
+                        FutureUtils.complete(abortFuture, null);
+                        callback.processResult(BKException.Code.TimeoutException, null, null);
                         return;
                     }
                 } catch (InterruptedException e) {
                     LOG.error("Unable to acquire open ledger operation semaphore ", e);
                     Thread.currentThread().interrupt();
-                    FutureUtils.complete(processFuture, null);
+                    FutureUtils.complete(abortFuture, null);
+                    callback.processResult(BKException.Code.InterruptedException, null, null);
                     return;
                 }
 
@@ -200,7 +208,7 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
                     if (BKException.Code.OK == rc) {
                         // BookKeeperClientWorker-OrderedExecutor threads should not execute LedgerChecker#checkLedger
                         // as this can lead to deadlocks
-                        ledgerCheckerExecutor.execute(() -> {
+                        ledgerCheckerExecutor.executeOrdered(ledgerId, () -> {
                             checker.checkLedger(lh,
                                     // the ledger handle will be closed after checkLedger is done.
                                     new ProcessLostFragmentsCb(lh, callback),
@@ -224,16 +232,62 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
                 }, null);
             };
 
-            ledgerManager.asyncProcessLedgers(checkLedgersProcessor,
-                    (rc, path, ctx) -> {
-                        if (BKException.Code.OK == rc) {
-                            FutureUtils.complete(processFuture, null);
-                        } else {
-                            FutureUtils.completeExceptionally(processFuture, BKException.create(rc));
-                        }
-                    }, null, BKException.Code.OK, BKException.Code.ReadException);
-            FutureUtils.result(processFuture, BKException.HANDLER);
+            long checkpoint = getCheckpoint();
+            final long resumeAfterLedgerId = checkpoint;
+            if (resumeAfterLedgerId >= 0) {
+                LOG.info("Resuming checkAllLedgers after ledger {}", resumeAfterLedgerId);
+            }
+            Deque<RangeCheck> pendingRanges = new ArrayDeque<>();
+            LedgerRangeIterator ranges = ledgerManager.getLedgerRanges(conf.getZkTimeout() * 2L);
+            while (!abortFuture.isDone() && ranges.hasNext()) {
+                LedgerRange range = ranges.next();
+                if (range.end() <= resumeAfterLedgerId) {
+                    continue;
+                }
+                int numLedgers = (int) range.getLedgers().stream().filter(l -> l > resumeAfterLedgerId).count();
+                RangeCheck rangeCheck = new RangeCheck(range.end());
+                MultiCallback rangeCallback = new MultiCallback(numLedgers, (rc, path, ctx) -> {
+                    if (BKException.Code.OK == rc) {
+                        FutureUtils.complete(rangeCheck.future, null);
+                    } else {
+                        FutureUtils.completeExceptionally(rangeCheck.future, BKException.create(rc));
+                    }
+                }, null, BKException.Code.OK, BKException.Code.ReadException);
+                for (long ledgerId : range.getLedgers()) {
+                    if (ledgerId <= resumeAfterLedgerId) {
+                        continue;
+                    }
+                    if (abortFuture.isDone()) {
+                        rangeCallback.processResult(BKException.Code.InterruptedException, null, null);
+                    } else {
+                        checkLedgersProcessor.process(ledgerId, rangeCallback);
+                    }
+                }
+                pendingRanges.add(rangeCheck);
+                checkpoint = advanceCheckpoint(pendingRanges, checkpoint);
+            }
+
+            // wait for the checks in progress
+            BKException failure = null;
+            for (RangeCheck rangeCheck : pendingRanges) {
+                try {
+                    FutureUtils.result(rangeCheck.future, BKException.HANDLER);
+                } catch (BKException bke) {
+                    if (failure == null) {
+                        failure = bke;
+                    }
+                }
+            }
+            checkpoint = advanceCheckpoint(pendingRanges, checkpoint);
+            if (abortFuture.isDone()) {
+                LOG.info("checkAllLedgers aborted, it will resume after ledger {}", checkpoint);
+                return;
+            }
+            if (failure != null) {
+                throw failure;
+            }
             try {
+                // also clears the checkpoint
                 ledgerUnderreplicationManager.setCheckAllLedgersCTime(System.currentTimeMillis());
             } catch (ReplicationException.NonRecoverableReplicationException nre) {
                 LOG.error("Non Recoverable Exception while reading from ZK", nre);
@@ -247,6 +301,49 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
         }
     }
 
+    private long getCheckpoint() {
+        try {
+            return ledgerUnderreplicationManager.getCheckAllLedgersCheckpoint();
+        } catch (ReplicationException.UnavailableException ue) {
+            LOG.warn("Failed to get the checkpoint of checkAllLedgers, checking all the ledgers", ue);
+            return -1L;
+        }
+    }
+
+    /**
+     * Save the end of the last range such that all the ranges up to it are checked successfully.
+     */
+    private long advanceCheckpoint(Deque<RangeCheck> pendingRanges, long checkpoint) {
+        long newCheckpoint = checkpoint;
+        while (!pendingRanges.isEmpty() && pendingRanges.peekFirst().future.isDone()
+                && !pendingRanges.peekFirst().future.isCompletedExceptionally()) {
+            newCheckpoint = pendingRanges.pollFirst().end;
+        }
+        if (newCheckpoint != checkpoint) {
+            try {
+                ledgerUnderreplicationManager.setCheckAllLedgersCheckpoint(newCheckpoint);
+            } catch (ReplicationException.NonRecoverableReplicationException nre) {
+                LOG.error("Non Recoverable Exception while writing to ZK", nre);
+                submitShutdownTask();
+            } catch (ReplicationException.UnavailableException ue) {
+                LOG.warn("Got exception while trying to set the checkpoint of checkAllLedgers", ue);
+            }
+        }
+        return newCheckpoint;
+    }
+
+    /**
+     * Check of the ledgers of a range.
+     */
+    private static class RangeCheck {
+        final long end;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        RangeCheck(long end) {
+            this.end = end;
+        }
+    }
+
     /**
      * Process the result returned from checking a ledger.
      */
@@ -30,9 +30,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -41,6 +41,7 @@ import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeperAdmin;
 import org.apache.bookkeeper.client.RoundRobinDistributionSchedule;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.meta.LedgerManager;
 import org.apache.bookkeeper.meta.LedgerUnderreplicationManager;
@@ -56,11 +57,17 @@ import org.slf4j.LoggerFactory;
 public class AuditorReplicasCheckTask extends AuditorTask {
     private static final Logger LOG = LoggerFactory.getLogger(AuditorReplicasCheckTask.class);
 
-    private static final int MAX_CONCURRENT_REPLICAS_CHECK_LEDGER_REQUESTS = 100;
+    private static final int INITIAL_CONCURRENT_REPLICAS_CHECK_LEDGER_REQUESTS = 100;
     private static final int REPLICAS_CHECK_TIMEOUT_IN_SECS = 120;
+    // interval of the flush of the incomplete batches of requests while waiting
+    private static final int REPLICAS_CHECK_BATCH_FLUSH_INTERVAL_MS = 10;
     private static final BitSet EMPTY_BITSET = new BitSet();
 
     private final int zkOpTimeoutMs;
+    private final int batchSize;
+    private final int maxConcurrentLedgers;
+    // bookies which don't support the requests of the entries of many ledgers
+    private final Set<BookieId> bookiesWithoutBatchRequests = ConcurrentHashMap.newKeySet();
 
     private final AtomicInteger numLedgersFoundHavingNoReplicaOfAnEntry;
     private final AtomicInteger numLedgersFoundHavingLessThanAQReplicasOfAnEntry;
@@ -75,6 +82,8 @@ public class AuditorReplicasCheckTask extends AuditorTask {
         super(conf, auditorStats, admin, ledgerManager,
                 ledgerUnderreplicationManager, shutdownTaskHandler, hasAuditCheckTask);
         this.zkOpTimeoutMs = conf.getZkTimeout() * 2;
+        this.batchSize = conf.getAuditorReplicasCheckBatchSize();
+        this.maxConcurrentLedgers = Math.max(1, conf.getAuditorReplicasCheckMaxConcurrentLedgers());
         this.numLedgersFoundHavingNoReplicaOfAnEntry = new AtomicInteger(0);
         this.numLedgersFoundHavingLessThanAQReplicasOfAnEntry = new AtomicInteger(0);
         this.numLedgersFoundHavingLessThanWQReplicasOfAnEntry = new AtomicInteger(0);
@@ -169,7 +178,10 @@ public class AuditorReplicasCheckTask extends AuditorTask {
         ConcurrentHashMap<Long, MissingEntriesInfoOfLedger> ledgersWithUnavailableBookies =
                 new ConcurrentHashMap<Long, MissingEntriesInfoOfLedger>();
         LedgerManager.LedgerRangeIterator ledgerRangeIterator = ledgerManager.getLedgerRanges(zkOpTimeoutMs);
-        final Semaphore maxConcurrentSemaphore = new Semaphore(MAX_CONCURRENT_REPLICAS_CHECK_LEDGER_REQUESTS);
+        final AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(
+                Math.min(INITIAL_CONCURRENT_REPLICAS_CHECK_LEDGER_REQUESTS, maxConcurrentLedgers),
+                maxConcurrentLedgers);
+        final ReplicasCheckRequestBatcher requestBatcher = new ReplicasCheckRequestBatcher(concurrencyLimit);
         while (true) {
             LedgerManager.LedgerRange ledgerRange = null;
             try {
@@ -202,7 +214,7 @@ public class AuditorReplicasCheckTask extends AuditorTask {
                     try {
                         super.processResult(rc, path, ctx);
                     } finally {
-                        maxConcurrentSemaphore.release();
+                        concurrencyLimit.release();
                     }
                 }
             };
@@ -212,11 +224,17 @@ public class AuditorReplicasCheckTask extends AuditorTask {
             }
             for (Long ledgerInRange : ledgersInRange) {
                 try {
-                    if (!maxConcurrentSemaphore.tryAcquire(REPLICAS_CHECK_TIMEOUT_IN_SECS, TimeUnit.SECONDS)) {
-                        LOG.error("Timedout ({} secs) while waiting for acquiring semaphore",
-                                REPLICAS_CHECK_TIMEOUT_IN_SECS);
-                        throw new ReplicationException.BKAuditException(
-                                "Timedout while waiting for acquiring semaphore");
+                    long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(REPLICAS_CHECK_TIMEOUT_IN_SECS);
+                    while (!concurrencyLimit.tryAcquire(REPLICAS_CHECK_BATCH_FLUSH_INTERVAL_MS,
+                            TimeUnit.MILLISECONDS)) {
+                        // the ledgers in flight may wait for their batches to be sent
+                        requestBatcher.flush();
+                        if (System.nanoTime() - deadlineNanos > 0) {
+                            LOG.error("Timedout ({} secs) while waiting for acquiring semaphore",
+                                    REPLICAS_CHECK_TIMEOUT_IN_SECS);
+                            throw new ReplicationException.BKAuditException(
+                                    "Timedout while waiting for acquiring semaphore");
+                        }
                     }
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
@@ -233,7 +251,8 @@ public class AuditorReplicasCheckTask extends AuditorTask {
                 }
                 ledgerManager.readLedgerMetadata(ledgerInRange)
                         .whenComplete(new ReadLedgerMetadataCallbackForReplicasCheck(ledgerInRange,
-                                mcbForThisLedgerRange, ledgersWithMissingEntries, ledgersWithUnavailableBookies));
+                                mcbForThisLedgerRange, ledgersWithMissingEntries, ledgersWithUnavailableBookies,
+                                requestBatcher));
             }
             try {
                 /*
@@ -243,7 +262,14 @@ public class AuditorReplicasCheckTask extends AuditorTask {
                  * blocking the single threaded auditor executor thread is not
                  * expected.
                  */
-                if (!replicasCheckLatch.await(REPLICAS_CHECK_TIMEOUT_IN_SECS, TimeUnit.SECONDS)) {
+                long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(REPLICAS_CHECK_TIMEOUT_IN_SECS);
+                boolean completed;
+                do {
+                    requestBatcher.flush();
+                    completed = replicasCheckLatch.await(REPLICAS_CHECK_BATCH_FLUSH_INTERVAL_MS,
+                            TimeUnit.MILLISECONDS);
+                } while (!completed && System.nanoTime() - deadlineNanos < 0);
+                if (!completed) {
                     LOG.error(
                             "For LedgerRange with num of ledgers : {} it didn't complete replicascheck"
                                     + " in {} secs, so giving up",
@@ -257,6 +283,11 @@ public class AuditorReplicasCheckTask extends AuditorTask {
                 throw new ReplicationException.BKAuditException(
                         "Got InterruptedException while doing replicascheck", ie);
             }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Completed replicascheck of LedgerRange with num of ledgers : {},"
+                        + " current limit of concurrent ledgers : {}", numOfLedgersInRange,
+                        concurrencyLimit.getLimit());
+            }
             reportLedgersWithMissingEntries(ledgersWithMissingEntries);
             reportLedgersWithUnavailableBookies(ledgersWithUnavailableBookies);
             int resultCodeIntValue = resultCode.get();
@@ -358,16 +389,19 @@ public class AuditorReplicasCheckTask extends AuditorTask {
         private final MultiCallback mcbForThisLedgerRange;
         private final ConcurrentHashMap<Long, MissingEntriesInfoOfLedger> ledgersWithMissingEntries;
         private final ConcurrentHashMap<Long, MissingEntriesInfoOfLedger> ledgersWithUnavailableBookies;
+        private final ReplicasCheckRequestBatcher requestBatcher;
 
         ReadLedgerMetadataCallbackForReplicasCheck(
                 long ledgerInRange,
                 MultiCallback mcbForThisLedgerRange,
                 ConcurrentHashMap<Long, MissingEntriesInfoOfLedger> ledgersWithMissingEntries,
-                ConcurrentHashMap<Long, MissingEntriesInfoOfLedger> ledgersWithUnavailableBookies) {
+                ConcurrentHashMap<Long, MissingEntriesInfoOfLedger> ledgersWithUnavailableBookies,
+                ReplicasCheckRequestBatcher requestBatcher) {
             this.ledgerInRange = ledgerInRange;
             this.mcbForThisLedgerRange = mcbForThisLedgerRange;
             this.ledgersWithMissingEntries = ledgersWithMissingEntries;
             this.ledgersWithUnavailableBookies = ledgersWithUnavailableBookies;
+            this.requestBatcher = requestBatcher;
         }
 
         @Override
@@ -476,7 +510,7 @@ public class AuditorReplicasCheckTask extends AuditorTask {
                 final BookieId bookieInEnsemble = bookiesSegmentInfoTuple.getKey();
                 final List<BookieExpectedToContainSegmentInfo> bookieSegmentInfoList = bookiesSegmentInfoTuple
                         .getValue();
-                admin.asyncGetListOfEntriesOfLedger(bookieInEnsemble, ledgerInRange)
+                requestBatcher.getListOfEntriesOfLedger(bookieInEnsemble, ledgerInRange)
                         .whenComplete(new GetListOfEntriesOfLedgerCallbackForReplicasCheck(ledgerInRange, ensembleSize,
                                 writeQuorumSize, ackQuorumSize, bookieInEnsemble, bookieSegmentInfoList,
                                 ledgersWithMissingEntries, ledgersWithUnavailableBookies, mcbForThisLedger));
@@ -484,6 +518,153 @@ public class AuditorReplicasCheckTask extends AuditorTask {
         }
     }
 
+    /**
+     * Limit of the number of ledgers checked concurrently, which grows by one ledger each time as many ledgers as
+     * the limit are checked, and is halved when the bookies are overloaded, at most once per as many ledgers.
+     */
+    private static class AdaptiveConcurrencyLimit {
+        private final int maxLimit;
+        private int limit;
+        private int inFlight = 0;
+        private int completedSinceIncrease = 0;
+        private int completedSinceDecrease = 0;
+
+        private AdaptiveConcurrencyLimit(int initialLimit, int maxLimit) {
+            this.limit = initialLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        synchronized boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+            while (inFlight >= limit) {
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+            }
+            inFlight++;
+            return true;
+        }
+
+        synchronized void release() {
+            inFlight--;
+            completedSinceDecrease++;
+            if (++completedSinceIncrease >= limit && limit < maxLimit) {
+                limit++;
+                completedSinceIncrease = 0;
+            }
+            notifyAll();
+        }
+
+        synchronized void onOverload() {
+            if (completedSinceDecrease >= limit) {
+                limit = Math.max(1, limit / 2);
+                completedSinceIncrease = 0;
+                completedSinceDecrease = 0;
+            }
+        }
+
+        synchronized int getLimit() {
+            return limit;
+        }
+    }
+
+    /**
+     * Batches the requests of the entries of the ledgers by bookie, so that the entries of many ledgers are
+     * requested from a bookie in a single request. A batch is sent when it is full, or when flushed by the
+     * auditor thread while it waits for the ledgers in flight.
+     */
+    private class ReplicasCheckRequestBatcher {
+        private final AdaptiveConcurrencyLimit concurrencyLimit;
+        private Map<BookieId, PendingRequests> pendingRequests = new HashMap<>();
+
+        private ReplicasCheckRequestBatcher(AdaptiveConcurrencyLimit concurrencyLimit) {
+            this.concurrencyLimit = concurrencyLimit;
+        }
+
+        CompletableFuture<AvailabilityOfEntriesOfLedger> getListOfEntriesOfLedger(BookieId bookie, long ledgerId) {
+            if (batchSize <= 0 || bookiesWithoutBatchRequests.contains(bookie)) {
+                return getListOfEntriesOfSingleLedger(bookie, ledgerId);
+            }
+            CompletableFuture<AvailabilityOfEntriesOfLedger> future = new CompletableFuture<>();
+            PendingRequests fullBatch = null;
+            synchronized (this) {
+                PendingRequests requests = pendingRequests.computeIfAbsent(bookie, b -> new PendingRequests());
+                requests.ledgerIds.add(ledgerId);
+                requests.futures.add(future);
+                if (requests.ledgerIds.size() >= batchSize) {
+                    fullBatch = pendingRequests.remove(bookie);
+                }
+            }
+            if (fullBatch != null) {
+                send(bookie, fullBatch);
+            }
+            return future;
+        }
+
+        void flush() {
+            Map<BookieId, PendingRequests> batches;
+            synchronized (this) {
+                if (pendingRequests.isEmpty()) {
+                    return;
+                }
+                batches = pendingRequests;
+                pendingRequests = new HashMap<>();
+            }
+            batches.forEach(this::send);
+        }
+
+        private void send(BookieId bookie, PendingRequests requests) {
+            long[] ledgerIds = requests.ledgerIds.stream().mapToLong(Long::longValue).toArray();
+            List<CompletableFuture<AvailabilityOfEntriesOfLedger>> results =
+                    admin.asyncGetListOfEntriesOfLedgers(bookie, ledgerIds);
+            for (int i = 0; i < ledgerIds.length; i++) {
+                final long ledgerId = ledgerIds[i];
+                final CompletableFuture<AvailabilityOfEntriesOfLedger> future = requests.futures.get(i);
+                results.get(i).whenComplete((availabilityOfEntriesOfLedger, exception) -> {
+                    if (exception != null
+                            && BKException.getExceptionCode(exception) == BKException.Code.IllegalOpException) {
+                        if (bookiesWithoutBatchRequests.add(bookie)) {
+                            LOG.info("Bookie {} doesn't support the request of the entries of many ledgers,"
+                                    + " requesting the entries of a ledger at a time", bookie);
+                        }
+                        FutureUtils.proxyTo(getListOfEntriesOfSingleLedger(bookie, ledgerId), future);
+                        return;
+                    }
+                    complete(future, availabilityOfEntriesOfLedger, exception);
+                });
+            }
+        }
+
+        private CompletableFuture<AvailabilityOfEntriesOfLedger> getListOfEntriesOfSingleLedger(BookieId bookie,
+                long ledgerId) {
+            CompletableFuture<AvailabilityOfEntriesOfLedger> future = new CompletableFuture<>();
+            admin.asyncGetListOfEntriesOfLedger(bookie, ledgerId).whenComplete(
+                    (availabilityOfEntriesOfLedger, exception) ->
+                            complete(future, availabilityOfEntriesOfLedger, exception));
+            return future;
+        }
+
+        private void complete(CompletableFuture<AvailabilityOfEntriesOfLedger> future,
+                              AvailabilityOfEntriesOfLedger availabilityOfEntriesOfLedger, Throwable exception) {
+            if (exception == null) {
+                future.complete(availabilityOfEntriesOfLedger);
+                return;
+            }
+            int rc = BKException.getExceptionCode(exception);
+            if (rc == BKException.Code.TimeoutException || rc == BKException.Code.TooManyRequestsException) {
+                concurrencyLimit.onOverload();
+            }
+            future.completeExceptionally(exception);
+        }
+    }
+
+    private static class PendingRequests {
+        private final List<Long> ledgerIds = new ArrayList<>();
+        private final List<CompletableFuture<AvailabilityOfEntriesOfLedger>> futures = new ArrayList<>();
+    }
+
     private static class BookieExpectedToContainSegmentInfo {
         private final long startEntryIdOfSegment;
         private final long lastEntryIdOfSegment;
@@ -123,4 +123,10 @@ public class BookieLedgerIndexer {
         }
         ledgers.add(ledgerId);
     }
+
+    /**
+     * Release the resources of the indexer. The index is generated on demand, so there is nothing to release.
+     */
+    public void close() {
+    }
 }
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.replication;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Maps;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.Processor;
+import org.apache.bookkeeper.replication.ReplicationException.BKAuditException;
+import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
+import org.apache.bookkeeper.util.collections.ConcurrentLongHashSet;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.apache.zookeeper.AsyncCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bookie vs its ledgers index, maintained incrementally from the ledger metadata change notifications.
+ *
+ * <p>The first {@link #getBookieToLedgerIndex()} watches the metadata of every ledger, which reads it once.
+ * Then the index is updated on every change of the metadata of a ledger, and the next calls only list the
+ * ledgers to watch the ones created since the previous call, so the metadata of the other ledgers isn't
+ * read again. The ledgers of each bookie are kept in a primitive set, without boxing the ledger ids.
+ *
+ * <p>The index is built from scratch by every new auditor, i.e. on every leadership change.
+ */
+public class IncrementalBookieLedgerIndexer extends BookieLedgerIndexer implements LedgerMetadataListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IncrementalBookieLedgerIndexer.class);
+
+    private final LedgerManager ledgerManager;
+    private final Interner<String> bookieInterner = Interners.newWeakInterner();
+    // ledgers of each bookie, the bookies without ledgers are removed
+    private final ConcurrentHashMap<String, ConcurrentLongHashSet> bookieToLedgers = new ConcurrentHashMap<>();
+    // distinct bookies of each indexed ledger, to remove the ledger from the bookies replaced in its ensembles
+    private final ConcurrentLongHashMap<String[]> ledgerToBookies =
+            ConcurrentLongHashMap.<String[]>newBuilder().autoShrink(true).build();
+    // watched ledgers whose metadata wasn't notified yet, with the callback of the ledgers iteration
+    private final ConcurrentLongHashMap<AsyncCallback.VoidCallback> pendingLedgers =
+            ConcurrentLongHashMap.<AsyncCallback.VoidCallback>newBuilder().build();
+    private volatile boolean closed = false;
+
+    public IncrementalBookieLedgerIndexer(LedgerManager ledgerManager) {
+        super(ledgerManager);
+        this.ledgerManager = ledgerManager;
+    }
+
+    /**
+     * Get the bookie vs its ledgers index, watching the ledgers which aren't indexed yet.
+     *
+     * <p>The returned map is a live view of the index, whose values are copied when they are accessed.
+     *
+     * @return bookie2ledgersMap map of bookie vs ledgers
+     * @throws BKAuditException
+     *             exception while listing the ledgers or reading the metadata of the new ledgers
+     */
+    @Override
+    public Map<String, Set<Long>> getBookieToLedgerIndex() throws BKAuditException {
+        if (closed) {
+            throw new BKAuditException("Bookie ledger index is closed", null);
+        }
+        final CountDownLatch ledgerCollectorLatch = new CountDownLatch(1);
+        final AtomicInteger numNewLedgers = new AtomicInteger(0);
+        Processor<Long> ledgerProcessor = (ledgerId, iterCallback) -> {
+            if (ledgerToBookies.containsKey(ledgerId)) {
+                iterCallback.processResult(BKException.Code.OK, null, null);
+                return;
+            }
+            numNewLedgers.incrementAndGet();
+            // completed on the first notification of the metadata of the ledger
+            pendingLedgers.put(ledgerId, iterCallback);
+            ledgerManager.registerLedgerMetadataListener(ledgerId, this);
+        };
+        final AtomicInteger resultCode = new AtomicInteger(BKException.Code.OK);
+        ledgerManager.asyncProcessLedgers(ledgerProcessor, (rc, path, ctx) -> {
+            resultCode.set(rc);
+            ledgerCollectorLatch.countDown();
+        }, null, BKException.Code.OK, BKException.Code.ReadException);
+        try {
+            ledgerCollectorLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BKAuditException(
+                    "Exception while getting the bookie-ledgers", e);
+        }
+        if (resultCode.get() != BKException.Code.OK) {
+            throw new BKAuditException(
+                    "Exception while getting the bookie-ledgers", BKException
+                            .create(resultCode.get()));
+        }
+        LOG.info("Indexed {} new ledgers, {} ledgers on {} bookies are indexed.",
+                numNewLedgers.get(), ledgerToBookies.size(), bookieToLedgers.size());
+        return Collections.unmodifiableMap(Maps.transformValues(bookieToLedgers, ConcurrentLongHashSet::items));
+    }
+
+    @Override
+    public void onChanged(long ledgerId, Versioned<LedgerMetadata> metadata) {
+        updateIndex(ledgerId, metadata == null ? null : metadata.getValue());
+        AsyncCallback.VoidCallback iterCallback = pendingLedgers.remove(ledgerId);
+        if (iterCallback != null) {
+            iterCallback.processResult(BKException.Code.OK, null, null);
+        }
+    }
+
+    private synchronized void updateIndex(long ledgerId, LedgerMetadata metadata) {
+        if (closed) {
+            return;
+        }
+        String[] newBookies;
+        String[] oldBookies;
+        if (metadata == null) {
+            // the ledger is deleted
+            newBookies = new String[0];
+            oldBookies = ledgerToBookies.remove(ledgerId);
+        } else {
+            Set<String> bookies = new TreeSet<>();
+            for (List<BookieId> ensemble : metadata.getAllEnsembles().values()) {
+                for (BookieId bookie : ensemble) {
+                    bookies.add(bookieInterner.intern(bookie.toString()));
+                }
+            }
+            newBookies = bookies.toArray(new String[0]);
+            oldBookies = ledgerToBookies.put(ledgerId, newBookies);
+        }
+        if (oldBookies != null) {
+            for (String bookie : oldBookies) {
+                if (Arrays.binarySearch(newBookies, bookie) < 0) {
+                    bookieToLedgers.computeIfPresent(bookie, (b, ledgers) -> {
+                        ledgers.remove(ledgerId);
+                        return ledgers.isEmpty() ? null : ledgers;
+                    });
+                }
+            }
+        }
+        for (String bookie : newBookies) {
+            if (oldBookies == null || Arrays.binarySearch(oldBookies, bookie) < 0) {
+                bookieToLedgers.computeIfAbsent(bookie, b -> ConcurrentLongHashSet.newBuilder()
+                        .expectedItems(16).autoShrink(true).build()).add(ledgerId);
+            }
+        }
+    }
+
+    /**
+     * Stop watching the metadata of the indexed ledgers.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        for (long ledgerId : ledgerToBookies.keys()) {
+            ledgerManager.unregisterLedgerMetadataListener(ledgerId, this);
+        }
+        for (long ledgerId : pendingLedgers.keys()) {
+            ledgerManager.unregisterLedgerMetadataListener(ledgerId, this);
+            AsyncCallback.VoidCallback iterCallback = pendingLedgers.remove(ledgerId);
+            if (iterCallback != null) {
+                iterCallback.processResult(BKException.Code.InterruptedException, null, null);
+            }
+        }
+        ledgerToBookies.clear();
+        bookieToLedgers.clear();
+    }
+}
@@ -54,13 +54,17 @@ public interface ReplicationStats {
 
     String REPLICATION_WORKER_SCOPE = "replication_worker";
     String REREPLICATE_OP = "rereplicate";
+    String NUM_LEDGERS_BEING_REREPLICATED = "NUM_LEDGERS_BEING_REREPLICATED";
     String NUM_FULL_OR_PARTIAL_LEDGERS_REPLICATED = "NUM_FULL_OR_PARTIAL_LEDGERS_REPLICATED";
     String NUM_ENTRIES_READ = "NUM_ENTRIES_READ";
     String NUM_BYTES_READ = "NUM_BYTES_READ";
     String NUM_ENTRIES_WRITTEN = "NUM_ENTRIES_WRITTEN";
     String NUM_BYTES_WRITTEN = "NUM_BYTES_WRITTEN";
+    String NUM_BYTES_REPLICATED = "NUM_BYTES_REPLICATED";
     String READ_DATA_LATENCY = "READ_DATA_LATENCY";
     String WRITE_DATA_LATENCY = "WRITE_DATA_LATENCY";
+    String REPLICATION_BYTES_IN_FLIGHT = "REPLICATION_BYTES_IN_FLIGHT";
+    String NUM_LEDGERS_BEING_REPLICATED = "NUM_LEDGERS_BEING_REPLICATED";
     String REPLICATE_EXCEPTION = "exceptions";
     String NUM_DEFER_LEDGER_LOCK_RELEASE_OF_FAILED_LEDGER = "NUM_DEFER_LEDGER_LOCK_RELEASE_OF_FAILED_LEDGER";
     String NUM_ENTRIES_UNABLE_TO_READ_FOR_REPLICATION = "NUM_ENTRIES_UNABLE_TO_READ_FOR_REPLICATION";
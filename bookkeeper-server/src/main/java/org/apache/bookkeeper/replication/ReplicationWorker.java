@@ -22,6 +22,7 @@ package org.apache.bookkeeper.replication;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_DEFER_LEDGER_LOCK_RELEASE_OF_FAILED_LEDGER;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_ENTRIES_UNABLE_TO_READ_FOR_REPLICATION;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_FULL_OR_PARTIAL_LEDGERS_REPLICATED;
+import static org.apache.bookkeeper.replication.ReplicationStats.NUM_LEDGERS_BEING_REREPLICATED;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_NOT_ADHERING_PLACEMENT_LEDGERS_REPLICATED;
 import static org.apache.bookkeeper.replication.ReplicationStats.REPLICATE_EXCEPTION;
 import static org.apache.bookkeeper.replication.ReplicationStats.REPLICATION_WORKER_SCOPE;
@@ -33,10 +34,10 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -46,8 +47,12 @@ import java.util.SortedMap;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
@@ -72,6 +77,7 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.replication.ReplicationException.CompatibilityException;
 import org.apache.bookkeeper.replication.ReplicationException.UnavailableException;
 import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
 import org.apache.bookkeeper.stats.NullStatsLogger;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
@@ -83,6 +89,10 @@ import org.slf4j.LoggerFactory;
 /**
  * ReplicationWorker will take the fragments one by one from
  * ZKLedgerUnderreplicationManager and replicates to it.
+ *
+ * <p>When {@link ServerConfiguration#getRwRereplicateConcurrentLedgers()} is greater than 1, the worker
+ * thread only acquires the under replicated ledgers, and up to that number of ledgers are replicated
+ * concurrently by a pool of threads.
  */
 @StatsDoc(
     name = REPLICATION_WORKER_SCOPE,
@@ -102,6 +112,11 @@ public class ReplicationWorker implements Runnable {
     private final BookKeeper bkc;
     private final boolean ownBkc;
     private final Thread workerThread;
+    // null when the ledgers are replicated one at a time by the worker thread
+    private final ExecutorService rereplicationExecutor;
+    private final Semaphore rereplicationPermits;
+    // set by a ledger replicated in the background on a fatal error, the worker thread then shuts down
+    private volatile Throwable rereplicationFailure = null;
     private final long rwRereplicateBackoffMs;
     private final long openLedgerRereplicationGracePeriod;
     private final Timer pendingReplicationTimer;
@@ -122,6 +137,11 @@ public class ReplicationWorker implements Runnable {
         help = "operation stats of re-replicating ledgers"
     )
     private final OpStatsLogger rereplicateOpStats;
+    @StatsDoc(
+        name = NUM_LEDGERS_BEING_REREPLICATED,
+        help = "the number of under replicated ledgers being re-replicated by the worker"
+    )
+    private final AtomicInteger numLedgersBeingRereplicated = new AtomicInteger(0);
     @StatsDoc(
         name = NUM_FULL_OR_PARTIAL_LEDGERS_REPLICATED,
         help = "the number of ledgers re-replicated"
@@ -189,8 +209,17 @@ public class ReplicationWorker implements Runnable {
         this.underreplicationManager = bkc.getLedgerManagerFactory().newLedgerUnderreplicationManager();
         this.ledgerManager = bkc.getLedgerManagerFactory().newLedgerManager();
         this.admin = new BookKeeperAdmin(bkc, statsLogger, new ClientConfiguration(conf));
-        this.ledgerChecker = new LedgerChecker(bkc);
+        this.ledgerChecker = new LedgerChecker(bkc, -1, conf.isLedgerCheckerEntryAvailabilityEnabled());
         this.workerThread = new BookieThread(this, "ReplicationWorker");
+        int concurrentLedgers = conf.getRwRereplicateConcurrentLedgers();
+        if (concurrentLedgers > 1) {
+            this.rereplicationExecutor = Executors.newFixedThreadPool(concurrentLedgers,
+                    new DefaultThreadFactory("ReplicationWorker-Ledger"));
+            this.rereplicationPermits = new Semaphore(concurrentLedgers);
+        } else {
+            this.rereplicationExecutor = null;
+            this.rereplicationPermits = null;
+        }
         this.openLedgerRereplicationGracePeriod = conf
                 .getOpenLedgerRereplicationGracePeriod();
         this.lockReleaseOfFailedLedgerGracePeriod = conf.getLockReleaseOfFailedLedgerGracePeriod();
@@ -218,6 +247,17 @@ public class ReplicationWorker implements Runnable {
         this.statsLogger = statsLogger;
         this.exceptionLogger = statsLogger.scope(REPLICATE_EXCEPTION);
         this.rereplicateOpStats = this.statsLogger.getOpStatsLogger(REREPLICATE_OP);
+        this.statsLogger.registerGauge(NUM_LEDGERS_BEING_REREPLICATED, new Gauge<Integer>() {
+            @Override
+            public Integer getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Integer getSample() {
+                return numLedgersBeingRereplicated.get();
+            }
+        });
         this.numLedgersReplicated = this.statsLogger.getCounter(NUM_FULL_OR_PARTIAL_LEDGERS_REPLICATED);
         this.numDeferLedgerLockReleaseOfFailedLedger = this.statsLogger
                 .getCounter(NUM_DEFER_LEDGER_LOCK_RELEASE_OF_FAILED_LEDGER);
@@ -225,7 +265,7 @@ public class ReplicationWorker implements Runnable {
                 .getCounter(NUM_ENTRIES_UNABLE_TO_READ_FOR_REPLICATION);
         this.numNotAdheringPlacementLedgersReplicated = this.statsLogger
                 .getCounter(NUM_NOT_ADHERING_PLACEMENT_LEDGERS_REPLICATED);
-        this.exceptionCounters = new HashMap<String, Counter>();
+        this.exceptionCounters = new ConcurrentHashMap<String, Counter>();
         this.onReadEntryFailureCallback = (ledgerid, entryid) -> {
             numEntriesUnableToReadForReplication.inc();
             unableToReadEntriesForReplication.getUnchecked(ledgerid).add(entryid);
@@ -243,8 +283,15 @@ public class ReplicationWorker implements Runnable {
     public void run() {
         workerRunning = true;
         while (workerRunning) {
+            if (rereplicationFailure != null) {
+                LOG.error("Shutting down after a fatal error while replicating a ledger", rereplicationFailure);
+                shutdown();
+                return;
+            }
             try {
-                if (!rereplicate()) {
+                if (rereplicationExecutor != null) {
+                    submitNextLedger();
+                } else if (!rereplicate()) {
                     LOG.warn("failed while replicating fragments");
                     waitBackOffTime(rwRereplicateBackoffMs);
                 }
@@ -292,12 +339,87 @@ public class ReplicationWorker implements Runnable {
             UnavailableException {
         long ledgerIdToReplicate = underreplicationManager
                 .getLedgerToRereplicate();
+        numLedgersBeingRereplicated.incrementAndGet();
+        return timedRereplicate(ledgerIdToReplicate);
+    }
+
+    /**
+     * Waits until less than the configured number of ledgers are being replicated, then acquires the next
+     * under replicated ledger and replicates it in the background.
+     */
+    private void submitNextLedger() throws InterruptedException, UnavailableException {
+        rereplicationPermits.acquire();
+        boolean submitted = false;
+        try {
+            long ledgerIdToReplicate = underreplicationManager.getLedgerToRereplicate();
+            numLedgersBeingRereplicated.incrementAndGet();
+            rereplicationExecutor.execute(() -> rereplicateInBackground(ledgerIdToReplicate));
+            submitted = true;
+        } finally {
+            if (!submitted) {
+                rereplicationPermits.release();
+            }
+        }
+    }
+
+    private void rereplicateInBackground(long ledgerIdToReplicate) {
+        try {
+            if (!workerRunning) {
+                // acquired while the worker was shutting down
+                numLedgersBeingRereplicated.decrementAndGet();
+                underreplicationManager.releaseUnderreplicatedLedger(ledgerIdToReplicate);
+                return;
+            }
+            if (!timedRereplicate(ledgerIdToReplicate)) {
+                LOG.warn("failed while replicating fragments of ledger {}", ledgerIdToReplicate);
+                waitBackOffTime(rwRereplicateBackoffMs);
+            }
+        } catch (InterruptedException e) {
+            LOG.error("InterruptedException while replicating fragments of ledger {}", ledgerIdToReplicate, e);
+            Thread.currentThread().interrupt();
+            stopOnFatalError(e);
+        } catch (BKException e) {
+            LOG.error("BKException while replicating fragments of ledger {}", ledgerIdToReplicate, e);
+            waitBackOffTime(rwRereplicateBackoffMs);
+        } catch (ReplicationException.NonRecoverableReplicationException nre) {
+            LOG.error("NonRecoverableReplicationException while replicating fragments of ledger {}",
+                    ledgerIdToReplicate, nre);
+            stopOnFatalError(nre);
+        } catch (UnavailableException e) {
+            LOG.error("UnavailableException while replicating fragments of ledger {}", ledgerIdToReplicate, e);
+            waitBackOffTime(rwRereplicateBackoffMs);
+        } finally {
+            rereplicationPermits.release();
+        }
+    }
 
+    /**
+     * Stops the worker after a fatal error while replicating a ledger. A ledger replicated in the
+     * background only signals the worker thread, which shuts the worker down: shutting down waits for
+     * the threads replicating the ledgers to terminate.
+     */
+    private void stopOnFatalError(Throwable cause) {
+        if (Thread.currentThread() == workerThread) {
+            shutdown();
+            return;
+        }
+        if (!workerRunning) {
+            // interrupted by the shutdown
+            return;
+        }
+        rereplicationFailure = cause;
+        // wake the worker thread up, it may be waiting for a ledger to replicate
+        workerThread.interrupt();
+    }
+
+    private boolean timedRereplicate(long ledgerIdToReplicate) throws InterruptedException, BKException,
+            UnavailableException {
         Stopwatch stopwatch = Stopwatch.createStarted();
         boolean success = false;
         try {
             success = rereplicate(ledgerIdToReplicate);
         } finally {
+            numLedgersBeingRereplicated.decrementAndGet();
             long latencyMillis = stopwatch.stop().elapsed(TimeUnit.MILLISECONDS);
             if (success) {
                 rereplicateOpStats.registerSuccessfulEvent(latencyMillis, TimeUnit.MILLISECONDS);
@@ -534,7 +656,7 @@ public class ReplicationWorker implements Runnable {
                 } catch (UnavailableException e) {
                     LOG.error("UnavailableException while releasing the underreplicated lock for ledger {}:",
                         ledgerIdToReplicate, e);
-                    shutdown();
+                    stopOnFatalError(e);
                 }
             }
         }
@@ -759,6 +881,17 @@ public class ReplicationWorker implements Runnable {
                     e);
             Thread.currentThread().interrupt();
         }
+        if (rereplicationExecutor != null) {
+            // interrupt the ledgers being replicated, like the worker thread, and release the ledgers
+            // which were acquired but not replicated yet
+            rereplicationExecutor.shutdownNow().forEach(Runnable::run);
+            try {
+                rereplicationExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                LOG.error("Interrupted while waiting for the ledgers being replicated : ", e);
+                Thread.currentThread().interrupt();
+            }
+        }
         if (ownBkc) {
             try {
                 bkc.close();
@@ -810,12 +943,7 @@ public class ReplicationWorker implements Runnable {
     }
 
     private Counter getExceptionCounter(String name) {
-        Counter counter = this.exceptionCounters.get(name);
-        if (counter == null) {
-            counter = this.exceptionLogger.getCounter(name);
-            this.exceptionCounters.put(name, counter);
-        }
-        return counter;
+        return this.exceptionCounters.computeIfAbsent(name, this.exceptionLogger::getCounter);
     }
 
 }
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.tools.cli.commands.bookies;
+
+import com.beust.jcommander.Parameter;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Map;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.apache.bookkeeper.client.BookKeeperAdmin;
+import org.apache.bookkeeper.client.LedgerRebalancer;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.tools.cli.helpers.BookieCommand;
+import org.apache.bookkeeper.tools.framework.CliFlags;
+import org.apache.bookkeeper.tools.framework.CliSpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Command to move ledger replicas from the fullest or most loaded bookies to the bookies with room.
+ */
+public class RebalanceCommand extends BookieCommand<RebalanceCommand.RebalanceFlags> {
+
+    static final Logger LOG = LoggerFactory.getLogger(RebalanceCommand.class);
+
+    private static final String NAME = "rebalance";
+    private static final String DESC =
+        "Move the replicas of closed ledgers from the bookies whose disk usage is above the average or which"
+        + " are hot to the bookies with room, copying them at a limited rate and updating the ensembles.";
+
+    public RebalanceCommand() {
+        this(new RebalanceFlags());
+    }
+
+    private RebalanceCommand(RebalanceFlags flags) {
+        super(CliSpec.<RebalanceFlags>newBuilder().withName(NAME).withDescription(DESC).withFlags(flags).build());
+    }
+
+    /**
+     * Flags for rebalance command.
+     */
+    @Accessors(fluent = true)
+    @Setter
+    public static class RebalanceFlags extends CliFlags {
+
+        @Parameter(names = { "-u", "--usage-threshold" },
+            description = "Fraction of their disk capacity the bookies may use above the average usage")
+        private double usageThreshold = 0.1;
+
+        @Parameter(names = { "-l", "--load-threshold" },
+            description = "Multiple of the load of the median bookie above which a bookie is hot")
+        private double loadThreshold = 2.0;
+
+        @Parameter(names = { "-m", "--max-bytes" }, description = "Maximum number of bytes to move, 0 for no limit")
+        private long maxBytesToMove = 0L;
+
+        @Parameter(names = { "-r", "--rate" },
+            description = "Maximum number of bytes copied per second, 0 for the configured replication rate")
+        private int rate = 0;
+
+        @Parameter(names = { "-d", "--dryrun" }, description = "Print the moves without doing them")
+        private boolean dryRun = false;
+
+    }
+
+    @Override
+    public boolean apply(ServerConfiguration conf, RebalanceFlags cmdFlags) {
+        try {
+            return rebalance(conf, cmdFlags);
+        } catch (Exception e) {
+            throw new UncheckedExecutionException(e.getMessage(), e);
+        }
+    }
+
+    private boolean rebalance(ServerConfiguration conf, RebalanceFlags flags) throws Exception {
+        ClientConfiguration adminConf = new ClientConfiguration(conf);
+        // request the load of the bookies with their disk usage
+        adminConf.setLoadAwarePlacementEnabled(true);
+        if (flags.rate > 0) {
+            adminConf.setReplicationRateByBytes(flags.rate);
+        }
+        BookKeeperAdmin admin = new BookKeeperAdmin(adminConf);
+        try {
+            LedgerRebalancer.Plan plan = admin.computeRebalancePlan(flags.usageThreshold, flags.loadThreshold,
+                    flags.maxBytesToMove);
+            if (plan.isEmpty()) {
+                LOG.info("The bookies are balanced, nothing to move");
+                return true;
+            }
+            LOG.info("Moving {} replicas, {} bytes", plan.getMoves().size(), plan.getTotalBytes());
+            for (Map.Entry<BookieId, Long> e : plan.getBytesOut().entrySet()) {
+                LOG.info("  {} : {} bytes out", e.getKey(), e.getValue());
+            }
+            for (Map.Entry<BookieId, Long> e : plan.getBytesIn().entrySet()) {
+                LOG.info("  {} : {} bytes in", e.getKey(), e.getValue());
+            }
+            if (flags.dryRun) {
+                for (LedgerRebalancer.Move move : plan.getMoves()) {
+                    LOG.info("  {}", move);
+                }
+                return true;
+            }
+            int numMoved = admin.rebalanceBookies(plan);
+            return numMoved == plan.getMoves().size();
+        } finally {
+            admin.close();
+        }
+    }
+}
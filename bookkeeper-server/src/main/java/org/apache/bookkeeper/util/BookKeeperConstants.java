@@ -49,6 +49,7 @@ public class BookKeeperConstants {
     public static final String DEFAULT_ZK_LEDGERS_ROOT_PATH = "/ledgers";
     public static final String LAYOUT_ZNODE = "LAYOUT";
     public static final String INSTANCEID = "INSTANCEID";
+    public static final String LEDGER_ID_BLOCK_ZNODE = "idgen-block";
     public static final String DISABLE_HEALTH_CHECK = "disableHealthCheck";
 
     /**
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the adaptive rate of {@link AbstractLogCompactor.Throttler}.
+ */
+public class AbstractLogCompactorTest {
+
+    private static final int RATE = 1000;
+    private static final long THRESHOLD_MS = 10L;
+    private static final double DELTA = 0.001d;
+
+    private ServerConfiguration conf;
+    private final ForegroundLatencyTracker tracker = new ForegroundLatencyTracker();
+
+    @Before
+    public void setup() {
+        conf = TestBKConfiguration.newServerConfiguration();
+        conf.setIsThrottleByBytes(false);
+        conf.setCompactionRateByEntries(RATE);
+        conf.setCompactionAdaptiveThrottleEnabled(true);
+        conf.setCompactionAdaptiveRateMultiplier(4);
+        conf.setCompactionAdaptiveJournalAddLatencyThresholdMs(THRESHOLD_MS);
+        conf.setCompactionAdaptiveReadLatencyThresholdMs(THRESHOLD_MS);
+    }
+
+    private AbstractLogCompactor.Throttler newThrottler() {
+        AbstractLogCompactor.Throttler throttler = new AbstractLogCompactor.Throttler(conf);
+        throttler.setForegroundLatencyTracker(tracker);
+        return throttler;
+    }
+
+    /**
+     * Wait for the next rate adjustment, then acquire a permit to trigger it.
+     */
+    private double adjust(AbstractLogCompactor.Throttler throttler) throws Exception {
+        Thread.sleep(1100);
+        throttler.tryAcquire(1, 1, TimeUnit.SECONDS);
+        return throttler.getRate();
+    }
+
+    private void recordSlowJournalAdd() {
+        tracker.recordJournalAddLatency(TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MS * 10));
+    }
+
+    @Test
+    public void testRateIsHalvedDownToTheMinimumWhenForegroundIsSlow() throws Exception {
+        AbstractLogCompactor.Throttler throttler = newThrottler();
+        assertEquals(RATE, throttler.getRate(), DELTA);
+
+        recordSlowJournalAdd();
+        assertEquals(RATE / 2, adjust(throttler), DELTA);
+        tracker.recordReadLatency(TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MS * 10));
+        assertEquals(RATE / 4, adjust(throttler), DELTA);
+        recordSlowJournalAdd();
+        assertEquals(RATE / 4, adjust(throttler), DELTA);
+    }
+
+    @Test
+    public void testRateIncreasesUpToTheMaximumWhenForegroundIsFast() throws Exception {
+        conf.setCompactionAdaptiveRateMultiplier(1);
+        AbstractLogCompactor.Throttler throttler = newThrottler();
+        // the multiplier bounds the rate to the configured one
+        recordSlowJournalAdd();
+        assertEquals(RATE, adjust(throttler), DELTA);
+
+        conf.setCompactionAdaptiveRateMultiplier(4);
+        throttler = newThrottler();
+        recordSlowJournalAdd();
+        assertEquals(RATE / 2, adjust(throttler), DELTA);
+        tracker.recordJournalAddLatency(TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MS / 2));
+        assertEquals(RATE / 2 + RATE / 10, adjust(throttler), DELTA);
+        // no foreground operation
+        assertEquals(RATE / 2 + 2 * RATE / 10, adjust(throttler), DELTA);
+    }
+
+    @Test
+    public void testRateIsFixedWithoutAdaptiveThrottling() throws Exception {
+        conf.setCompactionAdaptiveThrottleEnabled(false);
+        AbstractLogCompactor.Throttler throttler = newThrottler();
+        recordSlowJournalAdd();
+        assertEquals(RATE, adjust(throttler), DELTA);
+    }
+
+    @Test
+    public void testRateIsFixedWithoutForegroundLatencyTracker() throws Exception {
+        AbstractLogCompactor.Throttler throttler = new AbstractLogCompactor.Throttler(conf);
+        recordSlowJournalAdd();
+        assertEquals(RATE, adjust(throttler), DELTA);
+    }
+}
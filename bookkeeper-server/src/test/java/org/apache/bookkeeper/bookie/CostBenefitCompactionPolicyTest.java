@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.bookkeeper.bookie.EntryLogCompactionPolicy.EntryLogUsage;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link CostBenefitCompactionPolicy}.
+ */
+public class CostBenefitCompactionPolicyTest {
+
+    private static final long LOG_SIZE = 1000L;
+
+    private final CostBenefitCompactionPolicy policy = new CostBenefitCompactionPolicy();
+
+    private static EntryLogUsage usage(long entryLogId, long remainingSize) {
+        return new EntryLogUsage(entryLogId, LOG_SIZE, remainingSize, (double) remainingSize / LOG_SIZE);
+    }
+
+    private List<Long> select(double threshold, EntryLogUsage... entryLogs) {
+        return policy.select(Arrays.asList(entryLogs), threshold).stream()
+                .map(EntryLogUsage::getEntryLogId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testNewEntryLogsAreSelectedFromTheEmptiest() {
+        assertEquals(Arrays.asList(3L, 1L, 2L), select(0.8d, usage(1L, 400L), usage(2L, 600L), usage(3L, 100L)));
+    }
+
+    @Test
+    public void testEntryLogsAboveTheThresholdAreNotSelected() {
+        assertEquals(Collections.singletonList(1L), select(0.5d, usage(1L, 400L), usage(2L, 500L)));
+    }
+
+    @Test
+    public void testOlderEntryLogsAreSelectedFirst() throws Exception {
+        select(0.8d, usage(1L, 500L));
+        Thread.sleep(50);
+        // the new log is emptier, but the data of the old one stayed for longer
+        assertEquals(Arrays.asList(1L, 2L), select(0.8d, usage(1L, 500L), usage(2L, 300L)));
+    }
+
+    @Test
+    public void testEntryLogsBeingDeletedAreNotSelected() {
+        select(0.8d, usage(1L, 700L), usage(2L, 700L));
+        // more data of the first log was deleted since it was first seen than what remains
+        assertEquals(Collections.singletonList(2L), select(0.8d, usage(1L, 300L), usage(2L, 600L)));
+    }
+
+    @Test
+    public void testEntryLogsAreSelectedOnceTheirDeletionsStop() throws Exception {
+        select(0.8d, usage(1L, 800L));
+        Thread.sleep(20);
+        assertEquals(Collections.emptyList(), select(0.8d, usage(1L, 100L)));
+        Thread.sleep(20);
+        // the remaining data of a long lived ledger isn't deleted anymore
+        assertEquals(Collections.singletonList(1L), select(0.8d, usage(1L, 100L)));
+    }
+
+    @Test
+    public void testEntryLogsDeletedSlowerThanTheyAgeAreSelected() throws Exception {
+        select(0.8d, usage(1L, 700L));
+        Thread.sleep(100);
+        select(0.8d, usage(1L, 600L));
+        Thread.sleep(20);
+        // a tenth of the remaining data deleted in a sixth of the age of the log
+        assertEquals(Collections.singletonList(1L), select(0.8d, usage(1L, 550L)));
+    }
+
+    @Test
+    public void testEntryLogsMissingFromASelectionKeepTheirHistory() {
+        select(0.8d, usage(1L, 700L), usage(2L, 700L));
+        // the first log isn't passed, as when the compaction runs out of time before reaching it
+        select(0.8d, usage(2L, 700L));
+        assertEquals(Collections.singletonList(2L), select(0.8d, usage(1L, 300L), usage(2L, 700L)));
+    }
+
+    @Test
+    public void testRemovedEntryLogsAreForgotten() {
+        select(0.8d, usage(1L, 700L));
+        policy.entryLogRemoved(1L);
+        // a log with the same id is a new log
+        assertEquals(Collections.singletonList(1L), select(0.8d, usage(1L, 300L)));
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.LedgerMetadataBuilder;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests of {@link EntryLogManagerForLifetimeClasses}.
+ */
+public class EntryLogManagerForLifetimeClassesTest {
+
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private ServerConfiguration conf;
+    private DefaultEntryLogger entryLogger;
+    private EntryLogManagerForLifetimeClasses entryLogManager;
+    private final Map<Long, String> retentionHints = new HashMap<>();
+
+    @Before
+    public void setup() throws Exception {
+        File ledgerDir = tmpDir.newFolder("ledgers");
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(ledgerDir));
+        conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(new String[] {ledgerDir.getAbsolutePath()});
+        conf.setEntryLogPerLedgerEnabled(true);
+        conf.setEntryLogLifetimeClassBoundariesSecs(1L);
+        // far fewer active entry logs than ledgers being written
+        conf.setMaximumNumberOfActiveEntryLogs(2);
+        conf.setEntryLogPerLedgerCounterLimitsMultFactor(1);
+        newEntryLogger();
+    }
+
+    private void newEntryLogger() throws Exception {
+        if (entryLogger != null) {
+            entryLogger.close();
+        }
+        entryLogger = new DefaultEntryLogger(conf, new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold())));
+        entryLogManager = (EntryLogManagerForLifetimeClasses) entryLogger.getEntryLogManager();
+    }
+
+    private LedgerManager newLedgerManager() {
+        LedgerManager ledgerManager = mock(LedgerManager.class);
+        when(ledgerManager.readLedgerMetadata(anyLong())).thenAnswer(invocation -> {
+            long ledgerId = invocation.getArgument(0);
+            Map<String, byte[]> customMetadata = new HashMap<>();
+            if (retentionHints.containsKey(ledgerId)) {
+                customMetadata.put("retentionSecs", retentionHints.get(ledgerId).getBytes(StandardCharsets.UTF_8));
+            }
+            LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                    .withId(ledgerId)
+                    .withEnsembleSize(1).withWriteQuorumSize(1).withAckQuorumSize(1)
+                    .withPassword(new byte[0])
+                    .withDigestType(DigestType.CRC32C)
+                    .withCustomMetadata(customMetadata)
+                    .newEnsembleEntry(0L, Collections.singletonList(BookieId.parse("bookie-1:3181")))
+                    .build();
+            return CompletableFuture.completedFuture(new Versioned<>(metadata, new LongVersion(0L)));
+        });
+        return ledgerManager;
+    }
+
+    @After
+    public void teardown() {
+        entryLogger.close();
+    }
+
+    private long addEntry(long ledgerId, long entryId) throws Exception {
+        ByteBuf entry = Unpooled.buffer();
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        entry.writeLong(0L);
+        return DefaultEntryLogger.logIdForOffset(entryLogger.addEntry(ledgerId, entry));
+    }
+
+    @Test
+    public void testLogKeys() {
+        assertEquals(2, entryLogManager.getNumLifetimeClasses());
+        // a single ledger directory, the hottest class is -2
+        assertEquals(-2L, entryLogManager.getLogKey(1L));
+        assertEquals(-2L, entryLogManager.getLogKey(2L));
+        // log keys map to themselves
+        assertEquals(-3L, entryLogManager.getLogKey(-3L));
+    }
+
+    @Test
+    public void testLedgersOfALifetimeClassShareAnEntryLog() throws Exception {
+        long logId = addEntry(1L, 0L);
+        for (long ledgerId = 2L; ledgerId < 10L; ledgerId++) {
+            assertEquals(logId, addEntry(ledgerId, 0L));
+        }
+    }
+
+    @Test
+    public void testLedgersMoveToColderEntryLogs() throws Exception {
+        long hotLogId = addEntry(1L, 0L);
+        assertEquals(0, entryLogManager.getLifetimeClass(1L));
+
+        Thread.sleep(1100);
+        assertEquals(1, entryLogManager.getLifetimeClass(1L));
+        long coldLogId = addEntry(1L, 1L);
+        assertNotEquals(hotLogId, coldLogId);
+        // a new ledger is still written to the hot entry log
+        assertEquals(hotLogId, addEntry(2L, 0L));
+        assertEquals(0, entryLogManager.getLifetimeClass(2L));
+    }
+
+    @Test
+    public void testLedgerAgesAreTrackedForMoreLedgersThanActiveEntryLogs() throws Exception {
+        int numLedgers = 1000;
+        for (long ledgerId = 0; ledgerId < numLedgers; ledgerId++) {
+            assertEquals(0, entryLogManager.getLifetimeClass(ledgerId));
+        }
+        Thread.sleep(1100);
+        int numCold = 0;
+        for (long ledgerId = 0; ledgerId < numLedgers; ledgerId++) {
+            if (entryLogManager.getLifetimeClass(ledgerId) == 1) {
+                numCold++;
+            }
+        }
+        // none of the ledgers was evicted and restarted from the hottest class
+        assertEquals(numLedgers, numCold);
+    }
+
+    @Test
+    public void testShortAndLongLivedLedgersAreWrittenToDifferentEntryLogs() throws Exception {
+        conf.setEntryLogLifetimeClassBoundariesSecs(3600L, 86400L);
+        newEntryLogger();
+        LedgerManager ledgerManager = newLedgerManager();
+        entryLogger.setLedgerManager(ledgerManager);
+        for (long ledgerId = 1L; ledgerId <= 4L; ledgerId++) {
+            retentionHints.put(ledgerId, "600");
+            retentionHints.put(ledgerId + 4L, "604800");
+        }
+
+        // the ledgers are interleaved, as when they are written concurrently
+        long shortLivedLogId = addEntry(1L, 0L);
+        long longLivedLogId = addEntry(5L, 0L);
+        assertNotEquals(shortLivedLogId, longLivedLogId);
+        for (long ledgerId = 2L; ledgerId <= 4L; ledgerId++) {
+            assertEquals(shortLivedLogId, addEntry(ledgerId, 0L));
+            assertEquals(longLivedLogId, addEntry(ledgerId + 4L, 0L));
+        }
+        assertEquals(0, entryLogManager.getLifetimeClass(1L));
+        assertEquals(2, entryLogManager.getLifetimeClass(5L));
+
+        // the metadata of a ledger is only read on its first write
+        assertEquals(shortLivedLogId, addEntry(1L, 1L));
+        verify(ledgerManager, times(1)).readLedgerMetadata(1L);
+        // a ledger without a valid hint starts in the hottest class
+        retentionHints.put(10L, "forever");
+        assertEquals(shortLivedLogId, addEntry(9L, 0L));
+        assertEquals(shortLivedLogId, addEntry(10L, 0L));
+    }
+
+    @Test
+    public void testLedgersWithARetentionHintDoNotAge() throws Exception {
+        entryLogger.setLedgerManager(newLedgerManager());
+        retentionHints.put(1L, "0");
+        long hotLogId = addEntry(1L, 0L);
+        addEntry(2L, 0L);
+
+        Thread.sleep(1100);
+        assertEquals(hotLogId, addEntry(1L, 1L));
+        assertEquals(1, entryLogManager.getLifetimeClass(2L));
+    }
+
+    @Test
+    public void testRetentionHintsAreNotReadWithoutKey() throws Exception {
+        conf.setEntryLogLifetimeClassRetentionHintKey("");
+        newEntryLogger();
+        LedgerManager ledgerManager = newLedgerManager();
+        entryLogger.setLedgerManager(ledgerManager);
+        retentionHints.put(1L, "604800");
+        addEntry(1L, 0L);
+        assertEquals(0, entryLogManager.getLifetimeClass(1L));
+        verify(ledgerManager, times(0)).readLedgerMetadata(anyLong());
+    }
+}
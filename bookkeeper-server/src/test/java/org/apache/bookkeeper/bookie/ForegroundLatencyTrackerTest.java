@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ForegroundLatencyTracker}.
+ */
+public class ForegroundLatencyTrackerTest {
+
+    private final ForegroundLatencyTracker tracker = new ForegroundLatencyTracker();
+
+    @Test
+    public void testAverageLatenciesSinceThePreviousSample() {
+        ForegroundLatencyTracker.Sampler sampler = tracker.newSampler();
+        tracker.recordJournalAddLatency(100L);
+        tracker.recordJournalAddLatency(300L);
+        tracker.recordReadLatency(50L);
+        sampler.sample();
+        assertEquals(200L, sampler.getAvgJournalAddLatencyNanos());
+        assertEquals(50L, sampler.getAvgReadLatencyNanos());
+
+        tracker.recordJournalAddLatency(1000L);
+        sampler.sample();
+        assertEquals(1000L, sampler.getAvgJournalAddLatencyNanos());
+        // no read since the previous sample
+        assertEquals(0L, sampler.getAvgReadLatencyNanos());
+    }
+
+    @Test
+    public void testSamplerIgnoresTheLatenciesRecordedBeforeItsCreation() {
+        tracker.recordJournalAddLatency(1000L);
+        tracker.recordReadLatency(1000L);
+        ForegroundLatencyTracker.Sampler sampler = tracker.newSampler();
+        sampler.sample();
+        assertEquals(0L, sampler.getAvgJournalAddLatencyNanos());
+        assertEquals(0L, sampler.getAvgReadLatencyNanos());
+    }
+
+    @Test
+    public void testSamplersAreIndependent() {
+        ForegroundLatencyTracker.Sampler sampler1 = tracker.newSampler();
+        ForegroundLatencyTracker.Sampler sampler2 = tracker.newSampler();
+        tracker.recordReadLatency(100L);
+        sampler1.sample();
+        tracker.recordReadLatency(300L);
+        sampler2.sample();
+        sampler1.sample();
+
+        assertEquals(300L, sampler1.getAvgReadLatencyNanos());
+        assertEquals(200L, sampler2.getAvgReadLatencyNanos());
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.bookie.storage.EntryLogger;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the entry log metadata extraction of {@link GarbageCollectorThread}.
+ */
+public class GarbageCollectorThreadTest {
+
+    private static final int NUM_ENTRY_LOGS = 20;
+
+    private ServerConfiguration conf;
+    private EntryLogger entryLogger;
+    private CompactableLedgerStorage ledgerStorage;
+    private GarbageCollectorThread gcThread;
+    private final Set<Long> removedLogs = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger extractionsInProgress = new AtomicInteger();
+    private final AtomicInteger maxExtractionsInProgress = new AtomicInteger();
+    private final List<GarbageCollectionStatus> statuses = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        conf = TestBKConfiguration.newServerConfiguration();
+
+        List<Long> logIds = new ArrayList<>();
+        for (long logId = 0; logId < NUM_ENTRY_LOGS; logId++) {
+            logIds.add(logId);
+        }
+        entryLogger = mock(EntryLogger.class);
+        when(entryLogger.getFlushedLogIds()).thenReturn(logIds);
+        when(entryLogger.logExists(anyLong()))
+                .thenAnswer(invocation -> !removedLogs.contains(invocation.<Long>getArgument(0)));
+        when(entryLogger.removeEntryLog(anyLong())).thenAnswer(invocation -> removedLogs.add(invocation.getArgument(0)));
+        // every entry log stores a single ledger with the id of the log
+        when(entryLogger.getEntryLogMetadata(anyLong(), any())).thenAnswer(invocation -> {
+            long logId = invocation.getArgument(0);
+            int inProgress = extractionsInProgress.incrementAndGet();
+            maxExtractionsInProgress.accumulateAndGet(inProgress, Math::max);
+            try {
+                Thread.sleep(20);
+                synchronized (statuses) {
+                    statuses.add(gcThread.getGarbageCollectionStatus());
+                }
+            } finally {
+                extractionsInProgress.decrementAndGet();
+            }
+            EntryLogMetadata metadata = new EntryLogMetadata(logId);
+            metadata.addLedgerSize(logId, 100L);
+            return metadata;
+        });
+
+        // the ledgers of the odd entry logs are deleted
+        ledgerStorage = mock(CompactableLedgerStorage.class);
+        when(ledgerStorage.ledgerExists(anyLong())).thenAnswer(invocation -> {
+            long ledgerId = invocation.getArgument(0);
+            return ledgerId % 2 == 0;
+        });
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (gcThread != null) {
+            gcThread.shutdown();
+        }
+    }
+
+    private void extract(int numThreads) throws Exception {
+        conf.setEntryLogMetadataExtractionThreads(numThreads);
+        gcThread = new GarbageCollectorThread(conf, null, null, ledgerStorage, entryLogger,
+                NullStatsLogger.INSTANCE);
+        gcThread.extractMetaFromEntryLogs();
+    }
+
+    private void assertExtracted() throws Exception {
+        EntryLogMetadataMap entryLogMetaMap = gcThread.getEntryLogMetaMap();
+        assertEquals(NUM_ENTRY_LOGS / 2, entryLogMetaMap.size());
+        for (long logId = 0; logId < NUM_ENTRY_LOGS; logId++) {
+            if (logId % 2 == 0) {
+                assertTrue(entryLogMetaMap.containsKey(logId));
+                assertFalse(removedLogs.contains(logId));
+            } else {
+                assertFalse(entryLogMetaMap.containsKey(logId));
+                assertTrue(removedLogs.contains(logId));
+            }
+        }
+
+        // the progress is reported while extracting, and reset when done
+        assertEquals(NUM_ENTRY_LOGS, statuses.size());
+        for (GarbageCollectionStatus status : statuses) {
+            assertEquals(NUM_ENTRY_LOGS, status.getEntryLogMetadataToExtract());
+            assertTrue(status.getExtractedEntryLogMetadata() < NUM_ENTRY_LOGS);
+        }
+        GarbageCollectionStatus status = gcThread.getGarbageCollectionStatus();
+        assertEquals(0, status.getEntryLogMetadataToExtract());
+        assertEquals(0, status.getExtractedEntryLogMetadata());
+    }
+
+    @Test
+    public void testExtractionOnTheGcThread() throws Exception {
+        extract(1);
+        assertExtracted();
+        assertEquals(1, maxExtractionsInProgress.get());
+    }
+
+    @Test
+    public void testExtractionOnSeveralThreads() throws Exception {
+        extract(4);
+        assertExtracted();
+        int maxInProgress = maxExtractionsInProgress.get();
+        assertTrue("extracted " + maxInProgress + " entry logs at a time", maxInProgress > 1 && maxInProgress <= 4);
+    }
+
+    @Test
+    public void testExtractedEntryLogsAreNotExtractedAgain() throws Exception {
+        extract(4);
+        statuses.clear();
+        gcThread.extractMetaFromEntryLogs();
+        assertTrue(statuses.isEmpty());
+        assertEquals(NUM_ENTRY_LOGS / 2, gcThread.getEntryLogMetaMap().size());
+    }
+}
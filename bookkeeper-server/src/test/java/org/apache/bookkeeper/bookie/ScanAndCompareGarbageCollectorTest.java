@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.LedgerMetadataBuilder;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRange;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRangeIterator;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the incremental garbage collection of {@link ScanAndCompareGarbageCollector}.
+ */
+public class ScanAndCompareGarbageCollectorTest {
+
+    private ServerConfiguration conf;
+    private LedgerManager ledgerManager;
+    private CompactableLedgerStorage ledgerStorage;
+    private final Set<Long> bookieLedgers = new TreeSet<>();
+    private final Set<Long> metadataLedgers = new TreeSet<>();
+    private final Map<Long, LedgerMetadataListener> listeners = new ConcurrentHashMap<>();
+    private final List<Long> cleaned = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        conf = TestBKConfiguration.newServerConfiguration();
+        conf.setGcIncrementalEnabled(true);
+
+        ledgerStorage = mock(CompactableLedgerStorage.class);
+        when(ledgerStorage.getActiveLedgersInRange(anyLong(), anyLong()))
+                .thenAnswer(invocation -> new ArrayList<>(bookieLedgers));
+
+        ledgerManager = mock(LedgerManager.class);
+        when(ledgerManager.getLedgerRanges(anyLong())).thenAnswer(invocation -> ledgerRanges());
+        doAnswer(invocation -> {
+            listeners.put(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(ledgerManager).registerLedgerMetadataListener(anyLong(), any());
+        doAnswer(invocation -> {
+            listeners.remove(invocation.<Long>getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(ledgerManager).unregisterLedgerMetadataListener(anyLong(), any());
+    }
+
+    private LedgerRangeIterator ledgerRanges() {
+        Iterator<Long> ledgers = new ArrayList<>(metadataLedgers).iterator();
+        return new LedgerRangeIterator() {
+            @Override
+            public boolean hasNext() {
+                return ledgers.hasNext();
+            }
+
+            @Override
+            public LedgerRange next() {
+                if (!ledgers.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new LedgerRange(Collections.singleton(ledgers.next()));
+            }
+        };
+    }
+
+    private void addLedgers(Long... ledgerIds) {
+        bookieLedgers.addAll(Arrays.asList(ledgerIds));
+        metadataLedgers.addAll(Arrays.asList(ledgerIds));
+    }
+
+    private ScanAndCompareGarbageCollector newGarbageCollector() throws Exception {
+        return new ScanAndCompareGarbageCollector(ledgerManager, ledgerStorage, conf, NullStatsLogger.INSTANCE);
+    }
+
+    private void gc(ScanAndCompareGarbageCollector collector) {
+        collector.gc(ledgerId -> {
+            cleaned.add(ledgerId);
+            bookieLedgers.remove(ledgerId);
+        });
+    }
+
+    private void deleteLedger(long ledgerId, boolean notify) {
+        metadataLedgers.remove(ledgerId);
+        LedgerMetadataListener listener = listeners.get(ledgerId);
+        if (notify && listener != null) {
+            listener.onChanged(ledgerId, null);
+        }
+    }
+
+    @Test
+    public void testFirstGcIsAFullScan() throws Exception {
+        addLedgers(1L, 2L, 3L);
+        bookieLedgers.add(4L);
+        ScanAndCompareGarbageCollector collector = newGarbageCollector();
+
+        gc(collector);
+        assertEquals(Collections.singletonList(4L), cleaned);
+        verify(ledgerManager, times(1)).getLedgerRanges(anyLong());
+        assertEquals(new TreeSet<>(Arrays.asList(1L, 2L, 3L, 4L)), listeners.keySet());
+    }
+
+    @Test
+    public void testNotifiedDeletionsAreCollectedWithoutAFullScan() throws Exception {
+        addLedgers(1L, 2L, 3L);
+        ScanAndCompareGarbageCollector collector = newGarbageCollector();
+        gc(collector);
+        assertTrue(cleaned.isEmpty());
+
+        deleteLedger(2L, true);
+        gc(collector);
+        assertEquals(Collections.singletonList(2L), cleaned);
+        verify(ledgerManager, times(1)).getLedgerRanges(anyLong());
+
+        // a notification is collected only once, and the collected ledger isn't watched anymore
+        gc(collector);
+        assertEquals(Collections.singletonList(2L), cleaned);
+        assertEquals(new TreeSet<>(Arrays.asList(1L, 3L)), listeners.keySet());
+    }
+
+    @Test
+    public void testNewLedgersOfTheBookieAreWatched() throws Exception {
+        addLedgers(1L);
+        ScanAndCompareGarbageCollector collector = newGarbageCollector();
+        gc(collector);
+
+        addLedgers(2L);
+        gc(collector);
+        assertEquals(new TreeSet<>(Arrays.asList(1L, 2L)), listeners.keySet());
+
+        deleteLedger(2L, true);
+        gc(collector);
+        assertEquals(Collections.singletonList(2L), cleaned);
+    }
+
+    @Test
+    public void testLostNotificationsAreCollectedByTheNextFullScan() throws Exception {
+        addLedgers(1L, 2L);
+        ScanAndCompareGarbageCollector collector = newGarbageCollector();
+        gc(collector);
+
+        deleteLedger(1L, false);
+        gc(collector);
+        assertTrue(cleaned.isEmpty());
+
+        // every gc after the wait time is a full scan
+        conf.setGcFullScanWaitTime(0, TimeUnit.MILLISECONDS);
+        collector = newGarbageCollector();
+        gc(collector);
+        assertEquals(Collections.singletonList(1L), cleaned);
+        gc(collector);
+        verify(ledgerManager, times(3)).getLedgerRanges(anyLong());
+    }
+
+    @Test
+    public void testNotifiedDeletionsAreVerifiedOnTheMetadataStore() throws Exception {
+        conf.setVerifyMetadataOnGc(true);
+        addLedgers(1L, 2L);
+        ScanAndCompareGarbageCollector collector = newGarbageCollector();
+        gc(collector);
+
+        // the ledger 1 was recreated with the bookie in its ensemble after the notification
+        LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                .withId(1L)
+                .withEnsembleSize(1).withWriteQuorumSize(1).withAckQuorumSize(1)
+                .withPassword(new byte[0])
+                .withDigestType(DigestType.CRC32C)
+                .newEnsembleEntry(0L, Collections.singletonList(BookieImpl.getBookieId(conf)))
+                .build();
+        when(ledgerManager.readLedgerMetadata(1L))
+                .thenReturn(CompletableFuture.completedFuture(new Versioned<>(metadata, new LongVersion(0L))));
+        when(ledgerManager.readLedgerMetadata(2L))
+                .thenReturn(FutureUtils.exception(new BKException.BKNoSuchLedgerExistsOnMetadataServerException()));
+        listeners.get(1L).onChanged(1L, null);
+        deleteLedger(2L, true);
+
+        gc(collector);
+        assertEquals(Collections.singletonList(2L), cleaned);
+    }
+
+    @Test
+    public void testLedgersAreNotWatchedWithoutIncrementalGc() throws Exception {
+        conf.setGcIncrementalEnabled(false);
+        addLedgers(1L, 2L);
+        ScanAndCompareGarbageCollector collector = newGarbageCollector();
+        gc(collector);
+
+        deleteLedger(1L, false);
+        gc(collector);
+        assertEquals(Collections.singletonList(1L), cleaned);
+        verify(ledgerManager, times(2)).getLedgerRanges(anyLong());
+        verify(ledgerManager, never()).registerLedgerMetadataListener(anyLong(), any());
+    }
+}
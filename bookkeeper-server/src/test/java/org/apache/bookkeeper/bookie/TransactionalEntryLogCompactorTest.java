@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.bookkeeper.bookie.storage.EntryLogger;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of the {@link TransactionalEntryLogCompactor} with the {@link DefaultEntryLogger}.
+ */
+public class TransactionalEntryLogCompactorTest {
+
+    private static final int NUM_ENTRIES = 10;
+
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private ServerConfiguration conf;
+    private File curDir;
+    private DefaultEntryLogger entryLogger;
+    private CompactableLedgerStorage ledgerStorage;
+    private final List<EntryLocation> updatedLocations = new CopyOnWriteArrayList<>();
+    private final Set<Long> removedLogs = ConcurrentHashMap.newKeySet();
+
+    @Before
+    public void setup() throws Exception {
+        File ledgerDir = tmpDir.newFolder("ledgers");
+        curDir = BookieImpl.getCurrentDirectory(ledgerDir);
+        BookieImpl.checkDirectoryStructure(curDir);
+        conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(new String[] {ledgerDir.getAbsolutePath()});
+        entryLogger = new DefaultEntryLogger(conf, new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold())));
+
+        ledgerStorage = mock(CompactableLedgerStorage.class);
+        doAnswer(invocation -> {
+            Iterable<EntryLocation> locations = invocation.getArgument(0);
+            locations.forEach(updatedLocations::add);
+            return null;
+        }).when(ledgerStorage).updateEntriesLocations(any());
+    }
+
+    @After
+    public void teardown() {
+        entryLogger.close();
+    }
+
+    private static ByteBuf entry(long ledgerId, long entryId) {
+        ByteBuf entry = Unpooled.buffer();
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        entry.writeBytes(("entry-" + ledgerId + "-" + entryId).getBytes(UTF_8));
+        return entry;
+    }
+
+    /**
+     * Write an entry log with the entries of a live and a deleted ledger.
+     *
+     * @return the metadata of the entry log, without the deleted ledger
+     */
+    private EntryLogMetadata writeEntryLog(long liveLedger, long deletedLedger) throws IOException {
+        long logId = -1L;
+        for (long entryId = 0; entryId < NUM_ENTRIES; entryId++) {
+            logId = DefaultEntryLogger.logIdForOffset(entryLogger.addEntry(liveLedger, entry(liveLedger, entryId)));
+            entryLogger.addEntry(deletedLedger, entry(deletedLedger, entryId));
+        }
+        ((EntryLogManagerBase) entryLogger.getEntryLogManager()).createNewLog(EntryLogger.UNASSIGNED_LEDGERID);
+        entryLogger.flush();
+
+        EntryLogMetadata metadata = entryLogger.getEntryLogMetadata(logId);
+        metadata.removeLedgerIf(ledgerId -> ledgerId == deletedLedger);
+        return metadata;
+    }
+
+    private TransactionalEntryLogCompactor newCompactor(AbstractLogCompactor.Throttler throttler) {
+        return new TransactionalEntryLogCompactor(conf, entryLogger, ledgerStorage, logId -> {
+            removedLogs.add(logId);
+            entryLogger.removeEntryLog(logId);
+        }, throttler);
+    }
+
+    private void assertEntriesRelocated(long ledgerId, Set<Long> sourceLogs) throws Exception {
+        List<EntryLocation> locations = updatedLocations.stream()
+                .filter(location -> location.getLedger() == ledgerId)
+                .collect(Collectors.toList());
+        assertEquals(NUM_ENTRIES, locations.size());
+        for (EntryLocation location : locations) {
+            assertFalse(sourceLogs.contains(DefaultEntryLogger.logIdForOffset(location.getLocation())));
+            ByteBuf entry = entryLogger.readEntry(ledgerId, location.getEntry(), location.getLocation());
+            try {
+                assertEquals(entry(ledgerId, location.getEntry()), entry);
+            } finally {
+                entry.release();
+            }
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        EntryLogMetadata metadata = writeEntryLog(1L, 2L);
+        assertTrue(newCompactor(new AbstractLogCompactor.Throttler(conf)).compact(metadata));
+
+        assertEntriesRelocated(1L, Collections.singleton(metadata.getEntryLogId()));
+        assertEquals(Collections.singleton(metadata.getEntryLogId()), removedLogs);
+        assertFalse(entryLogger.logExists(metadata.getEntryLogId()));
+    }
+
+    @Test
+    public void testConcurrentCompactionsWriteTheirOwnCompactionLogs() throws Exception {
+        EntryLogMetadata metadata1 = writeEntryLog(1L, 2L);
+        EntryLogMetadata metadata2 = writeEntryLog(3L, 4L);
+        Set<Long> sourceLogs = new HashSet<>(Arrays.asList(metadata1.getEntryLogId(), metadata2.getEntryLogId()));
+
+        // the compactions copy their entries in lock step, so both compaction logs are written at the same time
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        AbstractLogCompactor.Throttler throttler = new AbstractLogCompactor.Throttler(conf) {
+            @Override
+            public void acquire(int permits) throws IOException {
+                try {
+                    barrier.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IOException("The other compaction didn't copy its entry", e);
+                }
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> compaction1 = executor.submit(() -> newCompactor(throttler).compact(metadata1));
+            Future<Boolean> compaction2 = executor.submit(() -> newCompactor(throttler).compact(metadata2));
+            assertTrue(compaction1.get(30, TimeUnit.SECONDS));
+            assertTrue(compaction2.get(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEntriesRelocated(1L, sourceLogs);
+        assertEntriesRelocated(3L, sourceLogs);
+        Map<Long, Set<Long>> ledgersByCompactionLog = updatedLocations.stream().collect(Collectors.groupingBy(
+                location -> DefaultEntryLogger.logIdForOffset(location.getLocation()),
+                Collectors.mapping(EntryLocation::getLedger, Collectors.toSet())));
+        assertEquals(2, ledgersByCompactionLog.size());
+        for (Set<Long> ledgers : ledgersByCompactionLog.values()) {
+            assertEquals(1, ledgers.size());
+        }
+
+        assertEquals(sourceLogs, removedLogs);
+        for (long logId : sourceLogs) {
+            assertFalse(entryLogger.logExists(logId));
+        }
+        String[] leftovers = curDir.list((dir, name) -> name.contains(".compact"));
+        assertEquals(0, leftovers.length);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.util.PrimitiveIterator.OfLong;
+import java.util.stream.LongStream;
+import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.bookie.TestBookieImpl;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests of {@link DbLedgerStorage}.
+ */
+public class DbLedgerStorageTest {
+
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private DbLedgerStorage storage;
+
+    @Before
+    public void setup() throws Exception {
+        File ledgerDir = tmpDir.newFolder("ledgers");
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(ledgerDir));
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerStorageClass(DbLedgerStorage.class.getName());
+        conf.setLedgerDirNames(new String[] {ledgerDir.getAbsolutePath()});
+        BookieImpl bookie = new TestBookieImpl(conf);
+        storage = (DbLedgerStorage) bookie.getLedgerStorage();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        storage.shutdown();
+    }
+
+    private void addEntry(long ledgerId, long entryId) throws Exception {
+        ByteBuf entry = Unpooled.buffer();
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        entry.writeBytes(("entry-" + entryId).getBytes());
+        storage.addEntry(entry);
+    }
+
+    private long[] listOfEntriesOfLedger(long ledgerId) throws Exception {
+        OfLong entries = storage.getListOfEntriesOfLedger(ledgerId);
+        LongStream.Builder list = LongStream.builder();
+        entries.forEachRemaining(list);
+        return list.build().toArray();
+    }
+
+    @Test
+    public void testListOfEntriesOfLedgerInTheWriteCache() throws Exception {
+        storage.setMasterKey(1L, new byte[0]);
+        storage.setMasterKey(2L, new byte[0]);
+        addEntry(1L, 0L);
+        addEntry(1L, 1L);
+        addEntry(1L, 5L);
+        addEntry(2L, 0L);
+
+        assertArrayEquals(new long[] {0L, 1L, 5L}, listOfEntriesOfLedger(1L));
+        assertArrayEquals(new long[] {0L}, listOfEntriesOfLedger(2L));
+        assertEquals(0, listOfEntriesOfLedger(3L).length);
+    }
+
+    @Test
+    public void testListOfEntriesOfLedgerInTheIndex() throws Exception {
+        storage.setMasterKey(1L, new byte[0]);
+        addEntry(1L, 0L);
+        addEntry(1L, 2L);
+        storage.flush();
+
+        assertArrayEquals(new long[] {0L, 2L}, listOfEntriesOfLedger(1L));
+    }
+
+    @Test
+    public void testListOfEntriesOfLedgerMergesTheIndexAndTheWriteCache() throws Exception {
+        storage.setMasterKey(1L, new byte[0]);
+        addEntry(1L, 0L);
+        addEntry(1L, 3L);
+        storage.flush();
+        // an entry written again is listed once
+        addEntry(1L, 3L);
+        addEntry(1L, 1L);
+        addEntry(1L, 4L);
+
+        assertArrayEquals(new long[] {0L, 1L, 3L, 4L}, listOfEntriesOfLedger(1L));
+    }
+
+    @Test
+    public void testListOfEntriesOfDeletedLedger() throws Exception {
+        storage.setMasterKey(1L, new byte[0]);
+        addEntry(1L, 0L);
+        storage.flush();
+        addEntry(1L, 1L);
+        storage.deleteLedger(1L);
+
+        assertEquals(0, listOfEntriesOfLedger(1L).length);
+    }
+
+    private long readEntryId(ByteBuf entry) {
+        try {
+            return entry.getLong(8);
+        } finally {
+            entry.release();
+        }
+    }
+
+    @Test
+    public void testReadsWithoutCachingDoNotFillTheReadCache() throws Exception {
+        storage.setMasterKey(1L, new byte[0]);
+        for (long entryId = 0L; entryId < 5L; entryId++) {
+            addEntry(1L, entryId);
+        }
+        storage.flush();
+
+        assertEquals(0L, readEntryId(storage.getEntryWithoutCaching(1L, 0L)));
+        assertEquals(1L, readEntryId(storage.getEntryWithoutCaching(1L, 1L)));
+        assertEquals(0L, storage.getReadCacheHitCount());
+        assertEquals(2L, storage.getReadCacheMissCount());
+
+        // the entries read were not cached
+        assertEquals(0L, readEntryId(storage.getEntry(1L, 0L)));
+        assertEquals(0L, storage.getReadCacheHitCount());
+        assertEquals(3L, storage.getReadCacheMissCount());
+
+        // while a cached read fills the read cache with the entries read ahead
+        assertEquals(1L, readEntryId(storage.getEntry(1L, 1L)));
+        assertEquals(2L, readEntryId(storage.getEntryWithoutCaching(1L, 2L)));
+        assertEquals(2L, storage.getReadCacheHitCount());
+        assertEquals(3L, storage.getReadCacheMissCount());
+    }
+
+    @Test
+    public void testReadsWithoutCachingFromTheWriteCache() throws Exception {
+        storage.setMasterKey(1L, new byte[0]);
+        addEntry(1L, 0L);
+
+        assertEquals(0L, readEntryId(storage.getEntryWithoutCaching(1L, 0L)));
+        assertEquals(0L, storage.getReadCacheMissCount());
+    }
+}
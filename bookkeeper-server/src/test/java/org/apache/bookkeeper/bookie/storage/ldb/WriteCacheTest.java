@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.util.stream.LongStream;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests of the listing of the entries of a ledger by {@link WriteCache}.
+ */
+public class WriteCacheTest {
+
+    private final WriteCache cache = new WriteCache(UnpooledByteBufAllocator.DEFAULT, 1024 * 1024);
+
+    @After
+    public void teardown() {
+        cache.close();
+    }
+
+    private void put(long ledgerId, long entryId) {
+        ByteBuf entry = Unpooled.buffer();
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        cache.put(ledgerId, entryId, entry);
+        entry.release();
+    }
+
+    private long[] entriesOfLedger(long ledgerId) {
+        LongStream.Builder entries = LongStream.builder();
+        cache.forEachEntryOfLedger(ledgerId, entries);
+        return entries.build().sorted().toArray();
+    }
+
+    @Test
+    public void testEntriesOfLedger() {
+        put(1L, 0L);
+        put(1L, 1L);
+        put(2L, 0L);
+        put(1L, 1000000L);
+
+        assertArrayEquals(new long[] {0L, 1L, 1000000L}, entriesOfLedger(1L));
+        assertArrayEquals(new long[] {0L}, entriesOfLedger(2L));
+        assertEquals(0, entriesOfLedger(3L).length);
+    }
+
+    @Test
+    public void testEntriesOfDeletedLedger() {
+        put(1L, 0L);
+        put(2L, 0L);
+        cache.deleteLedger(1L);
+
+        assertEquals(0, entriesOfLedger(1L).length);
+        assertArrayEquals(new long[] {0L}, entriesOfLedger(2L));
+    }
+
+    @Test
+    public void testEntriesOfLedgerAfterClear() {
+        put(1L, 0L);
+        cache.clear();
+
+        assertEquals(0, entriesOfLedger(1L).length);
+    }
+}
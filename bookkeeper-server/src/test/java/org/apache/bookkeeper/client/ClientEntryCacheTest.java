@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ClientEntryCache}.
+ */
+public class ClientEntryCacheTest {
+
+    private static final long LEDGER_ID = 7L;
+
+    private ClientEntryCache cache;
+    private AtomicInteger bookieReads;
+
+    @Before
+    public void setup() {
+        cache = new ClientEntryCache(UnpooledByteBufAllocator.DEFAULT, 1024 * 1024, NullStatsLogger.INSTANCE);
+        bookieReads = new AtomicInteger();
+    }
+
+    @After
+    public void teardown() {
+        cache.close();
+    }
+
+    private static String payload(long entryId) {
+        return "entry-" + entryId;
+    }
+
+    private static LedgerEntries entries(long ledgerId, long firstEntry, long lastEntry) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+            byte[] data = payload(entryId).getBytes(UTF_8);
+            entries.add(LedgerEntryImpl.create(ledgerId, entryId, 100L * (entryId + 1),
+                    Unpooled.wrappedBuffer(data)));
+        }
+        return LedgerEntriesImpl.create(entries);
+    }
+
+    private Supplier<CompletableFuture<LedgerEntries>> bookieRead(long firstEntry, long lastEntry) {
+        return () -> {
+            bookieReads.incrementAndGet();
+            return FutureUtils.value(entries(LEDGER_ID, firstEntry, lastEntry));
+        };
+    }
+
+    private static void assertEntries(LedgerEntries entries, long firstEntry, long lastEntry) {
+        long expected = firstEntry;
+        for (LedgerEntry entry : entries) {
+            assertEquals(LEDGER_ID, entry.getLedgerId());
+            assertEquals(expected, entry.getEntryId());
+            assertEquals(100L * (expected + 1), entry.getLength());
+            assertEquals(payload(expected), new String(entry.getEntryBytes(), UTF_8));
+            expected++;
+        }
+        assertEquals(lastEntry + 1, expected);
+        entries.close();
+    }
+
+    @Test
+    public void testMissPopulatesTheCache() throws Exception {
+        assertEntries(cache.read(LEDGER_ID, 0, 9, bookieRead(0, 9)).get(), 0, 9);
+        assertEquals(1, bookieReads.get());
+
+        assertEntries(cache.read(LEDGER_ID, 0, 9, bookieRead(0, 9)).get(), 0, 9);
+        assertEntries(cache.read(LEDGER_ID, 3, 5, bookieRead(3, 5)).get(), 3, 5);
+        assertEquals(1, bookieReads.get());
+    }
+
+    @Test
+    public void testPartiallyCachedRangeGoesToTheBookies() throws Exception {
+        assertEntries(cache.read(LEDGER_ID, 0, 4, bookieRead(0, 4)).get(), 0, 4);
+        assertEntries(cache.read(LEDGER_ID, 3, 7, bookieRead(3, 7)).get(), 3, 7);
+        assertEquals(2, bookieReads.get());
+
+        // a different ledger doesn't share the entries
+        AtomicInteger otherReads = new AtomicInteger();
+        cache.read(LEDGER_ID + 1, 0, 0, () -> {
+            otherReads.incrementAndGet();
+            return FutureUtils.value(entries(LEDGER_ID + 1, 0, 0));
+        }).get().close();
+        assertEquals(1, otherReads.get());
+    }
+
+    @Test
+    public void testConcurrentMissesAreCoalesced() throws Exception {
+        CompletableFuture<LedgerEntries> pending = new CompletableFuture<>();
+        CompletableFuture<LedgerEntries> first = cache.read(LEDGER_ID, 0, 9, () -> {
+            bookieReads.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<LedgerEntries> second = cache.read(LEDGER_ID, 0, 9, bookieRead(0, 9));
+        assertFalse(second.isDone());
+        assertEquals(1, bookieReads.get());
+
+        pending.complete(entries(LEDGER_ID, 0, 9));
+        assertEntries(first.get(), 0, 9);
+        assertEntries(second.get(), 0, 9);
+        assertEquals(1, bookieReads.get());
+    }
+
+    @Test
+    public void testWaitersFallBackToTheBookiesWhenTheOutstandingReadFails() throws Exception {
+        CompletableFuture<LedgerEntries> pending = new CompletableFuture<>();
+        CompletableFuture<LedgerEntries> first = cache.read(LEDGER_ID, 0, 9, () -> pending);
+        CompletableFuture<LedgerEntries> second = cache.read(LEDGER_ID, 0, 9, bookieRead(0, 9));
+
+        pending.completeExceptionally(new BKException.BKReadException());
+        assertTrue(first.isCompletedExceptionally());
+        assertEntries(second.get(), 0, 9);
+        assertEquals(1, bookieReads.get());
+
+        // the failed read didn't leave a pending read behind
+        assertEntries(cache.read(LEDGER_ID, 0, 9, bookieRead(0, 9)).get(), 0, 9);
+        assertEquals(1, bookieReads.get());
+    }
+
+    @Test
+    public void testOldEntriesAreEvicted() throws Exception {
+        cache.close();
+        // two segments of 1KB
+        cache = new ClientEntryCache(UnpooledByteBufAllocator.DEFAULT, 2048, NullStatsLogger.INSTANCE);
+        for (long entryId = 0; entryId < 100; entryId++) {
+            cache.read(LEDGER_ID, entryId, entryId, bookieRead(entryId, entryId)).get().close();
+        }
+        assertEquals(100, bookieReads.get());
+
+        cache.read(LEDGER_ID, 99, 99, bookieRead(99, 99)).get().close();
+        assertEquals(100, bookieReads.get());
+        cache.read(LEDGER_ID, 0, 0, bookieRead(0, 0)).get().close();
+        assertEquals(101, bookieReads.get());
+    }
+
+    @Test
+    public void testLedgerHandleReadsConfirmedEntriesThroughTheCache() throws Exception {
+        try (MockClientContext clientCtx = new MockClientContext()) {
+            clientCtx.setEntryCache(cache);
+            LedgerHandle lh = LedgerHandleConcurrentAddTest.newLedgerHandle(clientCtx, LEDGER_ID);
+            for (long entryId = 0; entryId < 10; entryId++) {
+                lh.addEntry(payload(entryId).getBytes(UTF_8));
+            }
+            int readsBefore = clientCtx.getMockBookieClient().getNumReads();
+
+            for (int i = 0; i < 3; i++) {
+                try (LedgerEntries entries = lh.read(0, 9)) {
+                    long expected = 0;
+                    for (LedgerEntry entry : entries) {
+                        assertEquals(expected, entry.getEntryId());
+                        assertEquals(payload(expected), new String(entry.getEntryBytes(), UTF_8));
+                        expected++;
+                    }
+                    assertEquals(10, expected);
+                }
+            }
+            // only the first read went to the bookies, one request per entry
+            assertEquals(readsBefore + 10, clientCtx.getMockBookieClient().getNumReads());
+        }
+    }
+}
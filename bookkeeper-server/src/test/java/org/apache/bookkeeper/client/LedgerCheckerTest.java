@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the verification by entry availability of {@link LedgerChecker}.
+ */
+public class LedgerCheckerTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long LAST_ENTRY_ID = 9L;
+    private static final String CHECKER_THREAD = "ledger-checker";
+
+    private final BookieId bookie1 = BookieId.parse("bookie-1:3181");
+    private final BookieId bookie2 = BookieId.parse("bookie-2:3181");
+    private BookieClient bookieClient;
+    private BookieWatcher bookieWatcher;
+    private LedgerHandle lh;
+    private ExecutorService executor;
+    private final List<String> readThreads = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger readsInFlight = new AtomicInteger();
+    private final AtomicInteger maxReadsInFlight = new AtomicInteger();
+
+    @Before
+    public void setup() throws Exception {
+        LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                .withId(LEDGER_ID)
+                .withEnsembleSize(2).withWriteQuorumSize(2).withAckQuorumSize(2)
+                .withPassword(new byte[0])
+                .withDigestType(DigestType.CRC32C)
+                .newEnsembleEntry(0L, Arrays.asList(bookie1, bookie2))
+                .withClosedState().withLastEntryId(LAST_ENTRY_ID).withLength(100L)
+                .build();
+        lh = mock(LedgerHandle.class);
+        when(lh.getId()).thenReturn(LEDGER_ID);
+        when(lh.getLedgerMetadata()).thenReturn(metadata);
+        when(lh.getDistributionSchedule()).thenReturn(new RoundRobinDistributionSchedule(2, 2, 2));
+        when(lh.getLastAddConfirmed()).thenReturn(LAST_ENTRY_ID);
+        when(lh.isClosed()).thenReturn(true);
+
+        bookieWatcher = mock(BookieWatcher.class);
+        executor = Executors.newSingleThreadExecutor(r -> new Thread(r, CHECKER_THREAD));
+
+        // the reads complete on the executor of the checker, as the reads of a client complete on its main
+        // worker pool, so that a checker blocking the executor until a read completes would never complete
+        bookieClient = mock(BookieClient.class);
+        doAnswer(invocation -> {
+            readThreads.add(Thread.currentThread().getName());
+            maxReadsInFlight.accumulateAndGet(readsInFlight.incrementAndGet(), Math::max);
+            long entryId = invocation.getArgument(2);
+            ReadEntryCallback cb = invocation.getArgument(3);
+            executor.execute(() -> {
+                readsInFlight.decrementAndGet();
+                cb.readEntryComplete(BKException.Code.OK, LEDGER_ID, entryId, null, null);
+            });
+            return null;
+        }).when(bookieClient).readEntry(any(), anyLong(), anyLong(), any(), any(), anyInt());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private static CompletableFuture<AvailabilityOfEntriesOfLedger> entries(long... entryIds) {
+        return CompletableFuture.completedFuture(new AvailabilityOfEntriesOfLedger(entryIds));
+    }
+
+    private static long[] allEntries() {
+        return LongStream.rangeClosed(0L, LAST_ENTRY_ID).toArray();
+    }
+
+    private Set<LedgerFragment> checkLedger(LedgerChecker checker) throws Exception {
+        CompletableFuture<Set<LedgerFragment>> result = new CompletableFuture<>();
+        checker.checkLedger(lh, (rc, fragments) -> {
+            if (rc == BKException.Code.OK) {
+                result.complete(fragments);
+            } else {
+                result.completeExceptionally(BKException.create(rc));
+            }
+        }, 100L);
+        return result.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testFragmentsAreVerifiedWithTheListsOfTheBookies() throws Exception {
+        when(bookieClient.getListOfEntriesOfLedger(any(), eq(LEDGER_ID))).thenAnswer(invocation -> entries(
+                allEntries()));
+        LedgerChecker checker = new LedgerChecker(bookieClient, bookieWatcher, 1, true, executor);
+
+        assertTrue(checkLedger(checker).isEmpty());
+        verify(bookieClient, times(1)).getListOfEntriesOfLedger(bookie1, LEDGER_ID);
+        verify(bookieClient, times(1)).getListOfEntriesOfLedger(bookie2, LEDGER_ID);
+        verify(bookieClient, never()).readEntry(any(), anyLong(), anyLong(), any(), any(), anyInt());
+    }
+
+    @Test
+    public void testBookieMissingAnEntryIsReported() throws Exception {
+        when(bookieClient.getListOfEntriesOfLedger(bookie1, LEDGER_ID)).thenReturn(entries(allEntries()));
+        when(bookieClient.getListOfEntriesOfLedger(bookie2, LEDGER_ID))
+                .thenReturn(entries(0L, 1L, 2L, 3L, 4L, 6L, 7L, 8L, 9L));
+        LedgerChecker checker = new LedgerChecker(bookieClient, bookieWatcher, 1, true, executor);
+
+        Set<LedgerFragment> badFragments = checkLedger(checker);
+        assertEquals(1, badFragments.size());
+        assertEquals(Collections.singleton(1), badFragments.iterator().next().getBookiesIndexes());
+    }
+
+    @Test
+    public void testEntriesAreReadOnTheCheckerExecutorWhenTheListFails() throws Exception {
+        when(bookieClient.getListOfEntriesOfLedger(bookie1, LEDGER_ID))
+                .thenReturn(FutureUtils.exception(new BKException.BKBookieHandleNotAvailableException()));
+        when(bookieClient.getListOfEntriesOfLedger(bookie2, LEDGER_ID)).thenReturn(entries(allEntries()));
+        LedgerChecker checker = new LedgerChecker(bookieClient, bookieWatcher, 1, true, executor);
+
+        assertTrue(checkLedger(checker).isEmpty());
+        verify(bookieClient, times((int) LAST_ENTRY_ID + 1))
+                .readEntry(eq(bookie1), eq(LEDGER_ID), anyLong(), any(), any(), anyInt());
+        // the reads waited for the single permit without blocking the executor completing the reads
+        assertEquals(1, maxReadsInFlight.get());
+        assertEquals(Collections.nCopies((int) LAST_ENTRY_ID + 1, CHECKER_THREAD), readThreads);
+    }
+
+    @Test
+    public void testTasksWaitForThePermitsWithoutBlocking() {
+        LedgerChecker checker = new LedgerChecker(bookieClient, bookieWatcher, 2, true, executor);
+        List<Integer> started = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int task = i;
+            checker.acquirePermitAsync(() -> started.add(task));
+        }
+        assertEquals(Arrays.asList(0, 1), started);
+
+        // each released permit starts a waiting task, in order
+        checker.releasePermit();
+        assertEquals(Arrays.asList(0, 1, 2), started);
+        checker.releasePermit();
+        checker.releasePermit();
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), started);
+        checker.releasePermit();
+        checker.releasePermit();
+        assertEquals(2, checker.semaphore.availablePermits());
+    }
+}
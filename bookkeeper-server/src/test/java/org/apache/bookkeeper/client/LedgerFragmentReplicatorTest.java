@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.ReferenceCounted;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.DataFormats.LedgerMetadataFormat;
+import org.apache.bookkeeper.proto.MockBookieClient;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the streaming replication of the closed fragments by {@link LedgerFragmentReplicator}.
+ */
+public class LedgerFragmentReplicatorTest {
+
+    private static final long LEDGER_ID = 5L;
+    private static final int ENTRY_SIZE = 1024;
+    private static final int RANGE_SIZE = 10;
+    private static final BookieId NEW_BOOKIE = BookieId.parse("bookie-4:3181");
+
+    private MockClientContext clientCtx;
+    private MockBookieClient bookieClient;
+
+    @Before
+    public void setup() {
+        clientCtx = new MockClientContext();
+        bookieClient = clientCtx.getMockBookieClient();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        clientCtx.close();
+    }
+
+    /**
+     * Store the entries of a closed ledger on the surviving bookies of the ensemble, except the skipped one.
+     */
+    private void writeEntries(List<BookieId> bookies, long lastEntry, long skippedEntry) throws Exception {
+        DigestManager digestManager = DigestManager.instantiate(LEDGER_ID, new byte[0],
+                LedgerMetadataFormat.DigestType.CRC32C, UnpooledByteBufAllocator.DEFAULT, false);
+        for (long entryId = 0; entryId <= lastEntry; entryId++) {
+            if (entryId == skippedEntry) {
+                continue;
+            }
+            ReferenceCounted packaged = digestManager.computeDigestAndPackageForSending(entryId, lastEntry,
+                    (entryId + 1) * ENTRY_SIZE, Unpooled.wrappedBuffer(new byte[ENTRY_SIZE]), new byte[0], 0);
+            ByteBuf entry = ByteBufList.coalesce((ByteBufList) packaged);
+            packaged.release();
+            for (BookieId bookie : bookies) {
+                bookieClient.seedEntry(bookie, LEDGER_ID, entryId, entry.retainedDuplicate());
+            }
+            entry.release();
+        }
+    }
+
+    private LedgerHandle newClosedLedgerHandle(long lastEntry) throws Exception {
+        LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                .withId(LEDGER_ID)
+                .withEnsembleSize(3).withWriteQuorumSize(3).withAckQuorumSize(2)
+                .withPassword(new byte[0])
+                .withDigestType(DigestType.CRC32C)
+                .newEnsembleEntry(0L, LedgerHandleConcurrentAddTest.ENSEMBLE)
+                .withClosedState().withLastEntryId(lastEntry).withLength((lastEntry + 1) * ENTRY_SIZE)
+                .build();
+        return new LedgerHandle(clientCtx, LEDGER_ID, new Versioned<>(metadata, new LongVersion(0L)),
+                BookKeeper.DigestType.CRC32C, new byte[0], EnumSet.noneOf(WriteFlag.class));
+    }
+
+    private LedgerFragmentReplicator newReplicator(ClientConfiguration conf) {
+        BookKeeper bkc = mock(BookKeeper.class);
+        when(bkc.getBookieClient()).thenReturn(bookieClient);
+        when(bkc.getMainWorkerPool()).thenReturn(clientCtx.getMainWorkerPool());
+        when(bkc.getConf()).thenReturn(conf);
+        return new LedgerFragmentReplicator(bkc, conf);
+    }
+
+    private static ClientConfiguration streamingConf(long maxBytesInFlight) {
+        return new ClientConfiguration()
+                .setReplicationMaxBytesInFlight(maxBytesInFlight)
+                .setReplicationReadRangeSize(RANGE_SIZE);
+    }
+
+    /**
+     * Replicate fragments of the third bookie of the ensemble to the new bookie. The replications are started
+     * from the ordered thread of the ledger, which also runs the reads, so that every read issued before the
+     * first one completes is counted as in flight.
+     */
+    private Set<Long> replicate(LedgerFragmentReplicator replicator, LedgerHandle lh,
+                                long[][] fragments, int expectedRc) throws Exception {
+        Set<Long> unreadable = ConcurrentHashMap.newKeySet();
+        CompletableFuture<?>[] results = new CompletableFuture<?>[fragments.length];
+        for (int i = 0; i < fragments.length; i++) {
+            results[i] = new CompletableFuture<Integer>();
+        }
+        clientCtx.getMainWorkerPool().executeOrdered(LEDGER_ID, () -> {
+            for (int i = 0; i < fragments.length; i++) {
+                @SuppressWarnings("unchecked")
+                CompletableFuture<Integer> result = (CompletableFuture<Integer>) results[i];
+                LedgerFragment lf = new LedgerFragment(lh, fragments[i][0], fragments[i][1],
+                        Collections.singleton(2));
+                try {
+                    replicator.replicate(lh, lf, (rc, path, ctx) -> result.complete(rc),
+                            Collections.singleton(NEW_BOOKIE), (ledgerId, entryId) -> unreadable.add(entryId));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        for (CompletableFuture<?> result : results) {
+            assertEquals(expectedRc, result.get(30, TimeUnit.SECONDS));
+        }
+        return unreadable;
+    }
+
+    private void assertReplicated(long firstEntry, long lastEntry) {
+        for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+            assertTrue("entry " + entryId + " is replicated", bookieClient.hasEntry(NEW_BOOKIE, LEDGER_ID, entryId));
+        }
+    }
+
+    private int replicateWithWindow(long maxBytesInFlight) throws Exception {
+        writeEntries(LedgerHandleConcurrentAddTest.ENSEMBLE, 199, -1L);
+        LedgerFragmentReplicator replicator = newReplicator(streamingConf(maxBytesInFlight));
+        replicate(replicator, newClosedLedgerHandle(199), new long[][] {{0, 199}}, BKException.Code.OK);
+        assertReplicated(0, 199);
+        assertTrue(replicator.getReplicationProgress().isEmpty());
+        return bookieClient.getMaxReadsInFlight();
+    }
+
+    @Test
+    public void testStreamingKeepsTheBytesInFlightWithinTheWindow() throws Exception {
+        int maxReadsInFlight = replicateWithWindow(2L * RANGE_SIZE * ENTRY_SIZE);
+        assertTrue("read " + maxReadsInFlight + " entries at once", maxReadsInFlight <= 2 * RANGE_SIZE);
+    }
+
+    @Test
+    public void testStreamingReadsAheadWithALargeWindow() throws Exception {
+        int maxReadsInFlight = replicateWithWindow(1024L * 1024L);
+        assertTrue("read " + maxReadsInFlight + " entries at once", maxReadsInFlight > 2 * RANGE_SIZE);
+    }
+
+    @Test
+    public void testStreamingWithAWindowSmallerThanARange() throws Exception {
+        // one range is always kept in flight, so the stream doesn't stall
+        int maxReadsInFlight = replicateWithWindow(1L);
+        assertTrue("read " + maxReadsInFlight + " entries at once", maxReadsInFlight <= RANGE_SIZE);
+    }
+
+    @Test
+    public void testUnreadableEntryIsReportedAfterReadingTheRangeOneByOne() throws Exception {
+        writeEntries(LedgerHandleConcurrentAddTest.ENSEMBLE, 99, 55L);
+        LedgerFragmentReplicator replicator = newReplicator(streamingConf(1024L * 1024L));
+        Set<Long> unreadable = replicate(replicator, newClosedLedgerHandle(99), new long[][] {{0, 99}},
+                BKException.Code.NoSuchEntryException);
+
+        assertEquals(Collections.singleton(55L), unreadable);
+        // the other entries of the failed range were read one by one and written
+        assertReplicated(50, 54);
+        assertFalse(bookieClient.hasEntry(NEW_BOOKIE, LEDGER_ID, 55L));
+        assertTrue(replicator.getReplicationProgress().isEmpty());
+    }
+
+    @Test
+    public void testStreamsShareTheTotalBudget() throws Exception {
+        writeEntries(LedgerHandleConcurrentAddTest.ENSEMBLE, 199, -1L);
+        ClientConfiguration conf = streamingConf(1024L * 1024L)
+                .setReplicationMaxTotalBytesInFlight((long) RANGE_SIZE * ENTRY_SIZE);
+        LedgerFragmentReplicator replicator = newReplicator(conf);
+        replicate(replicator, newClosedLedgerHandle(199), new long[][] {{0, 99}, {100, 199}}, BKException.Code.OK);
+
+        assertReplicated(0, 199);
+        int maxReadsInFlight = bookieClient.getMaxReadsInFlight();
+        assertTrue("read " + maxReadsInFlight + " entries at once", maxReadsInFlight <= 2 * RANGE_SIZE);
+        assertTrue(replicator.getReplicationProgress().isEmpty());
+    }
+
+    @Test
+    public void testStreamsStartedConcurrentlyStayWithinTheTotalBudget() throws Exception {
+        writeEntries(LedgerHandleConcurrentAddTest.ENSEMBLE, 199, -1L);
+        ClientConfiguration conf = streamingConf(1024L * 1024L)
+                .setReplicationMaxTotalBytesInFlight(3L * RANGE_SIZE * ENTRY_SIZE);
+        LedgerFragmentReplicator replicator = newReplicator(conf);
+        LedgerHandle lh = newClosedLedgerHandle(199);
+
+        // every stream checks the budget from its own thread at the same time
+        int numStreams = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(numStreams);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < numStreams; i++) {
+                LedgerFragment lf = new LedgerFragment(lh, i * 25L, i * 25L + 24, Collections.singleton(2));
+                CompletableFuture<Integer> result = new CompletableFuture<>();
+                results.add(result);
+                executor.execute(() -> {
+                    try {
+                        startLatch.await();
+                        replicator.replicate(lh, lf, (rc, path, ctx) -> result.complete(rc),
+                                Collections.singleton(NEW_BOOKIE), (ledgerId, entryId) -> { });
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        result.completeExceptionally(e);
+                    }
+                });
+            }
+            startLatch.countDown();
+            for (CompletableFuture<Integer> result : results) {
+                assertEquals(BKException.Code.OK, (int) result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertReplicated(0, 199);
+        int maxReadsInFlight = bookieClient.getMaxReadsInFlight();
+        assertTrue("read " + maxReadsInFlight + " entries at once", maxReadsInFlight <= 3 * RANGE_SIZE);
+        assertTrue(replicator.getReplicationProgress().isEmpty());
+    }
+
+    @Test
+    public void testBatchedReplicationWithoutStreaming() throws Exception {
+        writeEntries(LedgerHandleConcurrentAddTest.ENSEMBLE, 99, -1L);
+        ClientConfiguration conf = new ClientConfiguration();
+        conf.setRereplicationEntryBatchSize(RANGE_SIZE);
+        LedgerFragmentReplicator replicator = newReplicator(conf);
+        replicate(replicator, newClosedLedgerHandle(99), new long[][] {{0, 99}}, BKException.Code.OK);
+
+        assertReplicated(0, 99);
+        // one batch of entries is read at a time
+        assertTrue(bookieClient.getMaxReadsInFlight() <= RANGE_SIZE);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link LedgerHandle} add path with many producers, and of its lock free accessors.
+ */
+public class LedgerHandleConcurrentAddTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final int NUM_PRODUCERS = 8;
+    private static final int ENTRIES_PER_PRODUCER = 500;
+    private static final int ENTRY_SIZE = 10;
+
+    static final List<BookieId> ENSEMBLE = Arrays.asList(
+            BookieId.parse("bookie-1:3181"),
+            BookieId.parse("bookie-2:3181"),
+            BookieId.parse("bookie-3:3181"));
+
+    static LedgerHandle newLedgerHandle(ClientContext clientCtx, long ledgerId) throws Exception {
+        LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                .withId(ledgerId)
+                .withEnsembleSize(3).withWriteQuorumSize(3).withAckQuorumSize(2)
+                .withPassword(new byte[0])
+                .withDigestType(DigestType.CRC32C)
+                .newEnsembleEntry(0L, ENSEMBLE)
+                .build();
+        return new LedgerHandle(clientCtx, ledgerId, new Versioned<>(metadata, new LongVersion(0L)),
+                BookKeeper.DigestType.CRC32C, new byte[0], EnumSet.noneOf(WriteFlag.class));
+    }
+
+    @Test
+    public void testConcurrentAddsAreAssignedContiguousIdsAndCompletedInOrder() throws Exception {
+        final int numEntries = NUM_PRODUCERS * ENTRIES_PER_PRODUCER;
+        try (MockClientContext clientCtx = new MockClientContext()) {
+            LedgerHandle lh = newLedgerHandle(clientCtx, LEDGER_ID);
+
+            List<Long> completed = new ArrayList<>(numEntries);
+            AtomicReference<String> failure = new AtomicReference<>();
+            CountDownLatch done = new CountDownLatch(numEntries);
+            AsyncCallback.AddCallback cb = (rc, handle, entryId, ctx) -> {
+                if (rc != BKException.Code.OK) {
+                    failure.compareAndSet(null, "add " + entryId + " failed with " + rc);
+                }
+                // the callbacks are run on the ordered executor of the ledger, one at a time
+                completed.add(entryId);
+                done.countDown();
+            };
+
+            AtomicBoolean addsDone = new AtomicBoolean(false);
+            Thread reader = new Thread(() -> {
+                long prevLac = -1L;
+                long prevLength = 0L;
+                while (!addsDone.get()) {
+                    long lac = lh.getLastAddConfirmed();
+                    long lap = lh.getLastAddPushed();
+                    long length = lh.getLength();
+                    if (lac > lap || lac < prevLac || length < prevLength) {
+                        failure.compareAndSet(null, "inconsistent accessors lac=" + lac + " lap=" + lap
+                                + " prevLac=" + prevLac + " length=" + length + " prevLength=" + prevLength);
+                    }
+                    prevLac = lac;
+                    prevLength = length;
+                }
+            });
+            reader.start();
+
+            CyclicBarrier barrier = new CyclicBarrier(NUM_PRODUCERS);
+            List<Thread> producers = new ArrayList<>();
+            for (int i = 0; i < NUM_PRODUCERS; i++) {
+                Thread producer = new Thread(() -> {
+                    try {
+                        barrier.await();
+                        for (int j = 0; j < ENTRIES_PER_PRODUCER; j++) {
+                            lh.asyncAddEntry(Unpooled.wrappedBuffer(new byte[ENTRY_SIZE]), cb, null);
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e.toString());
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            addsDone.set(true);
+            reader.join();
+
+            assertNull(failure.get());
+            for (int i = 0; i < numEntries; i++) {
+                assertEquals(i, completed.get(i).longValue());
+            }
+            assertEquals(numEntries - 1, lh.getLastAddPushed());
+            assertEquals(numEntries - 1, lh.getLastAddConfirmed());
+            assertEquals((long) numEntries * ENTRY_SIZE, lh.getLength());
+            for (BookieId bookie : ENSEMBLE) {
+                assertEquals(numEntries, clientCtx.getMockBookieClient().getEntryIds(bookie, LEDGER_ID).size());
+            }
+        }
+    }
+
+    @Test
+    public void testAccessorsDoNotWaitForTheHandleMonitor() throws Exception {
+        try (MockClientContext clientCtx = new MockClientContext()) {
+            LedgerHandle lh = newLedgerHandle(clientCtx, LEDGER_ID);
+            lh.addEntry(new byte[ENTRY_SIZE]);
+
+            CountDownLatch locked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Thread holder = new Thread(() -> {
+                synchronized (lh) {
+                    locked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            holder.start();
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            try {
+                // would block until the release if the accessors took the monitor
+                assertEquals(0L, lh.getLastAddConfirmed());
+                assertEquals(0L, lh.getLastAddPushed());
+                assertEquals(ENTRY_SIZE, lh.getLength());
+                assertEquals(false, lh.isClosed());
+            } finally {
+                release.countDown();
+                holder.join();
+            }
+        }
+    }
+}
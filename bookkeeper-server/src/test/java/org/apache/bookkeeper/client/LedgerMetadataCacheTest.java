@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link LedgerMetadataCache}.
+ */
+public class LedgerMetadataCacheTest {
+
+    private LedgerManager ledgerManager;
+    private final Map<Long, Versioned<LedgerMetadata>> store = new ConcurrentHashMap<>();
+    private final Map<Long, LedgerMetadataListener> storeWatches = new ConcurrentHashMap<>();
+
+    @Before
+    public void setup() {
+        ledgerManager = mock(LedgerManager.class);
+        when(ledgerManager.readLedgerMetadata(anyLong())).thenAnswer(invocation -> {
+            Versioned<LedgerMetadata> metadata = store.get(invocation.<Long>getArgument(0));
+            return metadata == null
+                    ? FutureUtils.exception(new BKException.BKNoSuchLedgerExistsOnMetadataServerException())
+                    : FutureUtils.value(metadata);
+        });
+        doAnswer(invocation -> {
+            storeWatches.put(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(ledgerManager).registerLedgerMetadataListener(anyLong(), any());
+        doAnswer(invocation -> {
+            storeWatches.remove(invocation.<Long>getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(ledgerManager).unregisterLedgerMetadataListener(anyLong(), any());
+    }
+
+    private static Versioned<LedgerMetadata> metadata(long ledgerId, long version, boolean closed) {
+        LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
+                .withId(ledgerId)
+                .withEnsembleSize(3).withWriteQuorumSize(3).withAckQuorumSize(2)
+                .withPassword(new byte[0])
+                .withDigestType(DigestType.CRC32C)
+                .newEnsembleEntry(0L, LedgerHandleConcurrentAddTest.ENSEMBLE);
+        if (closed) {
+            builder.withClosedState().withLastEntryId(version).withLength(version * 10);
+        }
+        return new Versioned<>(builder.build(), new LongVersion(version));
+    }
+
+    private LedgerMetadataCache newCache(int maxSize, boolean watchClosedLedgers) {
+        return new LedgerMetadataCache(ledgerManager, maxSize, watchClosedLedgers, NullStatsLogger.INSTANCE);
+    }
+
+    @Test
+    public void testClosedLedgersAreServedFromTheCache() throws Exception {
+        store.put(1L, metadata(1L, 5L, true));
+        LedgerMetadataCache cache = newCache(10, false);
+
+        Versioned<LedgerMetadata> first = cache.readLedgerMetadata(1L, false).get();
+        Versioned<LedgerMetadata> second = cache.readLedgerMetadata(1L, false).get();
+        Versioned<LedgerMetadata> third = cache.readLedgerMetadata(1L, true).get();
+        assertSame(first, second);
+        assertSame(first, third);
+        verify(ledgerManager, times(1)).readLedgerMetadata(1L);
+        // a closed ledger isn't watched, which would read its metadata again
+        verify(ledgerManager, never()).registerLedgerMetadataListener(anyLong(), any());
+    }
+
+    @Test
+    public void testClosedLedgersAreWatchedOnDemand() throws Exception {
+        store.put(1L, metadata(1L, 5L, true));
+        LedgerMetadataCache cache = newCache(10, true);
+        cache.readLedgerMetadata(1L, false).get();
+        verify(ledgerManager, times(1)).registerLedgerMetadataListener(eq(1L), any());
+
+        // re-replication changed the ensemble of the closed ledger
+        Versioned<LedgerMetadata> updated = metadata(1L, 6L, true);
+        storeWatches.get(1L).onChanged(1L, updated);
+        assertSame(updated, cache.readLedgerMetadata(1L, false).get());
+        verify(ledgerManager, times(1)).readLedgerMetadata(1L);
+    }
+
+    @Test
+    public void testLedgersClosedWhileWatchedAreNotWatchedAnymore() throws Exception {
+        store.put(1L, metadata(1L, 1L, false));
+        LedgerMetadataCache cache = newCache(10, false);
+        cache.readLedgerMetadata(1L, true).get();
+        verify(ledgerManager, times(1)).registerLedgerMetadataListener(eq(1L), any());
+
+        Versioned<LedgerMetadata> closed = metadata(1L, 3L, true);
+        storeWatches.get(1L).onChanged(1L, closed);
+        assertSame(closed, cache.readLedgerMetadata(1L, false).get());
+        verify(ledgerManager, times(1)).unregisterLedgerMetadataListener(eq(1L), any());
+        assertSame(closed, cache.readLedgerMetadata(1L, false).get());
+        verify(ledgerManager, times(1)).readLedgerMetadata(1L);
+    }
+
+    @Test
+    public void testOpenLedgersAreOnlyServedToReadsWithoutRecovery() throws Exception {
+        store.put(1L, metadata(1L, 1L, false));
+        LedgerMetadataCache cache = newCache(10, false);
+
+        cache.readLedgerMetadata(1L, true).get();
+        cache.readLedgerMetadata(1L, true).get();
+        verify(ledgerManager, times(1)).readLedgerMetadata(1L);
+
+        // recovery always reads the store
+        cache.readLedgerMetadata(1L, false).get();
+        cache.readLedgerMetadata(1L, false).get();
+        verify(ledgerManager, times(3)).readLedgerMetadata(1L);
+        verify(ledgerManager, times(1)).registerLedgerMetadataListener(eq(1L), any());
+    }
+
+    @Test
+    public void testWatchKeepsTheCachedMetadataUpToDate() throws Exception {
+        store.put(1L, metadata(1L, 1L, false));
+        LedgerMetadataCache cache = newCache(10, false);
+        cache.readLedgerMetadata(1L, true).get();
+
+        // an ensemble change of the open ledger
+        Versioned<LedgerMetadata> updated = metadata(1L, 3L, false);
+        storeWatches.get(1L).onChanged(1L, updated);
+        assertSame(updated, cache.readLedgerMetadata(1L, true).get());
+
+        // an older version doesn't replace the cached one
+        storeWatches.get(1L).onChanged(1L, metadata(1L, 2L, false));
+        assertSame(updated, cache.readLedgerMetadata(1L, true).get());
+        verify(ledgerManager, times(1)).readLedgerMetadata(1L);
+    }
+
+    @Test
+    public void testDeletionDropsTheCachedMetadata() throws Exception {
+        store.put(1L, metadata(1L, 1L, true));
+        LedgerMetadataCache cache = newCache(10, true);
+        cache.readLedgerMetadata(1L, false).get();
+
+        store.remove(1L);
+        storeWatches.remove(1L).onChanged(1L, null);
+        try {
+            cache.readLedgerMetadata(1L, false).get();
+            fail("The ledger is deleted");
+        } catch (ExecutionException e) {
+            assertEquals(BKException.BKNoSuchLedgerExistsOnMetadataServerException.class, e.getCause().getClass());
+        }
+        verify(ledgerManager, times(2)).readLedgerMetadata(1L);
+
+        // a local delete invalidates the entry too
+        store.put(2L, metadata(2L, 1L, true));
+        cache.readLedgerMetadata(2L, false).get();
+        cache.invalidate(2L);
+        cache.readLedgerMetadata(2L, false).get();
+        verify(ledgerManager, times(2)).readLedgerMetadata(2L);
+    }
+
+    @Test
+    public void testHandlesShareTheWatchOfTheCache() throws Exception {
+        store.put(1L, metadata(1L, 1L, true));
+        LedgerMetadataCache cache = newCache(10, false);
+        cache.readLedgerMetadata(1L, false).get();
+
+        List<Versioned<LedgerMetadata>> notified = new ArrayList<>();
+        LedgerMetadataListener handle1 = (ledgerId, metadata) -> notified.add(metadata);
+        LedgerMetadataListener handle2 = (ledgerId, metadata) -> notified.add(metadata);
+        cache.registerLedgerMetadataListener(1L, handle1);
+        cache.registerLedgerMetadataListener(1L, handle2);
+        verify(ledgerManager, times(1)).registerLedgerMetadataListener(eq(1L), any());
+
+        Versioned<LedgerMetadata> updated = metadata(1L, 2L, true);
+        storeWatches.get(1L).onChanged(1L, updated);
+        assertEquals(2, notified.size());
+        assertSame(updated, notified.get(0));
+
+        // the closed ledger stays cached, but is only watched while handles listen to it
+        cache.unregisterLedgerMetadataListener(1L, handle1);
+        verify(ledgerManager, never()).unregisterLedgerMetadataListener(anyLong(), any());
+        cache.unregisterLedgerMetadataListener(1L, handle2);
+        verify(ledgerManager, times(1)).unregisterLedgerMetadataListener(eq(1L), any());
+        assertSame(updated, cache.readLedgerMetadata(1L, false).get());
+        verify(ledgerManager, times(1)).readLedgerMetadata(1L);
+    }
+
+    @Test
+    public void testWatchedLedgersStayWatchedWithoutHandles() throws Exception {
+        store.put(1L, metadata(1L, 1L, true));
+        LedgerMetadataCache cache = newCache(10, true);
+        cache.readLedgerMetadata(1L, false).get();
+
+        LedgerMetadataListener handle = (ledgerId, metadata) -> { };
+        cache.registerLedgerMetadataListener(1L, handle);
+        cache.unregisterLedgerMetadataListener(1L, handle);
+        verify(ledgerManager, times(1)).registerLedgerMetadataListener(eq(1L), any());
+        verify(ledgerManager, never()).unregisterLedgerMetadataListener(anyLong(), any());
+        cache.invalidate(1L);
+        verify(ledgerManager, times(1)).unregisterLedgerMetadataListener(eq(1L), any());
+    }
+
+    @Test
+    public void testEvictionStopsTheWatch() throws Exception {
+        LedgerMetadataCache cache = newCache(2, true);
+        for (long ledgerId = 1; ledgerId <= 10; ledgerId++) {
+            store.put(ledgerId, metadata(ledgerId, 1L, true));
+            cache.readLedgerMetadata(ledgerId, false).get();
+        }
+        assertEquals(2, storeWatches.size());
+
+        cache.close();
+        assertEquals(0, storeWatches.size());
+    }
+}
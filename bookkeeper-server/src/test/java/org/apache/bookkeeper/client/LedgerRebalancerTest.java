@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieLoad;
+import org.apache.bookkeeper.client.EnsemblePlacementPolicy.PlacementPolicyAdherence;
+import org.apache.bookkeeper.client.EnsemblePlacementPolicy.PlacementResult;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.net.BookieId;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the move plans of {@link LedgerRebalancer}.
+ */
+public class LedgerRebalancerTest {
+
+    private static final long CAPACITY = 1000L;
+    private static final long MB = 1024 * 1024;
+
+    private final List<BookieId> bookies = Arrays.asList(BookieId.parse("bookie-1:3181"),
+            BookieId.parse("bookie-2:3181"), BookieId.parse("bookie-3:3181"), BookieId.parse("bookie-4:3181"));
+    private final Map<BookieId, BookieInfo> bookieInfos = new HashMap<>();
+    private final TreeMap<Long, LedgerMetadata> ledgers = new TreeMap<>();
+    private LedgerRebalancer rebalancer;
+
+    @Before
+    public void setup() throws Exception {
+        BookKeeperAdmin admin = mock(BookKeeperAdmin.class);
+        when(admin.getAvailableBookies()).thenReturn(bookies);
+        when(admin.getLedgersContainBookies(anySet())).thenAnswer(invocation -> {
+            Set<BookieId> sources = invocation.getArgument(0);
+            TreeMap<Long, LedgerMetadata> result = new TreeMap<>();
+            ledgers.forEach((ledgerId, metadata) -> {
+                if (!Collections.disjoint(sources, metadata.getAllEnsembles().get(0L))) {
+                    result.put(ledgerId, metadata);
+                }
+            });
+            return result;
+        });
+
+        // the placement policy replaces a bookie with the first bookie which isn't excluded
+        EnsemblePlacementPolicy placementPolicy = mock(EnsemblePlacementPolicy.class);
+        when(placementPolicy.replaceBookie(anyInt(), anyInt(), anyInt(), anyMap(), any(), any(), anySet()))
+                .thenAnswer(invocation -> {
+                    Set<BookieId> excludeBookies = invocation.getArgument(6);
+                    for (BookieId bookie : bookies) {
+                        if (!excludeBookies.contains(bookie)) {
+                            return PlacementResult.of(bookie, PlacementPolicyAdherence.MEETS_STRICT);
+                        }
+                    }
+                    throw new BKException.BKNotEnoughBookiesException();
+                });
+        when(placementPolicy.isEnsembleAdheringToPlacementPolicy(any(), anyInt(), anyInt()))
+                .thenReturn(PlacementPolicyAdherence.MEETS_STRICT);
+
+        BookKeeper bkc = mock(BookKeeper.class);
+        when(bkc.getBookieInfo()).thenReturn(bookieInfos);
+        when(bkc.getPlacementPolicy()).thenReturn(placementPolicy);
+        rebalancer = new LedgerRebalancer(admin, bkc);
+    }
+
+    private void setBookie(int index, long used, long addBytesPerSecond) {
+        bookieInfos.put(bookies.get(index), new BookieInfo(CAPACITY, CAPACITY - used,
+                new BookieLoad(0L, 1000L, -1.0d, addBytesPerSecond, 0L)));
+    }
+
+    private void addLedger(long ledgerId, int bookieIndex, long length, long ctime, boolean closed) {
+        LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
+                .withId(ledgerId)
+                .withEnsembleSize(1).withWriteQuorumSize(1).withAckQuorumSize(1)
+                .withPassword(new byte[0])
+                .withDigestType(DigestType.CRC32C)
+                .withCreationTime(ctime)
+                .newEnsembleEntry(0L, Collections.singletonList(bookies.get(bookieIndex)));
+        if (closed) {
+            builder.withClosedState().withLastEntryId(9L).withLength(length);
+        }
+        ledgers.put(ledgerId, builder.build());
+    }
+
+    private static List<Long> movedLedgers(LedgerRebalancer.Plan plan) {
+        return plan.getMoves().stream().map(LedgerRebalancer.Move::getLedgerId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testBalancedBookiesAreNotRebalanced() throws Exception {
+        for (int i = 0; i < bookies.size(); i++) {
+            setBookie(i, 500L, MB);
+            addLedger(i, i, 100L, i, true);
+        }
+        assertTrue(rebalancer.computePlan(0.1d, 2.0d, 0L).isEmpty());
+    }
+
+    @Test
+    public void testLargestLedgersAreMovedOffAFullBookie() throws Exception {
+        // the average usage is 0.2, the first bookie has 600 bytes above it and the others 200 bytes of room
+        setBookie(0, 800L, MB);
+        for (int i = 1; i < bookies.size(); i++) {
+            setBookie(i, 0L, MB);
+        }
+        addLedger(1L, 0, 150L, 3L, true);
+        addLedger(2L, 0, 50L, 2L, true);
+        addLedger(3L, 0, 100L, 1L, true);
+        addLedger(4L, 0, 500L, 0L, false);
+
+        LedgerRebalancer.Plan plan = rebalancer.computePlan(0.1d, 2.0d, 0L);
+        assertEquals(Arrays.asList(1L, 3L, 2L), movedLedgers(plan));
+        for (LedgerRebalancer.Move move : plan.getMoves()) {
+            assertEquals(bookies.get(0), move.getSource());
+            assertEquals(0, move.getBookieIndex());
+            assertEquals(0L, move.getFirstEntryId());
+            assertEquals(9L, move.getLastEntryId());
+        }
+        assertEquals(300L, plan.getTotalBytes());
+        assertEquals(Collections.singletonMap(bookies.get(0), 300L), plan.getBytesOut());
+        // the targets received no more than their room
+        for (long bytesIn : plan.getBytesIn().values()) {
+            assertTrue(bytesIn <= 200L);
+        }
+    }
+
+    @Test
+    public void testMostRecentLedgersAreMovedOffAHotBookie() throws Exception {
+        // the first two bookies have the same usage, below the usage threshold, and only the first one is
+        // four times as loaded as the median bookie
+        setBookie(0, 500L, 7 * MB);
+        setBookie(1, 500L, MB);
+        setBookie(2, 300L, MB);
+        setBookie(3, 300L, MB);
+        addLedger(1L, 0, 100L, 100L, true);
+        addLedger(2L, 0, 50L, 300L, true);
+        addLedger(3L, 0, 100L, 200L, true);
+        addLedger(4L, 1, 100L, 400L, true);
+
+        LedgerRebalancer.Plan plan = rebalancer.computePlan(0.2d, 2.0d, 0L);
+        // the newest ledgers first, until the 200 bytes of room of the cold bookies are used
+        assertEquals(Arrays.asList(2L, 3L), movedLedgers(plan));
+        assertEquals(Collections.singletonMap(bookies.get(0), 150L), plan.getBytesOut());
+        List<BookieId> targets = new ArrayList<>();
+        plan.getMoves().forEach(move -> targets.add(move.getTarget()));
+        assertEquals(Arrays.asList(bookies.get(2), bookies.get(3)), targets);
+    }
+
+    @Test
+    public void testPlanIsBoundedByTheBytesToMove() throws Exception {
+        setBookie(0, 800L, MB);
+        for (int i = 1; i < bookies.size(); i++) {
+            setBookie(i, 0L, MB);
+        }
+        addLedger(1L, 0, 150L, 0L, true);
+        addLedger(2L, 0, 100L, 0L, true);
+        addLedger(3L, 0, 50L, 0L, true);
+
+        // the plan stops at the first move reaching the limit
+        assertEquals(Arrays.asList(1L, 2L), movedLedgers(rebalancer.computePlan(0.1d, 2.0d, 200L)));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.ReferenceCounted;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.DataFormats.LedgerMetadataFormat.DigestType;
+import org.apache.bookkeeper.proto.MockBookieClient;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.junit.Test;
+
+/**
+ * Tests of the pipelined recovery reads of {@link LedgerRecoveryOp}.
+ */
+public class LedgerRecoveryOpTest {
+
+    private static final long LEDGER_ID = 3L;
+    private static final int ENTRY_SIZE = 16;
+    private static final int BATCH_SIZE = 5;
+
+    /**
+     * Store entries on bookies as a writer which never got its adds acknowledged would have, with a
+     * piggy-backed last add confirmed of -1 so that recovery has to read all of them.
+     */
+    private static void writeUnconfirmedEntries(MockBookieClient bookieClient, List<BookieId> bookies,
+                                                long firstEntry, long lastEntry) throws Exception {
+        DigestManager digestManager = DigestManager.instantiate(LEDGER_ID, new byte[0], DigestType.CRC32C,
+                UnpooledByteBufAllocator.DEFAULT, false);
+        for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+            ReferenceCounted packaged = digestManager.computeDigestAndPackageForSending(entryId, -1L,
+                    (entryId + 1) * ENTRY_SIZE, Unpooled.wrappedBuffer(new byte[ENTRY_SIZE]), new byte[0], 0);
+            ByteBuf entry = ByteBufList.coalesce((ByteBufList) packaged);
+            packaged.release();
+            for (BookieId bookie : bookies) {
+                bookieClient.seedEntry(bookie, LEDGER_ID, entryId, entry.retainedDuplicate());
+            }
+            entry.release();
+        }
+    }
+
+    private static MockClientContext newClientContext(int readAheadBatches) {
+        ClientConfiguration conf = new ClientConfiguration()
+                .setRecoveryReadBatchSize(BATCH_SIZE)
+                .setRecoveryReadAheadBatches(readAheadBatches);
+        return new MockClientContext(conf);
+    }
+
+    private static int recover(int numEntries, int readAheadBatches) throws Exception {
+        try (MockClientContext clientCtx = newClientContext(readAheadBatches)) {
+            MockBookieClient bookieClient = clientCtx.getMockBookieClient();
+            List<BookieId> ensemble = LedgerHandleConcurrentAddTest.ENSEMBLE;
+            writeUnconfirmedEntries(bookieClient, ensemble, 0, numEntries - 1);
+
+            LedgerHandle lh = LedgerHandleConcurrentAddTest.newLedgerHandle(clientCtx, LEDGER_ID);
+            new LedgerRecoveryOp(lh, clientCtx).initiate().get(30, TimeUnit.SECONDS);
+
+            assertEquals(numEntries - 1, lh.getLastAddConfirmed());
+            assertEquals((long) numEntries * ENTRY_SIZE, lh.getLength());
+            // every entry past the last add confirmed is read once and written back to the ensemble
+            assertEquals(numEntries * ensemble.size(), bookieClient.getNumAdds());
+            return bookieClient.getMaxReadsInFlight();
+        }
+    }
+
+    @Test
+    public void testRecoveryReadsAheadTheConfiguredNumberOfBatches() throws Exception {
+        int numEntries = 10 * BATCH_SIZE;
+        int ensembleSize = LedgerHandleConcurrentAddTest.ENSEMBLE.size();
+
+        int maxInFlightWithoutReadAhead = recover(numEntries, 1);
+        int maxInFlightWithReadAhead = recover(numEntries, 4);
+        assertTrue("read " + maxInFlightWithoutReadAhead + " entries at once without read ahead",
+                maxInFlightWithoutReadAhead <= BATCH_SIZE * ensembleSize);
+        assertTrue("read " + maxInFlightWithReadAhead + " entries at once with read ahead",
+                maxInFlightWithReadAhead > BATCH_SIZE * ensembleSize);
+    }
+
+    @Test
+    public void testRecoveryOfALedgerEndingInTheMiddleOfABatch() throws Exception {
+        // the read ahead batches past the end of the ledger are dropped
+        recover(2 * BATCH_SIZE + 2, 4);
+        recover(1, 4);
+    }
+
+    @Test
+    public void testRecoveryOfAnEmptyLedger() throws Exception {
+        try (MockClientContext clientCtx = newClientContext(4)) {
+            LedgerHandle lh = LedgerHandleConcurrentAddTest.newLedgerHandle(clientCtx, LEDGER_ID);
+            new LedgerRecoveryOp(lh, clientCtx).initiate().get(30, TimeUnit.SECONDS);
+            assertEquals(-1L, lh.getLastAddConfirmed());
+            assertEquals(0, clientCtx.getMockBookieClient().getNumAdds());
+        }
+    }
+
+    @Test
+    public void testRecoveryRewritesEntriesMissingOnABookie() throws Exception {
+        try (MockClientContext clientCtx = newClientContext(4)) {
+            MockBookieClient bookieClient = clientCtx.getMockBookieClient();
+            List<BookieId> ensemble = LedgerHandleConcurrentAddTest.ENSEMBLE;
+            writeUnconfirmedEntries(bookieClient, ensemble, 0, 19);
+            // the last entries only reached the ack quorum
+            writeUnconfirmedEntries(bookieClient, ensemble.subList(0, 2), 20, 29);
+
+            LedgerHandle lh = LedgerHandleConcurrentAddTest.newLedgerHandle(clientCtx, LEDGER_ID);
+            new LedgerRecoveryOp(lh, clientCtx).initiate().get(30, TimeUnit.SECONDS);
+
+            assertEquals(29L, lh.getLastAddConfirmed());
+            for (long entryId = 0; entryId < 30; entryId++) {
+                assertTrue(bookieClient.hasEntry(ensemble.get(2), LEDGER_ID, entryId));
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.mockito.Mockito.mock;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.MockBookieClient;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+
+/**
+ * A {@link ClientContext} for the tests of the ledger handles, backed by a {@link MockBookieClient}.
+ *
+ * <p>The ledger manager, bookie watcher and caches are null unless set by the test. The placement policy
+ * is a mock, which ignores the slow bookies reported by the reads.
+ */
+public class MockClientContext implements ClientContext, AutoCloseable {
+
+    private final ClientInternalConf conf;
+    private final OrderedExecutor mainWorkerPool;
+    private final OrderedScheduler scheduler;
+    private final MockBookieClient bookieClient;
+    private final BookKeeperClientStats clientStats = BookKeeperClientStats.newInstance(NullStatsLogger.INSTANCE);
+    private LedgerManager ledgerManager;
+    private BookieWatcher bookieWatcher;
+    private EnsemblePlacementPolicy placementPolicy = mock(EnsemblePlacementPolicy.class);
+    private ClientEntryCache entryCache;
+    private LedgerMetadataCache ledgerMetadataCache;
+
+    public MockClientContext(ClientConfiguration conf) {
+        this.conf = ClientInternalConf.fromConfig(conf);
+        this.mainWorkerPool = OrderedExecutor.newBuilder().name("test-worker").numThreads(2).build();
+        this.scheduler = OrderedScheduler.newSchedulerBuilder().name("test-scheduler").numThreads(1).build();
+        this.bookieClient = new MockBookieClient(mainWorkerPool);
+    }
+
+    public MockClientContext() {
+        this(new ClientConfiguration());
+    }
+
+    public MockClientContext setLedgerManager(LedgerManager ledgerManager) {
+        this.ledgerManager = ledgerManager;
+        return this;
+    }
+
+    public MockClientContext setBookieWatcher(BookieWatcher bookieWatcher) {
+        this.bookieWatcher = bookieWatcher;
+        return this;
+    }
+
+    public MockClientContext setPlacementPolicy(EnsemblePlacementPolicy placementPolicy) {
+        this.placementPolicy = placementPolicy;
+        return this;
+    }
+
+    public MockClientContext setEntryCache(ClientEntryCache entryCache) {
+        this.entryCache = entryCache;
+        return this;
+    }
+
+    public MockClientContext setLedgerMetadataCache(LedgerMetadataCache ledgerMetadataCache) {
+        this.ledgerMetadataCache = ledgerMetadataCache;
+        return this;
+    }
+
+    public MockBookieClient getMockBookieClient() {
+        return bookieClient;
+    }
+
+    @Override
+    public ClientInternalConf getConf() {
+        return conf;
+    }
+
+    @Override
+    public LedgerManager getLedgerManager() {
+        return ledgerManager;
+    }
+
+    @Override
+    public BookieWatcher getBookieWatcher() {
+        return bookieWatcher;
+    }
+
+    @Override
+    public EnsemblePlacementPolicy getPlacementPolicy() {
+        return placementPolicy;
+    }
+
+    @Override
+    public BookieClient getBookieClient() {
+        return bookieClient;
+    }
+
+    @Override
+    public ByteBufAllocator getByteBufAllocator() {
+        return UnpooledByteBufAllocator.DEFAULT;
+    }
+
+    @Override
+    public OrderedExecutor getMainWorkerPool() {
+        return mainWorkerPool;
+    }
+
+    @Override
+    public OrderedScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public BookKeeperClientStats getClientStats() {
+        return clientStats;
+    }
+
+    @Override
+    public boolean isClientClosed() {
+        return false;
+    }
+
+    @Override
+    public ClientEntryCache getEntryCache() {
+        return entryCache;
+    }
+
+    @Override
+    public LedgerMetadataCache getLedgerMetadataCache() {
+        return ledgerMetadataCache;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        mainWorkerPool.shutdown();
+        mainWorkerPool.awaitTermination(10, TimeUnit.SECONDS);
+        bookieClient.close();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.apache.bookkeeper.feature.SettableFeatureProvider.DISABLE_ALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.util.HashedWheelTimer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieLoad;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.net.DNSToSwitchMapping;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the cluster changes and of the bookie selection of {@link RackawareEnsemblePlacementPolicy}.
+ */
+public class RackawareEnsemblePlacementPolicyTest {
+
+    private HashedWheelTimer timer;
+    private RackawareEnsemblePlacementPolicy policy;
+
+    /**
+     * Places the bookies with an odd last digit in one rack and the others in another.
+     */
+    static class TwoRacksMapping implements DNSToSwitchMapping {
+        @Override
+        public List<String> resolve(List<String> names) {
+            return names.stream()
+                    .map(name -> (name.charAt(name.length() - 1) - '0') % 2 == 0 ? "/rack-0" : "/rack-1")
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public void reloadCachedMappings() {
+        }
+    }
+
+    static BookieId bookie(int i) {
+        return BookieId.parse("127.0.0." + i + ":3181");
+    }
+
+    static Set<BookieId> bookies(int... ids) {
+        return Arrays.stream(ids).mapToObj(RackawareEnsemblePlacementPolicyTest::bookie).collect(Collectors.toSet());
+    }
+
+    @Before
+    public void setup() {
+        timer = new HashedWheelTimer();
+        policy = new RackawareEnsemblePlacementPolicy();
+        policy.initialize(new ClientConfiguration(), Optional.of(new TwoRacksMapping()), timer, DISABLE_ALL,
+                NullStatsLogger.INSTANCE, BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+    }
+
+    @After
+    public void teardown() {
+        policy.uninitalize();
+        timer.stop();
+    }
+
+    private Set<BookieId> newEnsemble(int ensembleSize) throws Exception {
+        return new HashSet<>(policy.newEnsemble(ensembleSize, ensembleSize, ensembleSize,
+                Collections.emptyMap(), Collections.emptySet()).getResult());
+    }
+
+    @Test
+    public void testIncrementalClusterChange() throws Exception {
+        policy.onClusterChanged(bookies(1, 2, 3, 4), Collections.emptySet());
+        assertEquals(bookies(1, 2, 3, 4), newEnsemble(4));
+
+        Set<BookieId> deadBookies = policy.onClusterChanged(bookies(2, 3, 4, 5), Collections.emptySet(),
+                bookies(5), bookies(1));
+        assertEquals(bookies(1), deadBookies);
+        assertEquals(bookies(2, 3, 4, 5), newEnsemble(4));
+    }
+
+    @Test
+    public void testBookieLeavingForReadOnlyIsNotDead() throws Exception {
+        policy.onClusterChanged(bookies(1, 2, 3), Collections.emptySet());
+
+        Set<BookieId> deadBookies = policy.onClusterChanged(bookies(2, 3), bookies(1),
+                Collections.emptySet(), bookies(1));
+        assertTrue(deadBookies.isEmpty());
+        assertEquals(bookies(2, 3), newEnsemble(2));
+    }
+
+    @Test
+    public void testAlreadyKnownChangesAreIgnored() throws Exception {
+        policy.onClusterChanged(bookies(1, 2, 3), Collections.emptySet());
+
+        // a joined bookie which is already known, and a left bookie which was never known
+        Set<BookieId> deadBookies = policy.onClusterChanged(bookies(1, 2, 3), Collections.emptySet(),
+                bookies(3), bookies(4));
+        assertTrue(deadBookies.isEmpty());
+        assertEquals(bookies(1, 2, 3), newEnsemble(3));
+    }
+
+    @Test
+    public void testDriftedChangesFallBackToTheFullComparison() throws Exception {
+        policy.onClusterChanged(bookies(1, 2, 3), Collections.emptySet());
+
+        // the changes miss the bookie 4 joining, as when it couldn't be added to the topology before
+        Set<BookieId> deadBookies = policy.onClusterChanged(bookies(1, 2, 3, 4, 5), Collections.emptySet(),
+                bookies(5), Collections.emptySet());
+        assertTrue(deadBookies.isEmpty());
+        assertEquals(bookies(1, 2, 3, 4, 5), newEnsemble(5));
+
+        // and the bookie 1 leaving
+        deadBookies = policy.onClusterChanged(bookies(2, 3, 4, 5), Collections.emptySet(),
+                Collections.emptySet(), Collections.emptySet());
+        assertEquals(bookies(1), deadBookies);
+        assertFalse(newEnsemble(4).contains(bookie(1)));
+    }
+
+    @Test
+    public void testEnsemblesSpanTheRacksOfTheCurrentTopology() throws Exception {
+        policy.onClusterChanged(bookies(1, 2, 3, 4), Collections.emptySet());
+        for (int i = 0; i < 100; i++) {
+            Set<BookieId> ensemble = newEnsemble(2);
+            // one bookie of each rack
+            assertEquals(1, ensemble.stream().filter(bookies(1, 3)::contains).count());
+        }
+
+        // the selection follows the topology changes
+        policy.onClusterChanged(bookies(1, 2, 3, 4, 6), Collections.emptySet(), bookies(6), Collections.emptySet());
+        policy.onClusterChanged(bookies(2, 3, 4, 6), Collections.emptySet(), Collections.emptySet(), bookies(1));
+        Set<BookieId> selected = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            Set<BookieId> ensemble = newEnsemble(2);
+            assertEquals(1, ensemble.stream().filter(bookies(3)::contains).count());
+            selected.addAll(ensemble);
+        }
+        assertEquals(bookies(2, 3, 4, 6), selected);
+    }
+
+    @Test
+    public void testHotBookiesAreSelectedLessOften() throws Exception {
+        policy.uninitalize();
+        ClientConfiguration conf = new ClientConfiguration()
+                .setLoadAwarePlacementEnabled(true)
+                .setBookieMaxMultipleForLoadAwarePlacement(10);
+        policy = new RackawareEnsemblePlacementPolicy();
+        policy.initialize(conf, Optional.of(new TwoRacksMapping()), timer, DISABLE_ALL,
+                NullStatsLogger.INSTANCE, BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+        policy.onClusterChanged(bookies(1, 2, 3, 4), Collections.emptySet());
+
+        Map<BookieId, BookieInfo> bookieInfos = new HashMap<>();
+        for (BookieId bookie : bookies(1, 2, 3, 4)) {
+            bookieInfos.put(bookie, new BookieInfo(0L, 0L, new BookieLoad(0L, 0L, -1, 0L, 0L)));
+        }
+        // the journal of the bookie 1 is far behind
+        bookieInfos.put(bookie(1), new BookieInfo(0L, 0L, new BookieLoad(100000L, 0L, -1, 0L, 0L)));
+        policy.updateBookieInfo(bookieInfos);
+
+        int numBookie1 = 0;
+        int numBookie3 = 0;
+        for (int i = 0; i < 1000; i++) {
+            // one bookie of each rack, so either the bookie 1 or the bookie 3
+            Set<BookieId> ensemble = newEnsemble(2);
+            numBookie1 += ensemble.contains(bookie(1)) ? 1 : 0;
+            numBookie3 += ensemble.contains(bookie(3)) ? 1 : 0;
+        }
+        assertEquals(1000, numBookie1 + numBookie3);
+        // a tenth of the weight of the bookie 3
+        assertTrue("bookie 1 selected " + numBookie1 + " times", numBookie1 > 30 && numBookie1 < 150);
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieLoad;
+import org.apache.bookkeeper.client.TopologySnapshot.Candidates;
+import org.apache.bookkeeper.client.WeightedRandomSelection.WeightedObject;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieNode;
+import org.apache.bookkeeper.net.Node;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link TopologySnapshot}.
+ *
+ * <p>The bookies 1 and 2 are in /region-a/rack-0, the bookies 3 and 4 in /region-a/rack-1, and the bookies 5
+ * and 6 in /region-b/rack-2.
+ */
+public class TopologySnapshotTest {
+
+    private static final int NUM_DRAWS = 10000;
+
+    private final List<BookieNode> bookies = new ArrayList<>();
+
+    public TopologySnapshotTest() {
+        String[] racks = {"/region-a/rack-0", "/region-a/rack-1", "/region-b/rack-2"};
+        // added out of order, the snapshot groups them by rack
+        for (int i = 6; i >= 1; i--) {
+            bookies.add(new BookieNode(BookieId.parse("bookie" + i + ":3181"), racks[(i - 1) / 2]));
+        }
+    }
+
+    private BookieNode bookie(int i) {
+        return bookies.get(6 - i);
+    }
+
+    private Set<BookieNode> bookies(int... ids) {
+        Set<BookieNode> set = new HashSet<>();
+        for (int i : ids) {
+            set.add(bookie(i));
+        }
+        return set;
+    }
+
+    private TopologySnapshot snapshot(Map<BookieNode, WeightedObject> bookieInfoMap, int maxWeightMultiple) {
+        return TopologySnapshot.build(1L, 1L, 3, new ArrayList<Node>(bookies), bookies,
+                bookieInfoMap, bookieInfoMap != null, maxWeightMultiple, false, 0);
+    }
+
+    private static List<BookieNode> drain(Candidates candidates) {
+        List<BookieNode> drained = new ArrayList<>();
+        BookieNode node;
+        while ((node = candidates.next()) != null) {
+            drained.add(node);
+        }
+        return drained;
+    }
+
+    @Test
+    public void testLeavesUnderANetworkPath() {
+        TopologySnapshot snapshot = snapshot(null, 0);
+        assertEquals(3, snapshot.getNumOfRacks());
+        assertEquals(bookies(1, 2), new HashSet<>(snapshot.getLeaves("/region-a/rack-0")));
+        assertEquals(bookies(1, 2, 3, 4), new HashSet<>(snapshot.getLeaves("/region-a")));
+        assertEquals(bookies(1, 2, 3, 4, 5, 6), new HashSet<>(snapshot.getLeaves("")));
+        assertEquals(6, snapshot.getLeaves("").size());
+        assertTrue(snapshot.getLeaves("/region-c").isEmpty());
+        // a prefix of a rack name isn't a scope
+        assertTrue(snapshot.getLeaves("/region-a/rack").isEmpty());
+    }
+
+    @Test
+    public void testLeavesOutsideOfNetworkPaths() {
+        TopologySnapshot snapshot = snapshot(null, 0);
+        assertEquals(bookies(1, 2, 5, 6), new HashSet<>(snapshot.getLeaves("~/region-a/rack-1")));
+        assertEquals(bookies(5, 6), new HashSet<>(snapshot.getLeaves("~/region-a")));
+        assertEquals(bookies(3, 4), new HashSet<>(snapshot.getLeaves("~/region-a/rack-0,/region-b")));
+    }
+
+    @Test
+    public void testUniformCandidatesAreReturnedOnce() {
+        TopologySnapshot snapshot = snapshot(null, 0);
+        Candidates candidates = snapshot.candidates("~/region-a/rack-1");
+        assertEquals(4, candidates.size());
+        List<BookieNode> drained = drain(candidates);
+        assertEquals(4, drained.size());
+        assertEquals(bookies(1, 2, 5, 6), new HashSet<>(drained));
+        assertNull(candidates.next());
+
+        assertEquals(6, drain(snapshot.knownBookieCandidates()).size());
+        assertNull(snapshot.candidates("/region-c").next());
+    }
+
+    @Test
+    public void testUniformCandidatesAreRandom() {
+        TopologySnapshot snapshot = snapshot(null, 0);
+        Map<BookieNode, Integer> firsts = new HashMap<>();
+        for (int i = 0; i < NUM_DRAWS; i++) {
+            firsts.merge(snapshot.candidates("/region-a").next(), 1, Integer::sum);
+        }
+        assertEquals(bookies(1, 2, 3, 4), firsts.keySet());
+        for (int count : firsts.values()) {
+            assertTrue("drawn " + count + " times", count > NUM_DRAWS / 4 * 0.8 && count < NUM_DRAWS / 4 * 1.2);
+        }
+    }
+
+    @Test
+    public void testHasAvailable() {
+        Candidates candidates = snapshot(null, 0).candidates("/region-a");
+        assertTrue(candidates.hasAvailable(bookies(5, 6), 4));
+        assertTrue(candidates.hasAvailable(bookies(1), 3));
+        assertFalse(candidates.hasAvailable(bookies(1), 4));
+        assertFalse(candidates.hasAvailable(bookies(1, 2, 3), 2));
+    }
+
+    @Test
+    public void testWeightedCandidatesAreDrawnByCappedWeight() {
+        Map<BookieNode, WeightedObject> bookieInfoMap = new HashMap<>();
+        for (BookieNode bookie : bookies) {
+            bookieInfoMap.put(bookie, new BookieInfo(1000L, 100L));
+        }
+        // ten times the median free space, capped to twice the median
+        bookieInfoMap.put(bookie(1), new BookieInfo(1000L, 1000L));
+        TopologySnapshot snapshot = snapshot(bookieInfoMap, 2);
+
+        int firstIsBookie1 = 0;
+        for (int i = 0; i < NUM_DRAWS; i++) {
+            if (snapshot.candidates("").next() == bookie(1)) {
+                firstIsBookie1++;
+            }
+        }
+        // a weight of 2 out of 7
+        double expected = NUM_DRAWS * 2.0 / 7;
+        assertTrue("drawn " + firstIsBookie1 + " times",
+                firstIsBookie1 > expected * 0.85 && firstIsBookie1 < expected * 1.15);
+
+        // the weights are computed over all the bookies, not over the candidates of a selection
+        int firstIsBookie1InRack = 0;
+        for (int i = 0; i < NUM_DRAWS; i++) {
+            if (snapshot.candidates("/region-a/rack-0").next() == bookie(1)) {
+                firstIsBookie1InRack++;
+            }
+        }
+        expected = NUM_DRAWS * 2.0 / 3;
+        assertTrue("drawn " + firstIsBookie1InRack + " times",
+                firstIsBookie1InRack > expected * 0.9 && firstIsBookie1InRack < expected * 1.1);
+    }
+
+    @Test
+    public void testWeightedCandidatesEndOnceAllAreDrawn() {
+        Map<BookieNode, WeightedObject> bookieInfoMap = new HashMap<>();
+        for (BookieNode bookie : bookies) {
+            bookieInfoMap.put(bookie, new BookieInfo(1000L, 100L * bookie.getName().charAt(6)));
+        }
+        Candidates candidates = snapshot(bookieInfoMap, 0).candidates("/region-a");
+        // drawn with replacement until each candidate was drawn
+        List<BookieNode> drained = drain(candidates);
+        assertTrue(drained.size() >= 4);
+        assertEquals(bookies(1, 2, 3, 4), new HashSet<>(drained));
+        assertNull(candidates.next());
+    }
+
+    @Test
+    public void testEmptyTopology() {
+        TopologySnapshot snapshot = TopologySnapshot.build(0L, 0L, 0, Collections.emptyList(),
+                Collections.emptyList(), null, false, 0, false, 0);
+        assertTrue(snapshot.getLeaves("").isEmpty());
+        assertEquals(0, snapshot.candidates("~/rack-0").size());
+        assertNull(snapshot.knownBookieCandidates().next());
+        assertTrue(snapshot.candidates("").hasAvailable(Collections.emptySet(), 0));
+        assertFalse(snapshot.candidates("").hasAvailable(Collections.emptySet(), 1));
+    }
+
+    private static BookieLoad load(long journalQueueSize, long addEntryLatencyMicros) {
+        return new BookieLoad(journalQueueSize, addEntryLatencyMicros, -1, 0L, 0L);
+    }
+
+    @Test
+    public void testHotness() {
+        double[] hotness = TopologySnapshot.hotness(new BookieLoad[] {
+                load(0L, 1000L), load(0L, 1000L), load(0L, 1000L),
+                // the journal is 10 times the median plus the offset
+                load(900L, 1000L),
+                // the latency is 3 times the median plus the offset
+                load(0L, 5000L),
+                null});
+        assertEquals(1.0, hotness[0], 0.001);
+        assertEquals(1.0, hotness[2], 0.001);
+        assertEquals(10.0, hotness[3], 0.001);
+        assertEquals(3.0, hotness[4], 0.001);
+        // the bookies which didn't report their load aren't penalized
+        assertEquals(1.0, hotness[5], 0.001);
+    }
+
+    @Test
+    public void testHotnessOfTheReadCacheMissRate() {
+        double[] hotness = TopologySnapshot.hotness(new BookieLoad[] {
+                new BookieLoad(0L, 0L, 0.9, 0L, 0L),
+                new BookieLoad(0L, 0L, 0.9, 0L, 0L),
+                new BookieLoad(0L, 0L, 0.3, 0L, 0L),
+                // no reads from the disk
+                new BookieLoad(0L, 0L, -1, 0L, 0L)});
+        assertEquals(1.0, hotness[0], 0.001);
+        // a miss rate of 0.7 against 0.1, with an offset of 0.1
+        assertEquals(4.0, hotness[2], 0.001);
+        assertEquals(1.0, hotness[3], 0.001);
+    }
+
+    @Test
+    public void testHotnessWithoutLoads() {
+        double[] hotness = TopologySnapshot.hotness(new BookieLoad[] {null, null});
+        assertEquals(1.0, hotness[0], 0.001);
+        assertEquals(1.0, hotness[1], 0.001);
+    }
+
+    @Test
+    public void testLoadAwareWeights() {
+        Map<BookieNode, WeightedObject> bookieInfoMap = new HashMap<>();
+        for (BookieNode bookie : bookies) {
+            bookieInfoMap.put(bookie, new BookieInfo(0L, 0L, load(0L, 0L)));
+        }
+        // 101 times the median load, penalized up to 4 times
+        bookieInfoMap.put(bookie(1), new BookieInfo(0L, 0L, load(10000L, 0L)));
+        TopologySnapshot snapshot = TopologySnapshot.build(1L, 1L, 3, new ArrayList<Node>(bookies), bookies,
+                bookieInfoMap, false, 0, true, 4);
+
+        int firstIsBookie1 = 0;
+        for (int i = 0; i < NUM_DRAWS; i++) {
+            if (snapshot.candidates("/region-a/rack-0").next() == bookie(1)) {
+                firstIsBookie1++;
+            }
+        }
+        // a weight of 0.25 against 1
+        double expected = NUM_DRAWS * 0.25 / 1.25;
+        assertTrue("drawn " + firstIsBookie1 + " times",
+                firstIsBookie1 > expected * 0.85 && firstIsBookie1 < expected * 1.15);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.discover;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.bookkeeper.discover.RegistrationClient.RegistrationListener;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.shims.zk.ZooKeeperServerShim;
+import org.apache.bookkeeper.shims.zk.ZooKeeperServerShimFactory;
+import org.apache.bookkeeper.util.BookKeeperConstants;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.apache.bookkeeper.zookeeper.ZooKeeperClient;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.ZooDefs.Ids;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of the bookie changes notified by {@link ZKRegistrationClient} against a ZooKeeper server.
+ */
+public class ZKRegistrationClientTest {
+
+    private static final String LEDGERS_PATH = "/ledgers";
+    private static final String AVAILABLE_PATH = LEDGERS_PATH + "/" + BookKeeperConstants.AVAILABLE_NODE;
+
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private ZooKeeperServerShim zkServer;
+    private ZooKeeperClient zk;
+    private ScheduledExecutorService scheduler;
+    private ZKRegistrationClient registrationClient;
+
+    /**
+     * A notification received by a listener.
+     */
+    private static class Notification {
+        final Set<BookieId> bookies;
+        final Set<BookieId> joinedBookies;
+        final Set<BookieId> leftBookies;
+
+        Notification(Set<BookieId> bookies, Set<BookieId> joinedBookies, Set<BookieId> leftBookies) {
+            this.bookies = bookies;
+            this.joinedBookies = joinedBookies;
+            this.leftBookies = leftBookies;
+        }
+    }
+
+    private static class RecordingListener implements RegistrationListener {
+        final BlockingQueue<Notification> notifications = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onBookiesChanged(Versioned<Set<BookieId>> bookies) {
+            throw new AssertionError("The changes should be notified along with the bookies");
+        }
+
+        @Override
+        public void onBookiesChanged(Versioned<Set<BookieId>> bookies,
+                                     Set<BookieId> joinedBookies,
+                                     Set<BookieId> leftBookies) {
+            notifications.add(new Notification(bookies.getValue(), joinedBookies, leftBookies));
+        }
+
+        Notification next() throws InterruptedException {
+            Notification notification = notifications.poll(10, TimeUnit.SECONDS);
+            assertNotNull("No notification received", notification);
+            return notification;
+        }
+    }
+
+    @Before
+    public void setup() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        zkServer = ZooKeeperServerShimFactory.createServer(tmpDir.newFolder("snap"), tmpDir.newFolder("log"),
+                port, 100);
+        zkServer.start();
+        zk = ZooKeeperClient.newBuilder()
+                .connectString("127.0.0.1:" + port)
+                .sessionTimeoutMs(10000)
+                .build();
+        zk.create(LEDGERS_PATH, new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        zk.create(AVAILABLE_PATH, new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        zk.create(AVAILABLE_PATH + "/" + BookKeeperConstants.READONLY, new byte[0], Ids.OPEN_ACL_UNSAFE,
+                CreateMode.PERSISTENT);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        registrationClient = new ZKRegistrationClient(zk, LEDGERS_PATH, scheduler, false);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        registrationClient.close();
+        scheduler.shutdownNow();
+        zk.close();
+        zkServer.stop();
+    }
+
+    private static BookieId bookie(int i) {
+        return BookieId.parse("127.0.0." + i + ":3181");
+    }
+
+    private static Set<BookieId> bookies(int... ids) {
+        return Arrays.stream(ids).mapToObj(ZKRegistrationClientTest::bookie).collect(Collectors.toSet());
+    }
+
+    private void registerBookie(int i) throws Exception {
+        zk.create(AVAILABLE_PATH + "/" + bookie(i), new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+    }
+
+    private void unregisterBookie(int i) throws Exception {
+        zk.delete(AVAILABLE_PATH + "/" + bookie(i), -1);
+    }
+
+    private RecordingListener watchWritableBookies() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        registrationClient.watchWritableBookies(listener).get(10, TimeUnit.SECONDS);
+        return listener;
+    }
+
+    @Test
+    public void testFirstNotificationReportsAllBookiesAsJoined() throws Exception {
+        registerBookie(1);
+        registerBookie(2);
+        RecordingListener listener = watchWritableBookies();
+
+        Notification notification = listener.next();
+        assertEquals(bookies(1, 2), notification.bookies);
+        assertEquals(bookies(1, 2), notification.joinedBookies);
+        assertTrue(notification.leftBookies.isEmpty());
+    }
+
+    @Test
+    public void testChangesAreNotified() throws Exception {
+        registerBookie(1);
+        registerBookie(2);
+        RecordingListener listener = watchWritableBookies();
+        listener.next();
+
+        registerBookie(3);
+        Notification notification = listener.next();
+        assertEquals(bookies(1, 2, 3), notification.bookies);
+        assertEquals(bookies(3), notification.joinedBookies);
+        assertTrue(notification.leftBookies.isEmpty());
+
+        unregisterBookie(1);
+        notification = listener.next();
+        assertEquals(bookies(2, 3), notification.bookies);
+        assertTrue(notification.joinedBookies.isEmpty());
+        assertEquals(bookies(1), notification.leftBookies);
+    }
+
+    @Test
+    public void testLateListenerGetsAllBookiesAsJoined() throws Exception {
+        registerBookie(1);
+        watchWritableBookies().next();
+
+        RecordingListener lateListener = watchWritableBookies();
+        Notification notification = lateListener.next();
+        assertEquals(bookies(1), notification.bookies);
+        assertEquals(bookies(1), notification.joinedBookies);
+        assertTrue(notification.leftBookies.isEmpty());
+    }
+
+    @Test
+    public void testSameBookiesWithANewerVersionAreNotNotified() throws Exception {
+        registerBookie(1);
+        RecordingListener listener = watchWritableBookies();
+        listener.next();
+
+        // a bookie registered and unregistered between two reads of the bookies
+        long cversion = zk.exists(AVAILABLE_PATH, false).getCversion();
+        CompletableFuture<Void> reread = CompletableFuture.runAsync(() ->
+                registrationClient.getWatchWritableBookiesTask().accept(
+                        new Versioned<>(bookies(1), new LongVersion(cversion + 1)), null), scheduler);
+        reread.get(10, TimeUnit.SECONDS);
+        assertNull(listener.notifications.poll(500, TimeUnit.MILLISECONDS));
+
+        // the changes are relative to the previous notification
+        registerBookie(2);
+        registerBookie(3);
+        Notification notification = listener.next();
+        assertEquals(bookies(1, 2, 3), notification.bookies);
+        assertEquals(bookies(2, 3), notification.joinedBookies);
+        assertTrue(notification.leftBookies.isEmpty());
+    }
+}
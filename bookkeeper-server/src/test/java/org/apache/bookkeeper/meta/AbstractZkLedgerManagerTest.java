@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.meta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.LedgerMetadataBuilder;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.shims.zk.ZooKeeperServerShim;
+import org.apache.bookkeeper.shims.zk.ZooKeeperServerShimFactory;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Version;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Watcher.Event.KeeperState;
+import org.apache.zookeeper.ZooDefs.Ids;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.client.ZKClientConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of the bulk metadata reads and removals of {@link AbstractZkLedgerManager} against a ZooKeeper server.
+ */
+public class AbstractZkLedgerManagerTest {
+
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private ZooKeeperServerShim zkServer;
+    private String connectString;
+    private final List<ZooKeeper> zkClients = new ArrayList<>();
+    private FlatLedgerManager ledgerManager;
+
+    @Before
+    public void setup() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        zkServer = ZooKeeperServerShimFactory.createServer(tmpDir.newFolder("snap"), tmpDir.newFolder("log"),
+                port, 100);
+        zkServer.start();
+        connectString = "127.0.0.1:" + port;
+        ZooKeeper zk = newZkClient(new ZKClientConfig());
+        zk.create("/ledgers", new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        ledgerManager = new FlatLedgerManager(new ClientConfiguration(), zk);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        ledgerManager.close();
+        for (ZooKeeper zk : zkClients) {
+            zk.close();
+        }
+        zkServer.stop();
+    }
+
+    private ZooKeeper newZkClient(ZKClientConfig clientConfig) throws Exception {
+        CountDownLatch connected = new CountDownLatch(1);
+        ZooKeeper zk = new ZooKeeper(connectString, 10000, event -> {
+            if (event.getState() == KeeperState.SyncConnected) {
+                connected.countDown();
+            }
+        }, clientConfig);
+        zkClients.add(zk);
+        assertTrue(connected.await(10, TimeUnit.SECONDS));
+        return zk;
+    }
+
+    private Versioned<LedgerMetadata> createLedger(long ledgerId, int customMetadataSize) throws Exception {
+        LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                .withId(ledgerId)
+                .withEnsembleSize(1).withWriteQuorumSize(1).withAckQuorumSize(1)
+                .withPassword(new byte[0])
+                .withDigestType(DigestType.CRC32C)
+                .withCustomMetadata(Collections.singletonMap("payload", new byte[customMetadataSize]))
+                .newEnsembleEntry(0L, Collections.singletonList(BookieId.parse("bookie-0:3181")))
+                .build();
+        return ledgerManager.createLedgerMetadata(ledgerId, metadata).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testReadLedgersMetadata() throws Exception {
+        // more ledgers than fit in a single multi read, of which only the even ones exist
+        int numLedgers = 3 * AbstractZkLedgerManager.MAX_LEDGERS_PER_MULTI;
+        Map<Long, Versioned<LedgerMetadata>> created = new HashMap<>();
+        List<Long> ledgerIds = new ArrayList<>();
+        for (long ledgerId = 0; ledgerId < numLedgers; ledgerId++) {
+            if (ledgerId % 2 == 0) {
+                created.put(ledgerId, createLedger(ledgerId, 0));
+            }
+            ledgerIds.add(ledgerId);
+        }
+
+        Map<Long, Versioned<LedgerMetadata>> read =
+                ledgerManager.readLedgersMetadata(ledgerIds).get(10, TimeUnit.SECONDS);
+        assertEquals(created.keySet(), read.keySet());
+        for (Map.Entry<Long, Versioned<LedgerMetadata>> e : created.entrySet()) {
+            LedgerMetadata metadata = read.get(e.getKey()).getValue();
+            assertEquals(e.getKey().longValue(), metadata.getLedgerId());
+            assertEquals(e.getValue().getValue().getAllEnsembles(), metadata.getAllEnsembles());
+            assertEquals(Version.Occurred.CONCURRENTLY,
+                    e.getValue().getVersion().compare(read.get(e.getKey()).getVersion()));
+        }
+    }
+
+    @Test
+    public void testReadLedgersMetadataOneByOneWhenABatchDoesNotFitInTheClientBuffer() throws Exception {
+        int numLedgers = 64;
+        List<Long> ledgerIds = new ArrayList<>();
+        for (long ledgerId = 0; ledgerId < numLedgers; ledgerId++) {
+            createLedger(ledgerId, 2048);
+            ledgerIds.add(ledgerId);
+        }
+
+        // the response of a single ledger fits in the buffer of the client, but not the one of the whole batch
+        ZKClientConfig clientConfig = new ZKClientConfig();
+        clientConfig.setProperty(ZKClientConfig.JUTE_MAXBUFFER, String.valueOf(32 * 1024));
+        FlatLedgerManager limitedLedgerManager =
+                new FlatLedgerManager(new ClientConfiguration(), newZkClient(clientConfig));
+        try {
+            Map<Long, Versioned<LedgerMetadata>> read =
+                    limitedLedgerManager.readLedgersMetadata(ledgerIds).get(30, TimeUnit.SECONDS);
+            assertEquals(numLedgers, read.size());
+            for (long ledgerId : ledgerIds) {
+                assertEquals(ledgerId, read.get(ledgerId).getValue().getLedgerId());
+            }
+        } finally {
+            limitedLedgerManager.close();
+        }
+    }
+
+    @Test
+    public void testRemoveLedgersMetadata() throws Exception {
+        Map<Long, Version> ledgers = new HashMap<>();
+        for (long ledgerId = 0; ledgerId < 10; ledgerId++) {
+            ledgers.put(ledgerId, createLedger(ledgerId, 0).getVersion());
+        }
+        // a missing ledger counts as removed
+        ledgers.put(10L, new LongVersion(0L));
+
+        ledgerManager.removeLedgersMetadata(ledgers).get(10, TimeUnit.SECONDS);
+        assertTrue(ledgerManager.readLedgersMetadata(ledgers.keySet()).get(10, TimeUnit.SECONDS).isEmpty());
+    }
+
+    @Test
+    public void testRemoveLedgersMetadataOneByOneWhenALedgerChanged() throws Exception {
+        Map<Long, Version> ledgers = new HashMap<>();
+        for (long ledgerId = 0; ledgerId < 10; ledgerId++) {
+            ledgers.put(ledgerId, createLedger(ledgerId, 0).getVersion());
+        }
+        ledgers.put(5L, new LongVersion(1L));
+
+        try {
+            ledgerManager.removeLedgersMetadata(ledgers).get(10, TimeUnit.SECONDS);
+            fail("The ledger 5 should not be removed with another version");
+        } catch (ExecutionException e) {
+            assertEquals(BKException.Code.ZKException, BKException.getExceptionCode(e.getCause()));
+        }
+        // the other ledgers of the batch were removed
+        Map<Long, Versioned<LedgerMetadata>> read =
+                ledgerManager.readLedgersMetadata(ledgers.keySet()).get(10, TimeUnit.SECONDS);
+        assertEquals(Collections.singleton(5L), read.keySet());
+        assertFalse(read.get(5L).getValue().isClosed());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.meta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link BlockLedgerIdGenerator}.
+ */
+public class BlockLedgerIdGeneratorTest {
+
+    /**
+     * Reserves consecutive blocks starting at the given id, completed by the test.
+     */
+    private static class TestBlockLedgerIdGenerator extends BlockLedgerIdGenerator {
+        private final List<GenericCallback<Long>> reservations = new ArrayList<>();
+        private long nextBlockStart;
+
+        TestBlockLedgerIdGenerator(int blockSize, long firstLedgerId, long ledgerIdLimit) {
+            super(blockSize, ledgerIdLimit);
+            this.nextBlockStart = firstLedgerId;
+        }
+
+        @Override
+        protected void reserveBlock(int blockSize, GenericCallback<Long> cb) {
+            reservations.add(cb);
+        }
+
+        void completeReservation(int blockSize) {
+            long firstLedgerId = nextBlockStart;
+            nextBlockStart = nextBlockStart(firstLedgerId, blockSize);
+            reservations.remove(0).operationComplete(BKException.Code.OK, firstLedgerId);
+        }
+
+        void failReservation(int rc) {
+            reservations.remove(0).operationComplete(rc, null);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class Result {
+        final CompletableFuture<Integer> rc = new CompletableFuture<>();
+        volatile Long ledgerId;
+    }
+
+    private static Result generate(LedgerIdGenerator generator) {
+        Result result = new Result();
+        generator.generateLedgerId((rc, ledgerId) -> {
+            result.ledgerId = ledgerId;
+            result.rc.complete(rc);
+        });
+        return result;
+    }
+
+    @Test
+    public void testIdsAreHandedOutLocallyFromABlock() {
+        TestBlockLedgerIdGenerator generator = new TestBlockLedgerIdGenerator(3, 100L, Long.MAX_VALUE);
+        Result first = generate(generator);
+        assertFalse(first.rc.isDone());
+        assertEquals(1, generator.reservations.size());
+
+        generator.completeReservation(3);
+        assertEquals(BKException.Code.OK, (int) first.rc.join());
+        assertEquals(100L, (long) first.ledgerId);
+        assertEquals(101L, (long) generate(generator).ledgerId);
+        assertEquals(102L, (long) generate(generator).ledgerId);
+        assertTrue(generator.reservations.isEmpty());
+
+        // the block is exhausted
+        Result next = generate(generator);
+        assertFalse(next.rc.isDone());
+        generator.completeReservation(3);
+        assertEquals(103L, (long) next.ledgerId);
+    }
+
+    @Test
+    public void testRequestsWaitForASingleReservation() {
+        TestBlockLedgerIdGenerator generator = new TestBlockLedgerIdGenerator(2, 0L, Long.MAX_VALUE);
+        List<Result> results = Arrays.asList(generate(generator), generate(generator), generate(generator));
+        assertEquals(1, generator.reservations.size());
+
+        // more requests than ids in the block, another block is reserved for the last one
+        generator.completeReservation(2);
+        assertEquals(0L, (long) results.get(0).ledgerId);
+        assertEquals(1L, (long) results.get(1).ledgerId);
+        assertFalse(results.get(2).rc.isDone());
+        assertEquals(1, generator.reservations.size());
+
+        generator.completeReservation(2);
+        assertEquals(2L, (long) results.get(2).ledgerId);
+        assertEquals(3L, (long) generate(generator).ledgerId);
+    }
+
+    @Test
+    public void testFailedReservationFailsThePendingRequests() {
+        TestBlockLedgerIdGenerator generator = new TestBlockLedgerIdGenerator(10, 0L, Long.MAX_VALUE);
+        Result first = generate(generator);
+        Result second = generate(generator);
+        generator.failReservation(BKException.Code.ZKException);
+        assertEquals(BKException.Code.ZKException, (int) first.rc.join());
+        assertEquals(BKException.Code.ZKException, (int) second.rc.join());
+        assertNull(first.ledgerId);
+
+        // the next request reserves a block again
+        Result next = generate(generator);
+        generator.completeReservation(10);
+        assertEquals(0L, (long) next.ledgerId);
+    }
+
+    @Test
+    public void testIdsStayBelowTheLimit() {
+        TestBlockLedgerIdGenerator generator = new TestBlockLedgerIdGenerator(10, 15L, 20L);
+        Result first = generate(generator);
+        generator.completeReservation(10);
+        assertEquals(15L, (long) first.ledgerId);
+        for (long ledgerId = 16L; ledgerId < 20L; ledgerId++) {
+            assertEquals(ledgerId, (long) generate(generator).ledgerId);
+        }
+
+        Result overflow = generate(generator);
+        generator.completeReservation(10);
+        assertEquals(BKException.Code.LedgerIdOverflowException, (int) overflow.rc.join());
+    }
+
+    @Test
+    public void testNextBlockStartIsCapped() {
+        assertEquals(110L, BlockLedgerIdGenerator.nextBlockStart(100L, 10));
+        assertEquals(Long.MAX_VALUE, BlockLedgerIdGenerator.nextBlockStart(Long.MAX_VALUE - 5, 10));
+    }
+}
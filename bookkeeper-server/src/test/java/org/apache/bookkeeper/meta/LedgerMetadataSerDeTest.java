@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.meta;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.apache.bookkeeper.client.LedgerMetadataBuilder;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.DataFormats.CompactSegments;
+import org.apache.bookkeeper.proto.DataFormats.LedgerMetadataFormat;
+import org.junit.Test;
+
+/**
+ * Unit tests of the ledger metadata format version 4 of {@link LedgerMetadataSerDe}.
+ */
+public class LedgerMetadataSerDeTest {
+
+    private static final long LEDGER_ID = 1234L;
+
+    private final LedgerMetadataSerDe serDe = new LedgerMetadataSerDe();
+
+    private static BookieId bookie(int i) {
+        return BookieId.parse("bookie-" + i + ":3181");
+    }
+
+    /**
+     * Metadata of a closed ledger with an ensemble of 3 bookies, which changed 10 times.
+     */
+    private static LedgerMetadata newMetadata(int formatVersion) {
+        List<BookieId> ensemble = new ArrayList<>(Arrays.asList(bookie(0), bookie(1), bookie(2)));
+        LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
+                .withId(LEDGER_ID)
+                .withMetadataFormatVersion(formatVersion)
+                .withEnsembleSize(3).withWriteQuorumSize(2).withAckQuorumSize(2)
+                .withPassword("secret".getBytes(UTF_8))
+                .withDigestType(DigestType.CRC32C)
+                .withCreationTime(12345L).storingCreationTime(true)
+                .withCustomMetadata(Collections.singletonMap("application", "test".getBytes(UTF_8)))
+                .newEnsembleEntry(0L, new ArrayList<>(ensemble));
+        for (int i = 1; i <= 10; i++) {
+            ensemble.set(i % 3, bookie(i + 2));
+            builder.newEnsembleEntry(100L * i, new ArrayList<>(ensemble));
+        }
+        return builder.withClosedState().withLastEntryId(1099L).withLength(123456L).build();
+    }
+
+    /**
+     * Serialize the metadata with the format version 4 after changing its protobuf.
+     */
+    private byte[] serializeWith(Consumer<LedgerMetadataFormat.Builder> change) throws IOException {
+        byte[] bytes = serDe.serialize(newMetadata(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_4));
+        LedgerMetadataFormat.Builder builder = LedgerMetadataFormat.parseFrom(
+                Arrays.copyOfRange(bytes, 2, bytes.length)).toBuilder();
+        change.accept(builder);
+        byte[] format = builder.build().toByteArray();
+        byte[] changed = new byte[format.length + 2];
+        changed[0] = bytes[0];
+        changed[1] = bytes[1];
+        System.arraycopy(format, 0, changed, 2, format.length);
+        return changed;
+    }
+
+    private static Consumer<LedgerMetadataFormat.Builder> changeSegments(
+            Consumer<CompactSegments.Builder> change) {
+        return builder -> {
+            try {
+                CompactSegments.Builder segments = CompactSegments.parseFrom(builder.getCompactSegments()).toBuilder();
+                change.accept(segments);
+                builder.setCompactSegments(segments.build().toByteString());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    private void assertMalformed(byte[] bytes) {
+        try {
+            serDe.parseConfig(bytes, LEDGER_ID, Optional.empty());
+            fail("Malformed metadata should not be parsed");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testVersion4RoundTrip() throws Exception {
+        LedgerMetadata metadata = newMetadata(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_4);
+        byte[] bytes = serDe.serialize(metadata);
+        LedgerMetadata parsed = serDe.parseConfig(bytes, LEDGER_ID, Optional.empty());
+        assertEquals(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_4, parsed.getMetadataFormatVersion());
+        assertEquals(metadata.getAllEnsembles(), parsed.getAllEnsembles());
+        assertEquals(metadata.getState(), parsed.getState());
+        assertEquals(metadata.getLastEntryId(), parsed.getLastEntryId());
+        assertEquals(metadata.getLength(), parsed.getLength());
+        assertEquals(metadata.getWriteQuorumSize(), parsed.getWriteQuorumSize());
+        assertEquals(metadata.getCtime(), parsed.getCtime());
+        assertArrayEquals(metadata.getPassword(), parsed.getPassword());
+        assertArrayEquals("test".getBytes(UTF_8), parsed.getCustomMetadata().get("application"));
+        assertEquals(bookie(12), parsed.getEnsembleAt(1050L).get(1));
+
+        // each bookie is stored once
+        LedgerMetadataFormat format = LedgerMetadataFormat.parseFrom(Arrays.copyOfRange(bytes, 2, bytes.length));
+        assertEquals(13, format.getBookieCount());
+        assertEquals(0, format.getSegmentCount());
+    }
+
+    @Test
+    public void testVersion4IsSmallerThanVersion3() throws Exception {
+        byte[] version3 = serDe.serialize(newMetadata(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_3));
+        byte[] version4 = serDe.serialize(newMetadata(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_4));
+        assertTrue(version4.length + " bytes in version 4, " + version3.length + " in version 3",
+                version4.length < version3.length);
+        assertEquals(serDe.parseConfig(version3, LEDGER_ID, Optional.empty()).getAllEnsembles(),
+                serDe.parseConfig(version4, LEDGER_ID, Optional.empty()).getAllEnsembles());
+    }
+
+    @Test
+    public void testTruncatedVersion4() throws Exception {
+        byte[] bytes = serDe.serialize(newMetadata(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_4));
+        assertMalformed(Arrays.copyOf(bytes, bytes.length / 2));
+    }
+
+    @Test
+    public void testCorruptedCompactSegments() throws Exception {
+        assertMalformed(serializeWith(builder -> builder.setCompactSegments(ByteString.copyFrom(new byte[] {
+                (byte) 0xff, (byte) 0xff, (byte) 0xff}))));
+    }
+
+    @Test
+    public void testNoEnsemble() throws Exception {
+        assertMalformed(serializeWith(builder -> builder.setCompactSegments(ByteString.EMPTY)));
+    }
+
+    @Test
+    public void testInvalidBookieId() throws Exception {
+        assertMalformed(serializeWith(builder -> builder.setBookie(0, "not a bookie id")));
+    }
+
+    @Test
+    public void testBookieIndexOutOfTheDictionary() throws Exception {
+        assertMalformed(serializeWith(changeSegments(segments ->
+                segments.setSegment(1, segments.getSegment(1).toBuilder().setBookieIndex(0, 13)))));
+    }
+
+    @Test
+    public void testPositionOutOfTheEnsemble() throws Exception {
+        assertMalformed(serializeWith(changeSegments(segments ->
+                segments.setSegment(1, segments.getSegment(1).toBuilder().setPosition(0, 3)))));
+    }
+
+    @Test
+    public void testPositionsWithoutBookies() throws Exception {
+        assertMalformed(serializeWith(changeSegments(segments ->
+                segments.setSegment(1, segments.getSegment(1).toBuilder().addPosition(2)))));
+    }
+
+    @Test
+    public void testMissingBookieInTheFirstEnsemble() throws Exception {
+        // the first segment doesn't set the bookie at the last position
+        assertMalformed(serializeWith(changeSegments(segments -> {
+            CompactSegments.Segment first = segments.getSegment(0);
+            segments.setSegment(0, first.toBuilder()
+                    .clearPosition().addAllPosition(first.getPositionList().subList(0, 2))
+                    .clearBookieIndex().addAllBookieIndex(first.getBookieIndexList().subList(0, 2)));
+        })));
+    }
+
+    @Test
+    public void testEnsemblesOutOfOrder() throws Exception {
+        assertMalformed(serializeWith(changeSegments(segments ->
+                segments.setSegment(2, segments.getSegment(2).toBuilder().setFirstEntryIdDelta(-50L)))));
+    }
+
+    @Test
+    public void testInvalidQuorums() throws Exception {
+        assertMalformed(serializeWith(builder -> builder.setQuorumSize(4)));
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.meta;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.shims.zk.ZooKeeperServerShim;
+import org.apache.bookkeeper.shims.zk.ZooKeeperServerShimFactory;
+import org.apache.bookkeeper.util.BookKeeperConstants;
+import org.apache.bookkeeper.zookeeper.ZooKeeperClient;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.ZooDefs.Ids;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link ZkBlockLedgerIdGenerator} against a ZooKeeper server, with clients reserving blocks and
+ * clients keeping the regular generator.
+ */
+public class ZkBlockLedgerIdGeneratorTest {
+
+    private static final String LEDGERS_PATH = "/ledgers";
+    private static final String BLOCK_PATH = LEDGERS_PATH + "/" + BookKeeperConstants.LEDGER_ID_BLOCK_ZNODE;
+
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private ZooKeeperServerShim zkServer;
+    private String connectString;
+    private final List<ZooKeeperClient> zkClients = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        zkServer = ZooKeeperServerShimFactory.createServer(tmpDir.newFolder("snap"), tmpDir.newFolder("log"),
+                port, 100);
+        zkServer.start();
+        connectString = "127.0.0.1:" + port;
+        newZkClient().create(LEDGERS_PATH, new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        for (ZooKeeperClient zk : zkClients) {
+            zk.close();
+        }
+        zkServer.stop();
+    }
+
+    private ZooKeeperClient newZkClient() throws Exception {
+        ZooKeeperClient zk = ZooKeeperClient.newBuilder()
+                .connectString(connectString)
+                .sessionTimeoutMs(10000)
+                .build();
+        zkClients.add(zk);
+        return zk;
+    }
+
+    /**
+     * A generator of a client with its own zookeeper session, over the regular generator of the flat
+     * ledger manager.
+     */
+    private ZkBlockLedgerIdGenerator newGenerator(int blockSize, long ledgerIdLimit) throws Exception {
+        ZooKeeperClient zk = newZkClient();
+        return new ZkBlockLedgerIdGenerator(zk, LEDGERS_PATH,
+                new ZkLedgerIdGenerator(zk, LEDGERS_PATH, null, Ids.OPEN_ACL_UNSAFE),
+                blockSize, ledgerIdLimit, Ids.OPEN_ACL_UNSAFE);
+    }
+
+    private ZkLedgerIdGenerator newRegularGenerator() throws Exception {
+        return new ZkLedgerIdGenerator(newZkClient(), LEDGERS_PATH, null, Ids.OPEN_ACL_UNSAFE);
+    }
+
+    private LedgerIdGenerator newFactoryGenerator(int blockSize) throws Exception {
+        ClientConfiguration conf = new ClientConfiguration().setLedgerIdBlockSize(blockSize);
+        ZooKeeperClient zk = newZkClient();
+        return new FlatLedgerManagerFactory()
+                .initialize(conf, new ZkLayoutManager(zk, LEDGERS_PATH, Ids.OPEN_ACL_UNSAFE),
+                        FlatLedgerManagerFactory.CUR_VERSION)
+                .newLedgerIdGenerator();
+    }
+
+    private static long generate(LedgerIdGenerator generator) throws Exception {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        generator.generateLedgerId((rc, ledgerId) -> {
+            if (rc == BKException.Code.OK) {
+                result.complete(ledgerId);
+            } else {
+                result.completeExceptionally(BKException.create(rc));
+            }
+        });
+        return result.get(10, TimeUnit.SECONDS);
+    }
+
+    private long nextBlockStart() throws Exception {
+        return Long.parseLong(new String(zkClients.get(0).getData(BLOCK_PATH, false, null), UTF_8));
+    }
+
+    @Test
+    public void testBlocksAreReservedFromTheRegularSequence() throws Exception {
+        LedgerIdGenerator regular = newRegularGenerator();
+        long regularId = generate(regular);
+        assertNull(zkClients.get(0).exists(BLOCK_PATH, false));
+
+        ZkBlockLedgerIdGenerator generator = newGenerator(10, Integer.MAX_VALUE);
+        long firstId = generate(generator);
+        assertTrue(firstId > regularId);
+        for (int i = 1; i < 25; i++) {
+            assertEquals(firstId + i, generate(generator));
+        }
+        // 3 blocks were reserved
+        assertEquals(firstId + 30, nextBlockStart());
+    }
+
+    @Test
+    public void testBlockZnodeIsNotAnIdGenerationZnode() throws Exception {
+        ZooKeeperClient zk = newZkClient();
+        String longIdGenPath = LEDGERS_PATH + "/" + LongHierarchicalLedgerManager.IDGEN_ZNODE;
+        zk.create(longIdGenPath, new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        LongZkLedgerIdGenerator longIdGenerator = new LongZkLedgerIdGenerator(zk, LEDGERS_PATH,
+                LongHierarchicalLedgerManager.IDGEN_ZNODE,
+                new ZkLedgerIdGenerator(zk, LEDGERS_PATH, LegacyHierarchicalLedgerManager.IDGEN_ZNODE,
+                        Ids.OPEN_ACL_UNSAFE),
+                Ids.OPEN_ACL_UNSAFE);
+        ZkBlockLedgerIdGenerator generator = new ZkBlockLedgerIdGenerator(zk, LEDGERS_PATH, longIdGenerator,
+                10, Long.MAX_VALUE, Ids.OPEN_ACL_UNSAFE);
+        // the first block starts at a long ledger id
+        assertTrue(generate(generator) > Integer.MAX_VALUE);
+
+        assertNotNull(zk.exists(BLOCK_PATH, false));
+        // the block znode is not counted among the high order directories of the long ledger ids
+        for (String child : zk.getChildren(longIdGenPath, false)) {
+            assertTrue(child, child.startsWith("HOB-"));
+        }
+        assertTrue(AbstractZkLedgerManager.isSpecialZnode(BookKeeperConstants.LEDGER_ID_BLOCK_ZNODE));
+        assertTrue(MSLedgerManagerFactory.MsLedgerManager.isSpecialZnode(BookKeeperConstants.LEDGER_ID_BLOCK_ZNODE));
+    }
+
+    @Test
+    public void testDefaultClientsKeepTheRegularGenerator() throws Exception {
+        LedgerIdGenerator regular = newFactoryGenerator(0);
+        assertTrue(regular instanceof ZkLedgerIdGenerator);
+
+        ZkBlockLedgerIdGenerator generator = newGenerator(10, Integer.MAX_VALUE);
+        generate(generator);
+        long blockStart = nextBlockStart();
+
+        // the regular client doesn't access the block znode, even though it exists
+        for (int i = 0; i < 20; i++) {
+            generate(regular);
+        }
+        assertEquals(blockStart, nextBlockStart());
+
+        // a client configured with a block size of 1 reserves a single id at a time
+        LedgerIdGenerator single = newFactoryGenerator(1);
+        assertTrue(single instanceof ZkBlockLedgerIdGenerator);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(blockStart + i, generate(single));
+            assertEquals(blockStart + i + 1, nextBlockStart());
+        }
+    }
+
+    @Test
+    public void testConcurrentClientsGenerateDistinctIds() throws Exception {
+        List<ZkBlockLedgerIdGenerator> generators = new ArrayList<>();
+        generators.add(newGenerator(1, Integer.MAX_VALUE));
+        generators.add(newGenerator(1, Integer.MAX_VALUE));
+        generators.add(newGenerator(5, Integer.MAX_VALUE));
+        generators.add(newGenerator(7, Integer.MAX_VALUE));
+        Set<Long> ledgerIds = new HashSet<>();
+        ledgerIds.add(generate(generators.get(2)));
+
+        List<CompletableFuture<Long>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            for (ZkBlockLedgerIdGenerator generator : generators) {
+                CompletableFuture<Long> result = new CompletableFuture<>();
+                generator.generateLedgerId((rc, ledgerId) -> {
+                    if (rc == BKException.Code.OK) {
+                        result.complete(ledgerId);
+                    } else {
+                        result.completeExceptionally(BKException.create(rc));
+                    }
+                });
+                results.add(result);
+            }
+        }
+        for (CompletableFuture<Long> result : results) {
+            assertTrue(ledgerIds.add(result.get(10, TimeUnit.SECONDS)));
+        }
+        assertEquals(201, ledgerIds.size());
+    }
+
+    @Test
+    public void testBlocksStayBelowTheLedgerIdLimit() throws Exception {
+        zkClients.get(0).create(BLOCK_PATH, "100".getBytes(UTF_8), Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        ZkBlockLedgerIdGenerator generator = newGenerator(10, 115L);
+        for (long ledgerId = 100L; ledgerId < 115L; ledgerId++) {
+            assertEquals(ledgerId, generate(generator));
+        }
+        try {
+            generate(generator);
+            fail("should fail past the ledger id limit");
+        } catch (ExecutionException e) {
+            assertEquals(BKException.Code.LedgerIdOverflowException, BKException.getExceptionCode(e.getCause()));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.meta;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.ServerSocket;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.shims.zk.ZooKeeperServerShim;
+import org.apache.bookkeeper.shims.zk.ZooKeeperServerShimFactory;
+import org.apache.bookkeeper.zookeeper.ZooKeeperClient;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.ZooDefs.Ids;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of the checkpoint of the check of all the ledgers stored by {@link ZkLedgerUnderreplicationManager}.
+ */
+public class ZkLedgerUnderreplicationManagerTest {
+
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private ZooKeeperServerShim zkServer;
+    private ZooKeeperClient zkc;
+    private ZkLedgerUnderreplicationManager underreplicationManager;
+
+    @Before
+    public void setup() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        zkServer = ZooKeeperServerShimFactory.createServer(tmpDir.newFolder("snap"), tmpDir.newFolder("log"),
+                port, 100);
+        zkServer.start();
+        zkc = ZooKeeperClient.newBuilder()
+                .connectString("127.0.0.1:" + port)
+                .sessionTimeoutMs(10000)
+                .build();
+        zkc.create("/ledgers", new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        underreplicationManager = new ZkLedgerUnderreplicationManager(conf, zkc);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        underreplicationManager.close();
+        zkc.close();
+        zkServer.stop();
+    }
+
+    @Test
+    public void testNoCheckpoint() throws Exception {
+        assertEquals(-1L, underreplicationManager.getCheckAllLedgersCheckpoint());
+        underreplicationManager.setCheckAllLedgersCTime(1000L);
+        assertEquals(-1L, underreplicationManager.getCheckAllLedgersCheckpoint());
+    }
+
+    @Test
+    public void testCheckpointWithoutACompleteCheck() throws Exception {
+        underreplicationManager.setCheckAllLedgersCheckpoint(10L);
+        assertEquals(10L, underreplicationManager.getCheckAllLedgersCheckpoint());
+        underreplicationManager.setCheckAllLedgersCheckpoint(20L);
+        assertEquals(20L, underreplicationManager.getCheckAllLedgersCheckpoint());
+    }
+
+    @Test
+    public void testCheckpointKeepsTheCtimeOfTheLastCompleteCheck() throws Exception {
+        underreplicationManager.setCheckAllLedgersCTime(1000L);
+        underreplicationManager.setCheckAllLedgersCheckpoint(10L);
+        assertEquals(1000L, underreplicationManager.getCheckAllLedgersCTime());
+        assertEquals(10L, underreplicationManager.getCheckAllLedgersCheckpoint());
+
+        // a complete check clears the checkpoint
+        underreplicationManager.setCheckAllLedgersCTime(2000L);
+        assertEquals(2000L, underreplicationManager.getCheckAllLedgersCTime());
+        assertEquals(-1L, underreplicationManager.getCheckAllLedgersCheckpoint());
+    }
+}
@@ -13,6 +13,8 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import static org.mockito.Mockito.*;
@@ -599,4 +601,85 @@ public class NetworkTopologyImplTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    public static class SnapshotLookupTest {
+        private NetworkTopologyImpl topology;
+        private Node node1;
+        private Node node2;
+        private Node node3;
+
+        @Before
+        public void setup() {
+            topology = new NetworkTopologyImpl();
+            node1 = new BookieNode(BookieId.parse("node-1"), "/rack-0");
+            node2 = new BookieNode(BookieId.parse("node-2"), "/rack-0");
+            node3 = new BookieNode(BookieId.parse("node-3"), "/rack-1");
+            topology.add(node1);
+            topology.add(node2);
+            topology.add(node3);
+        }
+
+        @Test
+        public void lookupsFollowTheChangesOfTheTree() {
+            Assert.assertTrue(topology.contains(node1));
+            Assert.assertTrue(topology.isOnSameRack(node1, node2));
+            Assert.assertFalse(topology.isOnSameRack(node1, node3));
+            Assert.assertEquals(2, topology.getDistance(node1, node2));
+            Assert.assertEquals(4, topology.getDistance(node1, node3));
+            Assert.assertEquals(3, topology.getDistance(node1, topology.getNode("/rack-0")));
+
+            topology.remove(node2);
+            Assert.assertFalse(topology.contains(node2));
+            Assert.assertFalse(topology.isOnSameRack(node1, node2));
+            Assert.assertEquals(Integer.MAX_VALUE, topology.getDistance(node1, node2));
+
+            // the node moved to the other rack
+            node2.setNetworkLocation("/rack-1");
+            topology.add(node2);
+            Assert.assertTrue(topology.contains(node2));
+            Assert.assertTrue(topology.isOnSameRack(node2, node3));
+            Assert.assertFalse(topology.isOnSameRack(node1, node2));
+            Assert.assertEquals(4, topology.getDistance(node1, node2));
+        }
+
+        @Test
+        public void nodesAreLookedUpByInstance() {
+            // a node with the same location isn't the node of the tree
+            Node copy = new BookieNode(BookieId.parse("node-1"), "/rack-0");
+            Assert.assertFalse(topology.contains(copy));
+            Assert.assertFalse(topology.isOnSameRack(copy, node2));
+        }
+
+        @Test
+        public void lookupsAreConsistentWhileTheTreeChanges() throws Exception {
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicReference<String> failure = new AtomicReference<>();
+            Thread writer = new Thread(() -> {
+                // move the second node from a rack to the other
+                for (int i = 0; i < 20000; i++) {
+                    topology.remove(node2);
+                    node2.setNetworkLocation(i % 2 == 0 ? "/rack-1" : "/rack-0");
+                    topology.add(node2);
+                }
+                done.set(true);
+            });
+            writer.start();
+            try {
+                while (!done.get() && failure.get() == null) {
+                    int distance = topology.getDistance(node1, node2);
+                    if (distance != 2 && distance != 4 && distance != Integer.MAX_VALUE) {
+                        failure.set("distance " + distance);
+                    }
+                    if (!topology.contains(node1) || !topology.isOnSameRack(node1, node1)
+                            || topology.getDistance(node1, node3) != 4) {
+                        failure.set("the nodes which didn't move moved");
+                    }
+                }
+            } finally {
+                writer.join();
+            }
+            Assert.assertNull(failure.get());
+            Assert.assertEquals(2, topology.getDistance(node1, node2));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.LedgerStorage;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BookieLoad;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link BookieLoadTracker}.
+ */
+public class BookieLoadTrackerTest {
+
+    private Bookie bookie;
+    private LedgerStorage ledgerStorage;
+    private final BookieLoadTracker tracker = new BookieLoadTracker();
+
+    @Before
+    public void setup() {
+        ledgerStorage = mock(LedgerStorage.class);
+        bookie = mock(Bookie.class);
+        when(bookie.getLedgerStorage()).thenReturn(ledgerStorage);
+    }
+
+    @Test
+    public void testLoad() {
+        when(bookie.getJournalQueueLength()).thenReturn(42);
+        when(ledgerStorage.getReadCacheHitCount()).thenReturn(3L);
+        when(ledgerStorage.getReadCacheMissCount()).thenReturn(1L);
+        tracker.recordAdd(TimeUnit.MILLISECONDS.toNanos(1), 1000L);
+        tracker.recordAdd(TimeUnit.MILLISECONDS.toNanos(3), 1000L);
+        tracker.recordRead(500L);
+
+        BookieLoad load = tracker.getLoad(bookie);
+        assertEquals(42L, load.getJournalQueueSize());
+        assertEquals(2000L, load.getAddEntryLatencyMicros());
+        assertTrue(load.getAddBytesPerSecond() > 0);
+        assertTrue(load.getReadBytesPerSecond() > 0);
+        assertTrue(load.getAddBytesPerSecond() > load.getReadBytesPerSecond());
+        assertEquals(0.75, load.getReadCacheHitRate(), 0.001);
+    }
+
+    @Test
+    public void testLoadIsReportedAgainWithinASecond() {
+        BookieLoad load = tracker.getLoad(bookie);
+        tracker.recordAdd(TimeUnit.MILLISECONDS.toNanos(1), 1000L);
+        assertSame(load, tracker.getLoad(bookie));
+    }
+
+    @Test
+    public void testRatesAreComputedSinceThePreviousReport() throws Exception {
+        when(ledgerStorage.getReadCacheHitCount()).thenReturn(3L);
+        when(ledgerStorage.getReadCacheMissCount()).thenReturn(1L);
+        tracker.recordAdd(TimeUnit.MILLISECONDS.toNanos(1), 1000L);
+        tracker.getLoad(bookie);
+
+        Thread.sleep(1100);
+        // no adds nor reads from the disk since the previous report
+        BookieLoad load = tracker.getLoad(bookie);
+        assertEquals(0L, load.getAddEntryLatencyMicros());
+        assertEquals(0L, load.getAddBytesPerSecond());
+        assertFalse(load.hasReadCacheHitRate());
+
+        Thread.sleep(1100);
+        when(ledgerStorage.getReadCacheHitCount()).thenReturn(4L);
+        when(ledgerStorage.getReadCacheMissCount()).thenReturn(4L);
+        assertEquals(0.25, tracker.getLoad(bookie).getReadCacheHitRate(), 0.001);
+    }
+}
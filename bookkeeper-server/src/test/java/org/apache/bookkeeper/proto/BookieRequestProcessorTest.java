@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the thread pools serving the reads of {@link BookieRequestProcessor}.
+ */
+public class BookieRequestProcessorTest {
+
+    private ServerConfiguration conf;
+    private Bookie bookie;
+    private BookieRequestHandler requestHandler;
+    private BookieRequestProcessor requestProcessor;
+    // the thread reading the entry, completed with the name of the thread prefixed by the kind of read
+    private CompletableFuture<String> readThread;
+
+    @Before
+    public void setup() throws Exception {
+        conf = TestBKConfiguration.newServerConfiguration();
+        conf.setNumReadWorkerThreads(1);
+        conf.setNumHighPriorityWorkerThreads(1);
+        conf.setNumReplicationReadWorkerThreads(1);
+
+        readThread = new CompletableFuture<>();
+        bookie = mock(Bookie.class);
+        when(bookie.readEntry(anyLong(), anyLong())).thenAnswer(invocation -> {
+            readThread.complete("read:" + Thread.currentThread().getName());
+            return Unpooled.wrappedBuffer(new byte[16]);
+        });
+        when(bookie.readEntryForReplication(anyLong(), anyLong())).thenAnswer(invocation -> {
+            readThread.complete("replication:" + Thread.currentThread().getName());
+            return Unpooled.wrappedBuffer(new byte[16]);
+        });
+
+        Channel channel = mock(Channel.class);
+        when(channel.isActive()).thenReturn(true);
+        when(channel.isOpen()).thenReturn(true);
+        when(channel.isWritable()).thenReturn(true);
+        when(channel.writeAndFlush(any())).thenReturn(mock(ChannelFuture.class));
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.channel()).thenReturn(channel);
+        requestHandler = mock(BookieRequestHandler.class);
+        when(requestHandler.ctx()).thenReturn(ctx);
+    }
+
+    @After
+    public void teardown() {
+        if (requestProcessor != null) {
+            requestProcessor.close();
+        }
+    }
+
+    private String read(Object request) throws Exception {
+        if (requestProcessor == null) {
+            requestProcessor = new BookieRequestProcessor(conf, bookie, NullStatsLogger.INSTANCE, null,
+                    ByteBufAllocator.DEFAULT, null);
+        }
+        requestProcessor.processRequest(request, requestHandler);
+        return readThread.get(10, TimeUnit.SECONDS);
+    }
+
+    private static Request readRequestV3(boolean replication) {
+        ReadRequest.Builder readRequest = ReadRequest.newBuilder().setLedgerId(1L).setEntryId(0L);
+        if (replication) {
+            readRequest.setReplication(true);
+        }
+        return Request.newBuilder()
+                .setHeader(BKPacketHeader.newBuilder()
+                        .setVersion(ProtocolVersion.VERSION_THREE)
+                        .setOperation(OperationType.READ_ENTRY)
+                        .setTxnId(1L))
+                .setReadRequest(readRequest)
+                .build();
+    }
+
+    private static BookieProtocol.ReadRequest readRequestV2(short flags) {
+        return BookieProtocol.ReadRequest.create(BookieProtocol.CURRENT_PROTOCOL_VERSION, 1L, 0L, flags, null);
+    }
+
+    private static void assertReadOn(String kind, String pool, String thread) {
+        assertTrue(thread, thread.startsWith(kind + ":" + pool));
+    }
+
+    @Test
+    public void testReplicationReadsAreServedByTheReplicationPoolV3() throws Exception {
+        assertReadOn("replication", "BookieReplicationReadThreadPool", read(readRequestV3(true)));
+    }
+
+    @Test
+    public void testOtherReadsAreServedByTheReadPoolV3() throws Exception {
+        assertReadOn("read", "BookieReadThreadPool", read(readRequestV3(false)));
+    }
+
+    @Test
+    public void testReplicationReadsAreServedByTheReplicationPoolV2() throws Exception {
+        assertReadOn("replication", "BookieReplicationReadThreadPool",
+                read(readRequestV2(BookieProtocol.FLAG_REPLICATION)));
+    }
+
+    @Test
+    public void testHighPriorityReadsAreNotServedByTheReplicationPoolV2() throws Exception {
+        assertReadOn("read", "BookieHighPriorityThread", read(readRequestV2(BookieProtocol.FLAG_HIGH_PRIORITY)));
+    }
+
+    @Test
+    public void testReplicationReadsAreServedByTheReadPoolWithoutReplicationThreads() throws Exception {
+        conf.setNumReplicationReadWorkerThreads(0);
+        // still read without caching the entries
+        assertReadOn("replication", "BookieReadThreadPool", read(readRequestV3(true)));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgersRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Unit tests of {@link GetListOfEntriesOfLedgersProcessorV3}.
+ */
+public class GetListOfEntriesOfLedgersProcessorV3Test {
+
+    private Bookie bookie;
+    private Channel channel;
+    private BookieRequestHandler requestHandler;
+    private BookieRequestProcessor requestProcessor;
+
+    @Before
+    public void setup() throws Exception {
+        bookie = mock(Bookie.class);
+        requestProcessor = mock(BookieRequestProcessor.class);
+        FieldUtils.writeField(requestProcessor, "bookie", bookie, true);
+        when(requestProcessor.getRequestStats()).thenReturn(new RequestStats(NullStatsLogger.INSTANCE));
+        when(requestProcessor.getWaitTimeoutOnBackpressureMillis()).thenReturn(-1L);
+
+        channel = mock(Channel.class);
+        when(channel.isActive()).thenReturn(true);
+        when(channel.writeAndFlush(any())).thenReturn(mock(ChannelFuture.class));
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.channel()).thenReturn(channel);
+        requestHandler = mock(BookieRequestHandler.class);
+        when(requestHandler.ctx()).thenReturn(ctx);
+    }
+
+    private Response process(Long... ledgerIds) {
+        Request request = Request.newBuilder()
+                .setHeader(BKPacketHeader.newBuilder()
+                        .setVersion(ProtocolVersion.VERSION_THREE)
+                        .setOperation(OperationType.GET_LIST_OF_ENTRIES_OF_LEDGER)
+                        .setTxnId(1L))
+                .setGetListOfEntriesOfLedgersRequest(GetListOfEntriesOfLedgersRequest.newBuilder()
+                        .addAllLedgerId(Arrays.asList(ledgerIds)))
+                .build();
+        new GetListOfEntriesOfLedgersProcessorV3(request, requestHandler, requestProcessor).run();
+        ArgumentCaptor<Object> response = ArgumentCaptor.forClass(Object.class);
+        verify(channel).writeAndFlush(response.capture());
+        return (Response) response.getValue();
+    }
+
+    @Test
+    public void testStatusAndEntriesOfEachLedger() throws Exception {
+        when(bookie.getListOfEntriesOfLedger(1L)).thenReturn(Arrays.stream(new long[] {0L, 1L, 3L}).iterator());
+        when(bookie.getListOfEntriesOfLedger(2L)).thenThrow(new Bookie.NoLedgerException(2L));
+        when(bookie.getListOfEntriesOfLedger(3L)).thenThrow(new IOException("failed to read the index"));
+
+        Response response = process(1L, 2L, 3L);
+        assertEquals(StatusCode.EOK, response.getStatus());
+        List<GetListOfEntriesOfLedgerResponse> ledgerResponses =
+                response.getGetListOfEntriesOfLedgersResponse().getLedgerResponseList();
+        assertEquals(3, ledgerResponses.size());
+
+        assertEquals(1L, ledgerResponses.get(0).getLedgerId());
+        assertEquals(StatusCode.EOK, ledgerResponses.get(0).getStatus());
+        AvailabilityOfEntriesOfLedger availability = new AvailabilityOfEntriesOfLedger(
+                ledgerResponses.get(0).getAvailabilityOfEntriesOfLedger().toByteArray());
+        assertEquals(3L, availability.getTotalNumOfAvailableEntries());
+        assertTrue(availability.isEntryAvailable(3L));
+        assertFalse(availability.isEntryAvailable(2L));
+
+        assertEquals(2L, ledgerResponses.get(1).getLedgerId());
+        assertEquals(StatusCode.ENOLEDGER, ledgerResponses.get(1).getStatus());
+        assertEquals(3L, ledgerResponses.get(2).getLedgerId());
+        assertEquals(StatusCode.EIO, ledgerResponses.get(2).getStatus());
+    }
+
+    @Test
+    public void testNoLedgers() {
+        Response response = process();
+        assertEquals(StatusCode.EOK, response.getStatus());
+        assertEquals(0, response.getGetListOfEntriesOfLedgersResponse().getLedgerResponseCount());
+    }
+}
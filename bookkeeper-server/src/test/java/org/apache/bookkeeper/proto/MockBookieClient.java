@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteLacCallback;
+import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
+import org.apache.bookkeeper.util.ByteBufList;
+
+/**
+ * A {@link BookieClient} keeping the entries of the bookies in memory.
+ *
+ * <p>The entries are stored as sent by the client, with their digest, and every request is completed
+ * on the ordered executor of its ledger, like the netty client does. Fencing reads fence the ledger on
+ * the bookie, so that the following adds which are not recovery adds fail.
+ */
+public class MockBookieClient implements BookieClient {
+
+    private final OrderedExecutor executor;
+    private final Map<BookieId, Map<Long, NavigableMap<Long, ByteBuf>>> data = new ConcurrentHashMap<>();
+    private final Map<BookieId, Set<Long>> fencedLedgers = new ConcurrentHashMap<>();
+    private final Set<BookieId> errorBookies = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger numReads = new AtomicInteger();
+    private final AtomicInteger readsInFlight = new AtomicInteger();
+    private final AtomicInteger maxReadsInFlight = new AtomicInteger();
+    private final AtomicInteger numAdds = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    public MockBookieClient(OrderedExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Make all the requests sent to the given bookies fail.
+     */
+    public void errorBookies(BookieId... bookies) {
+        Collections.addAll(errorBookies, bookies);
+    }
+
+    public void removeErrors(BookieId... bookies) {
+        for (BookieId bookie : bookies) {
+            errorBookies.remove(bookie);
+        }
+    }
+
+    public int getNumReads() {
+        return numReads.get();
+    }
+
+    /**
+     * Get the highest number of reads sent and not completed yet seen so far.
+     */
+    public int getMaxReadsInFlight() {
+        return maxReadsInFlight.get();
+    }
+
+    public int getNumAdds() {
+        return numAdds.get();
+    }
+
+    /**
+     * Store an entry on a bookie, as if it had been written by a client.
+     */
+    public void seedEntry(BookieId bookie, long ledgerId, long entryId, ByteBuf entry) {
+        ByteBuf previous = entries(bookie, ledgerId).put(entryId, entry);
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
+    public boolean hasEntry(BookieId bookie, long ledgerId, long entryId) {
+        return entries(bookie, ledgerId).containsKey(entryId);
+    }
+
+    public Set<Long> getEntryIds(BookieId bookie, long ledgerId) {
+        return entries(bookie, ledgerId).keySet();
+    }
+
+    private NavigableMap<Long, ByteBuf> entries(BookieId bookie, long ledgerId) {
+        return data.computeIfAbsent(bookie, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(ledgerId, k -> new ConcurrentSkipListMap<>());
+    }
+
+    private boolean isFenced(BookieId bookie, long ledgerId) {
+        return fencedLedgers.getOrDefault(bookie, Collections.emptySet()).contains(ledgerId);
+    }
+
+    @Override
+    public List<BookieId> getFaultyBookies() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isWritable(BookieId address, long ledgerId) {
+        return true;
+    }
+
+    @Override
+    public long getNumPendingRequests(BookieId address, long ledgerId) {
+        return 0;
+    }
+
+    @Override
+    public void forceLedger(BookieId address, long ledgerId, ForceLedgerCallback cb, Object ctx) {
+        int rc = errorBookies.contains(address) ? BKException.Code.BookieHandleNotAvailableException
+                : BKException.Code.OK;
+        executor.executeOrdered(ledgerId, () -> cb.forceLedgerComplete(rc, ledgerId, address, ctx));
+    }
+
+    @Override
+    public void readLac(BookieId address, long ledgerId, ReadLacCallback cb, Object ctx) {
+        int rc = errorBookies.contains(address) ? BKException.Code.BookieHandleNotAvailableException
+                : BKException.Code.NoSuchEntryException;
+        executor.executeOrdered(ledgerId, () -> cb.readLacComplete(rc, ledgerId, null, null, ctx));
+    }
+
+    @Override
+    public void writeLac(BookieId address, long ledgerId, byte[] masterKey, long lac, ByteBufList toSend,
+                         WriteLacCallback cb, Object ctx) {
+        toSend.release();
+        int rc = errorBookies.contains(address) ? BKException.Code.BookieHandleNotAvailableException
+                : BKException.Code.OK;
+        executor.executeOrdered(ledgerId, () -> cb.writeLacComplete(rc, ledgerId, address, ctx));
+    }
+
+    @Override
+    public void addEntry(BookieId address, long ledgerId, byte[] masterKey, long entryId,
+                         ReferenceCounted toSend, WriteCallback cb, Object ctx, int options,
+                         boolean allowFastFail, EnumSet<WriteFlag> writeFlags) {
+        numAdds.incrementAndGet();
+        final int rc;
+        if (errorBookies.contains(address)) {
+            rc = BKException.Code.BookieHandleNotAvailableException;
+        } else if (isFenced(address, ledgerId) && (options & BookieProtocol.FLAG_RECOVERY_ADD) == 0) {
+            rc = BKException.Code.LedgerFencedException;
+        } else {
+            ByteBuf entry = toSend instanceof ByteBufList
+                    ? ByteBufList.coalesce((ByteBufList) toSend) : ((ByteBuf) toSend).copy();
+            seedEntry(address, ledgerId, entryId, entry);
+            rc = BKException.Code.OK;
+        }
+        executor.executeOrdered(ledgerId, () -> cb.writeComplete(rc, ledgerId, entryId, address, ctx));
+    }
+
+    @Override
+    public void readEntry(BookieId address, long ledgerId, long entryId, ReadEntryCallback cb, Object ctx,
+                          int flags, byte[] masterKey, boolean allowFastFail) {
+        numReads.incrementAndGet();
+        maxReadsInFlight.accumulateAndGet(readsInFlight.incrementAndGet(), Math::max);
+        executor.executeOrdered(ledgerId, () -> {
+            readsInFlight.decrementAndGet();
+            if (errorBookies.contains(address)) {
+                cb.readEntryComplete(BKException.Code.BookieHandleNotAvailableException, ledgerId, entryId, null,
+                        ctx);
+                return;
+            }
+            if ((flags & BookieProtocol.FLAG_DO_FENCING) != 0) {
+                fencedLedgers.computeIfAbsent(address, k -> ConcurrentHashMap.newKeySet()).add(ledgerId);
+            }
+            NavigableMap<Long, ByteBuf> entries = entries(address, ledgerId);
+            Map.Entry<Long, ByteBuf> entry = entryId == BookieProtocol.LAST_ADD_CONFIRMED
+                    ? entries.lastEntry() : entries.ceilingEntry(entryId);
+            if (entry == null || (entryId != BookieProtocol.LAST_ADD_CONFIRMED && entry.getKey() != entryId)) {
+                cb.readEntryComplete(BKException.Code.NoSuchEntryException, ledgerId, entryId, null, ctx);
+                return;
+            }
+            ByteBuf buf = entry.getValue().retainedSlice();
+            try {
+                cb.readEntryComplete(BKException.Code.OK, ledgerId, entry.getKey(), buf, ctx);
+            } finally {
+                buf.release();
+            }
+        });
+    }
+
+    @Override
+    public void readEntryWaitForLACUpdate(BookieId address, long ledgerId, long entryId, long previousLAC,
+                                          long timeOutInMillis, boolean piggyBackEntry, ReadEntryCallback cb,
+                                          Object ctx) {
+        executor.executeOrdered(ledgerId,
+                () -> cb.readEntryComplete(BKException.Code.IllegalOpException, ledgerId, entryId, null, ctx));
+    }
+
+    @Override
+    public void getBookieInfo(BookieId address, long requested, GetBookieInfoCallback cb, Object ctx) {
+        executor.execute(() -> cb.getBookieInfoComplete(BKException.Code.IllegalOpException, null, ctx));
+    }
+
+    @Override
+    public CompletableFuture<AvailabilityOfEntriesOfLedger> getListOfEntriesOfLedger(BookieId address,
+                                                                                      long ledgerId) {
+        if (errorBookies.contains(address)) {
+            return FutureUtils.exception(new BKException.BKBookieHandleNotAvailableException());
+        }
+        long[] entryIds = entries(address, ledgerId).keySet().stream().mapToLong(Long::longValue).toArray();
+        return FutureUtils.value(new AvailabilityOfEntriesOfLedger(entryIds));
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        data.values().forEach(ledgers -> ledgers.values().forEach(entries -> entries.values()
+                .forEach(ByteBuf::release)));
+        data.clear();
+    }
+}
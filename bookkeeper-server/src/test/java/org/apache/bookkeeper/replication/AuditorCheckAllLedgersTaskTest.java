@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.replication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.apache.bookkeeper.client.AsyncCallback.OpenCallback;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.BookKeeper;
+import org.apache.bookkeeper.client.BookKeeperAdmin;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRange;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRangeIterator;
+import org.apache.bookkeeper.meta.LedgerUnderreplicationManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the checkpoints of {@link AuditorCheckAllLedgersTask#checkAllLedgers()}.
+ *
+ * <p>The ledgers 1 to 9 are listed in the ranges [1, 3], [4, 6] and [7, 9]. None of them exists anymore, so
+ * checking a ledger only opens it.
+ */
+public class AuditorCheckAllLedgersTaskTest {
+
+    private ServerConfiguration conf;
+    private LedgerManager ledgerManager;
+    private LedgerUnderreplicationManager underreplicationManager;
+    private BookKeeperAdmin admin;
+    private final List<Long> openedLedgers = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> checkpoints = new ArrayList<>();
+    private final AtomicBoolean replicationEnabled = new AtomicBoolean(true);
+    private volatile long checkpoint = -1L;
+    private volatile long failedLedgerId = -1L;
+    private volatile long disableReplicationAfterLedgerId = -1L;
+    private AuditorCheckAllLedgersTask task;
+
+    @Before
+    public void setup() throws Exception {
+        conf = TestBKConfiguration.newServerConfiguration();
+        conf.setAuditorLedgerCheckerThreads(3);
+
+        ledgerManager = mock(LedgerManager.class);
+        when(ledgerManager.getLedgerRanges(anyLong())).thenAnswer(invocation -> ledgerRanges());
+
+        underreplicationManager = mock(LedgerUnderreplicationManager.class);
+        when(underreplicationManager.isLedgerReplicationEnabled()).thenAnswer(invocation -> replicationEnabled.get());
+        when(underreplicationManager.getCheckAllLedgersCheckpoint()).thenAnswer(invocation -> checkpoint);
+        doAnswer(invocation -> {
+            checkpoint = invocation.getArgument(0);
+            checkpoints.add(checkpoint);
+            return null;
+        }).when(underreplicationManager).setCheckAllLedgersCheckpoint(anyLong());
+        doAnswer(invocation -> {
+            checkpoint = -1L;
+            return null;
+        }).when(underreplicationManager).setCheckAllLedgersCTime(anyLong());
+
+        admin = mock(BookKeeperAdmin.class);
+        doAnswer(invocation -> {
+            long ledgerId = invocation.getArgument(0);
+            OpenCallback cb = invocation.getArgument(1);
+            openedLedgers.add(ledgerId);
+            if (ledgerId == disableReplicationAfterLedgerId) {
+                replicationEnabled.set(false);
+            }
+            cb.openComplete(ledgerId == failedLedgerId ? BKException.Code.BookieHandleNotAvailableException
+                    : BKException.Code.NoSuchLedgerExistsOnMetadataServerException, null, invocation.getArgument(2));
+            return null;
+        }).when(admin).asyncOpenLedgerNoRecovery(anyLong(), any(), any());
+
+        task = new AuditorCheckAllLedgersTask(conf, new AuditorStats(NullStatsLogger.INSTANCE), admin, ledgerManager,
+                underreplicationManager, null, (flag, throwable) -> flag.set(false)) {
+            @Override
+            BookKeeper getBookKeeper(ServerConfiguration conf) {
+                return mock(BookKeeper.class);
+            }
+
+            @Override
+            BookKeeperAdmin getBookKeeperAdmin(BookKeeper bookKeeper) {
+                return admin;
+            }
+        };
+    }
+
+    @After
+    public void teardown() {
+        task.shutdown();
+    }
+
+    private static LedgerRangeIterator ledgerRanges() {
+        Iterator<LedgerRange> ranges = Arrays.asList(
+                new LedgerRange(new HashSet<>(Arrays.asList(1L, 2L, 3L))),
+                new LedgerRange(new HashSet<>(Arrays.asList(4L, 5L, 6L))),
+                new LedgerRange(new HashSet<>(Arrays.asList(7L, 8L, 9L)))).iterator();
+        return new LedgerRangeIterator() {
+            @Override
+            public boolean hasNext() {
+                return ranges.hasNext();
+            }
+
+            @Override
+            public LedgerRange next() {
+                return ranges.next();
+            }
+        };
+    }
+
+    private static List<Long> ledgers(long first, long last) {
+        return LongStream.rangeClosed(first, last).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testEveryRangeIsCheckpointed() throws Exception {
+        task.checkAllLedgers();
+        assertEquals(ledgers(1L, 9L), openedLedgers);
+        assertEquals(Arrays.asList(3L, 6L, 9L), checkpoints);
+        verify(underreplicationManager, times(1)).setCheckAllLedgersCTime(anyLong());
+        assertEquals(-1L, checkpoint);
+    }
+
+    @Test
+    public void testCheckResumesAfterTheCheckpoint() throws Exception {
+        checkpoint = 6L;
+        task.checkAllLedgers();
+        assertEquals(ledgers(7L, 9L), openedLedgers);
+        assertEquals(Collections.singletonList(9L), checkpoints);
+        verify(underreplicationManager, times(1)).setCheckAllLedgersCTime(anyLong());
+    }
+
+    @Test
+    public void testAbortedCheckKeepsItsCheckpoint() throws Exception {
+        disableReplicationAfterLedgerId = 4L;
+        task.checkAllLedgers();
+        assertEquals(ledgers(1L, 4L), openedLedgers);
+        assertEquals(3L, checkpoint);
+        verify(underreplicationManager, never()).setCheckAllLedgersCTime(anyLong());
+
+        // the next check resumes after the ledgers already checked
+        openedLedgers.clear();
+        disableReplicationAfterLedgerId = -1L;
+        replicationEnabled.set(true);
+        task.checkAllLedgers();
+        assertEquals(ledgers(4L, 9L), openedLedgers);
+        assertEquals(-1L, checkpoint);
+    }
+
+    @Test
+    public void testFailedRangeIsNotCheckpointed() throws Exception {
+        failedLedgerId = 5L;
+        try {
+            task.checkAllLedgers();
+            fail("The check of the ledger 5 failed");
+        } catch (BKException bke) {
+            // expected
+        }
+        // the ledgers after the failed range are checked, but the checkpoint doesn't go past the failure
+        assertEquals(ledgers(1L, 9L), openedLedgers);
+        assertEquals(3L, checkpoint);
+        verify(underreplicationManager, never()).setCheckAllLedgersCTime(anyLong());
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.replication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.LedgerMetadataBuilder;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.Processor;
+import org.apache.bookkeeper.replication.ReplicationException.BKAuditException;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.apache.zookeeper.AsyncCallback;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link IncrementalBookieLedgerIndexer}.
+ *
+ * <p>As the ledger managers do, a registered listener is notified of the current metadata of the ledger.
+ */
+public class IncrementalBookieLedgerIndexerTest {
+
+    private LedgerManager ledgerManager;
+    private final Map<Long, LedgerMetadata> ledgers = new TreeMap<>();
+    private final Map<Long, LedgerMetadataListener> listeners = new ConcurrentHashMap<>();
+    private IncrementalBookieLedgerIndexer indexer;
+
+    @Before
+    public void setup() {
+        ledgerManager = mock(LedgerManager.class);
+        doAnswer(invocation -> {
+            Processor<Long> processor = invocation.getArgument(0);
+            AsyncCallback.VoidCallback finalCb = invocation.getArgument(1);
+            List<Long> ledgerIds = new ArrayList<>(ledgers.keySet());
+            AtomicInteger remaining = new AtomicInteger(ledgerIds.size() + 1);
+            AsyncCallback.VoidCallback processed = (rc, path, ctx) -> {
+                if (remaining.decrementAndGet() == 0) {
+                    finalCb.processResult(BKException.Code.OK, null, null);
+                }
+            };
+            for (long ledgerId : ledgerIds) {
+                processor.process(ledgerId, processed);
+            }
+            processed.processResult(BKException.Code.OK, null, null);
+            return null;
+        }).when(ledgerManager).asyncProcessLedgers(any(), any(), any(), anyInt(), anyInt());
+        doAnswer(invocation -> {
+            long ledgerId = invocation.getArgument(0);
+            LedgerMetadataListener listener = invocation.getArgument(1);
+            listeners.put(ledgerId, listener);
+            notifyChange(ledgerId);
+            return null;
+        }).when(ledgerManager).registerLedgerMetadataListener(anyLong(), any());
+        doAnswer(invocation -> {
+            listeners.remove(invocation.<Long>getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(ledgerManager).unregisterLedgerMetadataListener(anyLong(), any());
+
+        indexer = new IncrementalBookieLedgerIndexer(ledgerManager);
+    }
+
+    private static LedgerMetadata metadata(long ledgerId, String... bookies) {
+        List<BookieId> ensemble = Arrays.stream(bookies).map(BookieId::parse).collect(Collectors.toList());
+        return LedgerMetadataBuilder.create()
+                .withId(ledgerId)
+                .withEnsembleSize(ensemble.size()).withWriteQuorumSize(ensemble.size())
+                .withAckQuorumSize(ensemble.size())
+                .withPassword(new byte[0])
+                .withDigestType(DigestType.CRC32C)
+                .newEnsembleEntry(0L, ensemble)
+                .build();
+    }
+
+    private void notifyChange(long ledgerId) {
+        LedgerMetadata metadata = ledgers.get(ledgerId);
+        listeners.get(ledgerId).onChanged(ledgerId,
+                metadata == null ? null : new Versioned<>(metadata, new LongVersion(0L)));
+    }
+
+    private static Map<String, Set<Long>> index(Object... bookiesAndLedgers) {
+        Map<String, Set<Long>> index = new HashMap<>();
+        for (int i = 0; i < bookiesAndLedgers.length; i += 2) {
+            index.put((String) bookiesAndLedgers[i],
+                    new HashSet<>(Arrays.asList((Long[]) bookiesAndLedgers[i + 1])));
+        }
+        return index;
+    }
+
+    private Map<String, Set<Long>> getIndex() throws Exception {
+        return new HashMap<>(indexer.getBookieToLedgerIndex());
+    }
+
+    @Test
+    public void testFirstIndexWatchesEveryLedger() throws Exception {
+        ledgers.put(1L, metadata(1L, "bookie1:3181", "bookie2:3181"));
+        ledgers.put(2L, metadata(2L, "bookie2:3181", "bookie3:3181"));
+
+        assertEquals(index("bookie1:3181", new Long[] {1L},
+                "bookie2:3181", new Long[] {1L, 2L},
+                "bookie3:3181", new Long[] {2L}), getIndex());
+        assertEquals(ledgers.keySet(), listeners.keySet());
+    }
+
+    @Test
+    public void testOnlyTheNewLedgersAreWatched() throws Exception {
+        ledgers.put(1L, metadata(1L, "bookie1:3181"));
+        getIndex();
+
+        ledgers.put(2L, metadata(2L, "bookie1:3181"));
+        assertEquals(index("bookie1:3181", new Long[] {1L, 2L}), getIndex());
+        verify(ledgerManager, times(1)).registerLedgerMetadataListener(eq(1L), any());
+        verify(ledgerManager, times(1)).registerLedgerMetadataListener(eq(2L), any());
+    }
+
+    @Test
+    public void testMetadataChangesUpdateTheIndex() throws Exception {
+        ledgers.put(1L, metadata(1L, "bookie1:3181", "bookie2:3181"));
+        ledgers.put(2L, metadata(2L, "bookie1:3181"));
+        Map<String, Set<Long>> liveIndex = indexer.getBookieToLedgerIndex();
+
+        // the ledger 1 was replicated from bookie1 to bookie3
+        ledgers.put(1L, metadata(1L, "bookie3:3181", "bookie2:3181"));
+        notifyChange(1L);
+        Map<String, Set<Long>> expected = index("bookie1:3181", new Long[] {2L},
+                "bookie2:3181", new Long[] {1L},
+                "bookie3:3181", new Long[] {1L});
+        assertEquals(expected, new HashMap<>(liveIndex));
+        assertEquals(expected, getIndex());
+    }
+
+    @Test
+    public void testDeletedLedgersAreRemovedFromTheIndex() throws Exception {
+        ledgers.put(1L, metadata(1L, "bookie1:3181", "bookie2:3181"));
+        ledgers.put(2L, metadata(2L, "bookie1:3181"));
+        getIndex();
+
+        ledgers.remove(1L);
+        notifyChange(1L);
+        // bookie2 has no ledgers anymore
+        assertEquals(index("bookie1:3181", new Long[] {2L}), getIndex());
+    }
+
+    @Test
+    public void testCloseStopsWatchingTheLedgers() throws Exception {
+        ledgers.put(1L, metadata(1L, "bookie1:3181"));
+        ledgers.put(2L, metadata(2L, "bookie2:3181"));
+        getIndex();
+
+        indexer.close();
+        assertTrue(listeners.isEmpty());
+        try {
+            indexer.getBookieToLedgerIndex();
+            fail("A closed index shouldn't be returned");
+        } catch (BKAuditException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.replication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.BookKeeper;
+import org.apache.bookkeeper.client.BookKeeperAdmin;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.meta.LedgerManagerFactory;
+import org.apache.bookkeeper.meta.LedgerUnderreplicationManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedConstruction;
+
+/**
+ * Unit tests of the concurrent replication of the under replicated ledgers by {@link ReplicationWorker}.
+ *
+ * <p>None of the ledgers exists anymore, so replicating a ledger only marks it as replicated.
+ */
+public class ReplicationWorkerTest {
+
+    private ServerConfiguration conf;
+    private BookKeeper bkc;
+    private LedgerUnderreplicationManager underreplicationManager;
+    private final LinkedBlockingQueue<Long> ledgersToReplicate = new LinkedBlockingQueue<>();
+    private MockedConstruction<BookKeeperAdmin> adminConstruction;
+    private ReplicationWorker worker;
+
+    @Before
+    public void setup() throws Exception {
+        conf = TestBKConfiguration.newServerConfiguration();
+        conf.setRwRereplicateConcurrentLedgers(2);
+
+        underreplicationManager = mock(LedgerUnderreplicationManager.class);
+        // waits for a ledger to replicate, as when waiting for the under replicated ledgers to change
+        when(underreplicationManager.getLedgerToRereplicate()).thenAnswer(invocation -> ledgersToReplicate.take());
+        LedgerManagerFactory ledgerManagerFactory = mock(LedgerManagerFactory.class);
+        when(ledgerManagerFactory.newLedgerUnderreplicationManager()).thenReturn(underreplicationManager);
+        when(ledgerManagerFactory.newLedgerManager()).thenReturn(mock(LedgerManager.class));
+        bkc = mock(BookKeeper.class);
+        when(bkc.getLedgerManagerFactory()).thenReturn(ledgerManagerFactory);
+
+        adminConstruction = mockConstruction(BookKeeperAdmin.class, (admin, context) ->
+                when(admin.openLedgerNoRecovery(anyLong()))
+                        .thenThrow(new BKException.BKNoSuchLedgerExistsOnMetadataServerException()));
+    }
+
+    @After
+    public void teardown() {
+        if (worker != null) {
+            worker.shutdown();
+        }
+        adminConstruction.close();
+    }
+
+    private void startWorker() throws Exception {
+        worker = new ReplicationWorker(conf, bkc, false, NullStatsLogger.INSTANCE);
+        worker.start();
+    }
+
+    @Test
+    public void testLedgersAreReplicatedConcurrently() throws Exception {
+        // the first ledgers are only replicated once both are being replicated
+        CountDownLatch bothReplicating = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            bothReplicating.countDown();
+            assertTrue(bothReplicating.await(10, TimeUnit.SECONDS));
+            return null;
+        }).when(underreplicationManager).markLedgerReplicated(anyLong());
+        startWorker();
+        ledgersToReplicate.add(1L);
+        ledgersToReplicate.add(2L);
+
+        verify(underreplicationManager, timeout(10000)).markLedgerReplicated(1L);
+        verify(underreplicationManager, timeout(10000)).markLedgerReplicated(2L);
+        verify(underreplicationManager, timeout(10000)).releaseUnderreplicatedLedger(1L);
+        verify(underreplicationManager, timeout(10000)).releaseUnderreplicatedLedger(2L);
+        assertTrue(worker.isRunning());
+    }
+
+    @Test
+    public void testFatalErrorOfALedgerShutsTheWorkerDown() throws Exception {
+        doThrow(new ReplicationException.NonRecoverableReplicationException("fatal"))
+                .when(underreplicationManager).markLedgerReplicated(1L);
+        LinkedBlockingQueue<String> closingThreads = new LinkedBlockingQueue<>();
+        doAnswer(invocation -> {
+            closingThreads.add(Thread.currentThread().getName());
+            return null;
+        }).when(underreplicationManager).close();
+        startWorker();
+        ledgersToReplicate.add(1L);
+
+        // the worker thread shuts the worker down, rather than the thread which replicated the ledger
+        assertEquals("ReplicationWorker", closingThreads.poll(10, TimeUnit.SECONDS));
+        assertFalse(worker.isRunning());
+    }
+}
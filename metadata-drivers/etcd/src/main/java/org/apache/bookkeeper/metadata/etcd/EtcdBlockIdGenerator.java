@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.metadata.etcd;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.etcd.jetcd.ByteSequence;
+import io.etcd.jetcd.KV;
+import io.etcd.jetcd.KeyValue;
+import io.etcd.jetcd.op.Cmp;
+import io.etcd.jetcd.op.CmpTarget;
+import io.etcd.jetcd.options.PutOption;
+import java.io.IOException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.client.BKException.Code;
+import org.apache.bookkeeper.meta.BlockLedgerIdGenerator;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
+
+/**
+ * Generate ledger ids from blocks reserved in etcd.
+ *
+ * <p>The first id of the next block to reserve is stored in the `${scope}/buckets/block` key, and a
+ * block is reserved with a single transaction conditioned on the mod revision of this key.
+ *
+ * <p>The blocks are reserved in the upper half of the first bucket of the {@link Etcd64bitIdGenerator}.
+ * The {@link Etcd64bitIdGenerator} generates the ids of a bucket from the version of its key, which
+ * can't reach this range, so clients with and without blocks can share the same metadata store.
+ */
+@Slf4j
+class EtcdBlockIdGenerator extends BlockLedgerIdGenerator {
+
+    static final long FIRST_BLOCK_ID = (Etcd64bitIdGenerator.MAX_ID_PER_BUCKET >>> 1) + 1;
+    static final long BLOCK_ID_LIMIT = Etcd64bitIdGenerator.MAX_ID_PER_BUCKET + 1;
+
+    private final KV kvClient;
+    private final ByteSequence blockKey;
+
+    EtcdBlockIdGenerator(KV kvClient, String scope, int blockSize) {
+        super(blockSize, BLOCK_ID_LIMIT);
+        this.kvClient = kvClient;
+        this.blockKey = ByteSequence.from(EtcdUtils.getIdBlockPath(scope), UTF_8);
+    }
+
+    @Override
+    protected void reserveBlock(int blockSize, GenericCallback<Long> cb) {
+        kvClient.get(blockKey)
+            .thenAccept(getResp -> {
+                if (getResp.getCount() <= 0) {
+                    createBlockKey(blockSize, cb);
+                    return;
+                }
+                KeyValue kv = getResp.getKvs().get(0);
+                long firstLedgerId = Long.parseLong(kv.getValue().toString(UTF_8));
+                ByteSequence nextBlockStart =
+                    ByteSequence.from(Long.toString(nextBlockStart(firstLedgerId, blockSize)), UTF_8);
+                kvClient.txn()
+                    .If(new Cmp(blockKey, Cmp.Op.EQUAL, CmpTarget.modRevision(kv.getModRevision())))
+                    .Then(io.etcd.jetcd.op.Op.put(blockKey, nextBlockStart, PutOption.DEFAULT))
+                    .commit()
+                    .thenAccept(txnResp -> {
+                        if (txnResp.isSucceeded()) {
+                            cb.operationComplete(Code.OK, firstLedgerId);
+                        } else {
+                            // another client reserved the block first, try the next one
+                            reserveBlock(blockSize, cb);
+                        }
+                    })
+                    .exceptionally(cause -> {
+                        log.error("Failed to reserve a block of ledger ids", cause);
+                        cb.operationComplete(Code.MetaStoreException, null);
+                        return null;
+                    });
+            })
+            .exceptionally(cause -> {
+                log.error("Failed to read the next block of ledger ids", cause);
+                cb.operationComplete(Code.MetaStoreException, null);
+                return null;
+            });
+    }
+
+    private void createBlockKey(int blockSize, GenericCallback<Long> cb) {
+        ByteSequence nextBlockStart =
+            ByteSequence.from(Long.toString(nextBlockStart(FIRST_BLOCK_ID, blockSize)), UTF_8);
+        kvClient.txn()
+            .If(new Cmp(blockKey, Cmp.Op.EQUAL, CmpTarget.createRevision(0)))
+            .Then(io.etcd.jetcd.op.Op.put(blockKey, nextBlockStart, PutOption.DEFAULT))
+            .commit()
+            .thenAccept(txnResp -> {
+                if (txnResp.isSucceeded()) {
+                    log.info("Created ledger id block key, starting at ledger id {}", FIRST_BLOCK_ID);
+                    cb.operationComplete(Code.OK, FIRST_BLOCK_ID);
+                } else {
+                    // created concurrently by another client
+                    reserveBlock(blockSize, cb);
+                }
+            })
+            .exceptionally(cause -> {
+                log.error("Failed to create the ledger id block key", cause);
+                cb.operationComplete(Code.MetaStoreException, null);
+                return null;
+            });
+    }
+
+    @Override
+    public void close() throws IOException {
+        // no-op
+    }
+}
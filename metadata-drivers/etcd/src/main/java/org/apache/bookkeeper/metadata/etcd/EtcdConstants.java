@@ -33,6 +33,7 @@ final class EtcdConstants {
     public static final String COOKIES_NODE = "cookies";
     public static final String LEDGERS_NODE = "ledgers";
     public static final String BUCKETS_NODE = "buckets";
+    public static final String ID_BLOCK_NODE = "block";
 
     //
     // membership related constants
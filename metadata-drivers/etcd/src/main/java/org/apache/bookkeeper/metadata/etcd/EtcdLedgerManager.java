@@ -18,6 +18,8 @@
  */
 package org.apache.bookkeeper.metadata.etcd;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import io.etcd.jetcd.ByteSequence;
 import io.etcd.jetcd.Client;
@@ -33,7 +35,10 @@ import io.etcd.jetcd.options.GetOption;
 import io.etcd.jetcd.options.PutOption;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -44,6 +49,7 @@ import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.meta.LedgerManager;
 import org.apache.bookkeeper.meta.LedgerMetadataSerDe;
 import org.apache.bookkeeper.metadata.etcd.helpers.KeyIterator;
@@ -63,6 +69,9 @@ import org.apache.zookeeper.AsyncCallback.VoidCallback;
 @Slf4j
 class EtcdLedgerManager implements LedgerManager {
 
+    // max number of ledgers read or removed by a single transaction
+    private static final int MAX_LEDGERS_PER_TXN = 128;
+
     private final LedgerMetadataSerDe serDe = new LedgerMetadataSerDe();
 
     private final String scope;
@@ -209,6 +218,67 @@ class EtcdLedgerManager implements LedgerManager {
         return promise;
     }
 
+    /**
+     * Remove the metadata of the ledgers with a transaction per batch of ledgers. A transaction is
+     * atomic, so when it fails because a ledger has another version, the ledgers of its batch are
+     * removed one by one.
+     */
+    @Override
+    public CompletableFuture<Void> removeLedgersMetadata(Map<Long, Version> ledgers) {
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (List<Long> batch : Iterables.partition(ledgers.keySet(), MAX_LEDGERS_PER_TXN)) {
+            batches.add(removeLedgersMetadataBatch(batch, ledgers));
+        }
+        return FutureUtils.collect(batches).thenApply(ignored -> null);
+    }
+
+    private CompletableFuture<Void> removeLedgersMetadataBatch(List<Long> ledgerIds, Map<Long, Version> versions) {
+        CompletableFuture<Void> promise = new CompletableFuture<>();
+        List<Cmp> cmps = new ArrayList<>();
+        List<io.etcd.jetcd.op.Op> deletes = new ArrayList<>(ledgerIds.size());
+        for (long ledgerId : ledgerIds) {
+            Version version = versions.get(ledgerId);
+            if (Version.NEW == version || (Version.ANY != version && !(version instanceof LongVersion))) {
+                log.error("Invalid version {} to delete ledger {} metadata", version, ledgerId);
+                promise.completeExceptionally(new BKException.BKMetadataVersionException());
+                return promise;
+            }
+            ByteSequence ledgerKeyBs = ByteSequence.from(EtcdUtils.getLedgerKey(scope, ledgerId),
+                StandardCharsets.UTF_8);
+            if (Version.ANY != version) {
+                cmps.add(new Cmp(
+                    ledgerKeyBs,
+                    Cmp.Op.EQUAL,
+                    CmpTarget.modRevision(((LongVersion) version).getLongVersion())));
+            }
+            deletes.add(io.etcd.jetcd.op.Op.delete(ledgerKeyBs, DeleteOption.DEFAULT));
+        }
+        kvClient.txn()
+            .If(cmps.toArray(new Cmp[0]))
+            .Then(deletes.toArray(new io.etcd.jetcd.op.Op[0]))
+            .commit()
+            .thenAccept(txnResp -> {
+                if (txnResp.isSucceeded()) {
+                    promise.complete(null);
+                } else {
+                    FutureUtils.proxyTo(removeLedgersMetadataOneByOne(ledgerIds, versions), promise);
+                }
+            })
+            .exceptionally(cause -> {
+                    promise.completeExceptionally(new BKException.MetaStoreException());
+                    return null;
+                });
+        return promise;
+    }
+
+    private CompletableFuture<Void> removeLedgersMetadataOneByOne(List<Long> ledgerIds, Map<Long, Version> versions) {
+        Map<Long, Version> ledgers = Maps.newHashMapWithExpectedSize(ledgerIds.size());
+        for (long ledgerId : ledgerIds) {
+            ledgers.put(ledgerId, versions.get(ledgerId));
+        }
+        return LedgerManager.super.removeLedgersMetadata(ledgers);
+    }
+
     @Override
     public CompletableFuture<Versioned<LedgerMetadata>> readLedgerMetadata(long ledgerId) {
         CompletableFuture<Versioned<LedgerMetadata>> promise = new CompletableFuture<>();
@@ -239,6 +309,59 @@ class EtcdLedgerManager implements LedgerManager {
         return promise;
     }
 
+    /**
+     * Read the metadata of the ledgers with a transaction per batch of ledgers.
+     */
+    @Override
+    public CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> readLedgersMetadata(Collection<Long> ledgerIds) {
+        Map<Long, Versioned<LedgerMetadata>> ledgers = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (List<Long> batch : Iterables.partition(ledgerIds, MAX_LEDGERS_PER_TXN)) {
+            batches.add(readLedgersMetadataBatch(batch, ledgers));
+        }
+        return FutureUtils.collect(batches).thenApply(ignored -> ledgers);
+    }
+
+    private CompletableFuture<Void> readLedgersMetadataBatch(List<Long> ledgerIds,
+                                                             Map<Long, Versioned<LedgerMetadata>> ledgers) {
+        CompletableFuture<Void> promise = new CompletableFuture<>();
+        io.etcd.jetcd.op.Op[] gets = new io.etcd.jetcd.op.Op[ledgerIds.size()];
+        for (int i = 0; i < gets.length; i++) {
+            gets[i] = io.etcd.jetcd.op.Op.get(
+                ByteSequence.from(EtcdUtils.getLedgerKey(scope, ledgerIds.get(i)), StandardCharsets.UTF_8),
+                GetOption.DEFAULT);
+        }
+        kvClient.txn()
+            .Then(gets)
+            .commit()
+            .thenAccept(txnResp -> {
+                List<GetResponse> getResps = txnResp.getGetResponses();
+                for (int i = 0; i < getResps.size(); i++) {
+                    GetResponse getResp = getResps.get(i);
+                    if (getResp.getCount() <= 0) {
+                        continue;
+                    }
+                    long ledgerId = ledgerIds.get(i);
+                    KeyValue kv = getResp.getKvs().get(0);
+                    try {
+                        LedgerMetadata metadata = serDe.parseConfig(kv.getValue().getBytes(), ledgerId,
+                            Optional.empty());
+                        ledgers.put(ledgerId, new Versioned<>(metadata, new LongVersion(kv.getModRevision())));
+                    } catch (IOException ioe) {
+                        log.error("Could not parse ledger metadata for ledger : {}", ledgerId, ioe);
+                        promise.completeExceptionally(new BKException.MetaStoreException());
+                        return;
+                    }
+                }
+                promise.complete(null);
+            })
+            .exceptionally(cause -> {
+                    promise.completeExceptionally(new BKException.MetaStoreException());
+                    return null;
+                });
+        return promise;
+    }
+
     @Override
     public CompletableFuture<Versioned<LedgerMetadata>> writeLedgerMetadata(long ledgerId, LedgerMetadata metadata,
                                                                             Version currentVersion) {
@@ -44,6 +44,7 @@ class EtcdLedgerManagerFactory implements LedgerManagerFactory {
 
     private String scope;
     private Client client;
+    private int ledgerIdBlockSize;
 
     @Override
     public int getCurrentVersion() {
@@ -68,6 +69,7 @@ class EtcdLedgerManagerFactory implements LedgerManagerFactory {
             throw new IOException("Invalid metadata service uri", e);
         }
         this.client = etcdLayoutManager.getClient();
+        this.ledgerIdBlockSize = conf.getLedgerIdBlockSize();
         return this;
     }
 
@@ -79,7 +81,10 @@ class EtcdLedgerManagerFactory implements LedgerManagerFactory {
 
     @Override
     public LedgerIdGenerator newLedgerIdGenerator() {
-        return new Etcd64bitIdGenerator(client.getKVClient(), scope);
+        if (ledgerIdBlockSize <= 0) {
+            return new Etcd64bitIdGenerator(client.getKVClient(), scope);
+        }
+        return new EtcdBlockIdGenerator(client.getKVClient(), scope, ledgerIdBlockSize);
     }
 
     @Override
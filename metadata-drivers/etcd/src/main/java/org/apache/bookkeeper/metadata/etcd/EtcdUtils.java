@@ -21,6 +21,7 @@ package org.apache.bookkeeper.metadata.etcd;
 import static org.apache.bookkeeper.metadata.etcd.EtcdConstants.BUCKETS_NODE;
 import static org.apache.bookkeeper.metadata.etcd.EtcdConstants.COOKIES_NODE;
 import static org.apache.bookkeeper.metadata.etcd.EtcdConstants.END_SEP;
+import static org.apache.bookkeeper.metadata.etcd.EtcdConstants.ID_BLOCK_NODE;
 import static org.apache.bookkeeper.metadata.etcd.EtcdConstants.INSTANCEID_NODE;
 import static org.apache.bookkeeper.metadata.etcd.EtcdConstants.LAYOUT_NODE;
 import static org.apache.bookkeeper.metadata.etcd.EtcdConstants.LEDGERS_NODE;
@@ -62,6 +63,13 @@ final class EtcdUtils {
             bucket);
     }
 
+    static String getIdBlockPath(String scope) {
+        return String.format("%s/%s/%s",
+            scope,
+            BUCKETS_NODE,
+            ID_BLOCK_NODE);
+    }
+
     static String getLayoutKey(String scope) {
         return String.format("%s/%s", scope, LAYOUT_NODE);
     }
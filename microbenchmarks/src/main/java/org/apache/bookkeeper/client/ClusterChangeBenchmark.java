@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.feature.SettableFeatureProvider;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.DNSToSwitchMapping;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Microbenchmarks of the topology update of the rack aware placement policy when a bookie restarts,
+ * i.e. leaves and joins the cluster again, as during a rolling restart of a large cluster.
+ *
+ * <p>The full update compares the new writable bookies with the known bookies, while the incremental
+ * update applies the bookies which joined and left, as notified by the registration client.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class ClusterChangeBenchmark {
+
+    private static final int NUM_RACKS = 50;
+
+    /**
+     * State holder of the test.
+     */
+    @State(Scope.Thread)
+    public static class TestState {
+
+        @Param({"100", "1000", "5000"})
+        private int numBookies;
+
+        private RackawareEnsemblePlacementPolicy policy;
+        private List<BookieId> bookies;
+        private Set<BookieId> writableBookies;
+        private final Set<BookieId> readOnlyBookies = Collections.emptySet();
+        private int next = 0;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            bookies = new ArrayList<>(numBookies);
+            for (int i = 0; i < numBookies; i++) {
+                bookies.add(BookieId.parse(String.format("10.0.%d.%d:3181", i / 256, i % 256)));
+            }
+            writableBookies = new HashSet<>(bookies);
+
+            policy = new RackawareEnsemblePlacementPolicy();
+            policy.initialize(new ClientConfiguration(), Optional.of(new StaticRackMapping()), null,
+                    SettableFeatureProvider.DISABLE_ALL, NullStatsLogger.INSTANCE,
+                    new BookieAddressResolverDisabled());
+            policy.onClusterChanged(writableBookies, readOnlyBookies);
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            policy.uninitalize();
+        }
+
+        BookieId nextBookie() {
+            BookieId bookie = bookies.get(next);
+            next = (next + 1) % bookies.size();
+            return bookie;
+        }
+    }
+
+    /**
+     * Maps the bookies to a fixed rack, without any DNS resolution.
+     */
+    static class StaticRackMapping implements DNSToSwitchMapping {
+
+        @Override
+        public List<String> resolve(List<String> names) {
+            return names.stream()
+                    .map(name -> "/rack-" + Math.floorMod(name.hashCode(), NUM_RACKS))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public void reloadCachedMappings() {
+        }
+    }
+
+    @Benchmark
+    public void fullClusterChange(TestState s, Blackhole bh) {
+        BookieId bookie = s.nextBookie();
+        s.writableBookies.remove(bookie);
+        bh.consume(s.policy.onClusterChanged(s.writableBookies, s.readOnlyBookies));
+        s.writableBookies.add(bookie);
+        bh.consume(s.policy.onClusterChanged(s.writableBookies, s.readOnlyBookies));
+    }
+
+    @Benchmark
+    public void incrementalClusterChange(TestState s, Blackhole bh) {
+        BookieId bookie = s.nextBookie();
+        Set<BookieId> changed = Collections.singleton(bookie);
+        s.writableBookies.remove(bookie);
+        bh.consume(s.policy.onClusterChanged(s.writableBookies, s.readOnlyBookies,
+                Collections.emptySet(), changed));
+        s.writableBookies.add(bookie);
+        bh.consume(s.policy.onClusterChanged(s.writableBookies, s.readOnlyBookies,
+                changed, Collections.emptySet()));
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCounted;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.AsyncCallback.AddCallback;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteLacCallback;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks for the {@link LedgerHandle} add path with many producers sharing one ledger.
+ *
+ * <p>Bookie responses are simulated by a {@link BookieClient} which acks every write on the
+ * ordered executor of the ledger, exactly like the netty client does, so the benchmark measures
+ * entry id assignment, pending add queue handling and callback ordering without network I/O.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class LedgerHandleAddBenchmark {
+
+    private static final long LEDGER_ID = 1L;
+    private static final int MAX_OUTSTANDING_ADDS = 10_000;
+
+    /**
+     * State holder of the test.
+     */
+    @State(Scope.Benchmark)
+    public static class TestState {
+
+        private OrderedExecutor mainWorkerPool;
+        private OrderedScheduler scheduler;
+        private LedgerHandle lh;
+        private final Semaphore outstanding = new Semaphore(MAX_OUTSTANDING_ADDS);
+        private final ByteBuf payload = Unpooled.wrappedBuffer(new byte[100]);
+
+        private final AddCallback callback = new AddCallback() {
+            @Override
+            public void addComplete(int rc, LedgerHandle lh, long entryId, Object ctx) {
+                outstanding.release();
+            }
+        };
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            mainWorkerPool = OrderedExecutor.newBuilder().name("benchmark-worker").numThreads(1).build();
+            scheduler = OrderedScheduler.newSchedulerBuilder().name("benchmark-scheduler").numThreads(1).build();
+
+            List<BookieId> ensemble = Arrays.asList(
+                    BookieId.parse("bookie-1:3181"),
+                    BookieId.parse("bookie-2:3181"),
+                    BookieId.parse("bookie-3:3181"));
+            LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                    .withId(LEDGER_ID)
+                    .withEnsembleSize(3).withWriteQuorumSize(3).withAckQuorumSize(2)
+                    .withPassword(new byte[0])
+                    .withDigestType(DigestType.CRC32C)
+                    .newEnsembleEntry(0L, ensemble)
+                    .build();
+
+            // the default add throttling would cap every run at the same rate
+            ClientConfiguration conf = new ClientConfiguration().setThrottleValue(0);
+            ClientContext clientCtx = new BenchmarkClientContext(ClientInternalConf.fromConfig(conf),
+                    new AckingBookieClient(mainWorkerPool), mainWorkerPool, scheduler);
+            lh = new LedgerHandle(clientCtx, LEDGER_ID, new Versioned<>(metadata, new LongVersion(0L)),
+                    BookKeeper.DigestType.CRC32C, new byte[0], EnumSet.noneOf(WriteFlag.class));
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() throws Exception {
+            outstanding.acquire(MAX_OUTSTANDING_ADDS);
+            mainWorkerPool.shutdown();
+            scheduler.shutdown();
+        }
+
+        void addEntry() throws InterruptedException {
+            outstanding.acquire();
+            lh.asyncAddEntry(payload.retainedSlice(), callback, null);
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void asyncAddEntry(TestState s) throws Exception {
+        s.addEntry();
+    }
+
+    @Benchmark
+    @Group("addWithReaders")
+    @GroupThreads(8)
+    public void addWithReadersAdd(TestState s) throws Exception {
+        s.addEntry();
+    }
+
+    @Benchmark
+    @Group("addWithReaders")
+    @GroupThreads(8)
+    public long addWithReadersGetLastAddConfirmed(TestState s) {
+        return s.lh.getLastAddConfirmed() + s.lh.getLastAddPushed() + s.lh.getLength();
+    }
+
+    private static class BenchmarkClientContext implements ClientContext {
+        private final ClientInternalConf conf;
+        private final BookieClient bookieClient;
+        private final OrderedExecutor mainWorkerPool;
+        private final OrderedScheduler scheduler;
+        private final BookKeeperClientStats clientStats =
+                BookKeeperClientStats.newInstance(NullStatsLogger.INSTANCE);
+
+        BenchmarkClientContext(ClientInternalConf conf, BookieClient bookieClient,
+                               OrderedExecutor mainWorkerPool, OrderedScheduler scheduler) {
+            this.conf = conf;
+            this.bookieClient = bookieClient;
+            this.mainWorkerPool = mainWorkerPool;
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public ClientInternalConf getConf() {
+            return conf;
+        }
+
+        @Override
+        public LedgerManager getLedgerManager() {
+            return null;
+        }
+
+        @Override
+        public BookieWatcher getBookieWatcher() {
+            return null;
+        }
+
+        @Override
+        public EnsemblePlacementPolicy getPlacementPolicy() {
+            return null;
+        }
+
+        @Override
+        public BookieClient getBookieClient() {
+            return bookieClient;
+        }
+
+        @Override
+        public ByteBufAllocator getByteBufAllocator() {
+            return PooledByteBufAllocator.DEFAULT;
+        }
+
+        @Override
+        public OrderedExecutor getMainWorkerPool() {
+            return mainWorkerPool;
+        }
+
+        @Override
+        public OrderedScheduler getScheduler() {
+            return scheduler;
+        }
+
+        @Override
+        public BookKeeperClientStats getClientStats() {
+            return clientStats;
+        }
+
+        @Override
+        public boolean isClientClosed() {
+            return false;
+        }
+
+        @Override
+        public ClientEntryCache getEntryCache() {
+            return null;
+        }
+
+        @Override
+        public LedgerMetadataCache getLedgerMetadataCache() {
+            return null;
+        }
+    }
+
+    /**
+     * A bookie client that acknowledges every add on the ordered executor of the ledger. The requests
+     * the benchmark doesn't send are completed with {@link BKException.Code#IllegalOpException}.
+     */
+    private static class AckingBookieClient implements BookieClient {
+        private final OrderedExecutor executor;
+
+        AckingBookieClient(OrderedExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public List<BookieId> getFaultyBookies() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isWritable(BookieId address, long ledgerId) {
+            return true;
+        }
+
+        @Override
+        public long getNumPendingRequests(BookieId address, long ledgerId) {
+            return 0;
+        }
+
+        @Override
+        public void forceLedger(BookieId address, long ledgerId, ForceLedgerCallback cb, Object ctx) {
+            executor.executeOrdered(ledgerId, () -> cb.forceLedgerComplete(BKException.Code.OK, ledgerId, address, ctx));
+        }
+
+        @Override
+        public void readLac(BookieId address, long ledgerId, ReadLacCallback cb, Object ctx) {
+            executor.executeOrdered(ledgerId,
+                    () -> cb.readLacComplete(BKException.Code.IllegalOpException, ledgerId, null, null, ctx));
+        }
+
+        @Override
+        public void writeLac(BookieId address, long ledgerId, byte[] masterKey, long lac, ByteBufList toSend,
+                             WriteLacCallback cb, Object ctx) {
+            toSend.release();
+            executor.executeOrdered(ledgerId, () -> cb.writeLacComplete(BKException.Code.OK, ledgerId, address, ctx));
+        }
+
+        @Override
+        public void addEntry(BookieId address, long ledgerId, byte[] masterKey, long entryId,
+                             ReferenceCounted toSend, WriteCallback cb, Object ctx, int options,
+                             boolean allowFastFail, EnumSet<WriteFlag> writeFlags) {
+            toSend.retain();
+            executor.executeOrdered(ledgerId, () -> {
+                toSend.release();
+                cb.writeComplete(BKException.Code.OK, ledgerId, entryId, address, ctx);
+            });
+        }
+
+        @Override
+        public void readEntry(BookieId address, long ledgerId, long entryId, ReadEntryCallback cb, Object ctx,
+                              int flags, byte[] masterKey, boolean allowFastFail) {
+            executor.executeOrdered(ledgerId,
+                    () -> cb.readEntryComplete(BKException.Code.IllegalOpException, ledgerId, entryId, null, ctx));
+        }
+
+        @Override
+        public void readEntryWaitForLACUpdate(BookieId address, long ledgerId, long entryId, long previousLAC,
+                                              long timeOutInMillis, boolean piggyBackEntry, ReadEntryCallback cb,
+                                              Object ctx) {
+            executor.executeOrdered(ledgerId,
+                    () -> cb.readEntryComplete(BKException.Code.IllegalOpException, ledgerId, entryId, null, ctx));
+        }
+
+        @Override
+        public void getBookieInfo(BookieId address, long requested, GetBookieInfoCallback cb, Object ctx) {
+            executor.execute(() -> cb.getBookieInfoComplete(BKException.Code.IllegalOpException, null, ctx));
+        }
+
+        @Override
+        public CompletableFuture<AvailabilityOfEntriesOfLedger> getListOfEntriesOfLedger(BookieId address,
+                                                                                          long ledgerId) {
+            return FutureUtils.exception(new BKException.BKIllegalOpException());
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
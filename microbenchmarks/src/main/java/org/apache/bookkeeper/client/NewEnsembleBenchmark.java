@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.client;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException.BKNotEnoughBookiesException;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
+import org.apache.bookkeeper.client.ClusterChangeBenchmark.StaticRackMapping;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.feature.SettableFeatureProvider;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks of the ensemble selection of the rack aware placement policy, as done on every ledger
+ * creation, by several threads sharing the policy of a client.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class NewEnsembleBenchmark {
+
+    /**
+     * State holder of the test.
+     */
+    @State(Scope.Benchmark)
+    public static class TestState {
+
+        @Param({"100", "1000", "5000"})
+        private int numBookies;
+
+        @Param({"false", "true"})
+        private boolean weighted;
+
+        private RackawareEnsemblePlacementPolicy policy;
+        private final Set<BookieId> excludeBookies = Collections.emptySet();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Set<BookieId> writableBookies = new HashSet<>();
+            Map<BookieId, BookieInfo> bookieInfoMap = new HashMap<>();
+            for (int i = 0; i < numBookies; i++) {
+                BookieId bookie = BookieId.parse(String.format("10.0.%d.%d:3181", i / 256, i % 256));
+                writableBookies.add(bookie);
+                long freeDiskSpace = ThreadLocalRandom.current().nextLong(1L << 30, 1L << 40);
+                bookieInfoMap.put(bookie, new BookieInfo(1L << 40, freeDiskSpace));
+            }
+
+            ClientConfiguration conf = new ClientConfiguration();
+            conf.setDiskWeightBasedPlacementEnabled(weighted);
+            policy = new RackawareEnsemblePlacementPolicy();
+            policy.initialize(conf, Optional.of(new StaticRackMapping()), null,
+                    SettableFeatureProvider.DISABLE_ALL, NullStatsLogger.INSTANCE,
+                    new BookieAddressResolverDisabled());
+            policy.onClusterChanged(writableBookies, Collections.emptySet());
+            if (weighted) {
+                policy.updateBookieInfo(bookieInfoMap);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            policy.uninitalize();
+        }
+    }
+
+    @Benchmark
+    public Object newEnsemble(TestState s) throws BKNotEnoughBookiesException {
+        return s.policy.newEnsemble(3, 3, 2, null, s.excludeBookies);
+    }
+
+    @Benchmark
+    public Object newLargeEnsemble(TestState s) throws BKNotEnoughBookiesException {
+        return s.policy.newEnsemble(10, 3, 2, null, s.excludeBookies);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.net;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks of the lookups of the network topology done by the placement policies on the ledger
+ * creations and reads, by several threads sharing the topology of a client.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class NetworkTopologyBenchmark {
+
+    private static final int BOOKIES_PER_RACK = 10;
+
+    /**
+     * State holder of the test.
+     */
+    @State(Scope.Benchmark)
+    public static class TestState {
+
+        @Param({"100", "1000", "5000"})
+        private int numBookies;
+
+        private NetworkTopologyImpl topology;
+        private Node[] bookies;
+        private int numRacks;
+        private final List<Node> excludedNodes = Collections.emptyList();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            topology = new NetworkTopologyImpl();
+            bookies = new Node[numBookies];
+            numRacks = (numBookies + BOOKIES_PER_RACK - 1) / BOOKIES_PER_RACK;
+            for (int i = 0; i < numBookies; i++) {
+                bookies[i] = new NodeBase("bookie-" + i, rack(i % numRacks));
+                topology.add(bookies[i]);
+            }
+        }
+
+        Node randomBookie() {
+            return bookies[ThreadLocalRandom.current().nextInt(bookies.length)];
+        }
+
+        String randomRack() {
+            return rack(ThreadLocalRandom.current().nextInt(numRacks));
+        }
+
+        private static String rack(int i) {
+            return "/rack-" + i;
+        }
+    }
+
+    @Benchmark
+    public Object chooseRandom(TestState s) {
+        return s.topology.chooseRandom(NetworkTopologyImpl.INVERSE + s.randomRack());
+    }
+
+    @Benchmark
+    public Object getLeavesOfRack(TestState s) {
+        return s.topology.getLeaves(s.randomRack());
+    }
+
+    @Benchmark
+    public Object getLeavesExcludingRack(TestState s) {
+        return s.topology.getLeaves(NetworkTopologyImpl.INVERSE + s.randomRack());
+    }
+
+    @Benchmark
+    public int countNumOfAvailableNodes(TestState s) {
+        return s.topology.countNumOfAvailableNodes(NetworkTopologyImpl.INVERSE + s.randomRack(), s.excludedNodes);
+    }
+
+    @Benchmark
+    public Object getNode(TestState s) {
+        return s.topology.getNode(s.randomRack());
+    }
+
+    @Benchmark
+    public boolean isOnSameRack(TestState s) {
+        return s.topology.isOnSameRack(s.randomBookie(), s.randomBookie());
+    }
+}